@@ -0,0 +1,168 @@
+package xilodyne.machinelearning.classifier.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Random;
+
+import xilodyne.machinelearning.classifier.io.SampleFileReader;
+
+/**
+ * Samples for the benchmarks, synthetic or read from the test-data
+ * directory.  Synthetic values of a feature are one of cardinality
+ * levels, shifted by label so the classes can be told apart.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - JMH benchmarks
+ */
+public class BenchmarkData {
+
+	public static final String DATA_SET_SYNTHETIC = "synthetic";
+	public static final String DATA_SET_IRIS = "iris";
+	public static final String DATA_SET_PIMA = "pima";
+
+	public static final String IRIS_FILE = "./test-data/iris.arff";
+	public static final String PIMA_FILE = "./test-data/pima-indians-diabetes.csv";
+
+	private final float[][] samples;
+	private final float[] labels;
+	private final int numberOfLabels;
+
+	private BenchmarkData(float[][] samples, float[] labels, int numberOfLabels) {
+		this.samples = samples;
+		this.labels = labels;
+		this.numberOfLabels = numberOfLabels;
+	}
+
+	/**
+	 * Synthetic samples, same seed same samples.
+	 *
+	 * @param rows number of samples
+	 * @param features values of a sample
+	 * @param labels number of labels
+	 * @param cardinality distinct values of a feature, per label
+	 * @param seed the random seed
+	 * @return the samples
+	 */
+	public static BenchmarkData synthetic(int rows, int features, int labels, int cardinality, long seed) {
+		Random random = new Random(seed);
+		float[][] samples = new float[rows][features];
+		float[] sampleLabels = new float[rows];
+		for (int row = 0; row < rows; row++) {
+			int label = random.nextInt(labels);
+			sampleLabels[row] = label;
+			for (int feature = 0; feature < features; feature++) {
+				samples[row][feature] = (label * (cardinality / 2)) + random.nextInt(cardinality) + 1;
+			}
+		}
+		return new BenchmarkData(samples, sampleLabels, labels);
+	}
+
+	/**
+	 * Samples of the iris or pima file in test-data.
+	 *
+	 * @param dataSet DATA_SET_IRIS or DATA_SET_PIMA
+	 * @return the samples
+	 * @throws IOException thrown when the file can not be read
+	 */
+	public static BenchmarkData load(String dataSet) throws IOException {
+		SampleFileReader reader;
+		if (DATA_SET_IRIS.equals(dataSet)) {
+			reader = new SampleFileReader(IRIS_FILE);
+		} else if (DATA_SET_PIMA.equals(dataSet)) {
+			reader = new SampleFileReader(PIMA_FILE, ',', SampleFileReader.NO_HEADER_ROW, SampleFileReader.LABEL_LAST_COLUMN);
+		} else {
+			throw new IllegalArgumentException("Unknown data set: " + dataSet);
+		}
+
+		List<float[]> samples = new ArrayList<float[]>();
+		List<Float> labels = new ArrayList<Float>();
+		int numberOfLabels = 0;
+		try {
+			while (reader.next()) {
+				samples.add(reader.getValues().clone());
+				labels.add(reader.getLabel());
+				numberOfLabels = Math.max(numberOfLabels, (int) reader.getLabel() + 1);
+			}
+		} finally {
+			reader.close();
+		}
+		float[] sampleLabels = new float[labels.size()];
+		for (int index = 0; index < sampleLabels.length; index++) {
+			sampleLabels[index] = labels.get(index);
+		}
+		return new BenchmarkData(samples.toArray(new float[samples.size()][]), sampleLabels, numberOfLabels);
+	}
+
+	/**
+	 * @return the samples
+	 */
+	public float[][] getSamples() {
+		return this.samples;
+	}
+
+	/**
+	 * @return label of each sample
+	 */
+	public float[] getLabels() {
+		return this.labels;
+	}
+
+	/**
+	 * @return number of labels
+	 */
+	public int getNumberOfLabels() {
+		return this.numberOfLabels;
+	}
+
+	/**
+	 * @return values of a sample
+	 */
+	public int getNumberOfFeatures() {
+		return this.samples[0].length;
+	}
+
+	/**
+	 * @return samples one after the other, for GNB fitRows
+	 */
+	public float[] getRows() {
+		int features = this.getNumberOfFeatures();
+		float[] rows = new float[this.samples.length * features];
+		for (int row = 0; row < this.samples.length; row++) {
+			System.arraycopy(this.samples[row], 0, rows, row * features, features);
+		}
+		return rows;
+	}
+
+	/**
+	 * @param feature the feature index
+	 * @return name of the feature, text classifier
+	 */
+	public static String getFeatureName(int feature) {
+		return "F" + feature;
+	}
+
+	/**
+	 * @param label the label
+	 * @return name of the label, text classifier
+	 */
+	public static String getLabelName(float label) {
+		return "L" + (int) label;
+	}
+
+	/**
+	 * @return samples as feature name / value text, text classifier
+	 */
+	public List<Hashtable<String, String>> getTextSamples() {
+		List<Hashtable<String, String>> textSamples = new ArrayList<Hashtable<String, String>>();
+		for (float[] sample : this.samples) {
+			Hashtable<String, String> textSample = new Hashtable<String, String>();
+			for (int feature = 0; feature < sample.length; feature++) {
+				textSample.put(getFeatureName(feature), Float.toString(sample[feature]));
+			}
+			textSamples.add(textSample);
+		}
+		return textSamples;
+	}
+}
@@ -0,0 +1,45 @@
+package xilodyne.machinelearning.classifier.benchmark;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks and write the results as JSON, the baseline
+ * compared against to catch performance regressions.
+ * <p>
+ * Arguments: [benchmark regex] [result file] [JMH options], the regex
+ * and result file default to all benchmarks of this package and
+ * results/jmh-results.json.  Arguments from the first one starting
+ * with - are passed to the JMH command line parser, e.g. -p rows=1000
+ * or -f 1, the result file and format are always set here.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - JMH benchmarks, JMH command line options
+ */
+public class BenchmarkRunner {
+
+	public static final String DEFAULT_RESULT_FILE = "results/jmh-results.json";
+
+	public static void main(String[] args) throws Exception {
+		int positional = 0;
+		while ((positional < args.length) && (positional < 2) && !args[positional].startsWith("-")) {
+			positional++;
+		}
+		String include = (positional > 0) ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*";
+		String resultFile = (positional > 1) ? args[1] : DEFAULT_RESULT_FILE;
+		CommandLineOptions jmhOptions = new CommandLineOptions(Arrays.copyOfRange(args, positional, args.length));
+
+		Options options = new OptionsBuilder()
+				.parent(jmhOptions)
+				.include(include)
+				.resultFormat(ResultFormatType.JSON)
+				.result(resultFile)
+				.build();
+		new Runner(options).run();
+	}
+}
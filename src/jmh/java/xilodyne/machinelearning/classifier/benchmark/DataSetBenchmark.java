@@ -0,0 +1,129 @@
+package xilodyne.machinelearning.classifier.benchmark;
+
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xilodyne.machinelearning.classifier.bayes.GaussianNaiveBayesClassifier;
+import xilodyne.machinelearning.classifier.bayes.NaiveBayesClassifier;
+import xilodyne.machinelearning.classifier.bayes.NaiveBayesClassifier_UsingTextValues;
+import xilodyne.util.logger.Logger;
+
+/**
+ * Fit and predict of the NB classifiers on the iris and pima data sets
+ * of the test-data directory, run from the project directory.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - JMH benchmarks
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataSetBenchmark {
+
+	@Param({BenchmarkData.DATA_SET_IRIS, BenchmarkData.DATA_SET_PIMA})
+	public String dataSet;
+
+	private BenchmarkData data;
+	private float[][] samples;
+	private float[] rowData;
+	private List<Hashtable<String, String>> textSamples;
+
+	private GaussianNaiveBayesClassifier fittedGNB;
+	private NaiveBayesClassifier fittedNB;
+	private NaiveBayesClassifier_UsingTextValues fittedText;
+	private double[] scores;
+	private int nextSample = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		Logger.setLoggerLevel(Logger.LOG_OFF);
+		this.data = BenchmarkData.load(this.dataSet);
+		this.samples = this.data.getSamples();
+		this.rowData = this.data.getRows();
+		this.textSamples = this.data.getTextSamples();
+
+		this.fittedGNB = this.fitGNB();
+		this.fittedNB = this.fitNB();
+		this.fittedText = this.fitText();
+		this.scores = new double[this.data.getNumberOfLabels()];
+		this.fittedGNB.predictInto(this.samples[0], this.scores);
+		this.fittedNB.predictInto(this.samples[0], this.scores);
+		this.fittedText.predict_TestingSet(this.textSamples.get(0));
+	}
+
+	private int nextIndex() {
+		int index = this.nextSample;
+		this.nextSample = (this.nextSample + 1) % this.samples.length;
+		return index;
+	}
+
+	@Benchmark
+	public GaussianNaiveBayesClassifier fitGNB() throws Exception {
+		GaussianNaiveBayesClassifier gnb = new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		int features = this.data.getNumberOfFeatures();
+		gnb.fitRows(this.rowData, features, features, this.data.getLabels());
+		return gnb;
+	}
+
+	@Benchmark
+	public NaiveBayesClassifier fitNB() {
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		float[] labels = this.data.getLabels();
+		for (int index = 0; index < this.samples.length; index++) {
+			nb.fit(this.samples[index], labels[index]);
+		}
+		return nb;
+	}
+
+	@Benchmark
+	public NaiveBayesClassifier_UsingTextValues fitText() {
+		NaiveBayesClassifier_UsingTextValues nb = new NaiveBayesClassifier_UsingTextValues(
+				NaiveBayesClassifier_UsingTextValues.EMPTY_SAMPLES_ALLOW);
+		float[] labels = this.data.getLabels();
+		int features = this.data.getNumberOfFeatures();
+		for (int index = 0; index < this.textSamples.size(); index++) {
+			Hashtable<String, String> sample = this.textSamples.get(index);
+			String label = BenchmarkData.getLabelName(labels[index]);
+			for (int feature = 0; feature < features; feature++) {
+				String featureName = BenchmarkData.getFeatureName(feature);
+				nb.fit(featureName, sample.get(featureName), label);
+			}
+		}
+		return nb;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public double predictGNB() {
+		return this.fittedGNB.predictInto(this.samples[this.nextIndex()], this.scores);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public double predictNB() {
+		return this.fittedNB.predictInto(this.samples[this.nextIndex()], this.scores);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public String predictText() {
+		return this.fittedText.predict_TestingSet(this.textSamples.get(this.nextIndex()));
+	}
+}
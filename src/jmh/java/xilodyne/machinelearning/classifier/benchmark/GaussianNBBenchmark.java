@@ -0,0 +1,115 @@
+package xilodyne.machinelearning.classifier.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xilodyne.machinelearning.classifier.bayes.GaussianNaiveBayesClassifier;
+import xilodyne.util.logger.Logger;
+
+/**
+ * Fit and predict of the Gaussian NB on synthetic samples.  Fit
+ * benchmarks fit every sample into a new classifier, predict benchmarks
+ * predict one sample of the fitted classifier (the next each call).
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - JMH benchmarks
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GaussianNBBenchmark {
+
+	public static final String STORAGE_VALUES = "values";
+	public static final String STORAGE_STATISTICS = "statistics";
+
+	@Param({"1000", "100000"})
+	public int rows;
+
+	@Param({"4", "32"})
+	public int features;
+
+	@Param({"2", "10"})
+	public int labels;
+
+	@Param({"16", "1024"})
+	public int cardinality;
+
+	@Param({STORAGE_VALUES, STORAGE_STATISTICS})
+	public String storage;
+
+	private BenchmarkData data;
+	private float[] rowData;
+	private float[][] samples;
+	private GaussianNaiveBayesClassifier fitted;
+	private double[] scores;
+	private int nextSample = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		Logger.setLoggerLevel(Logger.LOG_OFF);
+		this.data = BenchmarkData.synthetic(this.rows, this.features, this.labels, this.cardinality, 17);
+		this.rowData = this.data.getRows();
+		this.samples = this.data.getSamples();
+
+		this.fitted = this.newClassifier();
+		this.fitted.fitRows(this.rowData, this.features, this.features, this.data.getLabels());
+		this.scores = new double[this.fitted.getNumberOfLabels()];
+		//compile the model outside the measurement
+		this.fitted.predictInto(this.samples[0], this.scores);
+	}
+
+	private GaussianNaiveBayesClassifier newClassifier() {
+		return new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW,
+				STORAGE_STATISTICS.equals(this.storage));
+	}
+
+	private float[] nextSample() {
+		float[] sample = this.samples[this.nextSample];
+		this.nextSample = (this.nextSample + 1) % this.samples.length;
+		return sample;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public GaussianNaiveBayesClassifier fitSamples() {
+		GaussianNaiveBayesClassifier gnb = this.newClassifier();
+		float[] sampleLabels = this.data.getLabels();
+		for (int index = 0; index < this.samples.length; index++) {
+			gnb.fit(this.samples[index], sampleLabels[index]);
+		}
+		return gnb;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public GaussianNaiveBayesClassifier fitRows() throws Exception {
+		GaussianNaiveBayesClassifier gnb = this.newClassifier();
+		gnb.fitRows(this.rowData, this.features, this.features, this.data.getLabels());
+		return gnb;
+	}
+
+	@Benchmark
+	public double predictInto() {
+		return this.fitted.predictInto(this.nextSample(), this.scores);
+	}
+
+	@Benchmark
+	public double predictTestingSet() {
+		return this.fitted.predict_TestingSet(this.nextSample());
+	}
+}
@@ -0,0 +1,96 @@
+package xilodyne.machinelearning.classifier.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xilodyne.machinelearning.classifier.bayes.NaiveBayesClassifier;
+import xilodyne.util.logger.Logger;
+
+/**
+ * Fit and predict of the discrete NB on synthetic samples, the
+ * cardinality is the number of distinct values of a feature per label.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - JMH benchmarks
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NaiveBayesBenchmark {
+
+	@Param({"1000", "100000"})
+	public int rows;
+
+	@Param({"4", "32"})
+	public int features;
+
+	@Param({"2", "10"})
+	public int labels;
+
+	@Param({"16", "1024"})
+	public int cardinality;
+
+	private BenchmarkData data;
+	private float[][] samples;
+	private NaiveBayesClassifier fitted;
+	private double[] scores;
+	private int nextSample = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Logger.setLoggerLevel(Logger.LOG_OFF);
+		this.data = BenchmarkData.synthetic(this.rows, this.features, this.labels, this.cardinality, 17);
+		this.samples = this.data.getSamples();
+
+		this.fitted = this.fit();
+		this.scores = new double[this.fitted.getNumberOfLabels()];
+		//build the scoring table outside the measurement
+		this.fitted.predictInto(this.samples[0], this.scores);
+	}
+
+	private NaiveBayesClassifier fit() {
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		float[] sampleLabels = this.data.getLabels();
+		for (int index = 0; index < this.samples.length; index++) {
+			nb.fit(this.samples[index], sampleLabels[index]);
+		}
+		return nb;
+	}
+
+	private float[] nextSample() {
+		float[] sample = this.samples[this.nextSample];
+		this.nextSample = (this.nextSample + 1) % this.samples.length;
+		return sample;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public NaiveBayesClassifier fitSamples() {
+		return this.fit();
+	}
+
+	@Benchmark
+	public double predictInto() {
+		return this.fitted.predictInto(this.nextSample(), this.scores);
+	}
+
+	@Benchmark
+	public double[] predictLogProba() {
+		return this.fitted.predictLogProba(this.nextSample());
+	}
+}
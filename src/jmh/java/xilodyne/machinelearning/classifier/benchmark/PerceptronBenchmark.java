@@ -0,0 +1,85 @@
+package xilodyne.machinelearning.classifier.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xilodyne.machinelearning.classifier.neural.Perceptron_Int;
+
+/**
+ * Fit and activate of the integer perceptron.  Fit does not update the
+ * weights yet, it is measured so a baseline exists when it does.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - JMH benchmarks
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerceptronBenchmark {
+
+	@Param({"1000", "100000"})
+	public int rows;
+
+	@Param({"4", "32"})
+	public int features;
+
+	@Param({"16", "1024"})
+	public int cardinality;
+
+	private Perceptron_Int perceptron;
+	private int[][] inputs;
+	private int[] flatInputs;
+	private int[] labels;
+	private int nextSample = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(17);
+		int[] weights = new int[this.features];
+		for (int feature = 0; feature < this.features; feature++) {
+			weights[feature] = random.nextInt(21) - 10;
+		}
+		this.perceptron = new Perceptron_Int(weights, 0);
+
+		this.inputs = new int[this.rows][this.features];
+		this.flatInputs = new int[this.rows * this.features];
+		this.labels = new int[this.rows];
+		for (int row = 0; row < this.rows; row++) {
+			for (int feature = 0; feature < this.features; feature++) {
+				this.inputs[row][feature] = random.nextInt(this.cardinality);
+				this.flatInputs[(row * this.features) + feature] = this.inputs[row][feature];
+			}
+			this.labels[row] = random.nextInt(2);
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Perceptron_Int fit() {
+		this.perceptron.fit(this.flatInputs, this.labels);
+		return this.perceptron;
+	}
+
+	@Benchmark
+	public boolean activate() {
+		int[] input = this.inputs[this.nextSample];
+		this.nextSample = (this.nextSample + 1) % this.inputs.length;
+		return this.perceptron.activate(input);
+	}
+}
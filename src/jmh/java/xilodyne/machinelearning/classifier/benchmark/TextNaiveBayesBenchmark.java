@@ -0,0 +1,119 @@
+package xilodyne.machinelearning.classifier.benchmark;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import xilodyne.machinelearning.classifier.bayes.NaiveBayesClassifier_UsingTextValues;
+import xilodyne.machinelearning.classifier.bayes.PreparedQuery;
+import xilodyne.util.logger.Logger;
+
+/**
+ * Fit and predict of the text value NB on synthetic samples, values and
+ * labels are the text of the synthetic numbers.  Prediction is also
+ * measured from a published snapshot, by testing data and by prepared
+ * query.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - JMH benchmarks
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextNaiveBayesBenchmark {
+
+	@Param({"1000", "10000"})
+	public int rows;
+
+	@Param({"4", "32"})
+	public int features;
+
+	@Param({"2", "10"})
+	public int labels;
+
+	@Param({"16", "1024"})
+	public int cardinality;
+
+	private BenchmarkData data;
+	private List<Hashtable<String, String>> textSamples;
+	private NaiveBayesClassifier_UsingTextValues fitted;
+	private NaiveBayesClassifier_UsingTextValues published;
+	private List<PreparedQuery> queries;
+	private int nextSample = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Logger.setLoggerLevel(Logger.LOG_OFF);
+		this.data = BenchmarkData.synthetic(this.rows, this.features, this.labels, this.cardinality, 17);
+		this.textSamples = this.data.getTextSamples();
+
+		this.fitted = this.fit();
+		this.fitted.predict_TestingSet(this.textSamples.get(0));
+
+		this.published = this.fit();
+		this.published.publishSnapshot();
+		this.queries = new ArrayList<PreparedQuery>(this.textSamples.size());
+		for (Hashtable<String, String> sample : this.textSamples) {
+			this.queries.add(this.published.prepareQuery(sample));
+		}
+	}
+
+	private NaiveBayesClassifier_UsingTextValues fit() {
+		NaiveBayesClassifier_UsingTextValues nb = new NaiveBayesClassifier_UsingTextValues(
+				NaiveBayesClassifier_UsingTextValues.EMPTY_SAMPLES_ALLOW);
+		float[] sampleLabels = this.data.getLabels();
+		for (int index = 0; index < this.textSamples.size(); index++) {
+			Hashtable<String, String> sample = this.textSamples.get(index);
+			String label = BenchmarkData.getLabelName(sampleLabels[index]);
+			for (int feature = 0; feature < this.features; feature++) {
+				String featureName = BenchmarkData.getFeatureName(feature);
+				nb.fit(featureName, sample.get(featureName), label);
+			}
+		}
+		return nb;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public NaiveBayesClassifier_UsingTextValues fitSamples() {
+		return this.fit();
+	}
+
+	@Benchmark
+	public String predictTestingSet() {
+		Hashtable<String, String> sample = this.textSamples.get(this.nextSample);
+		this.nextSample = (this.nextSample + 1) % this.textSamples.size();
+		return this.fitted.predict_TestingSet(sample);
+	}
+
+	@Benchmark
+	public String predictSnapshot() {
+		Hashtable<String, String> sample = this.textSamples.get(this.nextSample);
+		this.nextSample = (this.nextSample + 1) % this.textSamples.size();
+		return this.published.predict_TestingSet(sample);
+	}
+
+	@Benchmark
+	public String predictPreparedQuery() {
+		PreparedQuery query = this.queries.get(this.nextSample);
+		this.nextSample = (this.nextSample + 1) % this.queries.size();
+		return this.published.predict_TestingSet(query);
+	}
+}
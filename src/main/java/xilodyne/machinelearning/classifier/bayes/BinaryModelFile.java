@@ -0,0 +1,385 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Versioned binary file format for trained models, read by memory mapping
+ * the file.  The mapped models score directly from the mapped bytes, nothing
+ * is deserialized into heap objects, so loading takes about as long as
+ * opening the file.
+ * <p>
+ * All values are big endian.  Every file starts with the header:
+ * <pre>
+ * int     MAGIC ("XNBM")
+ * int     VERSION
+ * int     model type (TYPE_GAUSSIAN, TYPE_NAIVE_BAYES, TYPE_NAIVE_BAYES_TEXT)
+ * int     number of labels (L)
+ * int     number of features (F)
+ * </pre>
+ * TYPE_GAUSSIAN (from {@link CompiledGaussianModel}):
+ * <pre>
+ * float[L]    labels
+ * int         1 if zero values are ignored
+ * double[L]   ln P(c)
+ * double[L*F] mean, [label * F + feature]
+ * double[L*F] -0.5 * ln(2 * PI * variance)
+ * double[L*F] 1 / (2 * variance)
+ * </pre>
+ * TYPE_NAIVE_BAYES (from {@link NaiveBayesClassifier}):
+ * <pre>
+ * float[L]    labels
+ * double[L]   ln P(c)
+ * F x { int value count (V), int offset of the feature's values }
+ * each feature: float[V] values (ascending), double[V*L] ln P(d|c), [value * L + label]
+ * </pre>
+ * TYPE_NAIVE_BAYES_TEXT (from {@link NaiveBayesClassifier_UsingTextValues}):
+ * <pre>
+ * L x string  labels
+ * double[L]   ln P(c)
+ * F x { int offset of the feature name string, int value count (V), int offset of the feature's values }
+ * each feature: V x int offset of the value string, double[V*L] ln P(d|c), [value * L + label]
+ * strings:      int byte count, UTF-8 bytes
+ * </pre>
+ * Feature names (upper case) and values (lower case) are ordered by their UTF-8 bytes.
+ * Offsets are from the start of the file.  A probability of zero is
+ * stored as negative infinity.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - binary model file
+ */
+public final class BinaryModelFile {
+
+	public static final int MAGIC = 0x584E424D;
+	public static final int VERSION = 1;
+
+	public static final int TYPE_GAUSSIAN = 1;
+	public static final int TYPE_NAIVE_BAYES = 2;
+	public static final int TYPE_NAIVE_BAYES_TEXT = 3;
+
+	static final int HEADER_SIZE = 20;
+
+	private BinaryModelFile() {
+	}
+
+	/**
+	 * Map a model file written by {@link CompiledGaussianModel#save(String)}
+	 * or {@link GaussianNaiveBayesClassifier#saveModel(String)}.
+	 *
+	 * @param fileName the file
+	 * @return the mapped model
+	 * @throws IOException thrown if the file can not be read or is not a GNB model of this version
+	 */
+	public static MappedGaussianModel loadGaussian(String fileName) throws IOException {
+		return new MappedGaussianModel(map(fileName, TYPE_GAUSSIAN));
+	}
+
+	/**
+	 * Map a model file written by {@link NaiveBayesClassifier#saveModel(String)}.
+	 *
+	 * @param fileName the file
+	 * @return the mapped model
+	 * @throws IOException thrown if the file can not be read or is not a NB model of this version
+	 */
+	public static MappedNaiveBayesModel loadNaiveBayes(String fileName) throws IOException {
+		return new MappedNaiveBayesModel(map(fileName, TYPE_NAIVE_BAYES));
+	}
+
+	/**
+	 * Map a model file written by {@link NaiveBayesClassifier_UsingTextValues#saveModel(String)}.
+	 *
+	 * @param fileName the file
+	 * @return the mapped model
+	 * @throws IOException thrown if the file can not be read or is not a text NB model of this version
+	 */
+	public static MappedTextNaiveBayesModel loadNaiveBayesText(String fileName) throws IOException {
+		return new MappedTextNaiveBayesModel(map(fileName, TYPE_NAIVE_BAYES_TEXT));
+	}
+
+	/**
+	 * Map the whole file read only and check the header.
+	 *
+	 * @param fileName the file
+	 * @param type the expected model type
+	 * @return the mapped file, position 0
+	 * @throws IOException thrown if the file can not be read or the header does not match
+	 */
+	private static ByteBuffer map(String fileName, int type) throws IOException {
+		MappedByteBuffer buffer;
+		FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+		try {
+			// the mapping stays valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			channel.close();
+		}
+
+		if ((buffer.capacity() < HEADER_SIZE) || (buffer.getInt(0) != MAGIC)) {
+			throw new IOException("Not a model file: " + fileName);
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported model file version: " + buffer.getInt(4) + ", expected " + VERSION);
+		}
+		if (buffer.getInt(8) != type) {
+			throw new IOException("Model file type is " + buffer.getInt(8) + ", expected " + type);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Write a GNB model.
+	 *
+	 * @param fileName the file
+	 * @param labels label values
+	 * @param numberOfFeatures number of features per label
+	 * @param ignoreEmptyValues TRUE if zero values are skipped when scoring
+	 * @param logPrior ln P(c) for each label
+	 * @param mean mean [label * features + feature]
+	 * @param logNormalizer -0.5 * ln(2 * PI * variance) [label * features + feature]
+	 * @param inverseTwoVariance 1 / (2 * variance) [label * features + feature]
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	static void writeGaussian(String fileName, float[] labels, int numberOfFeatures, boolean ignoreEmptyValues,
+			double[] logPrior, double[] mean, double[] logNormalizer, double[] inverseTwoVariance) throws IOException {
+		DataOutputStream out = open(fileName);
+		try {
+			writeHeader(out, TYPE_GAUSSIAN, labels.length, numberOfFeatures);
+			for (float label : labels) {
+				out.writeFloat(label);
+			}
+			out.writeInt(ignoreEmptyValues ? 1 : 0);
+			writeDoubles(out, logPrior);
+			writeDoubles(out, mean);
+			writeDoubles(out, logNormalizer);
+			writeDoubles(out, inverseTwoVariance);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write a NB model.
+	 *
+	 * @param fileName the file
+	 * @param labels label values
+	 * @param logPrior ln P(c) for each label
+	 * @param values distinct values of each feature, ascending
+	 * @param logProbabilities ln P(d|c) of each feature [value * labels + label]
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	static void writeNaiveBayes(String fileName, float[] labels, double[] logPrior, float[][] values,
+			double[][] logProbabilities) throws IOException {
+		int numberOfLabels = labels.length;
+		DataOutputStream out = open(fileName);
+		try {
+			writeHeader(out, TYPE_NAIVE_BAYES, numberOfLabels, values.length);
+			for (float label : labels) {
+				out.writeFloat(label);
+			}
+			writeDoubles(out, logPrior);
+
+			int offset = HEADER_SIZE + (numberOfLabels * 4) + (numberOfLabels * 8) + (values.length * 8);
+			for (int featureIndex = 0; featureIndex < values.length; featureIndex++) {
+				out.writeInt(values[featureIndex].length);
+				out.writeInt(offset);
+				offset = offset + (values[featureIndex].length * 4) + (values[featureIndex].length * numberOfLabels * 8);
+			}
+			for (int featureIndex = 0; featureIndex < values.length; featureIndex++) {
+				for (float value : values[featureIndex]) {
+					out.writeFloat(value);
+				}
+				writeDoubles(out, logProbabilities[featureIndex]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write a text NB model.  Features and values are reordered by UTF-8 bytes.
+	 *
+	 * @param fileName the file
+	 * @param labels label values
+	 * @param logPrior ln P(c) for each label
+	 * @param featureNames name of each feature
+	 * @param values distinct values of each feature
+	 * @param logProbabilities ln P(d|c) of each feature [value * labels + label]
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	static void writeNaiveBayesText(String fileName, String[] labels, double[] logPrior, String[] featureNames,
+			String[][] values, double[][] logProbabilities) throws IOException {
+		int numberOfLabels = labels.length;
+		int numberOfFeatures = featureNames.length;
+		byte[][] names = encode(featureNames);
+		Integer[] featureOrder = sortedOrder(names);
+
+		byte[][][] valueBytes = new byte[numberOfFeatures][][];
+		Integer[][] valueOrder = new Integer[numberOfFeatures][];
+		for (int featureIndex = 0; featureIndex < numberOfFeatures; featureIndex++) {
+			valueBytes[featureIndex] = encode(values[featureIndex]);
+			valueOrder[featureIndex] = sortedOrder(valueBytes[featureIndex]);
+		}
+
+		DataOutputStream out = open(fileName);
+		try {
+			writeHeader(out, TYPE_NAIVE_BAYES_TEXT, numberOfLabels, numberOfFeatures);
+			for (String label : labels) {
+				writeString(out, label.getBytes(StandardCharsets.UTF_8));
+			}
+			writeDoubles(out, logPrior);
+
+			// string area follows the feature sections
+			int offset = out.size() + (numberOfFeatures * 12);
+			int stringOffset = offset;
+			for (int featureIndex = 0; featureIndex < numberOfFeatures; featureIndex++) {
+				stringOffset = stringOffset + (values[featureIndex].length * 4) + (values[featureIndex].length * numberOfLabels * 8);
+			}
+
+			int nextString = stringOffset;
+			int[] nameOffsets = new int[numberOfFeatures];
+			int[][] valueOffsets = new int[numberOfFeatures][];
+			for (int featureIndex = 0; featureIndex < numberOfFeatures; featureIndex++) {
+				nameOffsets[featureIndex] = nextString;
+				nextString = nextString + 4 + names[featureIndex].length;
+				valueOffsets[featureIndex] = new int[values[featureIndex].length];
+				for (int valueIndex = 0; valueIndex < values[featureIndex].length; valueIndex++) {
+					valueOffsets[featureIndex][valueIndex] = nextString;
+					nextString = nextString + 4 + valueBytes[featureIndex][valueIndex].length;
+				}
+			}
+
+			for (int featureIndex : featureOrder) {
+				out.writeInt(nameOffsets[featureIndex]);
+				out.writeInt(values[featureIndex].length);
+				out.writeInt(offset);
+				offset = offset + (values[featureIndex].length * 4) + (values[featureIndex].length * numberOfLabels * 8);
+			}
+			for (int featureIndex : featureOrder) {
+				for (int valueIndex : valueOrder[featureIndex]) {
+					out.writeInt(valueOffsets[featureIndex][valueIndex]);
+				}
+				for (int valueIndex : valueOrder[featureIndex]) {
+					for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+						out.writeDouble(logProbabilities[featureIndex][(valueIndex * numberOfLabels) + labelIndex]);
+					}
+				}
+			}
+			for (int featureIndex = 0; featureIndex < numberOfFeatures; featureIndex++) {
+				writeString(out, names[featureIndex]);
+				for (byte[] value : valueBytes[featureIndex]) {
+					writeString(out, value);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Compare UTF-8 bytes as unsigned values, the order used in the file.
+	 *
+	 * @param first the first string
+	 * @param second the second string
+	 * @return negative, zero or positive
+	 */
+	static int compareBytes(byte[] first, byte[] second) {
+		int length = Math.min(first.length, second.length);
+		for (int index = 0; index < length; index++) {
+			int compare = (first[index] & 0xff) - (second[index] & 0xff);
+			if (compare != 0) {
+				return compare;
+			}
+		}
+		return first.length - second.length;
+	}
+
+	/**
+	 * Compare UTF-8 bytes to a string stored in the buffer.
+	 *
+	 * @param key the key
+	 * @param buffer the mapped file
+	 * @param stringOffset offset of the stored string
+	 * @return negative, zero or positive
+	 */
+	static int compareBytes(byte[] key, ByteBuffer buffer, int stringOffset) {
+		int storedLength = buffer.getInt(stringOffset);
+		int length = Math.min(key.length, storedLength);
+		for (int index = 0; index < length; index++) {
+			int compare = (key[index] & 0xff) - (buffer.get(stringOffset + 4 + index) & 0xff);
+			if (compare != 0) {
+				return compare;
+			}
+		}
+		return key.length - storedLength;
+	}
+
+	/**
+	 * Read a string stored in the buffer.
+	 *
+	 * @param buffer the mapped file
+	 * @param stringOffset offset of the stored string
+	 * @return the string
+	 */
+	static String readString(ByteBuffer buffer, int stringOffset) {
+		byte[] bytes = new byte[buffer.getInt(stringOffset)];
+		for (int index = 0; index < bytes.length; index++) {
+			bytes[index] = buffer.get(stringOffset + 4 + index);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static DataOutputStream open(String fileName) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+	}
+
+	private static void writeHeader(DataOutputStream out, int type, int numberOfLabels, int numberOfFeatures)
+			throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(type);
+		out.writeInt(numberOfLabels);
+		out.writeInt(numberOfFeatures);
+	}
+
+	private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+		for (double value : values) {
+			out.writeDouble(value);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[][] encode(String[] strings) {
+		byte[][] bytes = new byte[strings.length][];
+		for (int index = 0; index < strings.length; index++) {
+			bytes[index] = strings[index].getBytes(StandardCharsets.UTF_8);
+		}
+		return bytes;
+	}
+
+	private static Integer[] sortedOrder(final byte[][] strings) {
+		Integer[] order = new Integer[strings.length];
+		for (int index = 0; index < order.length; index++) {
+			order[index] = index;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer first, Integer second) {
+				return compareBytes(strings[first], strings[second]);
+			}
+		});
+		return order;
+	}
+}
@@ -0,0 +1,224 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.io.IOException;
+
+/**
+ * Immutable Gaussian Naive Bayes model for prediction only, created by
+ * {@link GaussianNaiveBayesClassifier#compile()}.
+ * <p>
+ * Mean, log normalizer -0.5 * ln(2 * PI * variance) and 1 / (2 * variance)
+ * are precomputed into flat arrays indexed [labelIndex * numberOfFeatures + featureIndex]
+ * so scoring is a sum of log terms with no lookups, boxing or division:
+ * <p>
+ * ln P(c|d) = ln P(c) + sum( logNormalizer - (x - mean)^2 * inverseTwoVariance )
+ * <p>
+ * The sum is done by a scoring engine chosen once when the class loads.
+ * The JDK Vector API engine is loaded by reflection if it is available,
+ * it is built from the optional src/vector source set and needs the
+ * jdk.incubator.vector module (java --add-modules jdk.incubator.vector)
+ * and a CPU with vector registers.  If it can not be loaded the scalar
+ * engine is used.  The system property xilodyne.gnb.scoring=scalar
+ * selects the scalar engine without trying the vector engine.
+ * <p>
+ * Safe to share between threads.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - compiled GNB model, vector scoring engine, binary model file,
+ * 	vector engine detected at startup
+ */
+public final class CompiledGaussianModel {
+
+	public static final String SCORING_SCALAR = "scalar";
+	public static final String SCORING_VECTOR = "vector";
+	public static final String SCORING_PROPERTY = "xilodyne.gnb.scoring";
+
+	private static final GaussianScoringKernel DEFAULT_KERNEL = selectKernel();
+
+	private final float[] labels;
+	private final int numberOfFeatures;
+	private final boolean ignoreEmptyValues;
+
+	private final double[] logPrior;
+	private final double[] mean;
+	private final double[] logNormalizer;
+	private final double[] inverseTwoVariance;
+
+	private final GaussianScoringKernel kernel;
+
+	/**
+	 * Instantiates a new compiled model using the default scoring engine, arrays are not copied.
+	 *
+	 * @param labels label values, index matches scores
+	 * @param numberOfFeatures number of features per label
+	 * @param ignoreEmptyValues TRUE if zero values are skipped when scoring
+	 * @param logPrior ln P(c) for each label
+	 * @param mean mean [label * features + feature]
+	 * @param logNormalizer -0.5 * ln(2 * PI * variance) [label * features + feature]
+	 * @param inverseTwoVariance 1 / (2 * variance) [label * features + feature]
+	 */
+	CompiledGaussianModel(float[] labels, int numberOfFeatures, boolean ignoreEmptyValues,
+			double[] logPrior, double[] mean, double[] logNormalizer, double[] inverseTwoVariance) {
+		this.labels = labels;
+		this.numberOfFeatures = numberOfFeatures;
+		this.ignoreEmptyValues = ignoreEmptyValues;
+		this.logPrior = logPrior;
+		this.mean = mean;
+		this.logNormalizer = logNormalizer;
+		this.inverseTwoVariance = inverseTwoVariance;
+		this.kernel = DEFAULT_KERNEL;
+	}
+
+	private CompiledGaussianModel(CompiledGaussianModel model, GaussianScoringKernel kernel) {
+		this.labels = model.labels;
+		this.numberOfFeatures = model.numberOfFeatures;
+		this.ignoreEmptyValues = model.ignoreEmptyValues;
+		this.logPrior = model.logPrior;
+		this.mean = model.mean;
+		this.logNormalizer = model.logNormalizer;
+		this.inverseTwoVariance = model.inverseTwoVariance;
+		this.kernel = kernel;
+	}
+
+	/**
+	 * Use the vector engine if it can be loaded and the system property
+	 * does not ask for the scalar engine, the library compiles and runs
+	 * without it.
+	 *
+	 * @return the scoring engine
+	 */
+	private static GaussianScoringKernel selectKernel() {
+		if (!SCORING_SCALAR.equalsIgnoreCase(System.getProperty(SCORING_PROPERTY))) {
+			try {
+				Class<?> vectorKernel = Class.forName(CompiledGaussianModel.class.getPackage().getName() + ".VectorGaussianKernel");
+				return (GaussianScoringKernel) vectorKernel.getDeclaredConstructor().newInstance();
+			} catch (Exception | LinkageError e) {
+				// not on the class path, module not present or no vector support
+			}
+		}
+		return new ScalarGaussianKernel();
+	}
+
+	/**
+	 * Same model using the scalar scoring engine.
+	 *
+	 * @return the model, arrays are shared
+	 */
+	public CompiledGaussianModel withScalarScoring() {
+		if (this.kernel instanceof ScalarGaussianKernel) {
+			return this;
+		}
+		return new CompiledGaussianModel(this, new ScalarGaussianKernel());
+	}
+
+	/**
+	 * @return SCORING_VECTOR or SCORING_SCALAR
+	 */
+	public String getScoringEngine() {
+		return this.kernel.getName();
+	}
+
+	/**
+	 * Predict the label of one sample.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @return the label
+	 */
+	public double predict(float[] testingData) {
+		int labelMax = 0;
+		double getMax = Double.NEGATIVE_INFINITY;
+		for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+			double score = this.getLogScore(testingData, labelIndex);
+			if (score > getMax) {
+				getMax = score;
+				labelMax = labelIndex;
+			}
+		}
+		return this.labels[labelMax];
+	}
+
+	/**
+	 * Predict the labels of a set of samples.
+	 *
+	 * @param testingData the samples [[val1, val2, ...], [val1, val2, ...], ...]
+	 * @return the array of all predicted labels
+	 */
+	public double[] predict(float[][] testingData) {
+		double[] predicted = new double[testingData.length];
+		for (int index = 0; index < testingData.length; index++) {
+			predicted[index] = this.predict(testingData[index]);
+		}
+		return predicted;
+	}
+
+	/**
+	 * Joint log likelihood ln P(c) + ln P(d|c) of each label.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @param scoresOut filled with the score of each label, length must be &gt;= number of labels
+	 */
+	public void getLogScores(float[] testingData, double[] scoresOut) {
+		for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+			scoresOut[labelIndex] = this.getLogScore(testingData, labelIndex);
+		}
+	}
+
+	/**
+	 * Joint log likelihood ln P(c) + ln P(d|c) of each label.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @return the score of each label
+	 */
+	public double[] getLogScores(float[] testingData) {
+		double[] scores = new double[this.labels.length];
+		this.getLogScores(testingData, scores);
+		return scores;
+	}
+
+	/**
+	 * Joint log likelihood of one label.
+	 *
+	 * @param testingData the sample values
+	 * @param labelIndex the label index
+	 * @return ln P(c) + ln P(d|c)
+	 */
+	private double getLogScore(float[] testingData, int labelIndex) {
+		return this.kernel.getLogScore(testingData, Math.min(testingData.length, this.numberOfFeatures),
+				labelIndex * this.numberOfFeatures, this.logPrior[labelIndex], this.mean, this.logNormalizer,
+				this.inverseTwoVariance, this.ignoreEmptyValues);
+	}
+
+	/**
+	 * Write the model as a {@link BinaryModelFile}, read it back with
+	 * {@link BinaryModelFile#loadGaussian(String)}.
+	 *
+	 * @param fileName the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void save(String fileName) throws IOException {
+		BinaryModelFile.writeGaussian(fileName, this.labels, this.numberOfFeatures, this.ignoreEmptyValues,
+				this.logPrior, this.mean, this.logNormalizer, this.inverseTwoVariance);
+	}
+
+	/**
+	 * @param labelIndex the label index
+	 * @return the label
+	 */
+	public float getLabel(int labelIndex) {
+		return this.labels[labelIndex];
+	}
+
+	/**
+	 * @return copy of the labels, index matches the score arrays
+	 */
+	public float[] getLabels() {
+		return this.labels.clone();
+	}
+
+	public int getNumberOfLabels() {
+		return this.labels.length;
+	}
+
+	public int getNumberOfFeatures() {
+		return this.numberOfFeatures;
+	}
+}
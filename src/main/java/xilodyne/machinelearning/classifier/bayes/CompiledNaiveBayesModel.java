@@ -0,0 +1,150 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+/**
+ * Immutable Naive Bayes model for prediction only, created by
+ * {@link NaiveBayesClassifier#compile(double)}.
+ * <p>
+ * ln P(d|c) of every fitted value is precomputed with Lidstone smoothing
+ * alpha (alpha = 1 is Laplace smoothing), for N values fitted for the
+ * label on the feature and V distinct values of the feature:
+ * <p>
+ * P(d|c) = (count + alpha) / (N + alpha * V)
+ * <p>
+ * A value not fitted scores alpha / (N + alpha * V), negative infinity
+ * with no smoothing.  Each feature value is found with one hash probe,
+ * its ln P(d|c) of every label are next to each other
+ * [value * labels + label], so scoring is table reads and additions
+ * whatever the number of distinct values.
+ * <p>
+ * Safe to share between threads.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - compiled NB model with smoothing, built from the scoring table
+ */
+public final class CompiledNaiveBayesModel {
+
+	private final float[] labels;
+	private final double smoothing;
+	private final double[] logPrior;
+
+	//[feature] value to value index, not changed once built
+	private final FloatLabelIndex[] valueIndexes;
+	//[feature][value * labels + label]
+	private final double[][] logPd_given_c;
+	//[feature * labels + label] ln P(d|c) of a value not fitted
+	private final double[] logUnseen;
+
+	/**
+	 * Instantiates a new compiled model, arrays are not copied.
+	 *
+	 * @param labels label values, index matches scores
+	 * @param smoothing the Lidstone smoothing alpha
+	 * @param logPrior ln P(c) for each label
+	 * @param valueIndexes value to value index of each feature
+	 * @param logPd_given_c [feature][value * labels + label] ln P(d|c)
+	 * @param logUnseen [feature * labels + label] ln P(d|c) of a value not fitted
+	 */
+	CompiledNaiveBayesModel(float[] labels, double smoothing, double[] logPrior, FloatLabelIndex[] valueIndexes,
+			double[][] logPd_given_c, double[] logUnseen) {
+		this.labels = labels;
+		this.smoothing = smoothing;
+		this.logPrior = logPrior;
+		this.valueIndexes = valueIndexes;
+		this.logPd_given_c = logPd_given_c;
+		this.logUnseen = logUnseen;
+	}
+
+	/**
+	 * Predict the label of one sample.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @return the label
+	 */
+	public double predict(float[] testingData) {
+		return this.predictInto(testingData, new double[this.labels.length]);
+	}
+
+	/**
+	 * Predict one sample and write the log score of each label into a
+	 * caller supplied array, nothing is allocated.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @param scoresOut filled with the score of each label, length must be &gt;= number of labels
+	 * @return the label
+	 */
+	public double predictInto(float[] testingData, double[] scoresOut) {
+		this.getLogScores(testingData, scoresOut);
+		return this.labels[LogProbability.getMaxIndex(scoresOut, this.labels.length)];
+	}
+
+	/**
+	 * Log probability ln P(c) + sum( ln P(d|c) ) of each label.  Values
+	 * of features past the features fitted are not scored.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @param scoresOut filled with the score of each label, length must be &gt;= number of labels
+	 */
+	public void getLogScores(float[] testingData, double[] scoresOut) {
+		int numberOfLabels = this.labels.length;
+		System.arraycopy(this.logPrior, 0, scoresOut, 0, numberOfLabels);
+		int features = Math.min(testingData.length, this.valueIndexes.length);
+		for (int featureIndex = 0; featureIndex < features; featureIndex++) {
+			int valueIndex = this.valueIndexes[featureIndex].get(testingData[featureIndex]);
+			double[] table;
+			int start;
+			if (valueIndex == -1) {
+				table = this.logUnseen;
+				start = featureIndex * numberOfLabels;
+			} else {
+				table = this.logPd_given_c[featureIndex];
+				start = valueIndex * numberOfLabels;
+			}
+			for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+				scoresOut[labelIndex] += table[start + labelIndex];
+			}
+		}
+	}
+
+	/**
+	 * Log of the posterior probability of each label, ln P(c|d),
+	 * normalized so that the probabilities sum to 1.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @return the log posterior probability for each label
+	 */
+	public double[] predictLogProba(float[] testingData) {
+		double[] scores = new double[this.labels.length];
+		this.getLogScores(testingData, scores);
+		LogProbability.normalize(scores, scores.length);
+		return scores;
+	}
+
+	/**
+	 * @param labelIndex the label index
+	 * @return the label value
+	 */
+	public double getLabel(int labelIndex) {
+		return this.labels[labelIndex];
+	}
+
+	/**
+	 * @return number of labels, size of the scores
+	 */
+	public int getNumberOfLabels() {
+		return this.labels.length;
+	}
+
+	/**
+	 * @return number of features scored
+	 */
+	public int getNumberOfFeatures() {
+		return this.valueIndexes.length;
+	}
+
+	/**
+	 * @return the Lidstone smoothing alpha, 0 for none
+	 */
+	public double getSmoothing() {
+		return this.smoothing;
+	}
+}
@@ -0,0 +1,164 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sufficient statistics that many threads can add to at the same time.
+ * <p>
+ * Each thread adds into its own {@link FeatureLabelStatistics}, so
+ * producers do not contend with each other.  Reading merges the
+ * thread statistics into one new set.  A thread's statistics are only
+ * locked by that thread and by a read in progress.
+ * <p>
+ * Thread statistics are kept in a map owned by this object (not a
+ * ThreadLocal), so they are released with it and never left on pooled
+ * threads.  The shared changed flag is only written once per sample or
+ * batch, when the fit entries are counted.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - concurrent fit
+ */
+class ConcurrentFeatureStatistics {
+
+	/** statistics added by one thread */
+	private static class ThreadStatistics {
+		private final FeatureLabelStatistics statistics = new FeatureLabelStatistics();
+		private int fitEntries = 0;
+	}
+
+	// statistics fitted before concurrent fit started, i.e. a deserialized model
+	private final FeatureLabelStatistics initialStatistics;
+
+	private final ConcurrentHashMap<Thread, ThreadStatistics> allThreadStatistics = new ConcurrentHashMap<Thread, ThreadStatistics>();
+	private final AtomicBoolean changed = new AtomicBoolean(false);
+
+	/**
+	 * Instantiates new concurrent statistics.
+	 *
+	 * @param initialStatistics statistics to start from, not changed
+	 */
+	ConcurrentFeatureStatistics(FeatureLabelStatistics initialStatistics) {
+		this.initialStatistics = initialStatistics;
+	}
+
+	/**
+	 * @return statistics of the calling thread, created on first use
+	 */
+	private ThreadStatistics getThreadStatistics() {
+		Thread thread = Thread.currentThread();
+		ThreadStatistics statistics = this.allThreadStatistics.get(thread);
+		if (statistics == null) {
+			// only the calling thread adds its own entry
+			statistics = new ThreadStatistics();
+			this.allThreadStatistics.put(thread, statistics);
+		}
+		return statistics;
+	}
+
+	/**
+	 * Add one value to the running statistics of the calling thread,
+	 * counted as one fit entry.  Not seen by takeChanged until the
+	 * sample or batch is counted.
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 * @param value the feature value
+	 */
+	void add(int featureIndex, int labelIndex, double value) {
+		ThreadStatistics statistics = this.getThreadStatistics();
+		synchronized (statistics) {
+			statistics.statistics.add(featureIndex, labelIndex, value);
+			statistics.fitEntries++;
+		}
+	}
+
+	/**
+	 * Add the accepted values of one sample to the statistics of the
+	 * calling thread, locked once.  Counted as fit(float[], float) counts:
+	 * one entry per value plus one per accepted value.
+	 *
+	 * @param values the sample values, in feature order
+	 * @param labelIndex the label index
+	 * @param allowEmptyValues TRUE if zero values are added
+	 */
+	void addSample(float[] values, int labelIndex, boolean allowEmptyValues) {
+		ThreadStatistics statistics = this.getThreadStatistics();
+		synchronized (statistics) {
+			for (int featureIndex = 0; featureIndex < values.length; featureIndex++) {
+				float value = values[featureIndex];
+				if ((value != GaussianNaiveBayesClassifier.NaN) && ((value != 0) || allowEmptyValues)) {
+					statistics.statistics.add(featureIndex, labelIndex, value);
+					statistics.fitEntries++;
+				}
+			}
+			statistics.fitEntries += values.length;
+		}
+		this.markChanged();
+	}
+
+	/**
+	 * Count one fit entry for the calling thread, the end of a sample.
+	 */
+	void countFitEntry() {
+		this.countFitEntries(1);
+	}
+
+	/**
+	 * Count fit entries for the calling thread, the end of a sample or batch.
+	 *
+	 * @param count number of entries
+	 */
+	void countFitEntries(int count) {
+		ThreadStatistics statistics = this.getThreadStatistics();
+		synchronized (statistics) {
+			statistics.fitEntries += count;
+		}
+		this.markChanged();
+	}
+
+	private void markChanged() {
+		// read first, the flag's cache line is only written after a merge
+		if (!this.changed.get()) {
+			this.changed.set(true);
+		}
+	}
+
+	/**
+	 * TRUE if samples were counted since the last call, the flag is reset.
+	 *
+	 * @return TRUE if values were added
+	 */
+	boolean takeChanged() {
+		return this.changed.getAndSet(false);
+	}
+
+	/**
+	 * Merge the initial statistics and the statistics of every thread.
+	 *
+	 * @return new statistics of all values added
+	 */
+	FeatureLabelStatistics merge() {
+		FeatureLabelStatistics merged = new FeatureLabelStatistics();
+		merged.merge(this.initialStatistics, null);
+		for (ThreadStatistics statistics : this.allThreadStatistics.values()) {
+			synchronized (statistics) {
+				merged.merge(statistics.statistics, null);
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * @return fit entries counted by all threads
+	 */
+	int getFitEntries() {
+		int total = 0;
+		for (ThreadStatistics statistics : this.allThreadStatistics.values()) {
+			synchronized (statistics) {
+				total = total + statistics.fitEntries;
+			}
+		}
+		return total;
+	}
+}
@@ -0,0 +1,143 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+/**
+ * Feature / label statistics where the weight of a sample halves
+ * after every half life samples, so the model follows data that
+ * drifts over time.
+ * <p>
+ * Instead of decaying every feature / label after each sample (features
+ * x labels work), each new sample is added with a weight that grows by
+ * 2^(1 / half life).  Counts are divided by the current weight when read,
+ * means and M2 / count do not depend on the scale.  When the weight gets
+ * large everything is scaled back down, so a sample costs O(1) amortized.
+ * <p>
+ * Variance is the weighted population variance M2 / count, it does
+ * not change for features / labels that are not fitted.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - exponential decay, decayed labels pruned
+ */
+class DecayingFeatureStatistics extends FeatureLabelStatistics {
+
+	private static final long serialVersionUID = -3370151744286290562L;
+
+	//weight is scaled back to 1 when larger
+	private static final double MAX_WEIGHT = 1e100;
+
+	private final int halfLife;
+	private final double growth;
+
+	//weight of a value of the current sample
+	private double weight = 1;
+
+	//weighted number of values of each label, for P(c)
+	private double[] labelWeight = new double[0];
+	private double totalWeight = 0;
+
+	/**
+	 * @param halfLife number of samples after which a sample counts half, &gt; 0
+	 */
+	DecayingFeatureStatistics(int halfLife) {
+		this.halfLife = halfLife;
+		this.growth = Math.pow(2, 1.0 / halfLife);
+	}
+
+	/**
+	 * Start the next sample, older samples count less.  When the weights
+	 * are scaled back down, labels that have decayed until their P(c) is
+	 * 0 are pruned.
+	 *
+	 * @return TRUE if a label was pruned
+	 */
+	boolean nextSample() {
+		this.weight = this.weight * this.growth;
+		if (this.weight > MAX_WEIGHT) {
+			double factor = 1 / this.weight;
+			this.scale(factor);
+			for (int labelIndex = 0; labelIndex < this.labelWeight.length; labelIndex++) {
+				this.labelWeight[labelIndex] *= factor;
+			}
+			this.totalWeight *= factor;
+			this.weight = 1;
+			return this.pruneDecayedLabels();
+		}
+		return false;
+	}
+
+	/**
+	 * Clear the statistics of labels not fitted for so long that P(c)
+	 * rounds to 0, their count and M2 would otherwise underflow to 0
+	 * and leave a variance of 0.  A label fitted again starts over.
+	 *
+	 * @return TRUE if a label was pruned
+	 */
+	private boolean pruneDecayedLabels() {
+		boolean pruned = false;
+		for (int labelIndex = 0; labelIndex < this.labelWeight.length; labelIndex++) {
+			if ((this.labelWeight[labelIndex] > 0) && (this.getPc(labelIndex) == 0)) {
+				this.totalWeight -= this.labelWeight[labelIndex];
+				this.labelWeight[labelIndex] = 0;
+				this.clearLabel(labelIndex);
+				pruned = true;
+			}
+		}
+		return pruned;
+	}
+
+	/**
+	 * Add one value of the current sample.
+	 */
+	@Override
+	void add(int featureIndex, int labelIndex, double value) {
+		this.addWeighted(featureIndex, labelIndex, value, this.weight);
+		if (labelIndex >= this.labelWeight.length) {
+			double[] newWeight = new double[LabelCounts.growCapacity(this.labelWeight.length, labelIndex + 1)];
+			System.arraycopy(this.labelWeight, 0, newWeight, 0, this.labelWeight.length);
+			this.labelWeight = newWeight;
+		}
+		this.labelWeight[labelIndex] += this.weight;
+		this.totalWeight += this.weight;
+	}
+
+	/**
+	 * Decayed number of values fitted for the feature / label, a value
+	 * of the current sample counts 1.
+	 */
+	@Override
+	double getCount(int featureIndex, int labelIndex) {
+		return super.getCount(featureIndex, labelIndex) / this.weight;
+	}
+
+	/**
+	 * Weighted population variance, M2 / count.
+	 */
+	@Override
+	double getVarianceSample(int featureIndex, int labelIndex) {
+		double count = super.getCount(featureIndex, labelIndex);
+		if (count <= 0) {
+			return 0;
+		}
+		return this.getM2(featureIndex, labelIndex) / count;
+	}
+
+	/**
+	 * Decayed P(c), weighted values of the label divided by weighted
+	 * values of all labels.
+	 *
+	 * @param labelIndex the label index
+	 * @return the probability
+	 */
+	float getPc(int labelIndex) {
+		if ((labelIndex >= this.labelWeight.length) || (this.totalWeight == 0)) {
+			return 0;
+		}
+		return (float) (this.labelWeight[labelIndex] / this.totalWeight);
+	}
+
+	/**
+	 * @return number of samples after which a sample counts half
+	 */
+	int getHalfLife() {
+		return this.halfLife;
+	}
+}
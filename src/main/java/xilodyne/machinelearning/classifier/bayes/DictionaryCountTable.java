@@ -0,0 +1,258 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.util.Arrays;
+
+/**
+ * Label counts of the NB feature values, dictionary encoded.  The
+ * distinct values of a feature are given dense codes (0, 1, 2, ... in the
+ * order first fitted) by a {@link FloatLabelIndex}, the counts of a
+ * feature are one int array at [code * labelCapacity + label].  No boxed
+ * value keys or count array per value, a count is found with one hash
+ * probe and an array index.
+ * <p>
+ * Values whose counts drop back to zero (unfit, unmerge) are not fitted,
+ * see {@link #isFitted(int, int)}.  When more than half of the codes of a
+ * feature are such dead values the feature is compacted: the fitted
+ * values are given new dense codes and the dead values are dropped, so a
+ * window of distinct values fitted and unfitted keeps the table bounded.
+ * Codes are only valid until the next add.  Not thread safe.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - dictionary encoded count storage, dead codes compacted
+ */
+final class DictionaryCountTable {
+
+	private static final int INITIAL_CODES = 8;
+
+	//[feature], null if no value fitted
+	private FloatLabelIndex[] codes = new FloatLabelIndex[0];
+	//[feature][code]
+	private float[][] values = new float[0][];
+	//[feature][code * labelCapacity + label]
+	private int[][] counts = new int[0][];
+	//[feature] number of codes
+	private int[] numberOfCodes = new int[0];
+	//[feature] codes with no count for any label
+	private int[] deadCodes = new int[0];
+	private int labelCapacity;
+
+	/**
+	 * @param labelCapacity labels counted per value before the counts are grown
+	 */
+	DictionaryCountTable(int labelCapacity) {
+		this.labelCapacity = Math.max(1, labelCapacity);
+	}
+
+	/**
+	 * @return number of features, highest feature index fitted + 1
+	 */
+	int getNumberOfFeatures() {
+		return this.codes.length;
+	}
+
+	/**
+	 * @param featureIndex the feature index
+	 * @return number of codes of the feature, fitted or not
+	 */
+	int getNumberOfCodes(int featureIndex) {
+		return (featureIndex < this.numberOfCodes.length) ? this.numberOfCodes[featureIndex] : 0;
+	}
+
+	/**
+	 * @param featureIndex the feature index
+	 * @param value the value
+	 * @return code of the value, -1 if never fitted
+	 */
+	int getCode(int featureIndex, float value) {
+		if ((featureIndex >= this.codes.length) || (this.codes[featureIndex] == null)) {
+			return -1;
+		}
+		return this.codes[featureIndex].get(value);
+	}
+
+	/**
+	 * @param featureIndex the feature index
+	 * @param code the code
+	 * @return the value of the code
+	 */
+	float getValue(int featureIndex, int code) {
+		return this.values[featureIndex][code];
+	}
+
+	/**
+	 * @param featureIndex the feature index
+	 * @param code the code, &gt;= 0
+	 * @param labelIndex the label index
+	 * @return label count of the value
+	 */
+	int getCount(int featureIndex, int code, int labelIndex) {
+		return this.counts[featureIndex][(code * this.labelCapacity) + labelIndex];
+	}
+
+	/**
+	 * @param featureIndex the feature index
+	 * @param code the code
+	 * @return TRUE if the value has a count for any label
+	 */
+	boolean isFitted(int featureIndex, int code) {
+		int[] featureCounts = this.counts[featureIndex];
+		int start = code * this.labelCapacity;
+		for (int index = start; index < start + this.labelCapacity; index++) {
+			if (featureCounts[index] != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Add to the label count of a value, a code is given to a new value.
+	 *
+	 * @param featureIndex the feature index
+	 * @param value the value
+	 * @param labelIndex the label index, &lt; label capacity
+	 * @param count amount to add
+	 */
+	void add(int featureIndex, float value, int labelIndex, int count) {
+		int code = this.getCode(featureIndex, value);
+		if (code == -1) {
+			code = this.addCode(featureIndex, value);
+		} else if ((count > 0) && (this.getCount(featureIndex, code, labelIndex) == 0)
+				&& !this.isFitted(featureIndex, code)) {
+			// dead value fitted again
+			this.deadCodes[featureIndex]--;
+		}
+		int index = (code * this.labelCapacity) + labelIndex;
+		this.counts[featureIndex][index] += count;
+		if ((count < 0) && (this.counts[featureIndex][index] == 0) && !this.isFitted(featureIndex, code)) {
+			this.deadCodes[featureIndex]++;
+			if ((this.deadCodes[featureIndex] * 2) > this.numberOfCodes[featureIndex]) {
+				this.compact(featureIndex);
+			}
+		}
+	}
+
+	/**
+	 * Give the fitted values of a feature new dense codes, in code order,
+	 * dropping the dead values.
+	 *
+	 * @param featureIndex the feature index
+	 */
+	private void compact(int featureIndex) {
+		int oldNumberOfCodes = this.numberOfCodes[featureIndex];
+		int liveCodes = oldNumberOfCodes - this.deadCodes[featureIndex];
+		int capacity = Math.max(INITIAL_CODES, Integer.highestOneBit(Math.max(1, liveCodes)) << 1);
+		float[] oldValues = this.values[featureIndex];
+		int[] oldCounts = this.counts[featureIndex];
+		float[] newValues = new float[capacity];
+		int[] newCounts = new int[capacity * this.labelCapacity];
+		FloatLabelIndex newIndex = new FloatLabelIndex(null);
+
+		int code = 0;
+		for (int oldCode = 0; oldCode < oldNumberOfCodes; oldCode++) {
+			if (this.isFitted(featureIndex, oldCode)) {
+				newValues[code] = oldValues[oldCode];
+				System.arraycopy(oldCounts, oldCode * this.labelCapacity, newCounts, code * this.labelCapacity, this.labelCapacity);
+				newIndex.put(newValues[code], code);
+				code++;
+			}
+		}
+		this.values[featureIndex] = newValues;
+		this.counts[featureIndex] = newCounts;
+		this.codes[featureIndex] = newIndex;
+		this.numberOfCodes[featureIndex] = code;
+		this.deadCodes[featureIndex] = 0;
+	}
+
+	private int addCode(int featureIndex, float value) {
+		if (featureIndex >= this.codes.length) {
+			int features = featureIndex + 1;
+			this.codes = Arrays.copyOf(this.codes, features);
+			this.values = Arrays.copyOf(this.values, features);
+			this.counts = Arrays.copyOf(this.counts, features);
+			this.numberOfCodes = Arrays.copyOf(this.numberOfCodes, features);
+			this.deadCodes = Arrays.copyOf(this.deadCodes, features);
+		}
+		if (this.codes[featureIndex] == null) {
+			this.codes[featureIndex] = new FloatLabelIndex(null);
+			this.values[featureIndex] = new float[INITIAL_CODES];
+			this.counts[featureIndex] = new int[INITIAL_CODES * this.labelCapacity];
+		}
+		int code = this.numberOfCodes[featureIndex]++;
+		if (code == this.values[featureIndex].length) {
+			this.values[featureIndex] = Arrays.copyOf(this.values[featureIndex], code * 2);
+			this.counts[featureIndex] = Arrays.copyOf(this.counts[featureIndex], code * 2 * this.labelCapacity);
+		}
+		this.values[featureIndex][code] = value;
+		this.codes[featureIndex].put(value, code);
+		return code;
+	}
+
+	/**
+	 * Widen the counts of every value, when more labels are fitted.
+	 *
+	 * @param labelCapacity labels counted per value, &gt;= current capacity
+	 */
+	void setLabelCapacity(int labelCapacity) {
+		if (labelCapacity <= this.labelCapacity) {
+			return;
+		}
+		for (int featureIndex = 0; featureIndex < this.counts.length; featureIndex++) {
+			int[] oldCounts = this.counts[featureIndex];
+			if (oldCounts == null) {
+				continue;
+			}
+			int capacity = this.values[featureIndex].length;
+			int[] newCounts = new int[capacity * labelCapacity];
+			for (int code = 0; code < this.numberOfCodes[featureIndex]; code++) {
+				System.arraycopy(oldCounts, code * this.labelCapacity, newCounts, code * labelCapacity, this.labelCapacity);
+			}
+			this.counts[featureIndex] = newCounts;
+		}
+		this.labelCapacity = labelCapacity;
+	}
+
+	/**
+	 * @param featureIndex the feature index
+	 * @return number of distinct values of the feature with a count
+	 */
+	int getNumberOfFittedValues(int featureIndex) {
+		return this.getNumberOfCodes(featureIndex) - this.getNumberOfDeadCodes(featureIndex);
+	}
+
+	/**
+	 * @param featureIndex the feature index
+	 * @return number of codes of the feature with no count
+	 */
+	int getNumberOfDeadCodes(int featureIndex) {
+		return (featureIndex < this.deadCodes.length) ? this.deadCodes[featureIndex] : 0;
+	}
+
+	/**
+	 * Codes of the fitted values of a feature, by ascending value (the
+	 * order of Float.compare).
+	 *
+	 * @param featureIndex the feature index
+	 * @return the codes
+	 */
+	int[] getSortedCodes(int featureIndex) {
+		int codeCount = this.getNumberOfCodes(featureIndex);
+		boolean allFitted = (this.getNumberOfDeadCodes(featureIndex) == 0);
+		long[] sortKeys = new long[codeCount - this.getNumberOfDeadCodes(featureIndex)];
+		int fitted = 0;
+		for (int code = 0; code < codeCount; code++) {
+			if (allFitted || this.isFitted(featureIndex, code)) {
+				// value bits ordered as signed ints in the high word, code in the low word
+				int bits = Float.floatToIntBits(this.values[featureIndex][code]);
+				bits = bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+				sortKeys[fitted++] = ((long) bits << 32) | code;
+			}
+		}
+		Arrays.sort(sortKeys, 0, fitted);
+		int[] sorted = new int[fitted];
+		for (int index = 0; index < fitted; index++) {
+			sorted[index] = (int) sortKeys[index];
+		}
+		return sorted;
+	}
+}
@@ -0,0 +1,396 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.io.Serializable;
+
+/**
+ * Running count, mean and M2 (sum of squared differences from the mean)
+ * for every feature / label pair, updated one value at a time using
+ * Welford's algorithm.
+ * <p>
+ * Size of the statistics is features x labels, independent of the
+ * number of samples or the number of distinct values fitted.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Welford's_online_algorithm">https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Welford's_online_algorithm</a>
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - sufficient statistics for GNB, merge, label capacity doubled,
+ * 	remove and weighted values, clear label
+ */
+class FeatureLabelStatistics implements Serializable {
+
+	private static final long serialVersionUID = 2932718407261384561L;
+
+	//[featureIndex][labelIndex]
+	private double[][] count = new double[0][];
+	private double[][] mean = new double[0][];
+	private double[][] m2 = new double[0][];
+
+	private int numberOfFeatures = 0;
+	private int numberOfLabels = 0;
+
+	/**
+	 * Add one value to the running statistics of a feature / label.
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 * @param value the feature value
+	 */
+	void add(int featureIndex, int labelIndex, double value) {
+		this.ensureCapacity(featureIndex + 1, labelIndex + 1);
+
+		double n = this.count[featureIndex][labelIndex] + 1;
+		double delta = value - this.mean[featureIndex][labelIndex];
+		this.count[featureIndex][labelIndex] = n;
+		this.mean[featureIndex][labelIndex] += delta / n;
+		this.m2[featureIndex][labelIndex] += delta * (value - this.mean[featureIndex][labelIndex]);
+	}
+
+	/**
+	 * Remove one value added earlier, Welford's update in reverse:
+	 * <p>
+	 * n = n - 1, mean' = mean - (value - mean) / n<br>
+	 * M2 = M2 - (value - mean) * (value - mean')
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 * @param value the feature value
+	 */
+	void remove(int featureIndex, int labelIndex, double value) {
+		if (!this.contains(featureIndex, labelIndex) || (this.count[featureIndex][labelIndex] <= 0)) {
+			return;
+		}
+		double n = this.count[featureIndex][labelIndex] - 1;
+		if (n <= 0) {
+			this.count[featureIndex][labelIndex] = 0;
+			this.mean[featureIndex][labelIndex] = 0;
+			this.m2[featureIndex][labelIndex] = 0;
+			return;
+		}
+		double delta = value - this.mean[featureIndex][labelIndex];
+		this.count[featureIndex][labelIndex] = n;
+		this.mean[featureIndex][labelIndex] -= delta / n;
+		// rounding can leave a tiny negative M2
+		this.m2[featureIndex][labelIndex] = Math.max(0,
+				this.m2[featureIndex][labelIndex] - (delta * (value - this.mean[featureIndex][labelIndex])));
+	}
+
+	/**
+	 * Add one value with a weight, count is the sum of the weights
+	 * (West's weighted incremental algorithm).
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 * @param value the feature value
+	 * @param weight weight of the value, &gt; 0
+	 */
+	void addWeighted(int featureIndex, int labelIndex, double value, double weight) {
+		this.ensureCapacity(featureIndex + 1, labelIndex + 1);
+
+		double n = this.count[featureIndex][labelIndex] + weight;
+		double delta = value - this.mean[featureIndex][labelIndex];
+		this.count[featureIndex][labelIndex] = n;
+		this.mean[featureIndex][labelIndex] += delta * weight / n;
+		this.m2[featureIndex][labelIndex] += weight * delta * (value - this.mean[featureIndex][labelIndex]);
+	}
+
+	/**
+	 * Multiply every count and M2 by a factor, the means are unchanged.
+	 *
+	 * @param factor the factor
+	 */
+	void scale(double factor) {
+		for (int featureIndex = 0; featureIndex < this.numberOfFeatures; featureIndex++) {
+			for (int labelIndex = 0; labelIndex < this.numberOfLabels; labelIndex++) {
+				this.count[featureIndex][labelIndex] *= factor;
+				this.m2[featureIndex][labelIndex] *= factor;
+			}
+		}
+	}
+
+	/**
+	 * Remove every value of a label, all features.
+	 *
+	 * @param labelIndex the label index
+	 */
+	void clearLabel(int labelIndex) {
+		if (labelIndex >= this.numberOfLabels) {
+			return;
+		}
+		for (int featureIndex = 0; featureIndex < this.numberOfFeatures; featureIndex++) {
+			this.count[featureIndex][labelIndex] = 0;
+			this.mean[featureIndex][labelIndex] = 0;
+			this.m2[featureIndex][labelIndex] = 0;
+		}
+	}
+
+	/**
+	 * Add the same value a number of times, same as calling add count times.
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 * @param value the feature value
+	 * @param valueCount number of times the value was fitted
+	 */
+	void add(int featureIndex, int labelIndex, double value, int valueCount) {
+		if (valueCount <= 0) {
+			return;
+		}
+		this.ensureCapacity(featureIndex + 1, labelIndex + 1);
+
+		//merge of a set of equal values: mean = value, M2 = 0
+		double thisCount = this.count[featureIndex][labelIndex];
+		double n = thisCount + valueCount;
+		double delta = value - this.mean[featureIndex][labelIndex];
+		this.count[featureIndex][labelIndex] = n;
+		this.mean[featureIndex][labelIndex] += delta * valueCount / n;
+		this.m2[featureIndex][labelIndex] += delta * delta * thisCount * valueCount / n;
+	}
+
+	/**
+	 * Add the statistics of another set of values, as if those values
+	 * had been added here.  Counts are summed, mean and M2 are combined
+	 * with the parallel algorithm (Chan et al.):
+	 * <p>
+	 * delta = meanB - meanA, n = nA + nB<br>
+	 * mean = meanA + delta * nB / n<br>
+	 * M2 = M2A + M2B + delta^2 * nA * nB / n
+	 *
+	 * @see <a href="https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Parallel_algorithm">https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Parallel_algorithm</a>
+	 * @param other the statistics to add, not changed
+	 * @param labelIndexMap label index here for each label index of other, null if the same
+	 */
+	void merge(FeatureLabelStatistics other, int[] labelIndexMap) {
+		for (int labelIndex = 0; labelIndex < other.numberOfLabels; labelIndex++) {
+			int mergedLabelIndex = (labelIndexMap == null) ? labelIndex : labelIndexMap[labelIndex];
+			for (int featureIndex = 0; featureIndex < other.numberOfFeatures; featureIndex++) {
+				double otherCount = other.count[featureIndex][labelIndex];
+				if (otherCount == 0) {
+					continue;
+				}
+				this.ensureCapacity(featureIndex + 1, mergedLabelIndex + 1);
+
+				double thisCount = this.count[featureIndex][mergedLabelIndex];
+				double n = thisCount + otherCount;
+				double delta = other.mean[featureIndex][labelIndex] - this.mean[featureIndex][mergedLabelIndex];
+				this.count[featureIndex][mergedLabelIndex] = n;
+				this.mean[featureIndex][mergedLabelIndex] += delta * otherCount / n;
+				this.m2[featureIndex][mergedLabelIndex] += other.m2[featureIndex][labelIndex]
+						+ (delta * delta * thisCount * otherCount / n);
+			}
+		}
+	}
+
+	/**
+	 * Remove the statistics of a set of values added earlier, the
+	 * parallel algorithm in reverse:
+	 * <p>
+	 * nA = n - nB, meanA = (n * mean - nB * meanB) / nA<br>
+	 * delta = meanB - meanA<br>
+	 * M2A = M2 - M2B - delta^2 * nA * nB / n
+	 *
+	 * @param other the statistics to remove, not changed
+	 * @param labelIndexMap label index here for each label index of other, null if the same
+	 */
+	void subtract(FeatureLabelStatistics other, int[] labelIndexMap) {
+		for (int labelIndex = 0; labelIndex < other.numberOfLabels; labelIndex++) {
+			int thisLabelIndex = (labelIndexMap == null) ? labelIndex : labelIndexMap[labelIndex];
+			for (int featureIndex = 0; featureIndex < other.numberOfFeatures; featureIndex++) {
+				this.subtract(featureIndex, thisLabelIndex, other.count[featureIndex][labelIndex],
+						other.mean[featureIndex][labelIndex], other.m2[featureIndex][labelIndex]);
+			}
+		}
+	}
+
+	/**
+	 * Remove the same value a number of times, same as calling remove count times.
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 * @param value the feature value
+	 * @param valueCount number of times the value was fitted
+	 */
+	void remove(int featureIndex, int labelIndex, double value, int valueCount) {
+		this.subtract(featureIndex, labelIndex, valueCount, value, 0);
+	}
+
+	private void subtract(int featureIndex, int labelIndex, double otherCount, double otherMean, double otherM2) {
+		if ((otherCount <= 0) || !this.contains(featureIndex, labelIndex)) {
+			return;
+		}
+		double thisCount = this.count[featureIndex][labelIndex];
+		double n = thisCount - otherCount;
+		if (n <= 0) {
+			this.count[featureIndex][labelIndex] = 0;
+			this.mean[featureIndex][labelIndex] = 0;
+			this.m2[featureIndex][labelIndex] = 0;
+			return;
+		}
+		double mean = ((thisCount * this.mean[featureIndex][labelIndex]) - (otherCount * otherMean)) / n;
+		double delta = otherMean - mean;
+		this.count[featureIndex][labelIndex] = n;
+		this.mean[featureIndex][labelIndex] = mean;
+		// rounding can leave a tiny negative M2
+		this.m2[featureIndex][labelIndex] = Math.max(0,
+				this.m2[featureIndex][labelIndex] - otherM2 - (delta * delta * n * otherCount / thisCount));
+	}
+
+	/**
+	 * Number of values fitted for the feature / label.
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 * @return the count
+	 */
+	double getCount(int featureIndex, int labelIndex) {
+		if (!this.contains(featureIndex, labelIndex)) {
+			return 0;
+		}
+		return this.count[featureIndex][labelIndex];
+	}
+
+	/**
+	 * Mean of the values fitted for the feature / label.
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 * @return the mean, zero if nothing fitted
+	 */
+	double getMean(int featureIndex, int labelIndex) {
+		if (!this.contains(featureIndex, labelIndex)) {
+			return 0;
+		}
+		return this.mean[featureIndex][labelIndex];
+	}
+
+	/**
+	 * Variance based on a sample of the population, M2 / (n - 1).
+	 * If n &lt;= 1 then M2 is returned (same as the value table calculation).
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 * @return the sample variance
+	 */
+	double getVarianceSample(int featureIndex, int labelIndex) {
+		if (!this.contains(featureIndex, labelIndex)) {
+			return 0;
+		}
+		double n = this.count[featureIndex][labelIndex];
+		if (n <= 1) {
+			return this.m2[featureIndex][labelIndex];
+		}
+		return this.m2[featureIndex][labelIndex] / (n - 1);
+	}
+
+	/**
+	 * Sum of squared differences from the mean, M2.
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 * @return M2, zero if nothing fitted
+	 */
+	double getM2(int featureIndex, int labelIndex) {
+		if (!this.contains(featureIndex, labelIndex)) {
+			return 0;
+		}
+		return this.m2[featureIndex][labelIndex];
+	}
+
+	/**
+	 * Sum of counts of one label over all features.
+	 *
+	 * @param labelIndex the label index
+	 * @return the count
+	 */
+	double getLabelCount(int labelIndex) {
+		double total = 0;
+		for (int featureIndex = 0; featureIndex < this.numberOfFeatures; featureIndex++) {
+			total += this.getCount(featureIndex, labelIndex);
+		}
+		return total;
+	}
+
+	/**
+	 * Sum of counts of all labels for one feature.
+	 *
+	 * @param featureIndex the feature index
+	 * @return the count
+	 */
+	double getFeatureCount(int featureIndex) {
+		double total = 0;
+		for (int labelIndex = 0; labelIndex < this.numberOfLabels; labelIndex++) {
+			total += this.getCount(featureIndex, labelIndex);
+		}
+		return total;
+	}
+
+	/**
+	 * @return number of features (highest feature index fitted + 1)
+	 */
+	int getNumberOfFeatures() {
+		return this.numberOfFeatures;
+	}
+
+	/**
+	 * @return number of labels (highest label index fitted + 1)
+	 */
+	int getNumberOfLabels() {
+		return this.numberOfLabels;
+	}
+
+	private boolean contains(int featureIndex, int labelIndex) {
+		return (featureIndex < this.numberOfFeatures) && (labelIndex < this.numberOfLabels);
+	}
+
+	/**
+	 * Grow the feature and label tables, existing statistics are kept.
+	 *
+	 * @param features number of features required
+	 * @param labels number of labels required
+	 */
+	private void ensureCapacity(int features, int labels) {
+		if (labels > this.numberOfLabels) {
+			int labelCapacity = this.getLabelCapacity();
+			if (labels > labelCapacity) {
+				labelCapacity = LabelCounts.growCapacity(labelCapacity, labels);
+				for (int featureIndex = 0; featureIndex < this.numberOfFeatures; featureIndex++) {
+					this.count[featureIndex] = this.grow(this.count[featureIndex], labelCapacity);
+					this.mean[featureIndex] = this.grow(this.mean[featureIndex], labelCapacity);
+					this.m2[featureIndex] = this.grow(this.m2[featureIndex], labelCapacity);
+				}
+			}
+			this.numberOfLabels = labels;
+		}
+		if (features > this.numberOfFeatures) {
+			double[][] newCount = new double[features][];
+			double[][] newMean = new double[features][];
+			double[][] newM2 = new double[features][];
+			System.arraycopy(this.count, 0, newCount, 0, this.numberOfFeatures);
+			System.arraycopy(this.mean, 0, newMean, 0, this.numberOfFeatures);
+			System.arraycopy(this.m2, 0, newM2, 0, this.numberOfFeatures);
+			int labelCapacity = Math.max(this.getLabelCapacity(), this.numberOfLabels);
+			for (int featureIndex = this.numberOfFeatures; featureIndex < features; featureIndex++) {
+				newCount[featureIndex] = new double[labelCapacity];
+				newMean[featureIndex] = new double[labelCapacity];
+				newM2[featureIndex] = new double[labelCapacity];
+			}
+			this.count = newCount;
+			this.mean = newMean;
+			this.m2 = newM2;
+			this.numberOfFeatures = features;
+		}
+	}
+
+	/**
+	 * Label slots of each feature, &gt;= number of labels, grown by doubling.
+	 *
+	 * @return the capacity
+	 */
+	private int getLabelCapacity() {
+		return (this.numberOfFeatures == 0) ? this.numberOfLabels : this.count[0].length;
+	}
+
+	private double[] grow(double[] values, int size) {
+		double[] newValues = new double[size];
+		System.arraycopy(values, 0, newValues, 0, values.length);
+		return newValues;
+	}
+}
@@ -0,0 +1,111 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.util.Arrays;
+
+/**
+ * Label value to label index, open addressing on the float bits so a
+ * label is found in constant time without boxing.  0.0 and -0.0 are the
+ * same label, as when labels are compared with ==, NaN is one label.
+ * Also the value dictionary of a {@link DictionaryCountTable}.
+ * <p>
+ * Not thread safe, see {@link #copy()} to publish a new index to readers.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - hashed label index
+ */
+final class FloatLabelIndex {
+
+	private static final int EMPTY = -1;
+
+	private float[] keys;
+	private int[] indexes;
+	private int size = 0;
+
+	/**
+	 * Index of each label, label index is the position in the array.
+	 *
+	 * @param labels the labels, may be null
+	 */
+	FloatLabelIndex(float[] labels) {
+		int numberOfLabels = (labels == null) ? 0 : labels.length;
+		this.allocate(Math.max(8, Integer.highestOneBit(Math.max(1, numberOfLabels)) << 2));
+		for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+			this.put(labels[labelIndex], labelIndex);
+		}
+	}
+
+	private FloatLabelIndex(FloatLabelIndex other) {
+		this.keys = other.keys.clone();
+		this.indexes = other.indexes.clone();
+		this.size = other.size;
+	}
+
+	/**
+	 * @param label the label value
+	 * @return the label index, -1 if not found
+	 */
+	int get(float label) {
+		int mask = this.indexes.length - 1;
+		int slot = hash(label) & mask;
+		while (this.indexes[slot] != EMPTY) {
+			if ((this.keys[slot] == label) || ((label != label) && (this.keys[slot] != this.keys[slot]))) {
+				return this.indexes[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return EMPTY;
+	}
+
+	/**
+	 * Add a label not yet in the index.
+	 *
+	 * @param label the label value
+	 * @param labelIndex the label index
+	 */
+	void put(float label, int labelIndex) {
+		if ((this.size + 1) * 2 > this.indexes.length) {
+			float[] oldKeys = this.keys;
+			int[] oldIndexes = this.indexes;
+			this.allocate(oldIndexes.length * 2);
+			for (int slot = 0; slot < oldIndexes.length; slot++) {
+				if (oldIndexes[slot] != EMPTY) {
+					this.insert(oldKeys[slot], oldIndexes[slot]);
+				}
+			}
+		}
+		this.insert(label, labelIndex);
+		this.size++;
+	}
+
+	/**
+	 * Copy to add labels to while readers use this index.
+	 *
+	 * @return the copy
+	 */
+	FloatLabelIndex copy() {
+		return new FloatLabelIndex(this);
+	}
+
+	private void insert(float label, int labelIndex) {
+		int mask = this.indexes.length - 1;
+		int slot = hash(label) & mask;
+		while (this.indexes[slot] != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		this.keys[slot] = label;
+		this.indexes[slot] = labelIndex;
+	}
+
+	private void allocate(int capacity) {
+		this.keys = new float[capacity];
+		this.indexes = new int[capacity];
+		Arrays.fill(this.indexes, EMPTY);
+	}
+
+	private static int hash(float label) {
+		// -0.0 == 0.0
+		int bits = (label == 0) ? 0 : Float.floatToIntBits(label);
+		int h = bits * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,48 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.util.Arrays;
+
+/**
+ * Sample values as a hash key, equal when the values are equal as
+ * compared by Arrays.equals (NaN equals NaN).
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - LRU prediction cache
+ */
+final class FloatSampleKey {
+
+	private final float[] values;
+	private final int hash;
+
+	/**
+	 * The values are not copied, see {@link #copy()} before keeping the key.
+	 *
+	 * @param values the sample values
+	 */
+	FloatSampleKey(float[] values) {
+		this.values = values;
+		this.hash = Arrays.hashCode(values);
+	}
+
+	/**
+	 * @return key with its own copy of the values
+	 */
+	FloatSampleKey copy() {
+		return new FloatSampleKey(this.values.clone());
+	}
+
+	public int hashCode() {
+		return this.hash;
+	}
+
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof FloatSampleKey)) {
+			return false;
+		}
+		FloatSampleKey key = (FloatSampleKey) other;
+		return (this.hash == key.hash) && Arrays.equals(this.values, key.values);
+	}
+}
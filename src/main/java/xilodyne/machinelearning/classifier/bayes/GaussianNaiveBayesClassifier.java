@@ -1,7 +1,10 @@
 package xilodyne.machinelearning.classifier.bayes;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Hashtable;
@@ -12,6 +15,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 
 import xilodyne.util.ArrayUtils;
 import xilodyne.util.data.NDArrayUtils;
@@ -30,6 +34,12 @@ import mikera.arrayz.NDArray;
  * @see <a href="https://en.wikipedia.org/wiki/Naive_Bayes_classifier#Gaussian_naive_Bayes">https://en.wikipedia.org/wiki/Naive_Bayes_classifier#Gaussian_naive_Bayes</a>
  * @see <a href="http://scikit-learn.org/stable/modules/generated/sklearn.naive_bayes.GaussianNB.html">http://scikit-learn.org/stable/modules/generated/sklearn.naive_bayes.GaussianNB.html</a>
  * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - sufficient statistics (count / mean / M2) training mode,
+ * 	compiled model, log space scoring, parallel batch prediction,
+ * 	label counts kept while fitting, only changed mean / var recalculated,
+ * 	concurrent fit, merge, binary model file, allocation free predictInto,
+ * 	hashed label index, forgetting by half life or sliding window, unfit,
+ * 	columnar fit, unmerge
  * @version 0.4 - 1/29/2018 - reflect xilodyne util changes
  * @version 0.2d - 6/20/2017 - predict by only one feature
  * @version 0.2c - 6/3/2017 - add NaN, print functions to log
@@ -55,6 +65,20 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	public static final boolean EMPTY_SAMPLES_ALLOW = true;
 	public static final boolean EMPTY_SAMPLES_IGNORE = false;
 	public static final float NaN = -99999f;
+	
+	/** keep every distinct feature value with its label counts */
+	public static final boolean STORE_FEATURE_VALUES = false;
+	/** keep only running count, mean and M2 per feature / label */
+	public static final boolean STORE_SUFFICIENT_STATISTICS = true;
+	
+	/** fit may be called by many threads at the same time */
+	public static final boolean FIT_CONCURRENT = true;
+	/** fit is called by one thread at a time */
+	public static final boolean FIT_SINGLE_THREAD = false;
+	/** weight of a sample halves after each half life of samples */
+	public static final boolean FORGET_HALF_LIFE = true;
+	/** only the last N samples are counted */
+	public static final boolean FORGET_SLIDING_WINDOW = false;
 
 	// which type of variance to calculate, only a sample
 	// size of population data or entire population data
@@ -64,6 +88,15 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 
 	private boolean allowEmptySampleValues = true;
 	
+	/** TRUE if only count / mean / M2 are kept, the featuresList table is not used */
+	private boolean sufficientStatisticsOnly = false;
+	
+	/** TRUE if fit may be called by many threads, values are added to per thread statistics */
+	private boolean concurrentFit = false;
+	
+	/** TRUE if predict uses summed log probabilities instead of multiplied probabilities */
+	private boolean logSpaceScoring = false;
+	
 
 	/** TRUE if number of features have been loaded in the fit method for NDArray */
 	private boolean featureSetFixed = false; // for multiple samples, only init once
@@ -73,7 +106,14 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 */
 	private boolean moreTrainingData = true; 
 
-	private float[] labels = null;
+	//replaced, never changed, when a label is added (read by fitting threads)
+	private volatile float[] labels = null;
+	
+	//label value to index, replaced (not changed) when fitting concurrently
+	private transient volatile FloatLabelIndex labelIndex = null;
+	
+	//length of the label count arrays of the feature values, doubled as labels are added
+	private int labelCapacity = 0;
 	//boolean labelsLoad = false;
 	private List<String> labelNames = null;  //optional, show names in output
 	
@@ -82,6 +122,22 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	private Hashtable<Integer, TreeMap<Float, int[]>> featuresList = new Hashtable<Integer, TreeMap<Float, int[]>>();
 	private List<String> featureNames = null;  //optional, show names in output
 	private int numberOfFeatures = 0;
+	
+	//used instead of featuresList when sufficientStatisticsOnly
+	private FeatureLabelStatistics featureStatistics = new FeatureLabelStatistics();
+	
+	//values added by fitting threads when concurrentFit, merged into featureStatistics on read,
+	//published once and read by fitting threads without locking
+	private transient volatile ConcurrentFeatureStatistics concurrentStatistics = null;
+	
+	//FORGET_HALF_LIFE, same object as featureStatistics
+	private DecayingFeatureStatistics decayingStatistics = null;
+	
+	//FORGET_SLIDING_WINDOW, samples still counted
+	private SampleWindow sampleWindow = null;
+	
+	//label counts kept while fitting, P(c) without scanning featuresList
+	private LabelCounts<Integer> labelCounts = new LabelCounts<Integer>();
 
 
 	//classification of label, i.e. if labels are "male / female", classification would be "gender"
@@ -93,6 +149,12 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	/** variance computation of all labelValues for Label */
 	private ArrayList<double[]> featuresVariance = new ArrayList<double[]>();
 
+	/** for each label, features fitted since mean / var were last calculated */
+	private ArrayList<BitSet> dirtyFeatures = new ArrayList<BitSet>();
+	
+	/** compiled from mean / variance, used for log space scoring, cleared when mean / var recalculated */
+	private transient CompiledGaussianModel compiledModel = null;
+
 
 	/**
 	 * Instantiates a new Gaussian Naive Bayes.
@@ -103,6 +165,81 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 		this.allowEmptySampleValues = allowEmptyValues;
 	}
 
+	/**
+	 * Instantiates a new Gaussian Naive Bayes.
+	 * <p>
+	 * With STORE_SUFFICIENT_STATISTICS only a running count, mean and M2
+	 * is kept for each feature / label, model size does not grow with the
+	 * number of samples fitted.  The feature value table is not available 
+	 * for printing.
+	 *
+	 * @param allowEmptyValues TRUE allows empty values (i.e. zero) to be added into data set
+	 * @param storeSufficientStatistics STORE_SUFFICIENT_STATISTICS or STORE_FEATURE_VALUES
+	 */
+	public GaussianNaiveBayesClassifier(boolean allowEmptyValues, boolean storeSufficientStatistics) {
+		this.allowEmptySampleValues = allowEmptyValues;
+		this.sufficientStatisticsOnly = storeSufficientStatistics;
+	}
+
+	/**
+	 * Instantiates a new Gaussian Naive Bayes.
+	 * <p>
+	 * With FIT_CONCURRENT any number of threads may call fit at the same
+	 * time.  Each thread adds to its own count / mean / M2, these are merged
+	 * when mean / var are next needed (predict, compile, print).  Requires
+	 * STORE_SUFFICIENT_STATISTICS.  Predict is not thread safe, predict from one
+	 * thread (or use a compiled model) while others fit.  Call
+	 * finishConcurrentFit once every fitting thread has returned, before
+	 * serializing.
+	 *
+	 * @param allowEmptyValues TRUE allows empty values (i.e. zero) to be added into data set
+	 * @param storeSufficientStatistics STORE_SUFFICIENT_STATISTICS or STORE_FEATURE_VALUES
+	 * @param concurrentFit FIT_CONCURRENT or FIT_SINGLE_THREAD
+	 * @throws IllegalArgumentException if FIT_CONCURRENT with STORE_FEATURE_VALUES
+	 */
+	public GaussianNaiveBayesClassifier(boolean allowEmptyValues, boolean storeSufficientStatistics, boolean concurrentFit) {
+		if (concurrentFit && !storeSufficientStatistics) {
+			throw new IllegalArgumentException("Concurrent fit requires STORE_SUFFICIENT_STATISTICS.");
+		}
+		this.allowEmptySampleValues = allowEmptyValues;
+		this.sufficientStatisticsOnly = storeSufficientStatistics;
+		this.concurrentFit = concurrentFit;
+	}
+
+	/**
+	 * Instantiates a Gaussian Naive Bayes that forgets old samples, for
+	 * data that drifts over time, instead of retraining.
+	 * <p>
+	 * With FORGET_HALF_LIFE the weight of a sample halves each time another
+	 * half life of samples is fitted, variance is the weighted population variance.
+	 * A label not fitted for so long that its P(c) is 0 is not scored, its
+	 * statistics are cleared.
+	 * With FORGET_SLIDING_WINDOW only the last samples fitted are counted,
+	 * the oldest sample is removed from the statistics when the window is full.
+	 * <p>
+	 * Sufficient statistics are stored, fitting a sample costs the same
+	 * however many samples are remembered.  Samples must be fitted one at a
+	 * time with fit(float[], float), merge is not supported.
+	 *
+	 * @param allowEmptyValues TRUE allows empty values (i.e. zero) to be added into data set
+	 * @param forget FORGET_HALF_LIFE or FORGET_SLIDING_WINDOW
+	 * @param samples the half life or the window size, in samples
+	 * @throws IllegalArgumentException if samples &lt;= 0
+	 */
+	public GaussianNaiveBayesClassifier(boolean allowEmptyValues, boolean forget, int samples) {
+		if (samples <= 0) {
+			throw new IllegalArgumentException("Number of samples must be greater than zero: " + samples);
+		}
+		this.allowEmptySampleValues = allowEmptyValues;
+		this.sufficientStatisticsOnly = true;
+		if (forget == FORGET_HALF_LIFE) {
+			this.decayingStatistics = new DecayingFeatureStatistics(samples);
+			this.featureStatistics = this.decayingStatistics;
+		} else {
+			this.sampleWindow = new SampleWindow(samples);
+		}
+	}
+
 	/**
 	 * Instantiates a new Gaussian Naive Bayes.
 	 * Optional, assign names to values, useful for printing out data
@@ -174,6 +311,34 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 		return this.labelClassCategory;
 	}
 
+	/**
+	 * Score predictions by summing log probabilities instead of multiplying
+	 * probabilities.  Avoids underflow to zero when there are many features.
+	 *
+	 * @param useLogSpace TRUE to predict using log probabilities
+	 */
+	public void setLogSpaceScoring(boolean useLogSpace) {
+		this.logSpaceScoring = useLogSpace;
+	}
+
+	public boolean isLogSpaceScoring() {
+		return this.logSpaceScoring;
+	}
+
+	/**
+	 * @return TRUE if values of 0 are fitted (EMPTY_SAMPLES_ALLOW)
+	 */
+	public boolean isAllowEmptySampleValues() {
+		return this.allowEmptySampleValues;
+	}
+
+	/**
+	 * @return TRUE if only sufficient statistics are stored, not feature values
+	 */
+	public boolean isSufficientStatisticsOnly() {
+		return this.sufficientStatisticsOnly;
+	}
+
 
 	/**
 	 * Add training data one feature at a time.
@@ -183,13 +348,14 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 * @param trainingLabel the label data
 	 */
 	public void fit(int featureIndex, double trainingData_OneValue, double trainingLabel) {
+		this.checkNotForgetting();
 		this.moreTrainingData = true;	
 		this.addNewLabelToList(trainingLabel);
 		
 		log.logln(Logger.lI, featureIndex + ", " + trainingData_OneValue + ", " + trainingLabel);
 		this.updateFeatures(featureIndex, (float) trainingData_OneValue, (float)trainingLabel);
 
-		this.totalFitEntries++;
+		this.countFitEntry();
 		log.logln(Logger.lD, "total entries: " + this.totalFitEntries);
 	}
 
@@ -202,6 +368,7 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 * @param label  associated to this class
 	 */
 	public void fit(List<Float> trainingData_SetOfValues, float trainingLabel) {
+		this.checkNotForgetting();
 		this.moreTrainingData = true;
 		this.addNewLabelToList(trainingLabel);
 		
@@ -212,7 +379,7 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 			this.updateFeatures(index, trainingData_SetOfValues.get(index), trainingLabel);
 			log.logln(Logger.lD, "total entries: " + this.totalFitEntries);
 		}
-		this.totalFitEntries++;
+		this.countFitEntry();
 	}
 
 	/**
@@ -223,15 +390,23 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 * @param label  associated to this class
 	 */
 	public void fit(float[] trainingData_SetOfValues, float trainingLabel) {
+		if (this.concurrentFit) {
+			// no shared writes or log strings per value, the thread's statistics are locked once
+			this.addNewLabelToList(trainingLabel);
+			this.getConcurrentStatistics().addSample(trainingData_SetOfValues, this.getLabelIndex(trainingLabel),
+					this.allowEmptySampleValues);
+			return;
+		}
 		this.moreTrainingData = true;
 		this.addNewLabelToList(trainingLabel);
+		this.forgetForNextSample(trainingData_SetOfValues, trainingLabel);
 		
 		log.logln(Logger.lI, "List size: " + trainingData_SetOfValues.length + ", " + trainingLabel);
 
 		for (int index = 0; index < trainingData_SetOfValues.length; index++) {
 			log.logln(index + ":" + trainingData_SetOfValues[index]);
 			this.updateFeatures(index, trainingData_SetOfValues[index], trainingLabel);
-			this.totalFitEntries++;
+			this.countFitEntry();
 			log.logln(Logger.lD, "total entries: " + this.totalFitEntries);
 	//		this.calMeanVar();
 		}
@@ -248,6 +423,7 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	public void fit(List<Double> trainingData_SetOfValues, double trainingLabel) {
 		log.logln(Logger.lI, "List size: " + trainingData_SetOfValues.size() + ", " + trainingLabel);
 		
+		this.checkNotForgetting();
 		this.moreTrainingData = true;
 		this.addNewLabelToList(trainingLabel);
 
@@ -257,7 +433,7 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 			this.updateFeatures(index, (float)val, (float)trainingLabel);
 		}
 
-		this.totalFitEntries++;
+		this.countFitEntry();
 		log.logln(Logger.lD, "total entries: " + this.totalFitEntries);
 	}
 
@@ -270,14 +446,17 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 * @throws Exception thrown when data attributes size do not match
 	 */
 	public void fit(NDArray trainingData, double[] trainingLabels) throws Exception {
+		this.checkNotForgetting();
 		this.moreTrainingData = true;
 		this.updateLabels(trainingLabels);
 		log.logln(Logger.lI, "Labels: " + ArrayUtils.printArray(this.labels));
 
 		// update feature size only once, ignore additional features added later
-		if (!this.featureSetFixed) {
-			this.numberOfFeatures = trainingData.getShape(1);
-			this.featureSetFixed = true;
+		synchronized (this) {
+			if (!this.featureSetFixed) {
+				this.numberOfFeatures = trainingData.getShape(1);
+				this.featureSetFixed = true;
+			}
 		}
 
 		// if loading multiple samples, make sure array sizes are the same
@@ -302,61 +481,830 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 			INDArray value = values.next();
 			log.log(count + "\t\t");
 
-			// load each feature
-			for (int index = 0; index < numberOfFeatures; index++) {
-				this.updateFeatures(index, (float) value.get(index), (float) trainingLabels[count]);
+			// load each feature
+			for (int index = 0; index < numberOfFeatures; index++) {
+				this.updateFeatures(index, (float) value.get(index), (float) trainingLabels[count]);
+
+				log.log_noTimestamp(value.get(index) + "\t\t");
+			}
+			log.logln_noTimestamp(String.valueOf(trainingLabels[count]));
+
+			this.countFitEntry();
+			count++;
+		}
+		log.logln(Logger.lD, "total entries: " + this.totalFitEntries);
+
+	}	
+
+	/**
+	 * Load in samples stored by column, one array per feature.  Values
+	 * are read in a tight loop without creating an object per value
+	 * (with sufficient statistics), for bulk loads.
+	 *
+	 * @param trainingColumns [feature][sample] values, all columns the same length
+	 * @param trainingLabels label of each sample
+	 * @throws Exception thrown when the number of features differs from earlier fits
+	 */
+	public void fitColumns(float[][] trainingColumns, float[] trainingLabels) throws Exception {
+		// every column checked before the number of features is fixed
+		for (float[] column : trainingColumns) {
+			this.checkColumnLength(column.length, trainingLabels.length);
+		}
+		this.checkColumns(trainingColumns.length, trainingLabels.length);
+		int[] labelIndexes = this.getLabelIndexes(trainingLabels);
+		TreeMap<Float, int[]>[] featureTables = this.newFeatureTables(trainingColumns.length);
+		int[][] fitted = new int[trainingColumns.length][this.getNumberOfLabels()];
+
+		for (int featureIndex = 0; featureIndex < trainingColumns.length; featureIndex++) {
+			float[] column = trainingColumns[featureIndex];
+			for (int row = 0; row < column.length; row++) {
+				this.fitValue(featureTables, fitted, featureIndex, column[row], labelIndexes[row]);
+			}
+		}
+		this.endColumnarFit(fitted, trainingLabels.length);
+	}
+
+	/**
+	 * Load in samples stored by column, see {@link #fitColumns(float[][], float[])}.
+	 *
+	 * @param trainingColumns [feature][sample] values, all columns the same length
+	 * @param trainingLabels label of each sample
+	 * @throws Exception thrown when the number of features differs from earlier fits
+	 */
+	public void fitColumns(float[][] trainingColumns, int[] trainingLabels) throws Exception {
+		this.fitColumns(trainingColumns, this.toFloatLabels(trainingLabels));
+	}
+
+	/**
+	 * Load in samples stored by column, values are fitted as float.
+	 *
+	 * @param trainingColumns [feature][sample] values, all columns the same length
+	 * @param trainingLabels label of each sample
+	 * @throws Exception thrown when the number of features differs from earlier fits
+	 */
+	public void fitColumns(double[][] trainingColumns, float[] trainingLabels) throws Exception {
+		// every column checked before the number of features is fixed
+		for (double[] column : trainingColumns) {
+			this.checkColumnLength(column.length, trainingLabels.length);
+		}
+		this.checkColumns(trainingColumns.length, trainingLabels.length);
+		int[] labelIndexes = this.getLabelIndexes(trainingLabels);
+		TreeMap<Float, int[]>[] featureTables = this.newFeatureTables(trainingColumns.length);
+		int[][] fitted = new int[trainingColumns.length][this.getNumberOfLabels()];
+
+		for (int featureIndex = 0; featureIndex < trainingColumns.length; featureIndex++) {
+			double[] column = trainingColumns[featureIndex];
+			for (int row = 0; row < column.length; row++) {
+				this.fitValue(featureTables, fitted, featureIndex, (float) column[row], labelIndexes[row]);
+			}
+		}
+		this.endColumnarFit(fitted, trainingLabels.length);
+	}
+
+	/**
+	 * Load in samples stored by column, values are fitted as float.
+	 *
+	 * @param trainingColumns [feature][sample] values, all columns the same length
+	 * @param trainingLabels label of each sample
+	 * @throws Exception thrown when the number of features differs from earlier fits
+	 */
+	public void fitColumns(double[][] trainingColumns, int[] trainingLabels) throws Exception {
+		this.fitColumns(trainingColumns, this.toFloatLabels(trainingLabels));
+	}
+
+	/**
+	 * Load in samples stored row after row in one buffer, value of sample
+	 * r, feature f at [r * stride + f].  Rows may be padded (stride greater
+	 * than the number of features).
+	 *
+	 * @param trainingData the values, at least (samples - 1) * stride + features long
+	 * @param numberOfFeatures values fitted per sample
+	 * @param stride distance between the first values of two samples, &gt;= numberOfFeatures
+	 * @param trainingLabels label of each sample
+	 * @throws Exception thrown when the number of features differs from earlier fits
+	 */
+	public void fitRows(float[] trainingData, int numberOfFeatures, int stride, float[] trainingLabels) throws Exception {
+		this.checkRows(trainingData.length, numberOfFeatures, stride, trainingLabels.length);
+		int[] labelIndexes = this.getLabelIndexes(trainingLabels);
+		TreeMap<Float, int[]>[] featureTables = this.newFeatureTables(numberOfFeatures);
+		int[][] fitted = new int[numberOfFeatures][this.getNumberOfLabels()];
+
+		for (int row = 0; row < trainingLabels.length; row++) {
+			int offset = row * stride;
+			int labelIndex = labelIndexes[row];
+			for (int featureIndex = 0; featureIndex < numberOfFeatures; featureIndex++) {
+				this.fitValue(featureTables, fitted, featureIndex, trainingData[offset + featureIndex], labelIndex);
+			}
+		}
+		this.endColumnarFit(fitted, trainingLabels.length);
+	}
+
+	/**
+	 * Load in samples stored row after row in one buffer, see
+	 * {@link #fitRows(float[], int, int, float[])}.
+	 *
+	 * @param trainingData the values, at least (samples - 1) * stride + features long
+	 * @param numberOfFeatures values fitted per sample
+	 * @param stride distance between the first values of two samples, &gt;= numberOfFeatures
+	 * @param trainingLabels label of each sample
+	 * @throws Exception thrown when the number of features differs from earlier fits
+	 */
+	public void fitRows(float[] trainingData, int numberOfFeatures, int stride, int[] trainingLabels) throws Exception {
+		this.fitRows(trainingData, numberOfFeatures, stride, this.toFloatLabels(trainingLabels));
+	}
+
+	/**
+	 * Load in samples stored row after row in one buffer, values are
+	 * fitted as float, see {@link #fitRows(float[], int, int, float[])}.
+	 *
+	 * @param trainingData the values, at least (samples - 1) * stride + features long
+	 * @param numberOfFeatures values fitted per sample
+	 * @param stride distance between the first values of two samples, &gt;= numberOfFeatures
+	 * @param trainingLabels label of each sample
+	 * @throws Exception thrown when the number of features differs from earlier fits
+	 */
+	public void fitRows(double[] trainingData, int numberOfFeatures, int stride, float[] trainingLabels) throws Exception {
+		this.checkRows(trainingData.length, numberOfFeatures, stride, trainingLabels.length);
+		int[] labelIndexes = this.getLabelIndexes(trainingLabels);
+		TreeMap<Float, int[]>[] featureTables = this.newFeatureTables(numberOfFeatures);
+		int[][] fitted = new int[numberOfFeatures][this.getNumberOfLabels()];
+
+		for (int row = 0; row < trainingLabels.length; row++) {
+			int offset = row * stride;
+			int labelIndex = labelIndexes[row];
+			for (int featureIndex = 0; featureIndex < numberOfFeatures; featureIndex++) {
+				this.fitValue(featureTables, fitted, featureIndex, (float) trainingData[offset + featureIndex], labelIndex);
+			}
+		}
+		this.endColumnarFit(fitted, trainingLabels.length);
+	}
+
+	/**
+	 * Check a columnar fit can start and fix the number of features.
+	 *
+	 * @param numberOfColumns number of features in the data
+	 * @param numberOfSamples number of labels
+	 * @throws Exception thrown when the number of features differs from earlier fits
+	 */
+	private void checkColumns(int numberOfColumns, int numberOfSamples) throws Exception {
+		this.checkNotForgetting();
+		// update feature size only once, ignore additional features added later
+		synchronized (this) {
+			if (!this.featureSetFixed) {
+				this.numberOfFeatures = numberOfColumns;
+				this.featureSetFixed = true;
+			}
+		}
+		if (this.numberOfFeatures != numberOfColumns) {
+			throw new Exception("Sample data array size is not consistent: " + this.numberOfFeatures + " vs "
+					+ numberOfColumns);
+		}
+		log.logln(Logger.lI, "Fitting " + numberOfSamples + " samples, # of features: " + numberOfColumns);
+	}
+
+	private void checkColumnLength(int columnLength, int numberOfSamples) {
+		if (columnLength != numberOfSamples) {
+			throw new IllegalArgumentException("Column length " + columnLength + " does not match labels " + numberOfSamples);
+		}
+	}
+
+	private void checkRows(int dataLength, int numberOfFeatures, int stride, int numberOfSamples) throws Exception {
+		if ((numberOfFeatures < 0) || (stride < numberOfFeatures)) {
+			throw new IllegalArgumentException("Stride " + stride + " less than number of features " + numberOfFeatures);
+		}
+		if ((numberOfSamples > 0) && (((long) (numberOfSamples - 1) * stride) + numberOfFeatures > dataLength)) {
+			throw new IllegalArgumentException("Buffer length " + dataLength + " too short for " + numberOfSamples + " samples");
+		}
+		this.checkColumns(numberOfFeatures, numberOfSamples);
+	}
+
+	private float[] toFloatLabels(int[] trainingLabels) {
+		float[] labelColumn = new float[trainingLabels.length];
+		for (int row = 0; row < trainingLabels.length; row++) {
+			labelColumn[row] = trainingLabels[row];
+		}
+		return labelColumn;
+	}
+
+	/**
+	 * Add the new labels and find the label index of each sample.
+	 *
+	 * @param trainingLabels label of each sample
+	 * @return label index of each sample
+	 */
+	private int[] getLabelIndexes(float[] trainingLabels) {
+		this.moreTrainingData = true;
+		int[] labelIndexes = new int[trainingLabels.length];
+		for (int row = 0; row < trainingLabels.length; row++) {
+			int labelIndexFound = (this.labels == null) ? -1 : this.getLabelIndex(trainingLabels[row]);
+			if (labelIndexFound == -1) {
+				this.addNewLabelToList(trainingLabels[row]);
+				labelIndexFound = this.getLabelIndex(trainingLabels[row]);
+			}
+			labelIndexes[row] = labelIndexFound;
+		}
+		return labelIndexes;
+	}
+
+	/**
+	 * Feature value maps of a columnar fit, looked up once per feature.
+	 *
+	 * @param numberOfColumns number of features
+	 * @return empty array, null with sufficient statistics
+	 */
+	@SuppressWarnings("unchecked")
+	private TreeMap<Float, int[]>[] newFeatureTables(int numberOfColumns) {
+		if (this.sufficientStatisticsOnly || this.concurrentFit) {
+			return null;
+		}
+		return (TreeMap<Float, int[]>[]) new TreeMap<?, ?>[numberOfColumns];
+	}
+
+	/**
+	 * Fit one value of a columnar fit, as updateFeatures without logging.
+	 * Label counts are kept in fitted and added once the fit ends.
+	 *
+	 * @param featureTables feature value maps found so far
+	 * @param fitted [feature][label] number of values fitted
+	 * @param featureIndex the feature index
+	 * @param featureValue the feature value
+	 * @param labelIndex the label index
+	 */
+	private void fitValue(TreeMap<Float, int[]>[] featureTables, int[][] fitted, int featureIndex, float featureValue,
+			int labelIndex) {
+		if (!this.isValueAccepted(featureValue)) {
+			return;
+		}
+		if (this.concurrentFit) {
+			this.getConcurrentStatistics().add(featureIndex, labelIndex, featureValue);
+		} else if (this.sufficientStatisticsOnly) {
+			this.featureStatistics.add(featureIndex, labelIndex, featureValue);
+		} else {
+			TreeMap<Float, int[]> featureValues = featureTables[featureIndex];
+			if (featureValues == null) {
+				featureValues = this.featuresList.get(featureIndex);
+				if (featureValues == null) {
+					featureValues = new TreeMap<Float, int[]>();
+					this.featuresList.put(featureIndex, featureValues);
+				}
+				featureTables[featureIndex] = featureValues;
+			}
+			int[] labelCounts = featureValues.get(featureValue);
+			if (labelCounts == null) {
+				labelCounts = this.emptyLabelCountsForFeatures();
+				featureValues.put(featureValue, labelCounts);
+			}
+			labelCounts[labelIndex]++;
+		}
+		fitted[featureIndex][labelIndex]++;
+	}
+
+	/**
+	 * Add the label counts and fit entries of a columnar fit, counted
+	 * as fit(NDArray, double[]): one per value and one per sample.
+	 *
+	 * @param fitted [feature][label] number of values fitted
+	 * @param numberOfSamples number of samples
+	 */
+	private void endColumnarFit(int[][] fitted, int numberOfSamples) {
+		int fitEntries = numberOfSamples;
+		for (int featureIndex = 0; featureIndex < fitted.length; featureIndex++) {
+			for (int labelIndex = 0; labelIndex < fitted[featureIndex].length; labelIndex++) {
+				int count = fitted[featureIndex][labelIndex];
+				if (count == 0) {
+					continue;
+				}
+				fitEntries += count;
+				if (!this.concurrentFit) {
+					this.getLabelCounts().add(featureIndex, labelIndex, count);
+					this.markMeanVarChanged(featureIndex, labelIndex);
+				}
+			}
+		}
+		if (this.concurrentFit) {
+			// values were counted as they were added
+			this.getConcurrentStatistics().countFitEntries(numberOfSamples);
+		} else {
+			this.totalFitEntries += fitEntries;
+		}
+	}
+
+	/**
+	 * Before the values of a sample are fitted, decay older samples or
+	 * remove the oldest sample of a full window.
+	 *
+	 * @param trainingData_SetOfValues the sample values
+	 * @param trainingLabel the label
+	 */
+	private void forgetForNextSample(float[] trainingData_SetOfValues, float trainingLabel) {
+		if (this.decayingStatistics != null) {
+			if (this.decayingStatistics.nextSample()) {
+				// labels pruned, mean / var all recalculated
+				this.dirtyFeatures = null;
+			}
+		} else if (this.sampleWindow != null) {
+			if (this.sampleWindow.isFull()) {
+				float[] oldestRow = this.sampleWindow.getOldestRow();
+				log.logln(Logger.lD, "Remove oldest sample: " + ArrayUtils.printArray(oldestRow));
+				this.removeSample(oldestRow, this.getLabelIndex(this.sampleWindow.getOldestLabel()));
+			}
+			this.sampleWindow.add(trainingData_SetOfValues, trainingLabel);
+		}
+	}
+
+	/**
+	 * Remove a sample fitted earlier, i.e. data that has expired from a
+	 * window kept by the caller.  Costs O(features), the mean / var of the
+	 * feature / labels of the sample are recalculated on the next predict.
+	 * <p>
+	 * With STORE_FEATURE_VALUES the label counts of the sample's values are
+	 * decremented, values no longer counted for any label are removed.
+	 * With STORE_SUFFICIENT_STATISTICS the running mean / M2 are reversed,
+	 * each feature / label of the sample must have a value fitted (the
+	 * values themselves are not kept to check).  Nothing is changed when
+	 * the check fails.  The fit count is reduced as fit(float[], float)
+	 * counted the sample.
+	 *
+	 * @param trainingData_SetOfValues the sample values, as fitted
+	 * @param trainingLabel the label, as fitted
+	 * @throws IllegalArgumentException if the label or a feature value was not fitted
+	 * @throws IllegalStateException if fitting concurrently or forgetting samples
+	 */
+	public void unfit(float[] trainingData_SetOfValues, float trainingLabel) {
+		if (this.concurrentFit || (this.decayingStatistics != null) || (this.sampleWindow != null)) {
+			throw new IllegalStateException("Samples can not be removed when fitting concurrently or forgetting.");
+		}
+		int labelIndexFound = (this.labels == null) ? -1 : this.getLabelIndex(trainingLabel);
+		if (labelIndexFound == -1) {
+			throw new IllegalArgumentException("Label not fitted: " + trainingLabel);
+		}
+		log.logln(Logger.lI, "Remove sample: " + ArrayUtils.printArray(trainingData_SetOfValues) + ", " + trainingLabel);
+
+		// check all values before any are removed
+		int acceptedValues = 0;
+		for (int featureIndex = 0; featureIndex < trainingData_SetOfValues.length; featureIndex++) {
+			float featureValue = trainingData_SetOfValues[featureIndex];
+			if (!this.isValueAccepted(featureValue)) {
+				continue;
+			}
+			boolean fitted;
+			if (this.sufficientStatisticsOnly) {
+				fitted = this.featureStatistics.getCount(featureIndex, labelIndexFound) >= 1;
+			} else {
+				TreeMap<Float, int[]> featureValues = this.featuresList.get(featureIndex);
+				int[] labelCounts = (featureValues == null) ? null : featureValues.get(featureValue);
+				fitted = (labelCounts != null) && (labelCounts[labelIndexFound] != 0);
+			}
+			if (!fitted) {
+				throw new IllegalArgumentException("Value not fitted: " + featureValue + ", feature index: "
+						+ featureIndex + ", label: " + trainingLabel);
+			}
+			acceptedValues++;
+		}
+		this.moreTrainingData = true;
+		this.removeSample(trainingData_SetOfValues, labelIndexFound);
+		// fit(float[], float) counts each value and each value added
+		this.totalFitEntries = this.totalFitEntries - trainingData_SetOfValues.length - acceptedValues;
+	}
+
+	/**
+	 * Remove the values of a sample, the reverse of updateFeatures.
+	 *
+	 * @param trainingData_SetOfValues the sample values
+	 * @param labelIndex the label index
+	 */
+	private void removeSample(float[] trainingData_SetOfValues, int labelIndex) {
+		for (int featureIndex = 0; featureIndex < trainingData_SetOfValues.length; featureIndex++) {
+			float featureValue = trainingData_SetOfValues[featureIndex];
+			// values not accepted by updateFeatures were not added
+			if (!this.isValueAccepted(featureValue)) {
+				continue;
+			}
+			if (this.sufficientStatisticsOnly) {
+				this.featureStatistics.remove(featureIndex, labelIndex, featureValue);
+			} else {
+				TreeMap<Float, int[]> featureValues = this.featuresList.get(featureIndex);
+				int[] labelCounts = featureValues.get(featureValue);
+				labelCounts[labelIndex]--;
+				if (this.isAllZero(labelCounts)) {
+					featureValues.remove(featureValue);
+				}
+			}
+			this.getLabelCounts().add(featureIndex, labelIndex, -1);
+			this.markMeanVarChanged(featureIndex, labelIndex);
+		}
+	}
+
+	/**
+	 * @param featureValue the feature value
+	 * @return TRUE if updateFeatures adds the value
+	 */
+	private boolean isValueAccepted(float featureValue) {
+		return !(((featureValue == 0) && !this.allowEmptySampleValues) || (featureValue == NaN));
+	}
+
+	private boolean isAllZero(int[] labelCounts) {
+		for (int count : labelCounts) {
+			if (count != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Forgetting needs whole samples, fitted with fit(float[], float).
+	 *
+	 * @throws IllegalStateException if FORGET_HALF_LIFE or FORGET_SLIDING_WINDOW
+	 */
+	private void checkNotForgetting() {
+		if ((this.decayingStatistics != null) || (this.sampleWindow != null)) {
+			throw new IllegalStateException("Samples must be fitted with fit(float[], float) when forgetting.");
+		}
+	}
+
+	/**
+	 * Write the compiled model as a {@link BinaryModelFile}, it can be
+	 * memory mapped with {@link BinaryModelFile#loadGaussian(String)} and 
+	 * used for prediction without deserializing.
+	 *
+	 * @param fileName the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void saveModel(String fileName) throws IOException {
+		this.compile().save(fileName);
+	}
+
+	/**
+	 * Add the training data of another classifier, i.e. one trained on a
+	 * different part of the data set, possibly in another JVM.  The result
+	 * is the same as if all of the data had been fitted here (except for
+	 * rounding when sufficient statistics are combined).
+	 * <p>
+	 * Labels not yet known are added, label indexes of other are mapped to
+	 * label indexes of this classifier, the order labels were seen does
+	 * not need to match.  Counts are added, sufficient statistics are combined
+	 * using the parallel variance algorithm.  Feature values of other may be
+	 * merged into either storage mode, sufficient statistics can only be
+	 * merged into STORE_SUFFICIENT_STATISTICS.
+	 * <p>
+	 * Neither classifier may be fitting while merging, other is not changed.
+	 *
+	 * @param other the classifier to add
+	 * @throws Exception thrown when the number of NDArray features differ,
+	 * sufficient statistics are merged into feature values or either classifier forgets samples
+	 */
+	public void merge(GaussianNaiveBayesClassifier other) throws Exception {
+		if (other.labels == null) {
+			return;
+		}
+		if (this.featureSetFixed && other.featureSetFixed && (this.numberOfFeatures != other.numberOfFeatures)) {
+			throw new Exception("Sample data array size is not consistent: " + this.numberOfFeatures + " vs "
+					+ other.numberOfFeatures);
+		}
+		if (!this.sufficientStatisticsOnly && other.sufficientStatisticsOnly) {
+			throw new Exception("Sufficient statistics can not be merged into feature values.");
+		}
+		if ((this.decayingStatistics != null) || (this.sampleWindow != null)
+				|| (other.decayingStatistics != null) || (other.sampleWindow != null)) {
+			throw new Exception("Classifiers that forget samples can not be merged.");
+		}
+		log.logln(Logger.lI, "Merging classifier...");
+
+		this.foldConcurrentFit();
+		other.foldConcurrentFit();
+
+		float[] otherLabels = other.labels;
+		int[] labelIndexMap = new int[otherLabels.length];
+		for (int labelIndex = 0; labelIndex < otherLabels.length; labelIndex++) {
+			this.addNewLabelToList(otherLabels[labelIndex]);
+			labelIndexMap[labelIndex] = this.getLabelIndex(otherLabels[labelIndex]);
+		}
+
+		if (other.sufficientStatisticsOnly) {
+			this.featureStatistics.merge(other.featureStatistics, labelIndexMap);
+		} else {
+			for (Map.Entry<Integer, TreeMap<Float, int[]>> feature : other.featuresList.entrySet()) {
+				for (Map.Entry<Float, int[]> entry : feature.getValue().entrySet()) {
+					int[] otherCounts = entry.getValue();
+					for (int labelIndex = 0; labelIndex < labelIndexMap.length; labelIndex++) {
+						if (this.sufficientStatisticsOnly) {
+							this.featureStatistics.add(feature.getKey(), labelIndexMap[labelIndex], entry.getKey(), otherCounts[labelIndex]);
+						} else {
+							this.addFeatureValueCount(feature.getKey(), entry.getKey(), labelIndexMap[labelIndex], otherCounts[labelIndex]);
+						}
+					}
+				}
+			}
+		}
+
+		if (!this.featureSetFixed && other.featureSetFixed) {
+			this.numberOfFeatures = other.numberOfFeatures;
+			this.featureSetFixed = true;
+		}
+		this.totalFitEntries = this.totalFitEntries + other.getFitCount();
+		// label counts and mean / var recalculated from the merged data
+		this.labelCounts = null;
+		this.dirtyFeatures = null;
+		this.moreTrainingData = true;
+	}
+
+	/**
+	 * Remove the training data of another classifier, the reverse of merge.
+	 * The data of other must have been merged into (or fitted by) this
+	 * classifier, i.e. all data minus one cross validation fold is formed
+	 * without fitting the other folds again.
+	 * <p>
+	 * Counts are subtracted, sufficient statistics are separated using the
+	 * parallel variance algorithm in reverse.  Values no longer fitted for
+	 * any label are removed.  A label only fitted by other is kept with no
+	 * values, it is not scored.  Neither classifier may be fitting, other
+	 * is not changed.
+	 *
+	 * @param other the classifier to remove
+	 * @throws Exception thrown when other has a label, value or count not fitted here,
+	 * sufficient statistics are removed from feature values or either classifier forgets samples
+	 */
+	public void unmerge(GaussianNaiveBayesClassifier other) throws Exception {
+		if (other.labels == null) {
+			return;
+		}
+		if (!this.sufficientStatisticsOnly && other.sufficientStatisticsOnly) {
+			throw new Exception("Sufficient statistics can not be removed from feature values.");
+		}
+		if ((this.decayingStatistics != null) || (this.sampleWindow != null)
+				|| (other.decayingStatistics != null) || (other.sampleWindow != null)) {
+			throw new Exception("Classifiers that forget samples can not be unmerged.");
+		}
+		log.logln(Logger.lI, "Unmerging classifier...");
+
+		this.foldConcurrentFit();
+		other.foldConcurrentFit();
+
+		float[] otherLabels = other.labels;
+		int[] labelIndexMap = new int[otherLabels.length];
+		for (int labelIndex = 0; labelIndex < otherLabels.length; labelIndex++) {
+			labelIndexMap[labelIndex] = (this.labels == null) ? -1 : this.getLabelIndex(otherLabels[labelIndex]);
+			if (labelIndexMap[labelIndex] == -1) {
+				throw new Exception("Label not fitted: " + otherLabels[labelIndex]);
+			}
+		}
+
+		// check all counts before any are removed
+		for (int featureIndex = 0; featureIndex < other.getNumberOfFeaturesFitted(); featureIndex++) {
+			for (int labelIndex = 0; labelIndex < otherLabels.length; labelIndex++) {
+				int otherCount = other.getLabelCounts().getLabelCount(featureIndex, labelIndex);
+				if (otherCount > this.getLabelCounts().getLabelCount(featureIndex, labelIndexMap[labelIndex])) {
+					throw new Exception("More values than fitted, feature index: " + featureIndex + ", label: " + otherLabels[labelIndex]);
+				}
+			}
+		}
+		if (!this.sufficientStatisticsOnly) {
+			for (Map.Entry<Integer, TreeMap<Float, int[]>> feature : other.featuresList.entrySet()) {
+				TreeMap<Float, int[]> featureValues = this.featuresList.get(feature.getKey());
+				for (Map.Entry<Float, int[]> entry : feature.getValue().entrySet()) {
+					int[] labelCounts = (featureValues == null) ? null : featureValues.get(entry.getKey());
+					for (int labelIndex = 0; labelIndex < labelIndexMap.length; labelIndex++) {
+						int otherCount = entry.getValue()[labelIndex];
+						if ((otherCount > 0) && ((labelCounts == null) || (labelCounts[labelIndexMap[labelIndex]] < otherCount))) {
+							throw new Exception("Value not fitted: " + entry.getKey() + ", feature index: " + feature.getKey()
+									+ ", label: " + otherLabels[labelIndex]);
+						}
+					}
+				}
+			}
+		}
+
+		if (other.sufficientStatisticsOnly) {
+			this.featureStatistics.subtract(other.featureStatistics, labelIndexMap);
+		} else {
+			for (Map.Entry<Integer, TreeMap<Float, int[]>> feature : other.featuresList.entrySet()) {
+				TreeMap<Float, int[]> featureValues = this.featuresList.get(feature.getKey());
+				for (Map.Entry<Float, int[]> entry : feature.getValue().entrySet()) {
+					int[] otherCounts = entry.getValue();
+					for (int labelIndex = 0; labelIndex < labelIndexMap.length; labelIndex++) {
+						if (this.sufficientStatisticsOnly) {
+							this.featureStatistics.remove(feature.getKey(), labelIndexMap[labelIndex], entry.getKey(), otherCounts[labelIndex]);
+						} else {
+							featureValues.get(entry.getKey())[labelIndexMap[labelIndex]] -= otherCounts[labelIndex];
+						}
+					}
+					if (!this.sufficientStatisticsOnly && this.isAllZero(featureValues.get(entry.getKey()))) {
+						featureValues.remove(entry.getKey());
+					}
+				}
+			}
+		}
+
+		this.totalFitEntries = this.totalFitEntries - other.getFitCount();
+		// label counts and mean / var recalculated from the remaining data
+		this.labelCounts = null;
+		this.dirtyFeatures = null;
+		this.moreTrainingData = true;
+	}
+
+	/**
+	 * Calculate the mean and variance. This must be done prior to any predict
+	 * functions.
+	 * <p>
+	 * Only the feature / label entries fitted since the last calculation are 
+	 * recalculated.  If a label or feature was added everything is recalculated.
+	 */
+	private void calMeanVar() {
+		this.mergeConcurrentFit();
+
+		// don't calculate unless new data has been fitted
+		if (this.moreTrainingData) {
+			this.moreTrainingData = false;
+			this.compiledModel = null;
+
+			if (this.isMeanVarSizeChanged()) {
+				log.logln(Logger.lI, "Calculate Mean & Var...");
+				this.initMeanVar();
+
+				// calculate for each label, get labels for each feature
+				for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+					float[] tempMean = new float[this.getNumberOfFeaturesFitted()];
+					double[] tempVar = new double[this.getNumberOfFeaturesFitted()];
+
+					for (int featuresIndex = 0; featuresIndex < tempMean.length; featuresIndex++) {
+						this.calMeanVar(featuresIndex, labelIndex, tempMean, tempVar);
+					}
+
+					this.featuresMean.set(labelIndex, tempMean);
+					this.featuresVariance.set(labelIndex, tempVar);
+				}
+			} else {
+				log.logln(Logger.lI, "Calculate Mean & Var of fitted entries...");
+				for (int labelIndex = 0; labelIndex < this.dirtyFeatures.size(); labelIndex++) {
+					BitSet dirty = this.dirtyFeatures.get(labelIndex);
+					for (int featuresIndex = dirty.nextSetBit(0); featuresIndex >= 0; featuresIndex = dirty.nextSetBit(featuresIndex + 1)) {
+						this.calMeanVar(featuresIndex, labelIndex, this.featuresMean.get(labelIndex), this.featuresVariance.get(labelIndex));
+					}
+				}
+			}
+			if (this.dirtyFeatures == null) {
+				// model serialized before fitted entries were flagged
+				this.dirtyFeatures = new ArrayList<BitSet>();
+			}
+			for (BitSet dirty : this.dirtyFeatures) {
+				dirty.clear();
+			}
+		}
+	}
+
+	/**
+	 * When fitting concurrently, replace the statistics with the merged
+	 * statistics of all fitting threads if any thread has added values.
+	 * Label counts and mean / var are then fully recalculated.
+	 */
+	private void mergeConcurrentFit() {
+		ConcurrentFeatureStatistics statistics = this.concurrentStatistics;
+		if (this.concurrentFit && (statistics != null) && statistics.takeChanged()) {
+			log.logln(Logger.lI, "Merge statistics of fitting threads...");
+			this.featureStatistics = statistics.merge();
+			this.labelCounts = null;
+			this.dirtyFeatures = null;
+			this.moreTrainingData = true;
+		}
+	}
 
-				log.log_noTimestamp(value.get(index) + "\t\t");
+	/**
+	 * Statistics of the fitting threads, created on first use (not serialized).
+	 * Only the first use locks.
+	 *
+	 * @return the concurrent statistics
+	 */
+	private ConcurrentFeatureStatistics getConcurrentStatistics() {
+		ConcurrentFeatureStatistics statistics = this.concurrentStatistics;
+		if (statistics == null) {
+			synchronized (this) {
+				if (this.concurrentStatistics == null) {
+					this.concurrentStatistics = new ConcurrentFeatureStatistics(this.featureStatistics);
+				}
+				statistics = this.concurrentStatistics;
 			}
-			log.logln_noTimestamp(String.valueOf(trainingLabels[count]));
+		}
+		return statistics;
+	}
 
+	/**
+	 * Count one fit entry.
+	 */
+	private void countFitEntry() {
+		if (this.concurrentFit) {
+			this.getConcurrentStatistics().countFitEntry();
+		} else {
 			this.totalFitEntries++;
-			count++;
 		}
-		log.logln(Logger.lD, "total entries: " + this.totalFitEntries);
-
-	}	
+	}
 
 	/**
-	 * Calculate the mean and variance. This must be done prior to any predict
-	 * functions.
+	 * Merge the statistics of the fitting threads into the model and
+	 * release them.  Call once every fitting thread has returned, no
+	 * thread may be fitting, values added during the call can be lost.
 	 */
-	private void calMeanVar() {
+	public void finishConcurrentFit() {
+		this.foldConcurrentFit();
+	}
 
-		// don't calculate unless new data has been fitted
-		if (this.moreTrainingData) {
-			this.moreTrainingData = false;
-			log.logln(Logger.lI, "Calculate Mean & Var...");
-			this.initMeanVar();
+	/**
+	 * Writing does not change the model, the statistics of the fitting
+	 * threads must already be merged by finishConcurrentFit.
+	 *
+	 * @param out the stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws IllegalStateException if concurrent fit is not finished
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		if (this.concurrentStatistics != null) {
+			throw new IllegalStateException("Call finishConcurrentFit() before serializing a concurrently fitted classifier.");
+		}
+		out.defaultWriteObject();
+	}
 
-			// calculate for each label, get labels for each feature
-			for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
-				float[] tempMean = new float[this.featuresList.size()];
-				double[] tempVar = new double[this.featuresList.size()];
+	/**
+	 * Merge the statistics of the fitting threads into featureStatistics
+	 * and start new thread statistics from them.  Used before
+	 * featureStatistics is written or changed directly, no thread 
+	 * may be fitting.
+	 */
+	private synchronized void foldConcurrentFit() {
+		if (this.concurrentFit && (this.concurrentStatistics != null)) {
+			this.mergeConcurrentFit();
+			this.totalFitEntries = this.getFitCount();
+			// merged values become the initial statistics of new fitting threads
+			this.concurrentStatistics = null;
+		}
+	}
 
-				for (int featuresIndex : this.featuresList.keySet()) {
-					tempMean[featuresIndex] = this.calculateMean(featuresIndex, labelIndex);
-					tempVar[featuresIndex] = this.calculateVarianceSample(featuresIndex, labelIndex, tempMean[featuresIndex]);
+	/**
+	 * Calculate the mean and variance of one feature / label.
+	 *
+	 * @param featuresIndex the feature index
+	 * @param labelIndex the label index
+	 * @param tempMean means of the label, updated at featuresIndex
+	 * @param tempVar variances of the label, updated at featuresIndex
+	 */
+	private void calMeanVar(int featuresIndex, int labelIndex, float[] tempMean, double[] tempVar) {
+		if (this.sufficientStatisticsOnly) {
+			tempMean[featuresIndex] = (float) this.featureStatistics.getMean(featuresIndex, labelIndex);
+			tempVar[featuresIndex] = this.featureStatistics.getVarianceSample(featuresIndex, labelIndex);
+		} else {
+			tempMean[featuresIndex] = this.calculateMean(featuresIndex, labelIndex);
+			tempVar[featuresIndex] = this.calculateVarianceSample(featuresIndex, labelIndex, tempMean[featuresIndex]);
+		}
 
-					log.log(Logger.lI, "Calculated mean/var for Label " + this.labels[labelIndex] + ", FeaturesListIndex " + featuresIndex);
-					log.log_noTimestamp("\tMean: " + tempMean[featuresIndex]);
-					log.logln_noTimestamp("\tVariance: " + tempVar[featuresIndex]);
-				}
+		log.log(Logger.lI, "Calculated mean/var for Label " + this.labels[labelIndex] + ", FeaturesListIndex " + featuresIndex);
+		log.log_noTimestamp("\tMean: " + tempMean[featuresIndex]);
+		log.logln_noTimestamp("\tVariance: " + tempVar[featuresIndex]);
+	}
 
-				this.featuresMean.set(labelIndex, tempMean);
-				this.featuresVariance.set(labelIndex, tempVar);
+	/**
+	 * TRUE if the labels or features no longer match the calculated mean / var
+	 * (or the fitted entries are unknown), all must be calculated.
+	 *
+	 * @return TRUE if mean / var must be fully calculated
+	 */
+	private boolean isMeanVarSizeChanged() {
+		if ((this.dirtyFeatures == null) || (this.featuresMean.size() != this.labels.length)) {
+			return true;
+		}
+		for (float[] tempMean : this.featuresMean) {
+			if (tempMean.length != this.getNumberOfFeaturesFitted()) {
+				return true;
 			}
 		}
+		return false;
+	}
+
+	/**
+	 * Flag the feature / label mean and var for recalculation.
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 */
+	private void markMeanVarChanged(int featureIndex, int labelIndex) {
+		if (this.dirtyFeatures == null) {
+			return;
+		}
+		while (this.dirtyFeatures.size() <= labelIndex) {
+			this.dirtyFeatures.add(new BitSet());
+		}
+		this.dirtyFeatures.get(labelIndex).set(featureIndex);
 	}
 	
 	/**
 	 * Initializes the mean and variance variables.
 	 */
 	private void initMeanVar() {
-		float[] tempFloat = new float[this.featuresList.size()];
-		double[] tempDouble = new double[this.featuresList.size()];
+		this.featuresMean.clear();
+		this.featuresVariance.clear();
+
+		float[] tempFloat = new float[this.getNumberOfFeaturesFitted()];
+		double[] tempDouble = new double[this.getNumberOfFeaturesFitted()];
 
-		for (int index = 0; index < this.featuresList.size(); index++) {
+		for (int index = 0; index < tempFloat.length; index++) {
 			tempFloat[index] = 0f;
 			tempDouble[index] = 0;
 		}
@@ -378,17 +1326,17 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 		System.out.println("MEAN and VARIANCE (by Labels)");	
 		System.out.print("" + "\t\t");
 		
-		for (int featuresIndex = 0; featuresIndex < this.featuresList.size(); featuresIndex++) {
+		for (int featuresIndex = 0; featuresIndex < this.getNumberOfFeaturesFitted(); featuresIndex++) {
 			System.out.print("mean\t");
 			System.out.print("var\t");
 		}
 		System.out.println();
 
 		System.out.print("\tFeat:\t");
-		for (int featuresIndex = 0; featuresIndex < this.featuresList.size(); featuresIndex++) {
+		for (int featuresIndex = 0; featuresIndex < this.getNumberOfFeaturesFitted(); featuresIndex++) {
 			
 			//use names if available
-			if ((this.featureNames == null) || (!(this.featureNames.size() == this.featuresList.size()))) {
+			if ((this.featureNames == null) || (!(this.featureNames.size() == this.getNumberOfFeaturesFitted()))) {
 			System.out.print(featuresIndex + "\t");
 			System.out.print(featuresIndex + "\t");
 			} else {
@@ -411,7 +1359,7 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 			
 			float[] tempMean = this.featuresMean.get(labelIndex);
 			double[] tempVar = this.featuresVariance.get(labelIndex);
-			for (int listLabelIndex = 0; listLabelIndex < this.featuresList.size(); listLabelIndex++) {
+			for (int listLabelIndex = 0; listLabelIndex < this.getNumberOfFeaturesFitted(); listLabelIndex++) {
 				System.out.print(String.format("%.3f", tempMean[listLabelIndex]) + "\t");
 				System.out.print(String.format("%.3f", tempVar[listLabelIndex]) + "\t");
 			}
@@ -430,17 +1378,17 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 		log.logln_noTimestamp("MEAN and VARIANCE (by Labels)");
 		log.log_noTimestamp("" + "\t\t");
 		
-		for (int featuresIndex = 0; featuresIndex < this.featuresList.size(); featuresIndex++) {
+		for (int featuresIndex = 0; featuresIndex < this.getNumberOfFeaturesFitted(); featuresIndex++) {
 			log.log_noTimestamp("mean\t");
 			log.log_noTimestamp("var\t");
 		}
 		log.logln_noTimestamp("");
 
 		log.log_noTimestamp("\tFeat:\t");
-		for (int featuresIndex = 0; featuresIndex < this.featuresList.size(); featuresIndex++) {
+		for (int featuresIndex = 0; featuresIndex < this.getNumberOfFeaturesFitted(); featuresIndex++) {
 			
 			//use names if available
-			if ((this.featureNames == null) || (!(this.featureNames.size() == this.featuresList.size()))) {
+			if ((this.featureNames == null) || (!(this.featureNames.size() == this.getNumberOfFeaturesFitted()))) {
 			log.log_noTimestamp(featuresIndex + "\t");
 			log.log_noTimestamp(featuresIndex + "\t");
 			} else {
@@ -464,7 +1412,7 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 			
 			float[] tempMean = this.featuresMean.get(labelIndex);
 			double[] tempVar = this.featuresVariance.get(labelIndex);
-			for (int listLabelIndex = 0; listLabelIndex < this.featuresList.size(); listLabelIndex++) {
+			for (int listLabelIndex = 0; listLabelIndex < this.getNumberOfFeaturesFitted(); listLabelIndex++) {
 				log.log_noTimestamp(String.format("%.3f", tempMean[listLabelIndex]) + "\t");
 				log.log_noTimestamp(String.format("%.3f", tempVar[listLabelIndex]) + "\t");
 			}
@@ -620,6 +1568,9 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 
 		this.calMeanVar();
 		float[] data = ArrayUtils.convertListToFloatArray(testingData);
+		if (this.logSpaceScoring) {
+			return this.getCompiledModel().predict(data);
+		}
 		float[] results = this.getResultsFromFeatureSetForOneLabel(data);
 		return (double) this.getPredictedLabel(results);
 	}
@@ -637,10 +1588,45 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 
 		this.calMeanVar();
 		float[] data = testingData;
+		if (this.logSpaceScoring) {
+			return this.getCompiledModel().predict(data);
+		}
 		float[] results = this.getResultsFromFeatureSetForOneLabel(data);
 		return (double) this.getPredictedLabel(results);
 	}
 	
+	/**
+	 * Predict one sample and write the score of each label into a caller
+	 * supplied array, nothing is allocated once mean / var (and the compiled
+	 * model) have been calculated after the last fit.  The scores are log 
+	 * scores, as getLogProbabilityScores_TestingSet, when log space scoring
+	 * is set, otherwise probability scores, as getProbabilityScores_TestingSet.
+	 * Nothing is logged.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @param scoresOut filled with the score of each label, length must be &gt;= getNumberOfLabels()
+	 * @return the label
+	 */
+	public double predictInto(float[] testingData, double[] scoresOut) {
+		if (this.logSpaceScoring) {
+			CompiledGaussianModel model = this.getCompiledModel();
+			model.getLogScores(testingData, scoresOut);
+			return model.getLabel(LogProbability.getMaxIndex(scoresOut, model.getNumberOfLabels()));
+		}
+		this.calMeanVar();
+		float[] currentLabels = this.labels;
+		this.getResultsFromFeatureSet(testingData, scoresOut, currentLabels.length);
+		return currentLabels[LogProbability.getMaxIndex(scoresOut, currentLabels.length)];
+	}
+
+	/**
+	 * @return number of labels fitted, size of the predictInto scores
+	 */
+	public int getNumberOfLabels() {
+		float[] currentLabels = this.labels;
+		return (currentLabels == null) ? 0 : currentLabels.length;
+	}
+	
 	public double predict_OneTestValue(int featureIndex, float testingData) {		
 		log.logln_withClassName(Logger.LOG_DEBUG, "Prediction started...");
 		log.logln(Logger.lD, "Data set: " + testingData +", feature index: " + featureIndex);
@@ -674,6 +1660,9 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 		this.calMeanVar();
 		Iterator<INDArray> getElement = testingData.iterator();
 		float[] data = NDArrayUtils.convertNDArrayEntryToFloatArray(getElement.next());
+		if (this.logSpaceScoring) {
+			return this.getCompiledModel().predict(data);
+		}
 		float[] results = this.getResultsFromFeatureSetForOneLabel(data);
 		return (double) this.getPredictedLabel(results);
 	}
@@ -704,6 +1693,11 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 
 		while (getElement.hasNext()) {
 			float[] data = NDArrayUtils.convertNDArrayEntryToFloatArray(getElement.next());
+			if (this.logSpaceScoring) {
+				predictedListByLabelValue[predListCount] = this.getCompiledModel().predict(data);
+				predListCount++;
+				continue;
+			}
 			float[] results = this.getResultsFromFeatureSetForOneLabel(data);
 	//		predictedLabels[predListCount] = this.getPredictedLabelIndex(results);
 			predictedListByLabelValue[predListCount] = (double)this.getPredictedLabel(results);
@@ -718,6 +1712,80 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 		return predictedListByLabelValue;
 	}
 
+	/**
+	 * Predict given a list of feature sets [[val1, val2, ...], [val1, val2, ...], ...],
+	 * rows are split over the ForkJoinPool common pool.
+	 * <p>
+	 * Rows are scored in log space by the compiled model (same result 
+	 * as predict with setLogSpaceScoring(true)).
+	 *
+	 * @param testingData the testing data
+	 * @return the array of all predicted labels
+	 * @throws Exception thrown if a prediction task fails
+	 */
+	public double[] predictParallel(NDArray testingData) throws Exception {
+		double[] predictedListByLabelValue = new double[testingData.getShape(0)];
+		this.predictParallel(testingData, predictedListByLabelValue, null, ParallelBatchPredictor.DEFAULT_CHUNK_SIZE);
+		return predictedListByLabelValue;
+	}
+
+	/**
+	 * Predict given a list of feature sets [[val1, val2, ...], [val1, val2, ...], ...],
+	 * rows are split into chunks and predicted in parallel.
+	 * <p>
+	 * Rows are scored in log space by the compiled model (same result 
+	 * as predict with setLogSpaceScoring(true)).
+	 *
+	 * @param testingData the testing data
+	 * @param predictedOut predicted label for each row, length must be &gt;= number of rows
+	 * @param executor ForkJoinPool or other executor to run on, ForkJoinPool.commonPool() if null
+	 * @param chunkSize number of rows predicted by one task
+	 * @throws Exception thrown if a prediction task fails
+	 */
+	public void predictParallel(NDArray testingData, double[] predictedOut, ExecutorService executor, int chunkSize) throws Exception {
+		log.logln_withClassName(Logger.LOG_DEBUG, "Parallel prediction started...");
+		log.logln(Logger.lI, "Data set size: " + testingData.getShape(0) + ", chunk size: " + chunkSize);
+
+		ParallelBatchPredictor.predict(testingData, predictedOut, this.getRowPredictor(), executor, chunkSize);
+		log.logln(Logger.lI, "Prediction finished.");
+	}
+
+	/**
+	 * Predict given a list of feature sets [[val1, val2, ...], [val1, val2, ...], ...],
+	 * rows are split into chunks and predicted in parallel.
+	 * <p>
+	 * Rows are scored in log space by the compiled model (same result 
+	 * as predict with setLogSpaceScoring(true)).
+	 *
+	 * @param testingData the testing data
+	 * @param predictedOut predicted label for each row, length must be &gt;= number of rows
+	 * @param executor ForkJoinPool or other executor to run on, ForkJoinPool.commonPool() if null
+	 * @param chunkSize number of rows predicted by one task
+	 * @throws Exception thrown if a prediction task fails
+	 */
+	public void predictParallel(float[][] testingData, double[] predictedOut, ExecutorService executor, int chunkSize) throws Exception {
+		log.logln_withClassName(Logger.LOG_DEBUG, "Parallel prediction started...");
+		log.logln(Logger.lI, "Data set size: " + testingData.length + ", chunk size: " + chunkSize);
+
+		ParallelBatchPredictor.predict(testingData, predictedOut, this.getRowPredictor(), executor, chunkSize);
+		log.logln(Logger.lI, "Prediction finished.");
+	}
+
+	/**
+	 * Thread safe predictor of one row, uses the compiled model
+	 * as it is at the time of the call.
+	 *
+	 * @return the row predictor
+	 */
+	private ParallelBatchPredictor.RowPredictor getRowPredictor() {
+		final CompiledGaussianModel model = this.getCompiledModel();
+		return new ParallelBatchPredictor.RowPredictor() {
+			public double predict(float[] row) {
+				return model.predict(row);
+			}
+		};
+	}
+
 
 
 
@@ -734,7 +1802,10 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 		this.calMeanVar();
 		TreeMap<Float, int[]> featureValues = this.featuresList.get(featureIndex);
 
-		float Pc = this.getPcPerLabel(labelIndex, featureValues);
+		float Pc = this.getPcPerLabel(labelIndex, featureIndex);
+		if (!this.isLabelFitted(Pc)) {
+			return 0;
+		}
 		float Pd_given_c = this.getGaussian_Pd_given_c(featureIndex, testingData, labelIndex, featureValues);
 		log.logln_withClassName(Logger.LOG_DEBUG, this.labels[labelIndex] + "\tPc: " + Pc + "\t* Pd_given_c: "
 				+ Pd_given_c + "\t= " + Pd_given_c * Pc);
@@ -778,6 +1849,80 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 		return results;
 	}
 	
+	/**
+	 * Gets the joint log likelihood ln P(c) + ln P(d|c) of each label.
+	 * Values are not converted back with exp so they do not underflow
+	 * to zero for samples with many features.
+	 *
+	 * @param testingData the testing data
+	 * @return the log probability scores for each label
+	 */
+	public double[] getLogProbabilityScores_TestingSet(float[] testingData) {
+		return this.getCompiledModel().getLogScores(testingData);
+	}
+
+	/**
+	 * Gets the joint log likelihood ln P(c) + ln P(d|c) of each label.
+	 *
+	 * @param testingData the testing data
+	 * @return the log probability scores for each label
+	 */
+	public double[] getLogProbabilityScores_TestingSet(List<Float> testingData) {
+		return this.getLogProbabilityScores_TestingSet(ArrayUtils.convertListToFloatArray(testingData));
+	}
+
+	/**
+	 * Gets the joint log likelihood ln P(c) + ln P(d|c) of each label
+	 * for the first sample.
+	 *
+	 * @param testingData the testing data
+	 * @return the log probability scores for each label
+	 */
+	public double[] getLogProbabilityScores_TestingSet(NDArray testingData) {
+		// get first element
+		Iterator<INDArray> getElement = testingData.iterator();
+		float[] data = NDArrayUtils.convertNDArrayEntryToFloatArray(getElement.next());
+		return this.getLogProbabilityScores_TestingSet(data);
+	}
+
+	/**
+	 * Log of the posterior probability of each label, ln P(c|d),
+	 * normalized so that the probabilities sum to 1.
+	 *
+	 * @param testingData the testing data
+	 * @return the log posterior probability for each label
+	 */
+	public double[] predictLogProba(float[] testingData) {
+		double[] scores = this.getLogProbabilityScores_TestingSet(testingData);
+		LogProbability.normalize(scores, scores.length);
+		return scores;
+	}
+
+	/**
+	 * Log of the posterior probability of each label, ln P(c|d),
+	 * normalized so that the probabilities sum to 1.
+	 *
+	 * @param testingData the testing data
+	 * @return the log posterior probability for each label
+	 */
+	public double[] predictLogProba(List<Float> testingData) {
+		return this.predictLogProba(ArrayUtils.convertListToFloatArray(testingData));
+	}
+
+	/**
+	 * Compiled model of the current mean / variance, compiled again
+	 * only after more training data.
+	 *
+	 * @return the compiled model
+	 */
+	private CompiledGaussianModel getCompiledModel() {
+		this.calMeanVar();
+		if (this.compiledModel == null) {
+			this.compiledModel = this.compile();
+		}
+		return this.compiledModel;
+	}
+
 	/**
 	 * Given single feature, determine probabilty
 	 * scores for each label
@@ -803,6 +1948,11 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 			// each entry equal to 1 to avoid zeroing out
 			float Pd_given_c = 1;
 			Pc = this.getPcForAllValuesByLabel(labelIndex);
+			if (!this.isLabelFitted(Pc)) {
+				log.logln(Logger.lD, this.labels[labelIndex] + "\tno values fitted, not scored");
+				labelScores[labelIndex] = 0;
+				continue;
+			}
 			log.log(this.labels[labelIndex] + "\t(");
 
 			for (int testingIndex = 0; testingIndex < testingData.length; testingIndex++) {
@@ -837,6 +1987,79 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	}
 
 
+	/**
+	 * Probability scores of each label written into scoresOut, the same
+	 * float arithmetic as getResultsFromFeatureSetForOneLabel without 
+	 * the logging.
+	 *
+	 * @param testingData the test data
+	 * @param scoresOut filled with the score of each label
+	 * @param numberOfLabels number of labels to score
+	 */
+	private void getResultsFromFeatureSet(float[] testingData, double[] scoresOut, int numberOfLabels) {
+		for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+			// each entry equal to 1 to avoid zeroing out
+			float Pd_given_c = 1;
+			float Pc = this.getPcForAllValuesByLabel(labelIndex);
+			if (!this.isLabelFitted(Pc)) {
+				scoresOut[labelIndex] = 0;
+				continue;
+			}
+
+			for (int testingIndex = 0; testingIndex < testingData.length; testingIndex++) {
+				float testDataValue = testingData[testingIndex];
+				if (((testDataValue == 0) && !this.allowEmptySampleValues) || (testDataValue == NaN)) {
+					continue;
+				}
+				// feature value maps are not used by the gaussian
+				Pd_given_c = Pd_given_c * this.getGaussian_Pd_given_c(testingIndex, testDataValue, labelIndex, null);
+			}
+			scoresOut[labelIndex] = Pd_given_c * Pc;
+		}
+	}
+
+	/**
+	 * Freeze the current mean, variance and label probabilities into
+	 * an immutable model for prediction.  Later fit calls do not change
+	 * the compiled model, compile again to pick them up.
+	 *
+	 * @return the compiled model
+	 */
+	public CompiledGaussianModel compile() {
+		this.calMeanVar();
+		log.logln(Logger.lI, "Compiling model...");
+
+		int numberOfLabels = this.labels.length;
+		int features = this.getNumberOfFeaturesFitted();
+		double[] logPrior = new double[numberOfLabels];
+		double[] mean = new double[numberOfLabels * features];
+		double[] logNormalizer = new double[numberOfLabels * features];
+		double[] inverseTwoVariance = new double[numberOfLabels * features];
+
+		for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+			float Pc = this.getPcForAllValuesByLabel(labelIndex);
+			if (!this.isLabelFitted(Pc)) {
+				// ln P(c) = -infinity, the feature terms are left 0
+				logPrior[labelIndex] = Double.NEGATIVE_INFINITY;
+				continue;
+			}
+			logPrior[labelIndex] = Math.log(Pc);
+			float[] classMeans = this.featuresMean.get(labelIndex);
+			double[] classVars = this.featuresVariance.get(labelIndex);
+
+			for (int featureIndex = 0; featureIndex < features; featureIndex++) {
+				int index = (labelIndex * features) + featureIndex;
+				double variance_sigma_sqrd = classVars[featureIndex];
+				mean[index] = classMeans[featureIndex];
+				logNormalizer[index] = -0.5 * Math.log(2 * Math.PI * variance_sigma_sqrd);
+				inverseTwoVariance[index] = 1 / (2 * variance_sigma_sqrd);
+			}
+		}
+		return new CompiledGaussianModel(this.labels.clone(), features, !this.allowEmptySampleValues,
+				logPrior, mean, logNormalizer, inverseTwoVariance);
+	}
+
+
 	/**
 	 * Gets the accuracy of predicted results.
 	 *
@@ -882,19 +2105,46 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 * @return the pc for all values by label
 	 */
 	private float getPcForAllValuesByLabel(int labelIndex) {
-		float Pc = 0;
-		int uniqueLabelCount = 0;
-		int totalLabelsCount = 0;
+		if (this.decayingStatistics != null) {
+			return this.decayingStatistics.getPc(labelIndex);
+		}
+		return this.getLabelCounts().getPc(labelIndex);
+	}
 
-		for (int featuresIndex = 0; featuresIndex < this.featuresList.size(); featuresIndex++) {
-				TreeMap<Float, int[]> featureValues = this.featuresList.get(featuresIndex);
-				uniqueLabelCount = uniqueLabelCount
-						+ this.getLabelCountFromFeature(labelIndex, featureValues);
-				totalLabelsCount = totalLabelsCount + this.getCountAllLabelsbyFeature(featureValues);
-			}
-		Pc = (float) uniqueLabelCount / totalLabelsCount;
-		return Pc;
+	/**
+	 * A label whose values were all removed (unmerge of the only fold
+	 * with the label, unfit) or have decayed away has no mean / variance,
+	 * it scores 0 (ln P(c) = -infinity) and is never predicted.
+	 *
+	 * @param Pc P(c) of the label
+	 * @return TRUE if the label is scored
+	 */
+	private boolean isLabelFitted(float Pc) {
+		return Pc > 0;
+	}
 
+	/**
+	 * Label counts maintained while fitting.  A model serialized before the
+	 * counts were kept has none, they are counted from the fitted data once.
+	 *
+	 * @return the label counts
+	 */
+	private LabelCounts<Integer> getLabelCounts() {
+		if (this.labelCounts == null) {
+			LabelCounts<Integer> counts = new LabelCounts<Integer>();
+			for (int featuresIndex = 0; featuresIndex < this.getNumberOfFeaturesFitted(); featuresIndex++) {
+				for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+					if (this.sufficientStatisticsOnly) {
+						counts.add(featuresIndex, labelIndex, (int) this.featureStatistics.getCount(featuresIndex, labelIndex));
+					} else {
+						counts.add(featuresIndex, labelIndex,
+								this.getLabelCountFromFeature(labelIndex, this.featuresList.get(featuresIndex)));
+					}
+				}
+			}
+			this.labelCounts = counts;
+		}
+		return this.labelCounts;
 	}
 
 	// P(c)
@@ -902,13 +2152,18 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 * Given label index, determine probabilty for one feature.
 	 *
 	 * @param labelIndex the label index
-	 * @param featureValues the temp map
+	 * @param featureIndex the feature index
 	 * @return the pc per label
 	 */
 	// className divided by all classes
-	private float getPcPerLabel(int labelIndex, TreeMap<Float, int[]> featureValues) {
+	private float getPcPerLabel(int labelIndex, int featureIndex) {
 		float Pc;
-		Pc = (float) getLabelCountFromFeature(labelIndex, featureValues) / this.getCountAllLabelsbyFeature(featureValues);
+		if (this.decayingStatistics != null) {
+			return (float) (this.decayingStatistics.getCount(featureIndex, labelIndex)
+					/ this.decayingStatistics.getFeatureCount(featureIndex));
+		}
+		Pc = (float) this.getLabelCounts().getLabelCount(featureIndex, labelIndex)
+				/ this.getLabelCounts().getFeatureCount(featureIndex);
 		return Pc;
 	}
 
@@ -964,19 +2219,25 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	private void addNewLabelToList(double dLabelData) {
 		float labelData = (float) dLabelData;
 		
-		if (this.labels == null) {
-			log.logln(Logger.lI, "UPDATING Label list with: " + dLabelData);
-
-			this.labels = new float[1];
-			this.labels[0] = labelData;
-		} else {
-			//only add new labels
-			if (this.getLabelIndex(labelData) == -1) {
-				//add to list
+		//label list is replaced, not changed, existing labels found without locking
+		if ((this.labels != null) && (this.getLabelIndex(labelData) != -1)) {
+			return;
+		}
+		synchronized (this) {
+			if (this.labels == null) {
 				log.logln(Logger.lI, "UPDATING Label list with: " + dLabelData);
-				this.createNewLabelList(labelData);
-				log.logln(Logger.lI, "UPDATING all Features with new label.");
-				this.addNewLabelToAllFeatures();
+
+				this.labels = new float[] { labelData };
+				this.labelIndex = new FloatLabelIndex(this.labels);
+			} else {
+				//only add new labels
+				if (this.getLabelIndex(labelData) == -1) {
+					//add to list
+					log.logln(Logger.lI, "UPDATING Label list with: " + dLabelData);
+					this.createNewLabelList(labelData);
+					log.logln(Logger.lI, "UPDATING all Features with new label.");
+					this.addNewLabelToAllFeatures();
+				}
 			}
 		}
 	}
@@ -988,12 +2249,20 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 */
 	//add new entry to label list but keep same order
 	private void createNewLabelList(float labelData) {
-		float[] tempList = this.labels.clone();
-		this.labels = new float[tempList.length + 1];
+		float[] tempList = this.labels;
+		float[] newList = new float[tempList.length + 1];
 
-		System.arraycopy(tempList, 0, this.labels, 0, tempList.length);
+		System.arraycopy(tempList, 0, newList, 0, tempList.length);
 		//add value to last entry in list, index starts at 0
-		this.labels[tempList.length] = labelData;
+		newList[tempList.length] = labelData;
+		this.labels = newList;
+
+		FloatLabelIndex index = this.getLabelIndexMap();
+		if (this.concurrentFit) {
+			index = index.copy();
+		}
+		index.put(labelData, tempList.length);
+		this.labelIndex = index;
 	}
 	
 	/**
@@ -1002,6 +2271,11 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 */
 	//if label added to list, the feature count needs to be updated
 	private void addNewLabelToAllFeatures(){
+		//room left in the count arrays
+		if (this.labels.length <= this.labelCapacity) {
+			return;
+		}
+		this.labelCapacity = LabelCounts.growCapacity(this.labelCapacity, this.labels.length);
 		Set<Integer> featuresKeys = this.featuresList.keySet();
 		Iterator<Integer> keyIterator = featuresKeys.iterator();
 		
@@ -1030,15 +2304,26 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 * @return the label index
 	 */
 	private int getLabelIndex(float valueToFind) {
-		int labelIndex = -1;
+		return this.getLabelIndexMap().get(valueToFind);
+	}
 
-		for (int index = 0; index < this.labels.length; index++) {
-			if (valueToFind == this.labels[index]) {
-				labelIndex = index;
-				break;
+	/**
+	 * Label value to index, built from the labels if not yet created
+	 * (i.e. after deserialization).
+	 *
+	 * @return the label index
+	 */
+	private FloatLabelIndex getLabelIndexMap() {
+		FloatLabelIndex index = this.labelIndex;
+		if (index == null) {
+			synchronized (this) {
+				if (this.labelIndex == null) {
+					this.labelIndex = new FloatLabelIndex(this.labels);
+				}
+				index = this.labelIndex;
 			}
 		}
-		return labelIndex;
+		return index;
 	}
 
 	/**
@@ -1055,6 +2340,15 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 			log.logln(Logger.lI, "Value: " + featureValue + " not accepted.\n");
 		} else if (featureValue == NaN) {
 			log.logln(Logger.lI, "Value NaN: " + featureValue + " not accepted.\n");
+		} else if (this.concurrentFit) {
+			// counted as a fit entry, the sample marks the statistics changed
+			this.getConcurrentStatistics().add(featureIndex, this.getLabelIndex(labelToIncrement), featureValue);
+		} else if (this.sufficientStatisticsOnly) {
+			int labelIndexFound = this.getLabelIndex(labelToIncrement);
+			this.featureStatistics.add(featureIndex, labelIndexFound, featureValue);
+			this.getLabelCounts().increment(featureIndex, labelIndexFound);
+			this.markMeanVarChanged(featureIndex, labelIndexFound);
+			this.countFitEntry();
 		} else {
 			boolean featureIndexExists = this.featuresList.containsKey(featureIndex);
 			int labelIndexFound = this.getLabelIndex(labelToIncrement);
@@ -1095,8 +2389,35 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 				featureValues.put(featureValue, labelCounts);
 				this.featuresList.put(featureIndex, featureValues);
 			}
-			this.totalFitEntries++;
+			this.getLabelCounts().increment(featureIndex, labelIndexFound);
+			this.markMeanVarChanged(featureIndex, labelIndexFound);
+			this.countFitEntry();
+		}
+	}
+
+	/**
+	 * Add to the label count of a feature value, used by merge.
+	 *
+	 * @param featureIndex the feature index
+	 * @param featureValue the feature value
+	 * @param labelIndex the label index
+	 * @param count amount to add to the label count
+	 */
+	private void addFeatureValueCount(int featureIndex, float featureValue, int labelIndex, int count) {
+		if (count == 0) {
+			return;
+		}
+		TreeMap<Float, int[]> featureValues = this.featuresList.get(featureIndex);
+		if (featureValues == null) {
+			featureValues = new TreeMap<Float, int[]>();
+			this.featuresList.put(featureIndex, featureValues);
+		}
+		int[] labelCounts = featureValues.get(featureValue);
+		if (labelCounts == null) {
+			labelCounts = this.emptyLabelCountsForFeatures();
+			featureValues.put(featureValue, labelCounts);
 		}
+		labelCounts[labelIndex] += count;
 	}
 
 	/**
@@ -1105,7 +2426,7 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 * @return the int[]
 	 */
 	private int[] emptyLabelCountsForFeatures(){
-		int[] labelCounts = new int[this.labels.length];
+		int[] labelCounts = new int[Math.max(this.labelCapacity, this.labels.length)];
 		for (int loop = 0; loop < labelCounts.length; loop++)
 			labelCounts[loop] = 0;
 		
@@ -1117,8 +2438,13 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 * Prints the features and labels.
 	 */
 	public void printFeaturesAndLabels() {
+		this.mergeConcurrentFit();
 		//if featureNames and labelsNames not loaded, this print float values
 		System.out.println();
+		if (this.sufficientStatisticsOnly) {
+			System.out.print(this.getLabelCountsBySufficientStatistics());
+			return;
+		}
 		System.out.println("Label counts by feature.\n");
 		
 		Set<Integer> featuresKeys = this.featuresList.keySet();
@@ -1180,7 +2506,7 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 					Entry<Float, int[]> map = this.getMapAtIndex(index, featureValues);
 					System.out.print(map.getKey() + "\t\t");
 					tempLabelCount = map.getValue();
-					for (int countIndex = 0; countIndex < tempLabelCount.length; countIndex++) {
+					for (int countIndex = 0; countIndex < this.labels.length; countIndex++) {
 						System.out.print(tempLabelCount[countIndex] + "\t");
 					}
 					System.out.print("\t");
@@ -1201,9 +2527,14 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 * Prints the features and labels.
 	 */
 	public void printFeaturesAndLabelsToLogger() {
+		this.mergeConcurrentFit();
 		//if featureNames and labelsNames not loaded, this print float values
 		
 		log.logln(Logger.lI, "");
+		if (this.sufficientStatisticsOnly) {
+			log.log_noTimestamp(this.getLabelCountsBySufficientStatistics());
+			return;
+		}
 		log.logln_noTimestamp("Label counts by feature.\n");
 
 		Set<Integer> featuresKeys = this.featuresList.keySet();
@@ -1264,7 +2595,7 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 					Entry<Float, int[]> map = this.getMapAtIndex(index, featureValues);
 					log.log_noTimestamp(map.getKey() + "\t\t");
 					tempLabelCount = map.getValue();
-					for (int countIndex = 0; countIndex < tempLabelCount.length; countIndex++) {
+					for (int countIndex = 0; countIndex < this.labels.length; countIndex++) {
 						log.log_noTimestamp(tempLabelCount[countIndex] + "\t");
 					}
 					log.log_noTimestamp("\t");
@@ -1281,6 +2612,53 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 		}
 	}
 	
+	/**
+	 * Label counts by feature when only sufficient statistics are stored,
+	 * feature values are not available.
+	 *
+	 * @return table of label counts, one row per feature
+	 */
+	private String getLabelCountsBySufficientStatistics() {
+		StringBuilder output = new StringBuilder();
+		output.append("Label counts by feature (sufficient statistics only).\n\n");
+		output.append("Feature\t\t");
+		for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+			//use names if available
+			if ((this.labelNames == null) || (!(this.labelNames.size() == this.labels.length))) {
+				output.append(this.labels[labelIndex] + "\t");
+			} else {
+				output.append(this.labelNames.get(labelIndex) + "\t");
+			}
+		}
+		output.append("\n");
+
+		for (int featuresIndex = 0; featuresIndex < this.featureStatistics.getNumberOfFeatures(); featuresIndex++) {
+			//use name if available
+			if ((this.featureNames == null) || (!(this.featureNames.size() == this.featureStatistics.getNumberOfFeatures()))) {
+				output.append(featuresIndex + "\t\t");
+			} else {
+				output.append(this.featureNames.get(featuresIndex) + "\t\t");
+			}
+			for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+				output.append((long) this.featureStatistics.getCount(featuresIndex, labelIndex) + "\t");
+			}
+			output.append("\n");
+		}
+		return output.toString();
+	}
+
+	/**
+	 * Number of features that have training data.
+	 *
+	 * @return the number of features
+	 */
+	private int getNumberOfFeaturesFitted() {
+		if (this.sufficientStatisticsOnly) {
+			return this.featureStatistics.getNumberOfFeatures();
+		}
+		return this.featuresList.size();
+	}
+
 	/**
 	 * Determine which feature map has the most values
 	 *
@@ -1345,6 +2723,7 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 	 * @param featureValues all the feature values for one feature
 	 * @return the total count
 	 */
+	@SuppressWarnings("unused")
 	private int getCountAllLabelsbyFeature(SortedMap<Float, int[]> featureValues) {
 		int totalLabels = 0;
 
@@ -1387,6 +2766,10 @@ public class GaussianNaiveBayesClassifier implements Serializable {
 
 	
 	public int getFitCount() {
+		ConcurrentFeatureStatistics statistics = this.concurrentStatistics;
+		if (this.concurrentFit && (statistics != null)) {
+			return this.totalFitEntries + statistics.getFitEntries();
+		}
 		return this.totalFitEntries;
 	}
 }
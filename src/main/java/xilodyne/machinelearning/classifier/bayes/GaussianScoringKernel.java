@@ -0,0 +1,33 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+/**
+ * Sums the Gaussian log likelihood of one label over the features of a sample,
+ * reading the flat arrays of a {@link CompiledGaussianModel}.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - scoring kernels
+ */
+interface GaussianScoringKernel {
+
+	/**
+	 * ln P(c) + sum( logNormalizer - (x - mean)^2 * inverseTwoVariance ),
+	 * values equal to NaN (or zero if ignored) are skipped.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @param features number of features to score
+	 * @param offset index of the label's first feature in the arrays
+	 * @param logPrior ln P(c)
+	 * @param mean mean [label * features + feature]
+	 * @param logNormalizer -0.5 * ln(2 * PI * variance) [label * features + feature]
+	 * @param inverseTwoVariance 1 / (2 * variance) [label * features + feature]
+	 * @param ignoreEmptyValues TRUE if zero values are skipped
+	 * @return the joint log likelihood
+	 */
+	double getLogScore(float[] testingData, int features, int offset, double logPrior, double[] mean,
+			double[] logNormalizer, double[] inverseTwoVariance, boolean ignoreEmptyValues);
+
+	/**
+	 * @return name of the scoring engine
+	 */
+	String getName();
+}
@@ -0,0 +1,159 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.io.Serializable;
+import java.util.HashMap;
+
+/**
+ * Number of values fitted for each label, in total and by feature,
+ * kept up to date as values are fitted so that P(c) and the label
+ * totals of a feature are read without scanning the feature value tables.
+ *
+ * @param <K> feature key, index or name
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - maintained label counts, count arrays grown by doubling
+ */
+class LabelCounts<K> implements Serializable {
+
+	private static final long serialVersionUID = -6157290385420733188L;
+
+	private int numberOfLabels = 0;
+	private int[] countByLabel = new int[0];
+	private int totalCount = 0;
+
+	//feature, count of each label
+	private HashMap<K, int[]> countByFeature = new HashMap<K, int[]>();
+
+	/**
+	 * One value of a feature fitted for the label.
+	 *
+	 * @param feature the feature
+	 * @param labelIndex the label index
+	 */
+	void increment(K feature, int labelIndex) {
+		this.add(feature, labelIndex, 1);
+	}
+
+	/**
+	 * Values of a feature fitted for the label.
+	 *
+	 * @param feature the feature
+	 * @param labelIndex the label index
+	 * @param count number of values
+	 */
+	void add(K feature, int labelIndex, int count) {
+		this.ensureLabels(labelIndex + 1);
+
+		int[] featureCounts = this.countByFeature.get(feature);
+		if (featureCounts == null) {
+			featureCounts = new int[this.countByLabel.length];
+			this.countByFeature.put(feature, featureCounts);
+		} else if (featureCounts.length < this.numberOfLabels) {
+			featureCounts = this.grow(featureCounts, this.countByLabel.length);
+			this.countByFeature.put(feature, featureCounts);
+		}
+		featureCounts[labelIndex] += count;
+		this.countByLabel[labelIndex] += count;
+		this.totalCount += count;
+	}
+
+	/**
+	 * Number of values fitted for the label, all features.
+	 *
+	 * @param labelIndex the label index
+	 * @return the count
+	 */
+	int getLabelCount(int labelIndex) {
+		return (labelIndex < this.numberOfLabels) ? this.countByLabel[labelIndex] : 0;
+	}
+
+	/**
+	 * Number of values fitted for the label of one feature.
+	 *
+	 * @param feature the feature
+	 * @param labelIndex the label index
+	 * @return the count
+	 */
+	int getLabelCount(K feature, int labelIndex) {
+		int[] featureCounts = this.countByFeature.get(feature);
+		if ((featureCounts == null) || (labelIndex >= featureCounts.length)) {
+			return 0;
+		}
+		return featureCounts[labelIndex];
+	}
+
+	/**
+	 * Number of values fitted for each label of one feature, the array
+	 * kept by the counts (not copied, read only), labels past its length
+	 * have no values.
+	 *
+	 * @param feature the feature
+	 * @return count of each label, null if the feature has no values
+	 */
+	int[] getLabelCounts(K feature) {
+		return this.countByFeature.get(feature);
+	}
+
+	/**
+	 * Number of values fitted for one feature, all labels.
+	 *
+	 * @param feature the feature
+	 * @return the count
+	 */
+	int getFeatureCount(K feature) {
+		int total = 0;
+		int[] featureCounts = this.countByFeature.get(feature);
+		if (featureCounts != null) {
+			for (int count : featureCounts) {
+				total = total + count;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * @return number of values fitted, all labels and features
+	 */
+	int getTotalCount() {
+		return this.totalCount;
+	}
+
+	/**
+	 * P(c), label count divided by count of all labels.
+	 *
+	 * @param labelIndex the label index
+	 * @return the probability
+	 */
+	float getPc(int labelIndex) {
+		return (float) this.getLabelCount(labelIndex) / this.totalCount;
+	}
+
+	/**
+	 * Capacity of the per label count arrays, doubled when more labels
+	 * are needed so adding labels is amortized constant time.
+	 *
+	 * @param capacity current capacity
+	 * @param labels number of labels required
+	 * @return the new capacity, capacity if large enough
+	 */
+	static int growCapacity(int capacity, int labels) {
+		if (labels <= capacity) {
+			return capacity;
+		}
+		return Math.max(labels, Math.max(4, capacity * 2));
+	}
+
+	private void ensureLabels(int labels) {
+		if (labels > this.numberOfLabels) {
+			if (labels > this.countByLabel.length) {
+				this.countByLabel = this.grow(this.countByLabel, growCapacity(this.countByLabel.length, labels));
+			}
+			this.numberOfLabels = labels;
+		}
+	}
+
+	private int[] grow(int[] values, int size) {
+		int[] newValues = new int[size];
+		System.arraycopy(values, 0, newValues, 0, values.length);
+		return newValues;
+	}
+}
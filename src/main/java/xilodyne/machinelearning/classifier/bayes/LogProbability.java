@@ -0,0 +1,71 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+/**
+ * Helpers for scores kept as natural log probabilities, used to avoid
+ * underflow when many probabilities are multiplied together.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - log space scoring
+ */
+final class LogProbability {
+
+	private LogProbability() {
+	}
+
+	/**
+	 * Index of the greatest score.  Unlike comparing against zero,
+	 * any finite score is greater than negative infinity.
+	 *
+	 * @param logScores the scores
+	 * @param length number of scores to check
+	 * @return index of the greatest score, zero if all are negative infinity
+	 */
+	static int getMaxIndex(double[] logScores, int length) {
+		int maxIndex = 0;
+		double getMax = Double.NEGATIVE_INFINITY;
+		for (int index = 0; index < length; index++) {
+			if (logScores[index] > getMax) {
+				getMax = logScores[index];
+				maxIndex = index;
+			}
+		}
+		return maxIndex;
+	}
+
+	/**
+	 * ln( sum( e^score ) ) without leaving log space.
+	 *
+	 * @param logScores the scores
+	 * @param length number of scores to use
+	 * @return the log of the summed probabilities
+	 */
+	static double logSumExp(double[] logScores, int length) {
+		double max = logScores[getMaxIndex(logScores, length)];
+		if (Double.isInfinite(max)) {
+			return max;
+		}
+		double sum = 0;
+		for (int index = 0; index < length; index++) {
+			sum += Math.exp(logScores[index] - max);
+		}
+		return max + Math.log(sum);
+	}
+
+	/**
+	 * Convert joint log likelihoods to log posterior probabilities
+	 * (sum of e^score equals 1), in place.  Left unchanged if
+	 * every score is negative infinity.
+	 *
+	 * @param logScores the scores
+	 * @param length number of scores to use
+	 */
+	static void normalize(double[] logScores, int length) {
+		double logTotal = logSumExp(logScores, length);
+		if (Double.isInfinite(logTotal)) {
+			return;
+		}
+		for (int index = 0; index < length; index++) {
+			logScores[index] = logScores[index] - logTotal;
+		}
+	}
+}
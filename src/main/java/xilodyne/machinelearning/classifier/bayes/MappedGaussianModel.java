@@ -0,0 +1,108 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Gaussian Naive Bayes model read from a memory mapped {@link BinaryModelFile},
+ * scores are calculated from the mapped bytes (same as {@link CompiledGaussianModel}
+ * with the scalar scoring engine).
+ * <p>
+ * Safe to share between threads.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - binary model file
+ */
+public final class MappedGaussianModel {
+
+	private final ByteBuffer buffer;
+	private final int numberOfLabels;
+	private final int numberOfFeatures;
+	private final boolean ignoreEmptyValues;
+
+	private final int logPriorOffset;
+	private final int meanOffset;
+	private final int logNormalizerOffset;
+	private final int inverseTwoVarianceOffset;
+
+	/**
+	 * Instantiates a new mapped model, the header has been checked.
+	 *
+	 * @param buffer the mapped file
+	 */
+	MappedGaussianModel(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.numberOfLabels = buffer.getInt(12);
+		this.numberOfFeatures = buffer.getInt(16);
+
+		int offset = BinaryModelFile.HEADER_SIZE + (this.numberOfLabels * 4);
+		this.ignoreEmptyValues = buffer.getInt(offset) == 1;
+		this.logPriorOffset = offset + 4;
+		this.meanOffset = this.logPriorOffset + (this.numberOfLabels * 8);
+		this.logNormalizerOffset = this.meanOffset + (this.numberOfLabels * this.numberOfFeatures * 8);
+		this.inverseTwoVarianceOffset = this.logNormalizerOffset + (this.numberOfLabels * this.numberOfFeatures * 8);
+	}
+
+	/**
+	 * Predict the label of one sample.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @return the label
+	 */
+	public double predict(float[] testingData) {
+		int labelMax = 0;
+		double getMax = Double.NEGATIVE_INFINITY;
+		for (int labelIndex = 0; labelIndex < this.numberOfLabels; labelIndex++) {
+			double score = this.getLogScore(testingData, labelIndex);
+			if (score > getMax) {
+				getMax = score;
+				labelMax = labelIndex;
+			}
+		}
+		return this.getLabel(labelMax);
+	}
+
+	/**
+	 * Joint log likelihood ln P(c) + ln P(d|c) of each label.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @param scoresOut filled with the score of each label, length must be &gt;= number of labels
+	 */
+	public void getLogScores(float[] testingData, double[] scoresOut) {
+		for (int labelIndex = 0; labelIndex < this.numberOfLabels; labelIndex++) {
+			scoresOut[labelIndex] = this.getLogScore(testingData, labelIndex);
+		}
+	}
+
+	private double getLogScore(float[] testingData, int labelIndex) {
+		int features = Math.min(testingData.length, this.numberOfFeatures);
+		int index = labelIndex * this.numberOfFeatures;
+		double score = this.buffer.getDouble(this.logPriorOffset + (labelIndex * 8));
+
+		for (int featureIndex = 0; featureIndex < features; featureIndex++, index++) {
+			float value = testingData[featureIndex];
+			if ((value == GaussianNaiveBayesClassifier.NaN) || ((value == 0) && this.ignoreEmptyValues)) {
+				continue;
+			}
+			double diff = value - this.buffer.getDouble(this.meanOffset + (index * 8));
+			score += this.buffer.getDouble(this.logNormalizerOffset + (index * 8))
+					- (diff * diff * this.buffer.getDouble(this.inverseTwoVarianceOffset + (index * 8)));
+		}
+		return score;
+	}
+
+	/**
+	 * @param labelIndex the label index
+	 * @return the label value
+	 */
+	public float getLabel(int labelIndex) {
+		return this.buffer.getFloat(BinaryModelFile.HEADER_SIZE + (labelIndex * 4));
+	}
+
+	public int getNumberOfLabels() {
+		return this.numberOfLabels;
+	}
+
+	public int getNumberOfFeatures() {
+		return this.numberOfFeatures;
+	}
+}
@@ -0,0 +1,118 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Naive Bayes model read from a memory mapped {@link BinaryModelFile},
+ * scores are calculated from the mapped bytes (same as NaiveBayesClassifier
+ * with log space scoring).  Feature values are found by binary search of 
+ * the feature's sorted values.
+ * <p>
+ * Safe to share between threads.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - binary model file
+ */
+public final class MappedNaiveBayesModel {
+
+	private final ByteBuffer buffer;
+	private final int numberOfLabels;
+	private final int numberOfFeatures;
+
+	private final int logPriorOffset;
+	private final int featuresOffset;
+
+	/**
+	 * Instantiates a new mapped model, the header has been checked.
+	 *
+	 * @param buffer the mapped file
+	 */
+	MappedNaiveBayesModel(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.numberOfLabels = buffer.getInt(12);
+		this.numberOfFeatures = buffer.getInt(16);
+		this.logPriorOffset = BinaryModelFile.HEADER_SIZE + (this.numberOfLabels * 4);
+		this.featuresOffset = this.logPriorOffset + (this.numberOfLabels * 8);
+	}
+
+	/**
+	 * Predict the label of one sample.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @return the label
+	 */
+	public double predict(float[] testingData) {
+		double[] scores = new double[this.numberOfLabels];
+		this.getLogScores(testingData, scores);
+		return this.getLabel(LogProbability.getMaxIndex(scores, this.numberOfLabels));
+	}
+
+	/**
+	 * Log probability ln P(c) + sum( ln P(d|c) ) of each label, negative
+	 * infinity if a value was not fitted for the label.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @param scoresOut filled with the score of each label, length must be &gt;= number of labels
+	 */
+	public void getLogScores(float[] testingData, double[] scoresOut) {
+		for (int labelIndex = 0; labelIndex < this.numberOfLabels; labelIndex++) {
+			scoresOut[labelIndex] = this.buffer.getDouble(this.logPriorOffset + (labelIndex * 8));
+		}
+		for (int featureIndex = 0; featureIndex < testingData.length; featureIndex++) {
+			int probabilityOffset = this.findValue(featureIndex, testingData[featureIndex]);
+			for (int labelIndex = 0; labelIndex < this.numberOfLabels; labelIndex++) {
+				if (probabilityOffset < 0) {
+					scoresOut[labelIndex] = Double.NEGATIVE_INFINITY;
+				} else {
+					scoresOut[labelIndex] += this.buffer.getDouble(probabilityOffset + (labelIndex * 8));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Binary search of the feature's values.
+	 *
+	 * @param featureIndex the feature index
+	 * @param value the value to find
+	 * @return offset of the value's first log probability, -1 if not found
+	 */
+	private int findValue(int featureIndex, float value) {
+		if (featureIndex >= this.numberOfFeatures) {
+			return -1;
+		}
+		int valueCount = this.buffer.getInt(this.featuresOffset + (featureIndex * 8));
+		int valuesOffset = this.buffer.getInt(this.featuresOffset + (featureIndex * 8) + 4);
+
+		int low = 0;
+		int high = valueCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int compare = Float.compare(this.buffer.getFloat(valuesOffset + (middle * 4)), value);
+			if (compare < 0) {
+				low = middle + 1;
+			} else if (compare > 0) {
+				high = middle - 1;
+			} else {
+				return valuesOffset + (valueCount * 4) + (middle * this.numberOfLabels * 8);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param labelIndex the label index
+	 * @return the label value
+	 */
+	public float getLabel(int labelIndex) {
+		return this.buffer.getFloat(BinaryModelFile.HEADER_SIZE + (labelIndex * 4));
+	}
+
+	public int getNumberOfLabels() {
+		return this.numberOfLabels;
+	}
+
+	public int getNumberOfFeatures() {
+		return this.numberOfFeatures;
+	}
+}
@@ -0,0 +1,137 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Text based Naive Bayes model read from a memory mapped {@link BinaryModelFile},
+ * scores are calculated from the mapped bytes in log space.  Feature names
+ * (upper case) and values (lower case) are found by binary search of their 
+ * UTF-8 bytes.  Only the labels are read into strings.
+ * <p>
+ * Safe to share between threads.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - binary model file
+ */
+public final class MappedTextNaiveBayesModel {
+
+	private final ByteBuffer buffer;
+	private final String[] labels;
+	private final int numberOfFeatures;
+
+	private final int logPriorOffset;
+	private final int featuresOffset;
+
+	/**
+	 * Instantiates a new mapped model, the header has been checked.
+	 *
+	 * @param buffer the mapped file
+	 */
+	MappedTextNaiveBayesModel(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.labels = new String[buffer.getInt(12)];
+		this.numberOfFeatures = buffer.getInt(16);
+
+		int offset = BinaryModelFile.HEADER_SIZE;
+		for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+			this.labels[labelIndex] = BinaryModelFile.readString(buffer, offset);
+			offset = offset + 4 + buffer.getInt(offset);
+		}
+		this.logPriorOffset = offset;
+		this.featuresOffset = this.logPriorOffset + (this.labels.length * 8);
+	}
+
+	/**
+	 * Predict given feature name / value pairs.
+	 *
+	 * @param testingData feature name, value
+	 * @return the label
+	 */
+	public String predict(Map<String, String> testingData) {
+		double[] scores = new double[this.labels.length];
+		this.getLogScores(testingData, scores);
+		return this.labels[LogProbability.getMaxIndex(scores, this.labels.length)];
+	}
+
+	/**
+	 * Log probability ln P(c) + sum( ln P(d|c) ) of each label, negative
+	 * infinity if a value was not fitted for the label.
+	 *
+	 * @param testingData feature name, value
+	 * @param scoresOut filled with the score of each label, length must be &gt;= number of labels
+	 */
+	public void getLogScores(Map<String, String> testingData, double[] scoresOut) {
+		for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+			scoresOut[labelIndex] = this.buffer.getDouble(this.logPriorOffset + (labelIndex * 8));
+		}
+		for (Map.Entry<String, String> entry : testingData.entrySet()) {
+			int probabilityOffset = this.findValue(entry.getKey().toUpperCase(), entry.getValue().toLowerCase());
+			for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+				if (probabilityOffset < 0) {
+					scoresOut[labelIndex] = Double.NEGATIVE_INFINITY;
+				} else {
+					scoresOut[labelIndex] += this.buffer.getDouble(probabilityOffset + (labelIndex * 8));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Binary search of the feature names, then of the feature's values.
+	 *
+	 * @param feature the feature name
+	 * @param value the value
+	 * @return offset of the value's first log probability, -1 if not found
+	 */
+	private int findValue(String feature, String value) {
+		byte[] featureBytes = feature.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = this.numberOfFeatures - 1;
+		int featureOffset = -1;
+		while ((low <= high) && (featureOffset < 0)) {
+			int middle = (low + high) >>> 1;
+			int compare = BinaryModelFile.compareBytes(featureBytes, this.buffer, this.buffer.getInt(this.featuresOffset + (middle * 12)));
+			if (compare > 0) {
+				low = middle + 1;
+			} else if (compare < 0) {
+				high = middle - 1;
+			} else {
+				featureOffset = this.featuresOffset + (middle * 12);
+			}
+		}
+		if (featureOffset < 0) {
+			return -1;
+		}
+
+		int valueCount = this.buffer.getInt(featureOffset + 4);
+		int valuesOffset = this.buffer.getInt(featureOffset + 8);
+		byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+		low = 0;
+		high = valueCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int compare = BinaryModelFile.compareBytes(valueBytes, this.buffer, this.buffer.getInt(valuesOffset + (middle * 4)));
+			if (compare > 0) {
+				low = middle + 1;
+			} else if (compare < 0) {
+				high = middle - 1;
+			} else {
+				return valuesOffset + (valueCount * 4) + (middle * this.labels.length * 8);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return copy of the labels, index matches the scores
+	 */
+	public String[] getLabels() {
+		return this.labels.clone();
+	}
+
+	public int getNumberOfFeatures() {
+		return this.numberOfFeatures;
+	}
+}
@@ -1,16 +1,12 @@
 package xilodyne.machinelearning.classifier.bayes;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
 
 import xilodyne.util.ArrayUtils;
 import xilodyne.util.data.NDArrayUtils;
@@ -27,6 +23,12 @@ import mikera.arrayz.NDArray;
  * <p>
  * 
  * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - log space scoring, parallel batch prediction,
+ * 	label counts kept while fitting, merge, binary model file,
+ * 	allocation free predictInto, hashed label index, unfit,
+ * 	fit float[] sample, unmerge, LRU prediction cache,
+ * 	dictionary encoded feature value counts, compiled model with smoothing,
+ * 	unseen value policy and counts
  * @version 0.4 - 1/29/2018 - reflect xilodyne util changes
  * @version 0.2 -- 5/9/2017
  * 	changed labels/classes to features/labels;
@@ -44,6 +46,19 @@ public class NaiveBayesClassifier {
 	public static final boolean EMPTY_SAMPLES_ALLOW = true;
 	public static final boolean EMPTY_SAMPLES_IGNORE = false;
 
+	/** compile smoothing alpha, P(d|c) of values not fitted is 0 */
+	public static final double SMOOTHING_NONE = 0;
+	/** compile smoothing alpha, add one to every value count */
+	public static final double SMOOTHING_LAPLACE = 1;
+
+	/** P(d|c) of a value never fitted for the feature is 0 */
+	public static final int UNSEEN_VALUE_ZERO = 0;
+	/** a feature with a value never fitted is not scored */
+	public static final int UNSEEN_VALUE_IGNORE = 1;
+	/** P(d|c) of a value never fitted, or fitted only for other labels, is
+	 * 1 / (values fitted for the label + values of the feature) */
+	public static final int UNSEEN_VALUE_SMOOTHING = 2;
+
 	// which type of variance to calculate, only a sample
 	// size of population data or entire population data
 	// to be implemented
@@ -52,6 +67,11 @@ public class NaiveBayesClassifier {
 
 	private boolean allowEmptySampleValues = true;
 	
+	/** TRUE if predict uses summed log probabilities instead of multiplied probabilities */
+	private boolean logSpaceScoring = false;
+
+	private int unseenValuePolicy = UNSEEN_VALUE_ZERO;
+	
 
 	/** TRUE if number of features have been loaded in the fit method for NDArray */
 	private boolean featureSetFixed = false; // for multiple samples, only init once
@@ -62,12 +82,28 @@ public class NaiveBayesClassifier {
 	private boolean moreTrainingData = true; 
 
 	private float[] labels = null;
+	
+	//label value to index
+	private FloatLabelIndex labelIndex = null;
+	
+	//length of the label count arrays of the feature values, doubled as labels are added
+	private int labelCapacity = 0;
 	//boolean labelsLoad = false;
 	private List<String> labelNames = null;  //optional, show names in output
 	
 
-	//Hashtable:  featureID, (TreeMap (featureValue(s), label list count, must match index of labels[]))
-	private Hashtable<Integer, TreeMap<Float, int[]>> featuresList = new Hashtable<Integer, TreeMap<Float, int[]>>();
+	//feature values as dense codes, label counts of each code (label index must match labels[])
+	private DictionaryCountTable featureCounts = new DictionaryCountTable(0);
+
+	//label counts kept while fitting, P(c) and label totals without scanning featureCounts
+	private LabelCounts<Integer> labelCounts = new LabelCounts<Integer>();
+	
+	//flat copy of the feature tables for predictInto, rebuilt after fit
+	private NaiveBayesScoringTable scoringTable = null;
+	//predictInto results of recent samples, null if not caching
+	private PredictionCache<FloatSampleKey, CachedPrediction> predictionCache = null;
+	//values scored that were never fitted, by feature index
+	private final UnseenValueCountsByIndex unseenValueCounts = new UnseenValueCountsByIndex();
 	private List<String> featureNames = null;  //optional, show names in output
 	private int numberOfFeatures = 0;
 
@@ -152,6 +188,81 @@ public class NaiveBayesClassifier {
 		return this.labelClassCategory;
 	}
 
+	/**
+	 * Score predictions by summing log probabilities instead of multiplying
+	 * probabilities.  Avoids underflow to zero when there are many features.
+	 *
+	 * @param useLogSpace TRUE to predict using log probabilities
+	 */
+	public void setLogSpaceScoring(boolean useLogSpace) {
+		this.logSpaceScoring = useLogSpace;
+		this.clearPredictionCache();
+	}
+
+	public boolean isLogSpaceScoring() {
+		return this.logSpaceScoring;
+	}
+
+	/**
+	 * How a test value never fitted for its feature is scored, nothing
+	 * is written to the console.  UNSEEN_VALUE_ZERO (default) scores
+	 * P(d|c) = 0 for every label, UNSEEN_VALUE_IGNORE leaves the feature
+	 * out of the scores, UNSEEN_VALUE_SMOOTHING scores the Laplace
+	 * probability of a value with no count, also for a value fitted only
+	 * for other labels.
+	 *
+	 * @param policy UNSEEN_VALUE_ZERO, UNSEEN_VALUE_IGNORE or UNSEEN_VALUE_SMOOTHING
+	 */
+	public void setUnseenValuePolicy(int policy) {
+		if ((policy != UNSEEN_VALUE_ZERO) && (policy != UNSEEN_VALUE_IGNORE) && (policy != UNSEEN_VALUE_SMOOTHING)) {
+			throw new IllegalArgumentException("Unknown unseen value policy: " + policy);
+		}
+		this.unseenValuePolicy = policy;
+		this.scoringTable = null;
+		this.clearPredictionCache();
+	}
+
+	public int getUnseenValuePolicy() {
+		return this.unseenValuePolicy;
+	}
+
+	/**
+	 * Number of test values scored that were never fitted for the
+	 * feature, each value counted once per sample.  Samples answered
+	 * from the prediction cache are not counted.
+	 *
+	 * @param featureIndex the feature index
+	 * @return number of unseen values of the feature
+	 */
+	public long getUnseenValueCount(int featureIndex) {
+		return this.unseenValueCounts.get(featureIndex);
+	}
+
+	/**
+	 * @return copy of the unseen value counts by feature index, features with none are not included
+	 */
+	public SortedMap<Integer, Long> getUnseenValueCounts() {
+		return this.unseenValueCounts.getCounts();
+	}
+
+	/**
+	 * @return number of unseen values scored, all features
+	 */
+	public long getUnseenValueTotal() {
+		return this.unseenValueCounts.getTotal();
+	}
+
+	public void resetUnseenValueCounts() {
+		this.unseenValueCounts.reset();
+	}
+
+	/**
+	 * @return TRUE if values of 0 are fitted (EMPTY_SAMPLES_ALLOW)
+	 */
+	public boolean isAllowEmptySampleValues() {
+		return this.allowEmptySampleValues;
+	}
+
 
 	/**
 	 * Add training data one feature at a time.
@@ -193,6 +304,25 @@ public class NaiveBayesClassifier {
 		this.totalFitEntries++;
 	}
 
+	/**
+	 * Add training data for feature set for one label
+	 * 
+	 * @param trainingData_SetOfValues float training data for one sample
+	 * (values must be in same order as other feature values)
+	 * @param trainingLabel the label data
+	 */
+	public void fit(float[] trainingData_SetOfValues, float trainingLabel) {
+		this.setMoreTrainingData(true);
+		this.addNewLabelToList(trainingLabel);
+
+		log.logln(Logger.lI, "List size: " + trainingData_SetOfValues.length + ", " + trainingLabel);
+
+		for (int index = 0; index < trainingData_SetOfValues.length; index++) {
+			this.updateFeatures(index, trainingData_SetOfValues[index], trainingLabel);
+		}
+		this.totalFitEntries++;
+	}
+
 
 	/**
 	 * Add training data for feature set for one label
@@ -275,6 +405,117 @@ public class NaiveBayesClassifier {
 
 
 
+	/**
+	 * Remove a sample fitted earlier, i.e. data that has expired from a
+	 * window kept by the caller.  The label counts of the sample's values
+	 * are decremented, values no longer counted for any label are no longer
+	 * fitted.  Costs O(features) instead of fitting again, the fit count
+	 * is reduced by the sample.
+	 *
+	 * @param trainingData_SetOfValues the sample values, as fitted
+	 * @param trainingLabel the label, as fitted
+	 * @throws IllegalArgumentException if the label or a feature value was not fitted
+	 */
+	public void unfit(float[] trainingData_SetOfValues, float trainingLabel) {
+		int labelIndexFound = (this.labels == null) ? -1 : this.getLabelIndex(trainingLabel);
+		if (labelIndexFound == -1) {
+			throw new IllegalArgumentException("Label not fitted: " + trainingLabel);
+		}
+		log.logln(Logger.lI, "Remove sample: " + ArrayUtils.printArray(trainingData_SetOfValues) + ", " + trainingLabel);
+
+		// check all values before any are removed
+		for (int featureIndex = 0; featureIndex < trainingData_SetOfValues.length; featureIndex++) {
+			float featureValue = trainingData_SetOfValues[featureIndex];
+			if ((featureValue == 0) && !this.allowEmptySampleValues) {
+				continue;
+			}
+			int code = this.featureCounts.getCode(featureIndex, featureValue);
+			if ((code == -1) || (this.featureCounts.getCount(featureIndex, code, labelIndexFound) == 0)) {
+				throw new IllegalArgumentException("Value not fitted: " + featureValue + ", feature index: "
+						+ featureIndex + ", label: " + trainingLabel);
+			}
+		}
+
+		for (int featureIndex = 0; featureIndex < trainingData_SetOfValues.length; featureIndex++) {
+			float featureValue = trainingData_SetOfValues[featureIndex];
+			if ((featureValue == 0) && !this.allowEmptySampleValues) {
+				continue;
+			}
+			this.featureCounts.add(featureIndex, featureValue, labelIndexFound, -1);
+			this.labelCounts.add(featureIndex, labelIndexFound, -1);
+		}
+		// fit(float[], float) counts one entry per sample
+		this.totalFitEntries--;
+		this.scoringTable = null;
+		this.setMoreTrainingData(true);
+	}
+
+	/**
+	 * Write the model as a {@link BinaryModelFile}, it can be memory mapped
+	 * with {@link BinaryModelFile#loadNaiveBayes(String)} and used for prediction
+	 * (log space scoring) without deserializing.
+	 *
+	 * @param fileName the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void saveModel(String fileName) throws IOException {
+		NaiveBayesScoringTable table = this.getScoringTable();
+		double[] logPc = new double[table.getNumberOfLabels()];
+		for (int labelIndex = 0; labelIndex < logPc.length; labelIndex++) {
+			logPc[labelIndex] = table.getLogPc(labelIndex);
+		}
+		BinaryModelFile.writeNaiveBayes(fileName, this.labels, logPc, table.getValues(), table.getLogPd_given_c());
+	}
+
+	/**
+	 * Add the training data of another classifier, i.e. one trained on a
+	 * different part of the data set, possibly in another JVM.  The result
+	 * is the same as if all of the data had been fitted here.
+	 * <p>
+	 * Labels not yet known are added, label indexes of other are mapped to
+	 * label indexes of this classifier, the order labels were seen does
+	 * not need to match.  Label counts of each feature value are added.
+	 * <p>
+	 * Neither classifier may be fitting while merging, other is not changed.
+	 *
+	 * @param other the classifier to add
+	 * @throws Exception thrown when the number of NDArray features differ
+	 */
+	public void merge(NaiveBayesClassifier other) throws Exception {
+		if (other.labels == null) {
+			return;
+		}
+		if (this.featureSetFixed && other.featureSetFixed && (this.numberOfFeatures != other.numberOfFeatures)) {
+			throw new Exception("Sample data array size is not consistent: " + this.numberOfFeatures + " vs "
+					+ other.numberOfFeatures);
+		}
+		log.logln(Logger.lI, "Merging classifier...");
+
+		int[] labelIndexMap = new int[other.labels.length];
+		for (int labelIndex = 0; labelIndex < other.labels.length; labelIndex++) {
+			this.addNewLabelToList(other.labels[labelIndex]);
+			labelIndexMap[labelIndex] = this.getLabelIndex(other.labels[labelIndex]);
+		}
+
+		DictionaryCountTable otherCounts = other.featureCounts;
+		for (int featureIndex = 0; featureIndex < otherCounts.getNumberOfFeatures(); featureIndex++) {
+			for (int code = 0; code < otherCounts.getNumberOfCodes(featureIndex); code++) {
+				float featureValue = otherCounts.getValue(featureIndex, code);
+				for (int labelIndex = 0; labelIndex < labelIndexMap.length; labelIndex++) {
+					this.addFeatureValueCount(featureIndex, featureValue, labelIndexMap[labelIndex],
+							otherCounts.getCount(featureIndex, code, labelIndex));
+				}
+			}
+		}
+
+		if (!this.featureSetFixed && other.featureSetFixed) {
+			this.numberOfFeatures = other.numberOfFeatures;
+			this.featureSetFixed = true;
+		}
+		this.totalFitEntries = this.totalFitEntries + other.totalFitEntries;
+		this.setMoreTrainingData(true);
+	}
+
 	/**
 	 * Predict given list of sample set (each entry must 
 	 * correspond to one index from the FEATURES hashtable)
@@ -284,10 +525,257 @@ public class NaiveBayesClassifier {
 	 */
 	public double predict_TestingSet(List<Float> testingData) {
 		float[] data = ArrayUtils.convertListToFloatArray(testingData);
+		if (this.logSpaceScoring) {
+			return (double) this.getPredictedLabel(this.getLogResultsFromFeatureSet(data));
+		}
 		float[] results = this.getResultsFromFeatureSetForOneLabel(data);
 		return (double) this.getPredictedLabel(results);
 	}
-	
+
+	/**
+	 * Remove the training data of another classifier, the reverse of merge.
+	 * The data of other must have been merged into (or fitted by) this
+	 * classifier, i.e. all data minus one cross validation fold is formed
+	 * without fitting the other folds again.  Label counts of each feature
+	 * value are subtracted, values no longer counted for any label are no
+	 * longer fitted.
+	 * <p>
+	 * Neither classifier may be fitting, other is not changed.
+	 *
+	 * @param other the classifier to remove
+	 * @throws Exception thrown when other has a label, value or count not fitted here
+	 */
+	public void unmerge(NaiveBayesClassifier other) throws Exception {
+		if (other.labels == null) {
+			return;
+		}
+		log.logln(Logger.lI, "Unmerging classifier...");
+
+		int[] labelIndexMap = new int[other.labels.length];
+		for (int labelIndex = 0; labelIndex < other.labels.length; labelIndex++) {
+			labelIndexMap[labelIndex] = (this.labels == null) ? -1 : this.getLabelIndex(other.labels[labelIndex]);
+			if (labelIndexMap[labelIndex] == -1) {
+				throw new Exception("Label not fitted: " + other.labels[labelIndex]);
+			}
+		}
+
+		// check all counts before any are removed
+		DictionaryCountTable otherCounts = other.featureCounts;
+		for (int featureIndex = 0; featureIndex < otherCounts.getNumberOfFeatures(); featureIndex++) {
+			for (int otherCode = 0; otherCode < otherCounts.getNumberOfCodes(featureIndex); otherCode++) {
+				float featureValue = otherCounts.getValue(featureIndex, otherCode);
+				int code = this.featureCounts.getCode(featureIndex, featureValue);
+				for (int labelIndex = 0; labelIndex < labelIndexMap.length; labelIndex++) {
+					int otherCount = otherCounts.getCount(featureIndex, otherCode, labelIndex);
+					if ((otherCount > 0) && ((code == -1)
+							|| (this.featureCounts.getCount(featureIndex, code, labelIndexMap[labelIndex]) < otherCount))) {
+						throw new Exception("Value not fitted: " + featureValue + ", feature index: " + featureIndex
+								+ ", label: " + other.labels[labelIndex]);
+					}
+				}
+			}
+		}
+
+		for (int featureIndex = 0; featureIndex < otherCounts.getNumberOfFeatures(); featureIndex++) {
+			for (int otherCode = 0; otherCode < otherCounts.getNumberOfCodes(featureIndex); otherCode++) {
+				float featureValue = otherCounts.getValue(featureIndex, otherCode);
+				for (int labelIndex = 0; labelIndex < labelIndexMap.length; labelIndex++) {
+					this.addFeatureValueCount(featureIndex, featureValue, labelIndexMap[labelIndex],
+							-otherCounts.getCount(featureIndex, otherCode, labelIndex));
+				}
+			}
+		}
+
+		this.totalFitEntries = this.totalFitEntries - other.totalFitEntries;
+		this.scoringTable = null;
+		this.setMoreTrainingData(true);
+	}
+
+	/**
+	 * Predict one sample and write the score of each label into a caller
+	 * supplied array, nothing is allocated once the feature tables have
+	 * been copied after the last fit.  The scores are log scores, as
+	 * getLogProbabilityScores_TestingSet, when log space scoring is set,
+	 * otherwise probability scores, as getProbabilityScores_TestingSet.
+	 * Nothing is logged.
+	 *
+	 * With a prediction cache (setPredictionCacheSize) a sample scored
+	 * before is copied from the cache, and its unseen values are not
+	 * counted again.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @param scoresOut filled with the score of each label, length must be &gt;= getNumberOfLabels()
+	 * @return the label
+	 */
+	public double predictInto(float[] testingData, double[] scoresOut) {
+		PredictionCache<FloatSampleKey, CachedPrediction> cache = this.predictionCache;
+		if (cache == null) {
+			return this.scoreInto(testingData, scoresOut);
+		}
+		FloatSampleKey key = new FloatSampleKey(testingData);
+		CachedPrediction cached = cache.get(key);
+		if (cached == null) {
+			double label = this.scoreInto(testingData, scoresOut);
+			cached = new CachedPrediction(label, Arrays.copyOf(scoresOut, this.getNumberOfLabels()));
+			cache.put(key.copy(), cached);
+			return label;
+		}
+		System.arraycopy(cached.scores, 0, scoresOut, 0, cached.scores.length);
+		return cached.label;
+	}
+
+	private double scoreInto(float[] testingData, double[] scoresOut) {
+		NaiveBayesScoringTable table = this.getScoringTable();
+		if (this.logSpaceScoring) {
+			table.getLogScores(testingData, scoresOut);
+		} else {
+			table.getScores(testingData, scoresOut);
+		}
+		return (double) table.getLabel(LogProbability.getMaxIndex(scoresOut, table.getNumberOfLabels()));
+	}
+
+	/**
+	 * Cache the predictInto label and scores of the most recently
+	 * scored samples, for traffic that scores the same samples again.
+	 * The least recently used sample is evicted when the cache is full,
+	 * the cache is cleared when more training data is fitted.
+	 * <p>
+	 * Only predictInto uses the cache.  predict_TestingSet, predict and
+	 * the getProbabilityScores_TestingSet / getLogProbabilityScores_TestingSet
+	 * methods always score from the feature tables, they log each label
+	 * and count unseen values, which a cached answer would skip.
+	 *
+	 * @param maxEntries number of samples cached, 0 for no cache
+	 */
+	public void setPredictionCacheSize(int maxEntries) {
+		if (maxEntries < 0) {
+			throw new IllegalArgumentException("Prediction cache size must be >= 0: " + maxEntries);
+		}
+		this.predictionCache = (maxEntries == 0) ? null : new PredictionCache<FloatSampleKey, CachedPrediction>(maxEntries);
+	}
+
+	/**
+	 * @return number of samples cached, 0 if no cache
+	 */
+	public int getPredictionCacheSize() {
+		PredictionCache<FloatSampleKey, CachedPrediction> cache = this.predictionCache;
+		return (cache == null) ? 0 : cache.size();
+	}
+
+	/**
+	 * @return number of predictInto calls answered from the cache
+	 */
+	public long getPredictionCacheHits() {
+		PredictionCache<FloatSampleKey, CachedPrediction> cache = this.predictionCache;
+		return (cache == null) ? 0 : cache.getHits();
+	}
+
+	/**
+	 * @return number of predictInto calls scored and then cached
+	 */
+	public long getPredictionCacheMisses() {
+		PredictionCache<FloatSampleKey, CachedPrediction> cache = this.predictionCache;
+		return (cache == null) ? 0 : cache.getMisses();
+	}
+
+	private void clearPredictionCache() {
+		PredictionCache<FloatSampleKey, CachedPrediction> cache = this.predictionCache;
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Label and scores of a cached sample.
+	 */
+	private static final class CachedPrediction {
+		private final double label;
+		private final double[] scores;
+
+		CachedPrediction(double label, double[] scores) {
+			this.label = label;
+			this.scores = scores;
+		}
+	}
+
+	/**
+	 * Feature tables as flat arrays, copied again only after more
+	 * training data.
+	 *
+	 * @return the scoring table
+	 */
+	private NaiveBayesScoringTable getScoringTable() {
+		NaiveBayesScoringTable table = this.scoringTable;
+		if (table == null) {
+			int numberOfLabels = this.labels.length;
+			float[] pc = new float[numberOfLabels];
+			int[][] labelCountByFeature = new int[this.featureCounts.getNumberOfFeatures()][numberOfLabels];
+
+			for (int featuresIndex = 0; featuresIndex < labelCountByFeature.length; featuresIndex++) {
+				for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+					labelCountByFeature[featuresIndex][labelIndex] = this.labelCounts.getLabelCount(featuresIndex, labelIndex);
+				}
+			}
+			for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+				pc[labelIndex] = this.getPcForAllValuesByLabel(labelIndex);
+			}
+			table = new NaiveBayesScoringTable(this.labels.clone(), pc, this.featureCounts, labelCountByFeature,
+					this.unseenValuePolicy, this.unseenValueCounts);
+			this.scoringTable = table;
+		}
+		return table;
+	}
+
+	/**
+	 * Freeze the current counts into an immutable model for prediction,
+	 * without smoothing (scores as getLogProbabilityScores_TestingSet).
+	 *
+	 * @return the compiled model
+	 * @see #compile(double)
+	 */
+	public CompiledNaiveBayesModel compile() {
+		return this.compile(SMOOTHING_NONE);
+	}
+
+	/**
+	 * Freeze the current counts into an immutable model for prediction,
+	 * ln P(d|c) of every fitted value is precomputed with Lidstone
+	 * smoothing.  Later fit calls do not change the compiled model,
+	 * compile again to pick them up.
+	 *
+	 * @param smoothing alpha added to each value count, SMOOTHING_NONE, SMOOTHING_LAPLACE or &gt; 0
+	 * @return the compiled model
+	 */
+	public CompiledNaiveBayesModel compile(double smoothing) {
+		if ((smoothing < 0) || Double.isNaN(smoothing) || Double.isInfinite(smoothing)) {
+			throw new IllegalArgumentException("Smoothing must be >= 0: " + smoothing);
+		}
+		if (this.labels == null) {
+			throw new IllegalStateException("No training data fitted.");
+		}
+		log.logln(Logger.lI, "Compiling model...");
+		// smoothed from the scoring table, one ln P(d|c) calculation
+		return this.getScoringTable().compile(smoothing);
+	}
+
+	/**
+	 * Values of a feature kept in the count table: the fitted values plus
+	 * values unfitted since the feature was last compacted, never more than
+	 * twice the fitted values.
+	 *
+	 * @param featureIndex the feature index
+	 * @return number of values stored
+	 */
+	public int getNumberOfStoredValues(int featureIndex) {
+		return this.featureCounts.getNumberOfCodes(featureIndex);
+	}
+
+	/**
+	 * @return number of labels fitted, size of the predictInto scores
+	 */
+	public int getNumberOfLabels() {
+		return (this.labels == null) ? 0 : this.labels.length;
+	}
 
 	/**
 	 * Predict given list of sample set (each entry must 
@@ -300,6 +788,9 @@ public class NaiveBayesClassifier {
 		// get first element
 		Iterator<INDArray> getElement = testingData.iterator();
 		float[] data = NDArrayUtils.convertNDArrayEntryToFloatArray(getElement.next());
+		if (this.logSpaceScoring) {
+			return (double) this.getPredictedLabel(this.getLogResultsFromFeatureSet(data));
+		}
 		float[] results = this.getResultsFromFeatureSetForOneLabel(data);
 		return (double) this.getPredictedLabel(results);
 	}
@@ -328,6 +819,11 @@ public class NaiveBayesClassifier {
 
 		while (getElement.hasNext()) {
 			float[] data = NDArrayUtils.convertNDArrayEntryToFloatArray(getElement.next());
+			if (this.logSpaceScoring) {
+				predictedListByLabelValue[predListCount] = (double) this.getPredictedLabel(this.getLogResultsFromFeatureSet(data));
+				predListCount++;
+				continue;
+			}
 			float[] results = this.getResultsFromFeatureSetForOneLabel(data);
 	//		predictedLabels[predListCount] = this.getPredictedLabelIndex(results);
 			predictedListByLabelValue[predListCount] = (double)this.getPredictedLabel(results);
@@ -342,6 +838,93 @@ public class NaiveBayesClassifier {
 		return predictedListByLabelValue;
 	}
 
+	/**
+	 * Predict given a list of feature sets [[val1, val2, ...], [val1, val2, ...], ...],
+	 * rows are split over the ForkJoinPool common pool.
+	 * <p>
+	 * Rows are scored as predict scores them (in log space if
+	 * setLogSpaceScoring(true)), from the immutable scoring table copied
+	 * from the counts when the call starts.  The copy is not synchronized
+	 * with fit, do not fit from another thread during the call.
+	 *
+	 * @param testingData the testing data
+	 * @return the array of all predicted labels
+	 * @throws Exception thrown if a prediction task fails
+	 */
+	public double[] predictParallel(NDArray testingData) throws Exception {
+		double[] predictedListByLabelValue = new double[testingData.getShape(0)];
+		this.predictParallel(testingData, predictedListByLabelValue, null, ParallelBatchPredictor.DEFAULT_CHUNK_SIZE);
+		return predictedListByLabelValue;
+	}
+
+	/**
+	 * Predict given a list of feature sets [[val1, val2, ...], [val1, val2, ...], ...],
+	 * rows are split into chunks and predicted in parallel.
+	 * <p>
+	 * Rows are scored as predict scores them (in log space if
+	 * setLogSpaceScoring(true)), from the immutable scoring table copied
+	 * from the counts when the call starts.  The copy is not synchronized
+	 * with fit, do not fit from another thread during the call.
+	 *
+	 * @param testingData the testing data
+	 * @param predictedOut predicted label for each row, length must be &gt;= number of rows
+	 * @param executor ForkJoinPool or other executor to run on, ForkJoinPool.commonPool() if null
+	 * @param chunkSize number of rows predicted by one task
+	 * @throws Exception thrown if a prediction task fails
+	 */
+	public void predictParallel(NDArray testingData, double[] predictedOut, ExecutorService executor, int chunkSize) throws Exception {
+		log.logln_withClassName(Logger.LOG_FINE, "Parallel prediction started...");
+		log.logln(Logger.lF, "Data set size: " + testingData.getShape(0) + ", chunk size: " + chunkSize);
+
+		ParallelBatchPredictor.predict(testingData, predictedOut, this.getRowPredictor(), executor, chunkSize);
+		log.logln(Logger.lF, "Prediction finished.");
+	}
+
+	/**
+	 * Predict given a list of feature sets [[val1, val2, ...], [val1, val2, ...], ...],
+	 * rows are split into chunks and predicted in parallel.
+	 * <p>
+	 * Rows are scored as predict scores them (in log space if
+	 * setLogSpaceScoring(true)), from the immutable scoring table copied
+	 * from the counts when the call starts.  The copy is not synchronized
+	 * with fit, do not fit from another thread during the call.
+	 *
+	 * @param testingData the testing data
+	 * @param predictedOut predicted label for each row, length must be &gt;= number of rows
+	 * @param executor ForkJoinPool or other executor to run on, ForkJoinPool.commonPool() if null
+	 * @param chunkSize number of rows predicted by one task
+	 * @throws Exception thrown if a prediction task fails
+	 */
+	public void predictParallel(float[][] testingData, double[] predictedOut, ExecutorService executor, int chunkSize) throws Exception {
+		log.logln_withClassName(Logger.LOG_FINE, "Parallel prediction started...");
+		log.logln(Logger.lF, "Data set size: " + testingData.length + ", chunk size: " + chunkSize);
+
+		ParallelBatchPredictor.predict(testingData, predictedOut, this.getRowPredictor(), executor, chunkSize);
+		log.logln(Logger.lF, "Prediction finished.");
+	}
+
+	/**
+	 * Predictor of one row that can be shared by threads, scores from the
+	 * flat copy of the feature tables, in log space if set.
+	 *
+	 * @return the row predictor
+	 */
+	private ParallelBatchPredictor.RowPredictor getRowPredictor() {
+		final NaiveBayesScoringTable table = this.getScoringTable();
+		if (this.logSpaceScoring) {
+			return new ParallelBatchPredictor.RowPredictor() {
+				public double predict(float[] row) {
+					return table.predictLog(row);
+				}
+			};
+		}
+		return new ParallelBatchPredictor.RowPredictor() {
+			public double predict(float[] row) {
+				return table.predict(row);
+			}
+		};
+	}
+
 
 
 
@@ -355,10 +938,8 @@ public class NaiveBayesClassifier {
 	 * @return return gaussian probability of sample value being of this label
 	 */
 	public float getProbabilty_OneFeature(int featuresIndex, int labelIndex, float testingData) {
-		TreeMap<Float, int[]> featureValues = this.featuresList.get(featuresIndex);
-
-		float Pc = this.getPcPerLabel(labelIndex, featureValues);
-		float Pd_given_c = this.getPd_given_c(featuresIndex, testingData, labelIndex, featureValues);
+		float Pc = this.getPcPerLabel(labelIndex, featuresIndex);
+		float Pd_given_c = this.getPd_given_c(featuresIndex, testingData, labelIndex);
 		log.logln_withClassName(Logger.lI, this.labels[labelIndex] + "\tPc: " + Pc + "\t* Pd_given_c: "
 				+ Pd_given_c + "\t= " + Pd_given_c * Pc);
 
@@ -392,6 +973,114 @@ public class NaiveBayesClassifier {
 		return results;
 	}
 	
+	/**
+	 * Gets the joint log likelihood ln P(c) + ln P(d|c) of each label.
+	 * Values are not converted back with exp so they do not underflow
+	 * to zero for samples with many features.  A feature value never seen
+	 * in training scores negative infinity (probability zero).
+	 *
+	 * @param testingData the testing data
+	 * @return the log probability scores for each label
+	 */
+	public double[] getLogProbabilityScores_TestingSet(float[] testingData) {
+		return this.getLogResultsFromFeatureSet(testingData);
+	}
+
+	/**
+	 * Gets the joint log likelihood ln P(c) + ln P(d|c) of each label.
+	 *
+	 * @param testingData the testing data
+	 * @return the log probability scores for each label
+	 */
+	public double[] getLogProbabilityScores_TestingSet(List<Float> testingData) {
+		return this.getLogResultsFromFeatureSet(ArrayUtils.convertListToFloatArray(testingData));
+	}
+
+	/**
+	 * Gets the joint log likelihood ln P(c) + ln P(d|c) of each label
+	 * for the first sample.
+	 *
+	 * @param testingData the testing data
+	 * @return the log probability scores for each label
+	 */
+	public double[] getLogProbabilityScores_TestingSet(NDArray testingData) {
+		// get first element
+		Iterator<INDArray> getElement = testingData.iterator();
+		float[] data = NDArrayUtils.convertNDArrayEntryToFloatArray(getElement.next());
+		return this.getLogResultsFromFeatureSet(data);
+	}
+
+	/**
+	 * Log of the posterior probability of each label, ln P(c|d),
+	 * normalized so that the probabilities sum to 1.
+	 *
+	 * @param testingData the testing data
+	 * @return the log posterior probability for each label
+	 */
+	public double[] predictLogProba(float[] testingData) {
+		double[] scores = this.getLogResultsFromFeatureSet(testingData);
+		LogProbability.normalize(scores, scores.length);
+		return scores;
+	}
+
+	/**
+	 * Log of the posterior probability of each label, ln P(c|d),
+	 * normalized so that the probabilities sum to 1.
+	 *
+	 * @param testingData the testing data
+	 * @return the log posterior probability for each label
+	 */
+	public double[] predictLogProba(List<Float> testingData) {
+		return this.predictLogProba(ArrayUtils.convertListToFloatArray(testingData));
+	}
+
+	/**
+	 * Given feature set, determine the log probability
+	 * scores for each label.
+	 *
+	 * @param testingData the test data
+	 * @return log probability scores, ln P(c) + sum( ln P(d|c) )
+	 */
+	private double[] getLogResultsFromFeatureSet(float[] testingData) {
+		double[] labelScores = new double[this.labels.length];
+
+		for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+			double logPc_given_d = Math.log(this.getPcForAllValuesByLabel(labelIndex));
+
+			for (int testingIndex = 0; testingIndex < testingData.length; testingIndex++) {
+				int code = this.featureCounts.getCode(testingIndex, testingData[testingIndex]);
+				double Pd_given_c;
+				if ((code != -1) && this.featureCounts.isFitted(testingIndex, code)) {
+					int count = this.featureCounts.getCount(testingIndex, code, labelIndex);
+					Pd_given_c = ((count == 0) && (this.unseenValuePolicy == UNSEEN_VALUE_SMOOTHING))
+							? this.getUnseenPd_given_c(testingIndex, labelIndex)
+							: (double) count / this.labelCounts.getLabelCount(testingIndex, labelIndex);
+				} else {
+					// never fitted, counted once per sample as every label is scored
+					if (labelIndex == 0) {
+						this.unseenValueCounts.increment(testingIndex);
+					}
+					Pd_given_c = this.getUnseenPd_given_c(testingIndex, labelIndex);
+				}
+				// ln 0 is negative infinity
+				logPc_given_d += Math.log(Pd_given_c);
+			}
+			labelScores[labelIndex] = logPc_given_d;
+		}
+		log.logln(Logger.lD, "Log scores: " + ArrayUtils.printArray(labelScores));
+		return labelScores;
+	}
+
+	/**
+	 * Given list of log scores, find label with greatest score.
+	 *
+	 * @param logScores the log scores
+	 * @return the predicted label
+	 */
+	private float getPredictedLabel(double[] logScores) {
+		return this.labels[LogProbability.getMaxIndex(logScores, this.labels.length)];
+	}
+
 	/**
 	 * Given single feature, determine probabilty
 	 * scores for each label
@@ -424,10 +1113,7 @@ public class NaiveBayesClassifier {
 			for (int testingIndex = 0; testingIndex < testingData.length; testingIndex++) {
 				log.log_noTimestamp(testingData[testingIndex] + ":");
 
-				float local_Pd_given_c = 0;
-				TreeMap<Float, int[]> featureValues = this.featuresList.get(testingIndex);
-				local_Pd_given_c = this.getPd_given_c(testingIndex, testingData[testingIndex], 
-						labelIndex, featureValues);
+				float local_Pd_given_c = this.getPd_given_c(testingIndex, testingData[testingIndex], labelIndex);
 
 				log.log_noTimestamp(String.format("%.8f", local_Pd_given_c) + ")*(");
 
@@ -488,19 +1174,7 @@ public class NaiveBayesClassifier {
 	 * @return the pc for all values by label
 	 */
 	private float getPcForAllValuesByLabel(int labelIndex) {
-		float Pc = 0;
-		int uniqueLabelCount = 0;
-		int totalLabelsCount = 0;
-
-		for (int featuresIndex = 0; featuresIndex < this.featuresList.size(); featuresIndex++) {
-				TreeMap<Float, int[]> featureValues = this.featuresList.get(featuresIndex);
-				uniqueLabelCount = uniqueLabelCount
-						+ this.getLabelCountFromFeature(labelIndex, featureValues);
-				totalLabelsCount = totalLabelsCount + this.getCountAllLabelsbyFeature(featureValues);
-			}
-		Pc = (float) uniqueLabelCount / totalLabelsCount;
-		return Pc;
-
+		return this.labelCounts.getPc(labelIndex);
 	}
 
 	// P(c)
@@ -508,13 +1182,13 @@ public class NaiveBayesClassifier {
 	 * Given label index, determine probabilty for one feature.
 	 *
 	 * @param labelIndex the label index
-	 * @param featureValues the temp map
+	 * @param featuresIndex the feature index
 	 * @return the pc per label
 	 */
 	// className divided by all classes
-	private float getPcPerLabel(int labelIndex, TreeMap<Float, int[]> featureValues) {
+	private float getPcPerLabel(int labelIndex, int featuresIndex) {
 		float Pc;
-		Pc = (float) getLabelCountFromFeature(labelIndex, featureValues) / this.getCountAllLabelsbyFeature(featureValues);
+		Pc = (float) this.labelCounts.getLabelCount(featuresIndex, labelIndex) / this.labelCounts.getFeatureCount(featuresIndex);
 		return Pc;
 	}
 
@@ -529,30 +1203,25 @@ public class NaiveBayesClassifier {
 	 *            the class name
 	 * @param featureValue
 	 *            the feature name
-	 * @param featureValues
-	 *            the temp map
 	 * @return the pd given c
 	 */
-	private float getPd_given_c(int featureIndex, float testingData, int labelIndex,
-			TreeMap<Float, int[]> featureValues) {
+	private float getPd_given_c(int featureIndex, float testingData, int labelIndex) {
 		float Pd_given_c = 0;
 		// p(d | cj )
 		// given class, determine number of times featureName has className /
 		// total # className
-		if (featureValues.containsKey(testingData)) {
-			Pd_given_c = (float) this.getLabelCountFromFeatureValues(labelIndex, testingData, featureValues)
-					/ this.getLabelCountFromFeature(labelIndex, featureValues);
+		int code = this.featureCounts.getCode(featureIndex, testingData);
+		if ((code != -1) && this.featureCounts.isFitted(featureIndex, code)) {
+			int count = this.featureCounts.getCount(featureIndex, code, labelIndex);
+			Pd_given_c = ((count == 0) && (this.unseenValuePolicy == UNSEEN_VALUE_SMOOTHING))
+					? (float) this.getUnseenPd_given_c(featureIndex, labelIndex)
+					: (float) count / this.labelCounts.getLabelCount(featureIndex, labelIndex);
 		} else {
-			System.out.println("No instances of " + testingData + ".");
-		//	throw new Exception("Not in dictionary: " + featureName);
-		/*	try {
-			//	throw new Exception("No instances of " + featureName + ".");
-				throw new Exception();
-			} catch (Exception e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+			// never fitted, counted once per sample as every label is scored
+			if (labelIndex == 0) {
+				this.unseenValueCounts.increment(featureIndex);
 			}
-			*/
+			Pd_given_c = (float) this.getUnseenPd_given_c(featureIndex, labelIndex);
 		}
 
 		// System.out.println("(" + className + "|" + featureName + ") is " +
@@ -560,13 +1229,22 @@ public class NaiveBayesClassifier {
 
 		return Pd_given_c;
 	}
-	
-	// find how many times a feature is associated to a label
-	private int getLabelCountFromFeatureValues(int labelIndex, float featureName, SortedMap<Float, int[]> featureValues) {
-		int[] classCounts = featureValues.get(featureName);
-		return classCounts[labelIndex];
-	}
 
+	/**
+	 * P(d|c) of a value with no count for the label, from the counts kept
+	 * while fitting (the scoring table is not built).
+	 *
+	 * @param featureIndex the feature index
+	 * @param labelIndex the label index
+	 * @return P(d|c) by the unseen value policy
+	 */
+	private double getUnseenPd_given_c(int featureIndex, int labelIndex) {
+		return NaiveBayesScoringTable.getUnseenPd_given_c(this.unseenValuePolicy,
+				featureIndex < this.featureCounts.getNumberOfFeatures(),
+				this.labelCounts.getLabelCount(featureIndex, labelIndex),
+				this.featureCounts.getNumberOfFittedValues(featureIndex));
+	}
+	
 	/**
 	 * Update label list with new labels.
 	 *
@@ -596,6 +1274,7 @@ public class NaiveBayesClassifier {
 
 			this.labels = new float[1];
 			this.labels[0] = labelData;
+			this.labelIndex = new FloatLabelIndex(this.labels);
 		} else {
 			//only add new labels
 			if (this.getLabelIndex(labelData) == -1) {
@@ -621,6 +1300,7 @@ public class NaiveBayesClassifier {
 		System.arraycopy(tempList, 0, this.labels, 0, tempList.length);
 		//add value to last entry in list, index starts at 0
 		this.labels[tempList.length] = labelData;
+		this.labelIndex.put(labelData, tempList.length);
 	}
 	
 	/**
@@ -629,24 +1309,12 @@ public class NaiveBayesClassifier {
 	 */
 	//if label added to list, the feature count needs to be updated
 	private void addNewLabelToAllFeatures(){
-		Set<Integer> featuresKeys = this.featuresList.keySet();
-		Iterator<Integer> keyIterator = featuresKeys.iterator();
-		
-		while (keyIterator.hasNext()) {
-
-			int featNameIndex = keyIterator.next();
-			TreeMap<Float, int[]> featureValues = this.featuresList.get(featNameIndex);
-				
-			Set<Float> mapKeys = featureValues.keySet();
-			Iterator<Float> mapIterator = mapKeys.iterator();
-			while (mapIterator.hasNext()) {
-				float mapKey = mapIterator.next();
-				int[] oldCounts = this.featuresList.get(featNameIndex).get(mapKey);
-				int[] newCounts = this.emptyLabelCountsForFeatures();
-				System.arraycopy(oldCounts, 0, newCounts, 0, oldCounts.length);
-				this.featuresList.get(featNameIndex).replace(mapKey, newCounts);
-			}
+		//room left in the count arrays
+		if (this.labels.length <= this.labelCapacity) {
+			return;
 		}
+		this.labelCapacity = LabelCounts.growCapacity(this.labelCapacity, this.labels.length);
+		this.featureCounts.setLabelCapacity(this.labelCapacity);
 	}
 	
 
@@ -657,15 +1325,7 @@ public class NaiveBayesClassifier {
 	 * @return the label index
 	 */
 	private int getLabelIndex(float valueToFind) {
-		int labelIndex = -1;
-
-		for (int index = 0; index < this.labels.length; index++) {
-			if (valueToFind == this.labels[index]) {
-				labelIndex = index;
-				break;
-			}
-		}
-		return labelIndex;
+		return this.labelIndex.get(valueToFind);
 	}
 
 	/**
@@ -681,53 +1341,29 @@ public class NaiveBayesClassifier {
 		if ((featureValue == 0) && !this.allowEmptySampleValues) {
 			log.logln_withClassName(Logger.lF, "Value: " + featureValue + " not accepted.");
 		} else {
-			boolean featureIndexExists = this.featuresList.containsKey(featureIndex);
 			int labelIndexFound = this.getLabelIndex(labelToIncrement);
-			// get the label index to update
-			// get the feature index to update the list of feature values &
-			// counts in TreeMap
-			// this.updateLabels(newLabel);
-
-			// if first time, no entry in features, create map and add
-			// if featureindex found, and map found, update, replace
-			// if featureindex found, and no map found and put
-			// else and newfeature to amp
-			if (featureIndexExists) {
-				if (this.featuresList.get(featureIndex).containsKey(featureValue)) {
-					// update label count
-					int[] labelCounts = this.featuresList.get(featureIndex).get(featureValue);
-					labelCounts[labelIndexFound]++;
-					this.featuresList.get(featureIndex).replace(featureValue, labelCounts);
-				} else {
-					// add new feature value
-					int[] labelCounts = this.emptyLabelCountsForFeatures();
-					labelCounts[labelIndexFound] = 1;
-					this.featuresList.get(featureIndex).put(featureValue, labelCounts);
-				}
-			} else {
-				// no entries, create the feature and add the first map
-				int[] labelCounts = this.emptyLabelCountsForFeatures();
-				labelCounts[labelIndexFound] = 1;
-				TreeMap<Float, int[]> featureValues = new TreeMap<Float, int[]>();
-				featureValues.put(featureValue, labelCounts);
-				this.featuresList.put(featureIndex, featureValues);
-			}
+			this.featureCounts.add(featureIndex, featureValue, labelIndexFound, 1);
+			this.labelCounts.increment(featureIndex, labelIndexFound);
+			this.scoringTable = null;
 		}
 	}
 
 	/**
-	 * Create an int array full of zeros.
+	 * Add to the label count of a feature value, used by merge / unmerge.
 	 *
-	 * @return the int[]
+	 * @param featureIndex the feature index
+	 * @param featureValue the feature value
+	 * @param labelIndex the label index
+	 * @param count amount to add to the label count
 	 */
-	private int[] emptyLabelCountsForFeatures(){
-		int[] labelCounts = new int[this.labels.length];
-		for (int loop = 0; loop < labelCounts.length; loop++)
-			labelCounts[loop] = 0;
-		
-		return labelCounts;
+	private void addFeatureValueCount(int featureIndex, float featureValue, int labelIndex, int count) {
+		if (count == 0) {
+			return;
+		}
+		this.featureCounts.add(featureIndex, featureValue, labelIndex, count);
+		this.labelCounts.add(featureIndex, labelIndex, count);
+		this.scoringTable = null;
 	}
-	
 
 	/**
 	 * Prints the features and labels.
@@ -737,12 +1373,10 @@ public class NaiveBayesClassifier {
 		System.out.println();
 		System.out.println("Label counts by feature.\n");
 
-		Set<Integer> featuresKeys = this.featuresList.keySet();
-		
+		int numberOfFeatures = this.featureCounts.getNumberOfFeatures();
+
 		//print the heading row
-		Iterator<Integer> keyIterator = featuresKeys.iterator();
-		while (keyIterator.hasNext()) {
-			keyIterator.next();
+		for (int featNameIndex = 0; featNameIndex < numberOfFeatures; featNameIndex++) {
 			System.out.print("Feature\t\t");
 			for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
 				System.out.print("Label\t");
@@ -751,12 +1385,9 @@ public class NaiveBayesClassifier {
 		}
 		System.out.println();
 		
-		keyIterator = featuresKeys.iterator();
-		while (keyIterator.hasNext()) {
-
-			int featNameIndex = keyIterator.next();
+		for (int featNameIndex = 0; featNameIndex < numberOfFeatures; featNameIndex++) {
 			//use name if available
-			if ((this.featureNames == null) || (!(this.featureNames.size() == this.featuresList.size()))) {
+			if ((this.featureNames == null) || (!(this.featureNames.size() == numberOfFeatures))) {
 				System.out.print(featNameIndex + "\t\t");
 			} else {
 				System.out.print(this.featureNames.get(featNameIndex) + "\t\t");
@@ -773,9 +1404,7 @@ public class NaiveBayesClassifier {
 		}
 		System.out.println();
 		
-		keyIterator = featuresKeys.iterator();
-		while (keyIterator.hasNext()) {
-			keyIterator.next();
+		for (int featNameIndex = 0; featNameIndex < numberOfFeatures; featNameIndex++) {
 			System.out.print("----------\t");
 			for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
 				System.out.print("-----\t");
@@ -784,19 +1413,21 @@ public class NaiveBayesClassifier {
 		}
 		System.out.println();
 
-		int maxFeatureValueCount = this.getMaxCountFeatureValues();
-		TreeMap<Float, int[]> featureValues = null;
-		int[] tempLabelCount = null;
+		//values of each feature, ascending
+		int[][] sortedCodes = new int[numberOfFeatures][];
+		int maxFeatureValueCount = 0;
+		for (int featNameIndex = 0; featNameIndex < numberOfFeatures; featNameIndex++) {
+			sortedCodes[featNameIndex] = this.featureCounts.getSortedCodes(featNameIndex);
+			maxFeatureValueCount = Math.max(maxFeatureValueCount, sortedCodes[featNameIndex].length);
+		}
 		for (int index = 0; index < maxFeatureValueCount; index++) {
-			for (int featNames = 0; featNames < this.featuresList.size(); featNames++) {
-
-				featureValues = this.featuresList.get(featNames);
-				if (featureValues.size() > index) {
-					Entry<Float, int[]> map = this.getMapAtIndex(index, featureValues);
-					System.out.print(map.getKey() + "\t\t");
-					tempLabelCount = map.getValue();
-					for (int countIndex = 0; countIndex < tempLabelCount.length; countIndex++) {
-						System.out.print(tempLabelCount[countIndex] + "\t");					
+			for (int featNames = 0; featNames < numberOfFeatures; featNames++) {
+
+				if (sortedCodes[featNames].length > index) {
+					int code = sortedCodes[featNames][index];
+					System.out.print(this.featureCounts.getValue(featNames, code) + "\t\t");
+					for (int countIndex = 0; countIndex < this.labels.length; countIndex++) {
+						System.out.print(this.featureCounts.getCount(featNames, code, countIndex) + "\t");
 					}
 					System.out.print("\t");
 				} else {
@@ -811,112 +1442,9 @@ public class NaiveBayesClassifier {
 			System.out.println();
 		}
 	}
-	
-	/**
-	 * Determine which feature map has the most values
-	 *
-	 * @return the max count feature values
-	 */
-	//determine the which feature has the most values associated to it
-	private int getMaxCountFeatureValues(){
-		int max = 0;
-		Enumeration<TreeMap<Float, int[]>> eLoop = this.featuresList.elements();
-		while (eLoop.hasMoreElements()) {
-			TreeMap<Float, int[]> featureValues = eLoop.nextElement();
-			if (max < featureValues.size()) {
-				max = featureValues.size();
-			}
-		}	
-		return max;
-	}
-	
-	/**
-	 * Given feature map, return an Entry at index.
-	 *
-	 * @param featureIndex the feature index
-	 * @param featureValues the temp map
-	 * @return the map at index
-	 */
-	//get an Entry of the data we need at index
-	private Entry<Float, int[]> getMapAtIndex(int featureIndex, TreeMap<Float, int[]> featureValues){
-		Set<Float> keys = featureValues.keySet();
-		Iterator<Float> loop = keys.iterator();
-		int count = 0;
-		Entry<Float, int[]> map = null;
-		
-		while (loop.hasNext() && (count <= featureIndex)) {
-			map = featureValues.ceilingEntry(loop.next());
-			count++;
-		}
-		return map;
-	}
-
-
-	/**
-	 * Gets total number of times label has been incremented for a feature
-	 *
-	 * @param labelIndex the label index
-	 * @param trainData the train data
-	 * @return the label frequency 
-	 */
-	private int getLabelCountFromFeature(int labelIndex, SortedMap<Float, int[]> trainData) {
-		int labelFrequency = 0;
-		Collection<int[]> cIndex = trainData.values();
-		Iterator<int[]> iIndex = cIndex.iterator();
-		while (iIndex.hasNext()) {
-			int[] iValues = iIndex.next();
-			labelFrequency = labelFrequency + iValues[labelIndex];
-		}
-		return labelFrequency;
-	}
-
-	/**
-	 * Sum total label counts for a feature.
-	 *
-	 * @param featureValues all the feature values for one feature
-	 * @return the total count
-	 */
-	private int getCountAllLabelsbyFeature(SortedMap<Float, int[]> featureValues) {
-		int totalLabels = 0;
-
-		// count number of times all label has been incremented
-		Collection<int[]> cindex = featureValues.values();
-		Iterator<int[]> iindex = cindex.iterator();
-		while (iindex.hasNext()) {
-			int[] iValues = iindex.next();
-			for (int index = 0; index < iValues.length; index++) {
-				totalLabels = totalLabels + iValues[index];
-			}
-		}
-
-		return totalLabels;
-	}
-
-	/**
-	 * Gets the given featureIndex and treemap, return the corresponding
-	 * feature value
-	 *
-	 * @param featureMap the feature map
-	 * @param index the index
-	 * @return the feature key at index
-	 */
-	@SuppressWarnings("unused")
-	private float getFeatureValueAtIndex(TreeMap<Float, int[]> featureMap, int index) {
-		float key = 0;
-
-		int indexCount = 0;
-		for (Map.Entry<Float, int[]> entry : featureMap.entrySet()) {
-			if (indexCount == index) {
-				key = entry.getKey();
-			}
-			indexCount++;
-		}
-		return key;
-	}
 
 
 
-	
 	public int getFitCount() {
 		return this.totalFitEntries;
 	}
@@ -927,5 +1455,9 @@ public class NaiveBayesClassifier {
 
 	public void setMoreTrainingData(boolean moreTrainingData) {
 		this.moreTrainingData = moreTrainingData;
+		if (moreTrainingData) {
+			// cached predictions are of the model before the new data
+			this.clearPredictionCache();
+		}
 	}
 }
@@ -1,7 +1,11 @@
 package xilodyne.machinelearning.classifier.bayes;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
@@ -9,6 +13,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicReference;
 
 import xilodyne.util.ArrayUtils;
 import xilodyne.util.logger.Logger;
@@ -22,6 +27,10 @@ import xilodyne.util.logger.Logger;
  * <p>
  * 
  * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - label counts kept while fitting, binary model file,
+ * 	hashed label index, LRU prediction cache, unseen value policy and counts,
+ * 	published snapshot for lock free prediction, interned names and
+ * 	values, prepared queries
  * @version 0.4 - 1/29/2018 - reflect xilodyne util changes
  * @version 0.2 -- 5/9/2017
  * 	changed labels/classes to features/labels;
@@ -39,6 +48,14 @@ public class NaiveBayesClassifier_UsingTextValues {
 	public static final boolean EMPTY_SAMPLES_ALLOW = true;
 	public static final boolean EMPTY_SAMPLES_IGNORE = false;
 
+	/** P(d|c) of a value never fitted for the feature is 0 */
+	public static final int UNSEEN_VALUE_ZERO = 0;
+	/** a feature with a value never fitted is not scored */
+	public static final int UNSEEN_VALUE_IGNORE = 1;
+	/** P(d|c) of a value never fitted, or fitted only for other labels, is
+	 * 1 / (values fitted for the label + values of the feature) */
+	public static final int UNSEEN_VALUE_SMOOTHING = 2;
+
 	// which type of variance to calculate, only a sample
 	// size of population data or entire population data
 	// to be implemented
@@ -46,6 +63,8 @@ public class NaiveBayesClassifier_UsingTextValues {
 	// private static final boolean VARIANCE_POPULATION_CALCULATION = false;
 
 	private boolean allowEmptySampleValues = true;
+
+	private int unseenValuePolicy = UNSEEN_VALUE_ZERO;
 	
 	
 	/* TRUE if training data entered. 
@@ -54,10 +73,37 @@ public class NaiveBayesClassifier_UsingTextValues {
 	private boolean moreTrainingData = true; 
 
 	private String[] labels = null;	
+	
+	//upper case label to index
+	private HashMap<String, Integer> labelIndex = new HashMap<String, Integer>();
+	
+	//length of the label count arrays of the feature values, doubled as labels are added
+	private int labelCapacity = 0;
 
 	//Hashtable:  featureID, (TreeMap (featureValue(s), label list count, must match index of labels[]))
 	private Hashtable<String, TreeMap<String, int[]>> featuresList = new Hashtable<String, TreeMap<String, int[]>>();
 
+	//feature names and values normalized once, dense ids for the snapshot and prepared queries
+	private final TextDictionary dictionary = new TextDictionary();
+
+	//[feature id][value id] the label count arrays of featuresList, scored without string lookups
+	private final ArrayList<ArrayList<int[]>> valueCountsById = new ArrayList<ArrayList<int[]>>();
+
+	//TRUE to log each P(d|c) of the fitted data scored, strings are only built when TRUE
+	private static final boolean LOG_SCORES = false;
+
+	//label counts kept while fitting, P(c) and label totals without scanning featuresList
+	private LabelCounts<String> labelCounts = new LabelCounts<String>();
+
+	//predicted labels of recent samples, null if not caching
+	private PredictionCache<Map<String, String>, String> predictionCache = null;
+
+	//values scored that were never fitted, by feature name (upper case)
+	private final UnseenValueCounts<String> unseenValueCounts = new UnseenValueCounts<String>();
+
+	//counts published for prediction, null if predicting from featuresList
+	private final AtomicReference<TextNaiveBayesSnapshot> snapshot = new AtomicReference<TextNaiveBayesSnapshot>();
+
 	//classification of label, i.e. if labels are "male / female", classification would be "gender"
 	private String labelClassCategory = "LABEL";
 
@@ -94,6 +140,135 @@ public class NaiveBayesClassifier_UsingTextValues {
 		return this.labelClassCategory;
 	}
 
+	/**
+	 * How a test value never fitted for its feature is scored, nothing
+	 * is written to the console.  UNSEEN_VALUE_ZERO (default) scores
+	 * P(d|c) = 0 for every label, UNSEEN_VALUE_IGNORE leaves the feature
+	 * out of the scores, UNSEEN_VALUE_SMOOTHING scores the Laplace
+	 * probability of a value with no count, also for a value fitted only
+	 * for other labels.  A published snapshot keeps its counts, only the
+	 * policy changes, call publishSnapshot to publish newer fits.
+	 *
+	 * @param policy UNSEEN_VALUE_ZERO, UNSEEN_VALUE_IGNORE or UNSEEN_VALUE_SMOOTHING
+	 */
+	public void setUnseenValuePolicy(int policy) {
+		if ((policy != UNSEEN_VALUE_ZERO) && (policy != UNSEEN_VALUE_IGNORE) && (policy != UNSEEN_VALUE_SMOOTHING)) {
+			throw new IllegalArgumentException("Unknown unseen value policy: " + policy);
+		}
+		this.unseenValuePolicy = policy;
+		// the published counts are scored by the new policy, fits since are not published
+		TextNaiveBayesSnapshot published = this.snapshot.get();
+		while ((published != null) && !this.snapshot.compareAndSet(published, published.withUnseenValuePolicy(policy))) {
+			published = this.snapshot.get();
+		}
+		PredictionCache<Map<String, String>, String> cache = this.predictionCache;
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Copy the counts fitted so far into an immutable snapshot and swap
+	 * it in for prediction.  Once published, predict_TestingSet and
+	 * getProbabilityScores_TestingSet read the snapshot without locks
+	 * (with no prediction cache, the cache is synchronized) while one
+	 * writer thread keeps fitting, the new data is predicted after the
+	 * next publishSnapshot.
+	 *
+	 * @throws IllegalStateException if no training data fitted
+	 */
+	public void publishSnapshot() {
+		if (this.labels == null) {
+			throw new IllegalStateException("No training data fitted.");
+		}
+		int numberOfLabels = this.labels.length;
+		float[] pc = new float[numberOfLabels];
+		for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+			pc[labelIndex] = this.getPcForAllValuesByLabel(labelIndex);
+		}
+
+		// feature and value ids of the dictionary, every fitted value has an id
+		TextNaiveBayesSnapshot.FeatureTable[] features = new TextNaiveBayesSnapshot.FeatureTable[this.dictionary.getNumberOfFeatures()];
+		Iterator<Entry<String, TreeMap<String, int[]>>> featureEntries = this.featuresList.entrySet().iterator();
+		while (featureEntries.hasNext()) {
+			Entry<String, TreeMap<String, int[]>> featureEntry = featureEntries.next();
+			String feature = featureEntry.getKey();
+			int[][] valueCounts = new int[featureEntry.getValue().size()][];
+			Iterator<Entry<String, int[]>> valueEntries = featureEntry.getValue().entrySet().iterator();
+			while (valueEntries.hasNext()) {
+				Entry<String, int[]> valueEntry = valueEntries.next();
+				valueCounts[this.dictionary.getValueId(feature, valueEntry.getKey())] = Arrays.copyOf(valueEntry.getValue(), numberOfLabels);
+			}
+			int[] labelCounts = new int[numberOfLabels];
+			for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+				labelCounts[labelIndex] = this.labelCounts.getLabelCount(feature, labelIndex);
+			}
+			features[this.dictionary.getFeatureId(feature)] = new TextNaiveBayesSnapshot.FeatureTable(valueCounts, labelCounts);
+		}
+
+		this.snapshot.set(new TextNaiveBayesSnapshot(this.labels.clone(), pc, this.dictionary, features,
+				this.unseenValuePolicy, this.unseenValueCounts));
+		PredictionCache<Map<String, String>, String> cache = this.predictionCache;
+		if (cache != null) {
+			// cached predictions are of the previous model
+			cache.clear();
+		}
+		log.logln(Logger.lI, "Published snapshot of " + features.length + " features");
+	}
+
+	/**
+	 * Predict from the fitted counts again, as before publishSnapshot.
+	 */
+	public void clearSnapshot() {
+		this.snapshot.set(null);
+		PredictionCache<Map<String, String>, String> cache = this.predictionCache;
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * @return TRUE if predicting from a published snapshot
+	 */
+	public boolean isSnapshotPublished() {
+		return this.snapshot.get() != null;
+	}
+
+	public int getUnseenValuePolicy() {
+		return this.unseenValuePolicy;
+	}
+
+	/**
+	 * Number of test values scored that were never fitted for the
+	 * feature (or of a feature never fitted), each value counted once
+	 * per sample.  Samples answered from the prediction cache are not
+	 * counted.
+	 *
+	 * @param featureName the feature name
+	 * @return number of unseen values of the feature
+	 */
+	public long getUnseenValueCount(String featureName) {
+		return this.unseenValueCounts.get(featureName.toUpperCase());
+	}
+
+	/**
+	 * @return copy of the unseen value counts by feature name (upper case), features with none are not included
+	 */
+	public SortedMap<String, Long> getUnseenValueCounts() {
+		return this.unseenValueCounts.getCounts();
+	}
+
+	/**
+	 * @return number of unseen values scored, all features
+	 */
+	public long getUnseenValueTotal() {
+		return this.unseenValueCounts.getTotal();
+	}
+
+	public void resetUnseenValueCounts() {
+		this.unseenValueCounts.reset();
+	}
+
 
 	/**
 	 * Add training data one feature at a time.
@@ -115,6 +290,41 @@ public class NaiveBayesClassifier_UsingTextValues {
 
 
 
+	/**
+	 * Write the model as a {@link BinaryModelFile}, it can be memory mapped
+	 * with {@link BinaryModelFile#loadNaiveBayesText(String)} and used for 
+	 * prediction (log space scoring) without deserializing.
+	 *
+	 * @param fileName the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void saveModel(String fileName) throws IOException {
+		int numberOfLabels = this.labels.length;
+		double[] logPc = new double[numberOfLabels];
+		for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+			logPc[labelIndex] = Math.log(this.getPcForAllValuesByLabel(labelIndex));
+		}
+
+		String[] featureNames = this.featuresList.keySet().toArray(new String[0]);
+		String[][] values = new String[featureNames.length][];
+		double[][] logPd_given_c = new double[featureNames.length][];
+		for (int featuresIndex = 0; featuresIndex < featureNames.length; featuresIndex++) {
+			TreeMap<String, int[]> featureValues = this.featuresList.get(featureNames[featuresIndex]);
+			values[featuresIndex] = featureValues.keySet().toArray(new String[0]);
+			logPd_given_c[featuresIndex] = new double[values[featuresIndex].length * numberOfLabels];
+
+			for (int valueIndex = 0; valueIndex < values[featuresIndex].length; valueIndex++) {
+				int[] counts = featureValues.get(values[featuresIndex][valueIndex]);
+				for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+					logPd_given_c[featuresIndex][(valueIndex * numberOfLabels) + labelIndex] = (counts[labelIndex] == 0)
+							? Double.NEGATIVE_INFINITY
+							: Math.log((double) counts[labelIndex] / this.labelCounts.getLabelCount(featureNames[featuresIndex], labelIndex));
+				}
+			}
+		}
+		BinaryModelFile.writeNaiveBayesText(fileName, this.labels, logPc, featureNames, values, logPd_given_c);
+	}
+
 	/**
 	 * Predict given list of sample set (each entry must 
 	 * correspond to one index from the FEATURES hashtable)
@@ -123,8 +333,114 @@ public class NaiveBayesClassifier_UsingTextValues {
 	 * @return the label
 	 */
 	public String predict_TestingSet(Hashtable<String, String> testingData) {
-		float[] results = this.getResultsFromFeatureSetForOneLabel(testingData);
-		return this.getPredictedLabel(results);
+		PredictionCache<Map<String, String>, String> cache = this.predictionCache;
+		if (cache == null) {
+			return this.predictLabel(testingData);
+		}
+		// Hashtable and HashMap keys are equal when the entries are equal
+		String label = cache.get(testingData);
+		if (label == null) {
+			// read before the snapshot, the label is not kept if a publish clears the cache while scoring
+			long generation = cache.getGeneration();
+			label = this.predictLabel(testingData);
+			cache.put(new HashMap<String, String>(testingData), label, generation);
+		}
+		return label;
+	}
+
+	private String predictLabel(Hashtable<String, String> testingData) {
+		TextNaiveBayesSnapshot published = this.snapshot.get();
+		if (published != null) {
+			return published.predict(testingData);
+		}
+		return this.getPredictedLabel(this.getResultsFromFeatureSetForOneLabel(testingData));
+	}
+
+	/**
+	 * Normalize the feature names and values of the testing data once
+	 * and look them up in the fitted names and values, for testing data
+	 * predicted many times.  Names and values fitted after the query is
+	 * prepared are not in the query.
+	 *
+	 * @param testingData feature name, value
+	 * @return the prepared query
+	 */
+	public PreparedQuery prepareQuery(Map<String, String> testingData) {
+		return new PreparedQuery(this.dictionary, testingData);
+	}
+
+	/**
+	 * Predict a prepared query, the prediction cache is not used.  With
+	 * a published snapshot the query is scored by array index only.
+	 *
+	 * @param query the query, prepared by this classifier
+	 * @return the label
+	 */
+	public String predict_TestingSet(PreparedQuery query) {
+		this.checkQuery(query);
+		TextNaiveBayesSnapshot published = this.snapshot.get();
+		if (published != null) {
+			return published.predict(query);
+		}
+		return this.getPredictedLabel(this.getResultsFromFeatureSetForOneLabel(query));
+	}
+
+	/**
+	 * Gets the probability scores of a prepared query.
+	 *
+	 * @param query the query, prepared by this classifier
+	 * @return the probability scores testing set
+	 */
+	public double[] getProbabilityScores_TestingSet(PreparedQuery query) {
+		this.checkQuery(query);
+		TextNaiveBayesSnapshot published = this.snapshot.get();
+		float[] results = (published != null) ? published.getScores(query) : this.getResultsFromFeatureSetForOneLabel(query);
+		return ArrayUtils.convertFloatToDoubleArray(results);
+	}
+
+	private void checkQuery(PreparedQuery query) {
+		if (query.getDictionary() != this.dictionary) {
+			throw new IllegalArgumentException("Query was prepared by another classifier.");
+		}
+	}
+
+	/**
+	 * Cache the predict_TestingSet label of the most recently predicted
+	 * samples, for traffic that predicts the same samples again.  The
+	 * least recently used sample is evicted when the cache is full, the
+	 * cache is cleared when more training data is fitted.
+	 *
+	 * @param maxEntries number of samples cached, 0 for no cache
+	 */
+	public void setPredictionCacheSize(int maxEntries) {
+		if (maxEntries < 0) {
+			throw new IllegalArgumentException("Prediction cache size must be >= 0: " + maxEntries);
+		}
+		this.predictionCache = (maxEntries == 0) ? null : new PredictionCache<Map<String, String>, String>(maxEntries);
+	}
+
+	/**
+	 * @return number of samples cached, 0 if no cache
+	 */
+	public int getPredictionCacheSize() {
+		PredictionCache<Map<String, String>, String> cache = this.predictionCache;
+		return (cache == null) ? 0 : cache.size();
+	}
+
+	/**
+	 * @return number of predict_TestingSet calls answered from the cache
+	 */
+	public long getPredictionCacheHits() {
+		PredictionCache<Map<String, String>, String> cache = this.predictionCache;
+		return (cache == null) ? 0 : cache.getHits();
+	}
+
+	/**
+	 * @return number of predict_TestingSet calls predicted and then cached
+	 */
+	public long getPredictionCacheMisses() {
+		PredictionCache<Map<String, String>, String> cache = this.predictionCache;
+		return (cache == null) ? 0 : cache.getMisses();
 	}
 	
 
@@ -142,8 +458,8 @@ public class NaiveBayesClassifier_UsingTextValues {
 	public float getProbabilty_OneFeature(String featureName, String labelName, String testingData) {
 		TreeMap<String, int[]> featureValues = this.featuresList.get(featureName.toUpperCase());
 		int labelIndex = this.getLabelIndex(labelName);
-		float Pc = this.getPcPerLabel(labelIndex, featureValues);
-		float Pd_given_c = this.getPd_given_c(labelIndex, testingData, featureValues);
+		float Pc = this.getPcPerLabel(labelIndex, featureName.toUpperCase());
+		float Pd_given_c = this.getPd_given_c(featureName.toUpperCase(), labelIndex, testingData.toLowerCase(), featureValues);
 		log.logln_withClassName(Logger.lI, this.labels[labelIndex] + "\tPc: " + Pc + "\t* Pd_given_c: "
 				+ Pd_given_c + "\t= " + Pd_given_c * Pc);
 
@@ -158,7 +474,9 @@ public class NaiveBayesClassifier_UsingTextValues {
 	 */
 	//return the calculations for each label
 	public double[] getProbabilityScores_TestingSet(Hashtable<String, String> testingData) {
-		float[] results = this.getResultsFromFeatureSetForOneLabel(testingData); 
+		TextNaiveBayesSnapshot published = this.snapshot.get();
+		float[] results = (published != null) ? published.getScores(testingData)
+				: this.getResultsFromFeatureSetForOneLabel(testingData);
 		return ArrayUtils.convertFloatToDoubleArray(results);
 	}
 	
@@ -171,45 +489,58 @@ public class NaiveBayesClassifier_UsingTextValues {
 	 * @return probabilty scores of feature checked
 	 */
 	private float[] getResultsFromFeatureSetForOneLabel(Hashtable<String, String> testingData) {
-		float Pc_given_d = 1, Pc = 0;
-		float[] labelScores = new float[this.labels.length];
+		// names and values normalized once, not for each label
+		return this.getResultsFromFeatureSetForOneLabel(this.prepareQuery(testingData));
+	}
 
-		log.log_noTimestamp(Logger.lD, "");
-		
-		log.log("Predict label using values:\t");
-		Collection<String> valueSet = testingData.values();
-		Iterator<String> values = valueSet.iterator();
- 		while (values.hasNext()) {
-			log.log_noTimestamp(values.next() + "\t");
-		}
-		log.logln_noTimestamp("");
-		
-		for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+	/**
+	 * Given prepared query, determine probabilty
+	 * scores for each label
+	 *
+	 * @param query the test data
+	 * @return probabilty scores of feature checked
+	 */
+	private float[] getResultsFromFeatureSetForOneLabel(PreparedQuery query) {
+		int numberOfLabels = this.labels.length;
+		float[] labelScores = new float[numberOfLabels];
+		for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
 			// each entry equal to 1 to avoid zeroing out
-			float Pd_given_c = 1;
-			Pc = this.getPcForAllValuesByLabel(labelIndex);
-			log.log(this.labels[labelIndex] + "\t(");
-
-			Collection<String> featuresKeys = testingData.keySet();
-			Iterator<String> featureNames = featuresKeys.iterator();
-			while (featureNames.hasNext()) {
-				String featureName = featureNames.next();
-				String featureValue = testingData.get(featureName);
-				log.log_noTimestamp(featureName + "/" +featureValue +":");
-
-				float local_Pd_given_c = 0;
-				TreeMap<String, int[]> featureValues = this.featuresList.get(featureName.toUpperCase());
-				local_Pd_given_c = this.getPd_given_c(labelIndex, featureValue.toLowerCase(), featureValues);
-
-				log.log_noTimestamp(String.format("%.8f", local_Pd_given_c) + ")*(");
+			labelScores[labelIndex] = 1;
+		}
 
-				Pd_given_c = Pd_given_c * local_Pd_given_c;
+		// counts found once per feature by id, the label loop only reads arrays
+		for (int index = 0; index < query.getNumberOfFeatures(); index++) {
+			int featureId = query.getFeatureId(index);
+			int valueId = query.getValueId(index);
+			ArrayList<int[]> valueCounts = ((featureId == -1) || (featureId >= this.valueCountsById.size())) ? null
+					: this.valueCountsById.get(featureId);
+			int[] counts = ((valueCounts == null) || (valueId == -1) || (valueId >= valueCounts.size())) ? null
+					: valueCounts.get(valueId);
+			int[] featureLabelCounts = (valueCounts == null) ? null : this.labelCounts.getLabelCounts(query.getFeature(index));
+			if (counts == null) {
+				// never fitted, counted once per sample
+				this.unseenValueCounts.increment(query.getFeature(index));
 			}
 
-			Pc_given_d = Pd_given_c * Pc;
-			log.logln_noTimestamp(String.format("%.3f", Pc) + "))\t=" + Pc_given_d);
+			for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+				int labelCount = ((featureLabelCounts == null) || (labelIndex >= featureLabelCounts.length)) ? 0
+						: featureLabelCounts[labelIndex];
+				float Pd_given_c = ((counts == null) || ((counts[labelIndex] == 0) && (this.unseenValuePolicy == UNSEEN_VALUE_SMOOTHING)))
+						? this.getUnseenPd_given_c(labelCount, valueCounts)
+						: (float) counts[labelIndex] / labelCount;
+				labelScores[labelIndex] = labelScores[labelIndex] * Pd_given_c;
+				if (LOG_SCORES) {
+					log.logln(Logger.lD, this.labels[labelIndex] + "\t" + query.getFeature(index) + "/"
+							+ query.getValue(index) + ": " + String.format("%.8f", Pd_given_c));
+				}
+			}
+		}
 
-			labelScores[labelIndex] = Pc_given_d;
+		for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+			labelScores[labelIndex] = labelScores[labelIndex] * this.getPcForAllValuesByLabel(labelIndex);
+			if (LOG_SCORES) {
+				log.logln(Logger.lD, this.labels[labelIndex] + "\t=" + labelScores[labelIndex]);
+			}
 		}
 		return labelScores;
 	}
@@ -261,21 +592,7 @@ public class NaiveBayesClassifier_UsingTextValues {
 	 * @return the pc for all values by label
 	 */
 	private float getPcForAllValuesByLabel(int labelIndex) {
-		float Pc = 0;
-		int uniqueLabelCount = 0;
-		int totalLabelsCount = 0;
-
-		//for (int featureKey = 0; featureKey < this.features.size(); featureKey++) {
-		Set<String> keySet = this.featuresList.keySet();
-		for (String featuresKey: keySet) {
-			TreeMap<String, int[]> featureValues = this.featuresList.get(featuresKey);
-				uniqueLabelCount = uniqueLabelCount
-						+ this.getLabelCountFromFeature(labelIndex, featureValues);
-				totalLabelsCount = totalLabelsCount + this.getCountAllLabelsbyFeature(featureValues);
-			}
-		Pc = (float) uniqueLabelCount / totalLabelsCount;
-		return Pc;
-
+		return this.labelCounts.getPc(labelIndex);
 	}
 
 	// P(c)
@@ -283,13 +600,13 @@ public class NaiveBayesClassifier_UsingTextValues {
 	 * Given label index, determine probabilty for one feature.
 	 *
 	 * @param labelIndex the label index
-	 * @param featureValues the temp map
+	 * @param feature the feature name (upper case)
 	 * @return the pc per label
 	 */
-	// className divided bgetPcPerLabely all classes
-	private float getPcPerLabel(int labelIndex, TreeMap<String, int[]> featureValues) {
+	// className divided by all classes
+	private float getPcPerLabel(int labelIndex, String feature) {
 		float Pc;
-		Pc = (float) getLabelCountFromFeature(labelIndex, featureValues) / this.getCountAllLabelsbyFeature(featureValues);
+		Pc = (float) this.labelCounts.getLabelCount(feature, labelIndex) / this.labelCounts.getFeatureCount(feature);
 		return Pc;
 	}
 
@@ -300,33 +617,34 @@ public class NaiveBayesClassifier_UsingTextValues {
 	/**
 	 * Gets the pd given c.
 	 *
+	 * @param feature
+	 *            the feature name (upper case)
 	 * @param className
 	 *            the class name
 	 * @param featureValue
-	 *            the feature name
+	 *            the feature value (lower case)
 	 * @param featureValues
 	 *            the temp map
 	 * @return the pd given c
 	 */
-	private float getPd_given_c(int labelIndex, String featureValue, SortedMap<String, int[]> featureValues) {
+	private float getPd_given_c(String feature, int labelIndex, String featureValue, SortedMap<String, int[]> featureValues) {
 		float Pd_given_c = 0;
 		// p(d | cj )
 		// given class, determine number of times featureName has className /
 		// total # className
-		if (featureValues.containsKey(featureValue.toLowerCase())) {
-			Pd_given_c = (float) this.getLabelCountFromFeatureValues(labelIndex, featureValue.toLowerCase(), featureValues)
-					/ this.getLabelCountFromFeature(labelIndex, featureValues);
+		int[] counts = (featureValues == null) ? null : featureValues.get(featureValue);
+		if ((counts != null) && (counts[labelIndex] == 0) && (this.unseenValuePolicy == UNSEEN_VALUE_SMOOTHING)) {
+			// fitted only for other labels
+			Pd_given_c = this.getUnseenPd_given_c(this.labelCounts.getLabelCount(feature, labelIndex), featureValues.values());
+		} else if (counts != null) {
+			Pd_given_c = (float) counts[labelIndex] / this.labelCounts.getLabelCount(feature, labelIndex);
 		} else {
-			System.out.println("No instances of " + featureValue.toLowerCase() + ".");
-		//	throw new Exception("Not in dictionary: " + featureName);
-		/*	try {
-			//	throw new Exception("No instances of " + featureName + ".");
-				throw new Exception();
-			} catch (Exception e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+			// never fitted, counted once per sample as every label is scored
+			if (labelIndex == 0) {
+				this.unseenValueCounts.increment(feature);
 			}
-			*/
+			Pd_given_c = this.getUnseenPd_given_c(this.labelCounts.getLabelCount(feature, labelIndex),
+					(featureValues == null) ? null : featureValues.values());
 		}
 
 		// System.out.println("(" + className + "|" + featureName + ") is " +
@@ -336,48 +654,25 @@ public class NaiveBayesClassifier_UsingTextValues {
 	}
 	
 	/**
-	 * Gets the feature freq by class.
+	 * P(d|c) of a value never fitted for the feature: 0, 1 (feature
+	 * ignored) or the Laplace probability of a value with no count,
+	 * 1 / (values fitted for the label + values of the feature).
 	 *
-	 * @param className
-	 *            the class name
-	 * @param featureName
-	 *            the feature name
-	 * @param featureValues
-	 *            the temp map
-	 * @return the feature freq by class
+	 * @param labelCount values of the feature fitted for the label
+	 * @param featureValues the label counts of the fitted values of the feature, null if none
+	 * @return P(d|c) by the unseen value policy
 	 */
-	// find how many times a feature is associated to a label
-	private int getLabelCountFromFeatureValues(int labelIndex, String featureName, SortedMap<String, int[]> featureValues) {
-		int[] classCounts = featureValues.get(featureName);
-		return classCounts[labelIndex];
-	}
-
-	/**
-	 * Gets the class frequency from features.
-	 *
-	 * @param className
-	 *            the class name
-	 * @param featureValues
-	 *            the temp map
-	 * @return the class frequency from features
-	 */
-	// get total number of times className has been incremented
-	@SuppressWarnings("unused")
-	private int getClassFrequencyFromFeatures(String className, SortedMap<String, int[]> featureValues) {
-		int classFrequency = 0;
-		Collection<int[]> cLoop = featureValues.values();
-		Iterator<int[]> iLoop = cLoop.iterator();
-		while (iLoop.hasNext()) {
-			int[] iValues = iLoop.next();
-			classFrequency = classFrequency + iValues[this.getLabelIndex(className)];
+	private float getUnseenPd_given_c(int labelCount, Collection<int[]> featureValues) {
+		if (this.unseenValuePolicy == UNSEEN_VALUE_ZERO) {
+			return 0;
+		}
+		if ((this.unseenValuePolicy == UNSEEN_VALUE_IGNORE) || (featureValues == null)) {
+			return 1;
 		}
-		return classFrequency;
+		int denominator = labelCount + featureValues.size();
+		return (denominator == 0) ? 1 : 1f / denominator;
 	}
 
-
-	
-
-
 	/**
 	 * Update labels.
 	 * Add only unique labels.  If adding new label,
@@ -392,6 +687,7 @@ public class NaiveBayesClassifier_UsingTextValues {
 
 			this.labels = new String[1];
 			this.labels[0] = label.toUpperCase();
+			this.labelIndex.put(this.labels[0], 0);
 		} else {
 			//only add new labels
 			if (this.getLabelIndex(label) == -1) {
@@ -417,6 +713,7 @@ public class NaiveBayesClassifier_UsingTextValues {
 		System.arraycopy(tempList, 0, this.labels, 0, tempList.length);
 		//add value to last entry in list, index starts at 0
 		this.labels[tempList.length] = label.toUpperCase();
+		this.labelIndex.put(this.labels[tempList.length], tempList.length);
 	}
 	
 	/**
@@ -425,6 +722,11 @@ public class NaiveBayesClassifier_UsingTextValues {
 	 */
 	//if label added to list, the feature count needs to be updated
 	private void addNewLabelToAllFeatures(){
+		//room left in the count arrays
+		if (this.labels.length <= this.labelCapacity) {
+			return;
+		}
+		this.labelCapacity = LabelCounts.growCapacity(this.labelCapacity, this.labels.length);
 		Set<String> featuresKeys = this.featuresList.keySet();
 		Iterator<String> keyIterator = featuresKeys.iterator();
 		
@@ -441,6 +743,7 @@ public class NaiveBayesClassifier_UsingTextValues {
 				int[] newCounts = this.emptyLabelCountsForFeatures();
 				System.arraycopy(oldCounts, 0, newCounts, 0, oldCounts.length);
 				this.featuresList.get(feature).replace(mapKey, newCounts);
+				this.putCountsById(feature, mapKey, newCounts);
 			}
 		}
 	}
@@ -453,15 +756,8 @@ public class NaiveBayesClassifier_UsingTextValues {
 	 * @return the label index
 	 */
 	private int getLabelIndex(String valueToFind) {
-		int labelIndex = -1;
-
-		for (int index = 0; index < this.labels.length; index++) {
-			if (valueToFind.equalsIgnoreCase(this.labels[index])) {
-				labelIndex = index;
-				break;
-			}
-		}
-		return labelIndex;
+		Integer labelIndexFound = this.labelIndex.get(valueToFind.toUpperCase());
+		return (labelIndexFound == null) ? -1 : labelIndexFound;
 	}
 
 	/**
@@ -477,7 +773,10 @@ public class NaiveBayesClassifier_UsingTextValues {
 		if (featureValue.isEmpty() && !this.allowEmptySampleValues) {
 			log.logln_withClassName(Logger.lF, "Value: " + featureValue + " not accepted.");
 		} else {
-			boolean featureExists = this.featuresList.containsKey(feature.toUpperCase());
+			// normalized once
+			String featureKey = TextDictionary.normalizeFeature(feature);
+			String valueKey = TextDictionary.normalizeValue(featureValue);
+			TreeMap<String, int[]> featureValues = this.featuresList.get(featureKey);
 			int labelIndexFound = this.getLabelIndex(labelToIncrement);
 			// get the label index to update
 			// get the feature index to update the list of feature values &
@@ -485,30 +784,54 @@ public class NaiveBayesClassifier_UsingTextValues {
 			// this.updateLabels(newLabel);
 
 			// if first time, no entry in features, create map and add
-			// if feature found, and map found, update, replace
+			// if feature found, and map found, update
 			// if feature found, and no map found and put
 			// else and newfeature to amp
-			if (featureExists) {
-				if (this.featuresList.get(feature.toUpperCase()).containsKey(featureValue.toLowerCase())) {
+			if (featureValues != null) {
+				int[] labelCounts = featureValues.get(valueKey);
+				if (labelCounts != null) {
 					// update label count
-					int[] labelCounts = this.featuresList.get(feature.toUpperCase()).get(featureValue.toLowerCase());
 					labelCounts[labelIndexFound]++;
-					this.featuresList.get(feature.toUpperCase()).replace(featureValue.toLowerCase(), labelCounts);
 				} else {
 					// add new feature value
-					int[] labelCounts = this.emptyLabelCountsForFeatures();
+					labelCounts = this.emptyLabelCountsForFeatures();
 					labelCounts[labelIndexFound] = 1;
-					this.featuresList.get(feature.toUpperCase()).put(featureValue.toLowerCase(), labelCounts);
+					featureValues.put(valueKey, labelCounts);
+					this.dictionary.add(featureKey, valueKey);
+					this.putCountsById(featureKey, valueKey, labelCounts);
 				}
 			} else {
 				// no entries, create the feature and add the first map
 				int[] labelCounts = this.emptyLabelCountsForFeatures();
 				labelCounts[labelIndexFound] = 1;
-				TreeMap<String, int[]> featureValues = new TreeMap<String, int[]>();
-				featureValues.put(featureValue.toLowerCase(), labelCounts);
-				this.featuresList.put(feature.toUpperCase(), featureValues);
+				featureValues = new TreeMap<String, int[]>();
+				featureValues.put(valueKey, labelCounts);
+				this.featuresList.put(featureKey, featureValues);
+				this.dictionary.add(featureKey, valueKey);
+				this.putCountsById(featureKey, valueKey, labelCounts);
 			}
+			this.labelCounts.increment(featureKey, labelIndexFound);
+		}
+	}
+
+	/**
+	 * Keep the label count array of a fitted value at its dictionary ids.
+	 *
+	 * @param feature normalized feature name, in the dictionary
+	 * @param value normalized value, in the dictionary
+	 * @param counts the label counts of featuresList
+	 */
+	private void putCountsById(String feature, String value, int[] counts) {
+		int featureId = this.dictionary.getFeatureId(feature);
+		while (this.valueCountsById.size() <= featureId) {
+			this.valueCountsById.add(new ArrayList<int[]>());
+		}
+		ArrayList<int[]> valueCounts = this.valueCountsById.get(featureId);
+		int valueId = this.dictionary.getValueId(feature, value);
+		while (valueCounts.size() <= valueId) {
+			valueCounts.add(null);
 		}
+		valueCounts.set(valueId, counts);
 	}
 
 	/**
@@ -517,7 +840,7 @@ public class NaiveBayesClassifier_UsingTextValues {
 	 * @return the int[]
 	 */
 	private int[] emptyLabelCountsForFeatures(){
-		int[] labelCounts = new int[this.labels.length];
+		int[] labelCounts = new int[Math.max(this.labelCapacity, this.labels.length)];
 		for (int loop = 0; loop < labelCounts.length; loop++)
 			labelCounts[loop] = 0;
 		
@@ -594,7 +917,7 @@ public class NaiveBayesClassifier_UsingTextValues {
 					System.out.print(map.getKey() + "\t\t");
 				//	System.out.print(mapFloat + "\t");
 					tempLabelCount = map.getValue();
-					for (int countIndex = 0; countIndex < tempLabelCount.length; countIndex++) {
+					for (int countIndex = 0; countIndex < this.labels.length; countIndex++) {
 						System.out.print(tempLabelCount[countIndex] + "\t");					
 					}
 					System.out.print("\t");
@@ -650,72 +973,6 @@ public class NaiveBayesClassifier_UsingTextValues {
 		return map;
 	}
 
-
-	/**
-	 * Gets total number of times label has been incremented for a feature
-	 *
-	 * @param labelIndex the label index
-	 * @param trainData the train data
-	 * @return the label frequency 
-	 */
-	private int getLabelCountFromFeature(int labelIndex, SortedMap<String, int[]> trainData) {
-		int labelFrequency = 0;
-		Collection<int[]> cIndex = trainData.values();
-		Iterator<int[]> iIndex = cIndex.iterator();
-		while (iIndex.hasNext()) {
-			int[] iValues = iIndex.next();
-			labelFrequency = labelFrequency + iValues[labelIndex];
-		}
-		return labelFrequency;
-	}
-
-	/**
-	 * Sum total label counts for a feature.
-	 *
-	 * @param featureValues all the feature values for one feature
-	 * @return the total count
-	 */
-	private int getCountAllLabelsbyFeature(TreeMap<String, int[]> featureValues) {
-		int totalLabels = 0;
-
-		// count number of times all label has been incremented
-		Collection<int[]> cindex = featureValues.values();
-		Iterator<int[]> iindex = cindex.iterator();
-		while (iindex.hasNext()) {
-			int[] iValues = iindex.next();
-			for (int index = 0; index < iValues.length; index++) {
-				totalLabels = totalLabels + iValues[index];
-			}
-		}
-
-		return totalLabels;
-	}
-
-	/**
-	 * Gets the given featureIndex and treemap, return the corresponding
-	 * feature value
-	 *
-	 * @param featureMap the feature map
-	 * @param index the index
-	 * @return the feature key at index
-	 */
-	@SuppressWarnings("unused")
-	private float getFeatureValueAtIndex(TreeMap<Float, int[]> featureMap, int index) {
-		float key = 0;
-
-		int indexCount = 0;
-		for (Map.Entry<Float, int[]> entry : featureMap.entrySet()) {
-			if (indexCount == index) {
-				key = entry.getKey();
-			}
-			indexCount++;
-		}
-		return key;
-	}
-
-
-
-	
 	public int getFitCount() {
 		return this.totalFitEntries;
 	}
@@ -732,5 +989,11 @@ public class NaiveBayesClassifier_UsingTextValues {
 
 	public void setMoreTrainingData(boolean moreTrainingData) {
 		this.moreTrainingData = moreTrainingData;
+		PredictionCache<Map<String, String>, String> cache = this.predictionCache;
+		if (moreTrainingData && (cache != null) && (this.snapshot.get() == null)) {
+			// cached predictions are of the model before the new data,
+			// the published snapshot does not change until published again
+			cache.clear();
+		}
 	}
 }
@@ -0,0 +1,347 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+/**
+ * Snapshot of the NB feature value tables as flat arrays, for scoring
+ * without boxing the feature index / value or allocating per prediction.
+ * Each feature's values are kept ascending and found with a hash probe
+ * of the value index, the label counts (and ln P(d|c)) of a value are
+ * at [value * labels + label].
+ * <p>
+ * A value never fitted for the feature is scored by the unseen value
+ * policy and counted in the classifier's unseen value counts, once per
+ * sample (when scoring the first label).  With UNSEEN_VALUE_SMOOTHING a
+ * value fitted only for other labels is scored as unseen for the label.
+ * <p>
+ * Immutable once built, safe to share between threads.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - allocation free scoring, copied from the dictionary
+ * 	encoded counts, unseen value policy, zero counts smoothed
+ */
+final class NaiveBayesScoringTable {
+
+	private final float[] labels;
+	private final float[] pc;
+	private final double[] logPc;
+
+	//[feature][value]
+	private final float[][] values;
+	//[feature] value to index of values, not changed once built
+	private final FloatLabelIndex[] valueIndexes;
+	//[feature][value * labels + label]
+	private final int[][] counts;
+	private final double[][] logPd_given_c;
+	//[feature][label]
+	private final int[][] labelCountByFeature;
+
+	private final int unseenValuePolicy;
+	//[feature * labels + label] ln P(d|c) of a value never fitted
+	private final double[] logUnseen;
+	private final UnseenValueCountsByIndex unseenValueCounts;
+
+	/**
+	 * Copy the fitted values of the count table.
+	 *
+	 * @param labels the labels
+	 * @param pc P(c) of each label
+	 * @param featureCounts label counts of each feature value
+	 * @param labelCountByFeature [feature][label] number of values fitted
+	 * @param unseenValuePolicy NaiveBayesClassifier UNSEEN_VALUE_ZERO, UNSEEN_VALUE_IGNORE or UNSEEN_VALUE_SMOOTHING
+	 * @param unseenValueCounts counts of the values never fitted, shared with the classifier
+	 */
+	NaiveBayesScoringTable(float[] labels, float[] pc, DictionaryCountTable featureCounts, int[][] labelCountByFeature,
+			int unseenValuePolicy, UnseenValueCountsByIndex unseenValueCounts) {
+		int numberOfLabels = labels.length;
+		int numberOfFeatures = labelCountByFeature.length;
+		this.labels = labels;
+		this.pc = pc;
+		this.logPc = new double[numberOfLabels];
+		for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+			this.logPc[labelIndex] = Math.log(pc[labelIndex]);
+		}
+
+		this.values = new float[numberOfFeatures][];
+		this.valueIndexes = new FloatLabelIndex[numberOfFeatures];
+		this.counts = new int[numberOfFeatures][];
+		this.logPd_given_c = new double[numberOfFeatures][];
+		this.labelCountByFeature = labelCountByFeature;
+		this.unseenValuePolicy = unseenValuePolicy;
+		this.unseenValueCounts = unseenValueCounts;
+
+		this.logUnseen = new double[numberOfFeatures * numberOfLabels];
+		for (int featuresIndex = 0; featuresIndex < numberOfFeatures; featuresIndex++) {
+			int numberOfValues = featureCounts.getNumberOfFittedValues(featuresIndex);
+			for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+				this.logUnseen[(featuresIndex * numberOfLabels) + labelIndex] = Math.log(getUnseenPd_given_c(
+						unseenValuePolicy, true, labelCountByFeature[featuresIndex][labelIndex], numberOfValues));
+			}
+		}
+
+		for (int featuresIndex = 0; featuresIndex < numberOfFeatures; featuresIndex++) {
+			// ascending values
+			int[] codes = featureCounts.getSortedCodes(featuresIndex);
+			this.values[featuresIndex] = new float[codes.length];
+			this.counts[featuresIndex] = new int[codes.length * numberOfLabels];
+			this.logPd_given_c[featuresIndex] = new double[codes.length * numberOfLabels];
+			for (int valueIndex = 0; valueIndex < codes.length; valueIndex++) {
+				this.values[featuresIndex][valueIndex] = featureCounts.getValue(featuresIndex, codes[valueIndex]);
+				for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+					int index = (valueIndex * numberOfLabels) + labelIndex;
+					int count = featureCounts.getCount(featuresIndex, codes[valueIndex], labelIndex);
+					this.counts[featuresIndex][index] = count;
+					if (count != 0) {
+						this.logPd_given_c[featuresIndex][index] = getLogPd_given_c(count,
+								labelCountByFeature[featuresIndex][labelIndex], codes.length, 0);
+					} else if (unseenValuePolicy == NaiveBayesClassifier.UNSEEN_VALUE_SMOOTHING) {
+						this.logPd_given_c[featuresIndex][index] = this.logUnseen[(featuresIndex * numberOfLabels) + labelIndex];
+					} else {
+						this.logPd_given_c[featuresIndex][index] = Double.NEGATIVE_INFINITY;
+					}
+				}
+			}
+			this.valueIndexes[featuresIndex] = new FloatLabelIndex(this.values[featuresIndex]);
+		}
+	}
+
+	/**
+	 * P(d|c) of a value never fitted for the feature: 0, 1 (feature
+	 * ignored) or the Laplace probability of a value with no count,
+	 * 1 / (values fitted for the label + values of the feature).
+	 *
+	 * @param featuresIndex the feature index
+	 * @param labelIndex the label index
+	 * @return P(d|c) by the unseen value policy
+	 */
+	double getUnseenPd_given_c(int featuresIndex, int labelIndex) {
+		boolean featureFitted = (featuresIndex < this.values.length);
+		return getUnseenPd_given_c(this.unseenValuePolicy, featureFitted,
+				featureFitted ? this.labelCountByFeature[featuresIndex][labelIndex] : 0,
+				featureFitted ? this.values[featuresIndex].length : 0);
+	}
+
+	/**
+	 * ln P(d|c) with Lidstone smoothing alpha, the one calculation of the
+	 * table and the compiled models:
+	 * (count + alpha) / (N + alpha * V), negative infinity if 0.
+	 *
+	 * @param count label count of the value
+	 * @param labelCount N, values of the feature fitted for the label
+	 * @param numberOfValues V, distinct values fitted for the feature
+	 * @param smoothing alpha, 0 for none
+	 * @return ln P(d|c)
+	 */
+	static double getLogPd_given_c(int count, int labelCount, int numberOfValues, double smoothing) {
+		double denominator = labelCount + (smoothing * numberOfValues);
+		return (denominator == 0) ? Double.NEGATIVE_INFINITY : Math.log((count + smoothing) / denominator);
+	}
+
+	/**
+	 * Immutable model of this table with ln P(d|c) smoothed, a value not
+	 * fitted scores ln( alpha / (N + alpha * V) ).  The value indexes are
+	 * shared, not copied.
+	 *
+	 * @param smoothing the Lidstone smoothing alpha, 0 for none
+	 * @return the compiled model
+	 */
+	CompiledNaiveBayesModel compile(double smoothing) {
+		int numberOfLabels = this.labels.length;
+		int numberOfFeatures = this.values.length;
+		double[][] smoothedLogPd_given_c = new double[numberOfFeatures][];
+		double[] smoothedLogUnseen = new double[numberOfFeatures * numberOfLabels];
+		for (int featuresIndex = 0; featuresIndex < numberOfFeatures; featuresIndex++) {
+			int numberOfValues = this.values[featuresIndex].length;
+			int[] featureCounts = this.counts[featuresIndex];
+			double[] featureTable = new double[featureCounts.length];
+			for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+				int labelCount = this.labelCountByFeature[featuresIndex][labelIndex];
+				smoothedLogUnseen[(featuresIndex * numberOfLabels) + labelIndex] = getLogPd_given_c(0, labelCount,
+						numberOfValues, smoothing);
+				for (int valueIndex = 0; valueIndex < numberOfValues; valueIndex++) {
+					int index = (valueIndex * numberOfLabels) + labelIndex;
+					featureTable[index] = getLogPd_given_c(featureCounts[index], labelCount, numberOfValues, smoothing);
+				}
+			}
+			smoothedLogPd_given_c[featuresIndex] = featureTable;
+		}
+		return new CompiledNaiveBayesModel(this.labels.clone(), smoothing, this.logPc.clone(), this.valueIndexes,
+				smoothedLogPd_given_c, smoothedLogUnseen);
+	}
+
+	/**
+	 * P(d|c) of a value with no count for the label, by the unseen value
+	 * policy, the one calculation used by the table and the classifier.
+	 *
+	 * @param unseenValuePolicy NaiveBayesClassifier UNSEEN_VALUE_ZERO, UNSEEN_VALUE_IGNORE or UNSEEN_VALUE_SMOOTHING
+	 * @param featureFitted TRUE if the feature has been fitted
+	 * @param labelCount values of the feature fitted for the label
+	 * @param numberOfValues distinct values fitted for the feature
+	 * @return P(d|c)
+	 */
+	static double getUnseenPd_given_c(int unseenValuePolicy, boolean featureFitted, int labelCount, int numberOfValues) {
+		if (unseenValuePolicy == NaiveBayesClassifier.UNSEEN_VALUE_ZERO) {
+			return 0;
+		}
+		if ((unseenValuePolicy == NaiveBayesClassifier.UNSEEN_VALUE_IGNORE) || !featureFitted) {
+			return 1;
+		}
+		int denominator = labelCount + numberOfValues;
+		return (denominator == 0) ? 1 : 1.0 / denominator;
+	}
+
+	private double getUnseenLogPd_given_c(int featuresIndex, int labelIndex) {
+		if (featuresIndex < this.values.length) {
+			return this.logUnseen[(featuresIndex * this.labels.length) + labelIndex];
+		}
+		return Math.log(this.getUnseenPd_given_c(featuresIndex, labelIndex));
+	}
+
+	/**
+	 * P(c) * product( P(d|c) ) of each label, float arithmetic as
+	 * NaiveBayesClassifier.getProbabilityScores_TestingSet.  A value
+	 * never fitted for the feature is scored by the unseen value policy.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @param scoresOut filled with the score of each label, length must be &gt;= number of labels
+	 */
+	void getScores(float[] testingData, double[] scoresOut) {
+		for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+			scoresOut[labelIndex] = this.getScore(testingData, labelIndex);
+		}
+	}
+
+	/**
+	 * Predict the label with the greatest float score, the first label if
+	 * every score is 0 (as NaiveBayesClassifier.predict_TestingSet).
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @return the label
+	 */
+	float predict(float[] testingData) {
+		float getMax = 0;
+		int labelMax = 0;
+		for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+			float score = this.getScore(testingData, labelIndex);
+			if (score > getMax) {
+				getMax = score;
+				labelMax = labelIndex;
+			}
+		}
+		return this.labels[labelMax];
+	}
+
+	private float getScore(float[] testingData, int labelIndex) {
+		int numberOfLabels = this.labels.length;
+		// each entry equal to 1 to avoid zeroing out
+		float Pd_given_c = 1;
+		for (int testingIndex = 0; testingIndex < testingData.length; testingIndex++) {
+			int valueIndex = this.findValue(testingIndex, testingData[testingIndex]);
+			float local_Pd_given_c;
+			int count = (valueIndex >= 0) ? this.counts[testingIndex][(valueIndex * numberOfLabels) + labelIndex] : 0;
+			if ((valueIndex >= 0) && ((count != 0) || (this.unseenValuePolicy != NaiveBayesClassifier.UNSEEN_VALUE_SMOOTHING))) {
+				local_Pd_given_c = (float) count / this.labelCountByFeature[testingIndex][labelIndex];
+			} else if (valueIndex >= 0) {
+				// fitted for other labels only
+				local_Pd_given_c = (float) this.getUnseenPd_given_c(testingIndex, labelIndex);
+			} else {
+				this.countUnseen(testingIndex, labelIndex);
+				local_Pd_given_c = (float) this.getUnseenPd_given_c(testingIndex, labelIndex);
+			}
+			Pd_given_c = Pd_given_c * local_Pd_given_c;
+		}
+		return Pd_given_c * this.pc[labelIndex];
+	}
+
+	/**
+	 * ln P(c) + sum( ln P(d|c) ) of each label, negative infinity if a
+	 * value was not fitted for the label.  A value never fitted for the
+	 * feature is scored by the unseen value policy.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @param scoresOut filled with the score of each label, length must be &gt;= number of labels
+	 */
+	void getLogScores(float[] testingData, double[] scoresOut) {
+		for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+			scoresOut[labelIndex] = this.getLogScore(testingData, labelIndex);
+		}
+	}
+
+	/**
+	 * Predict the label with the greatest log score.
+	 *
+	 * @param testingData the sample values, in feature order
+	 * @return the label
+	 */
+	float predictLog(float[] testingData) {
+		int labelMax = 0;
+		double getMax = Double.NEGATIVE_INFINITY;
+		for (int labelIndex = 0; labelIndex < this.labels.length; labelIndex++) {
+			double score = this.getLogScore(testingData, labelIndex);
+			if (score > getMax) {
+				getMax = score;
+				labelMax = labelIndex;
+			}
+		}
+		return this.labels[labelMax];
+	}
+
+	private double getLogScore(float[] testingData, int labelIndex) {
+		double logPc_given_d = this.logPc[labelIndex];
+		for (int testingIndex = 0; testingIndex < testingData.length; testingIndex++) {
+			int valueIndex = this.findValue(testingIndex, testingData[testingIndex]);
+			if (valueIndex < 0) {
+				this.countUnseen(testingIndex, labelIndex);
+				logPc_given_d += this.getUnseenLogPd_given_c(testingIndex, labelIndex);
+			} else {
+				logPc_given_d += this.logPd_given_c[testingIndex][(valueIndex * this.labels.length) + labelIndex];
+			}
+		}
+		return logPc_given_d;
+	}
+
+	/**
+	 * Count a value never fitted, once per sample as every label is scored.
+	 */
+	private void countUnseen(int featuresIndex, int labelIndex) {
+		if (labelIndex == 0) {
+			this.unseenValueCounts.increment(featuresIndex);
+		}
+	}
+
+	/**
+	 * @param featuresIndex the feature index
+	 * @param value the value
+	 * @return index of the value, negative if not fitted
+	 */
+	private int findValue(int featuresIndex, float value) {
+		if (featuresIndex >= this.values.length) {
+			return -1;
+		}
+		return this.valueIndexes[featuresIndex].get(value);
+	}
+
+	float getLabel(int labelIndex) {
+		return this.labels[labelIndex];
+	}
+
+	int getNumberOfLabels() {
+		return this.labels.length;
+	}
+
+	double getLogPc(int labelIndex) {
+		return this.logPc[labelIndex];
+	}
+
+	/**
+	 * @return [feature][value], ascending, not copied
+	 */
+	float[][] getValues() {
+		return this.values;
+	}
+
+	/**
+	 * @return [feature][value * labels + label] ln P(d|c), not copied
+	 */
+	double[][] getLogPd_given_c() {
+		return this.logPd_given_c;
+	}
+}
@@ -0,0 +1,181 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+import mikera.arrayz.NDArray;
+
+/**
+ * Splits a batch of samples into chunks of rows and predicts the chunks in
+ * parallel, either as fork/join tasks or as tasks of a caller supplied executor.
+ * Results are written into a preallocated array, index matches the row.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - parallel batch prediction
+ */
+final class ParallelBatchPredictor {
+
+	/** default number of rows predicted by one task */
+	static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	/**
+	 * Predicts one sample, must be safe to call from multiple threads.
+	 */
+	interface RowPredictor {
+		double predict(float[] row);
+	}
+
+	/**
+	 * Supplies sample rows, either the row itself or copied into the buffer.
+	 */
+	private interface RowSource {
+		int getNumberOfRows();
+
+		int getNumberOfFeatures();
+
+		float[] getRow(int rowIndex, float[] buffer);
+	}
+
+	private ParallelBatchPredictor() {
+	}
+
+	/**
+	 * Predict each row of a float[][].
+	 *
+	 * @param testingData the samples [[val1, val2, ...], [val1, val2, ...], ...]
+	 * @param predictedOut predicted label for each row, length must be &gt;= number of rows
+	 * @param predictor thread safe predictor of one row
+	 * @param executor executor to run on, ForkJoinPool.commonPool() if null
+	 * @param chunkSize rows per task
+	 * @throws Exception thrown if a prediction task fails
+	 */
+	static void predict(final float[][] testingData, double[] predictedOut, RowPredictor predictor,
+			ExecutorService executor, int chunkSize) throws Exception {
+		RowSource rows = new RowSource() {
+			public int getNumberOfRows() {
+				return testingData.length;
+			}
+
+			public int getNumberOfFeatures() {
+				return (testingData.length == 0) ? 0 : testingData[0].length;
+			}
+
+			public float[] getRow(int rowIndex, float[] buffer) {
+				return testingData[rowIndex];
+			}
+		};
+		predict(rows, predictedOut, predictor, executor, chunkSize);
+	}
+
+	/**
+	 * Predict each row of an NDArray.  Each task copies its rows into a
+	 * single reused float[] instead of converting every entry.
+	 *
+	 * @param testingData the samples [[val1, val2, ...], [val1, val2, ...], ...]
+	 * @param predictedOut predicted label for each row, length must be &gt;= number of rows
+	 * @param predictor thread safe predictor of one row
+	 * @param executor executor to run on, ForkJoinPool.commonPool() if null
+	 * @param chunkSize rows per task
+	 * @throws Exception thrown if a prediction task fails
+	 */
+	static void predict(final NDArray testingData, double[] predictedOut, RowPredictor predictor,
+			ExecutorService executor, int chunkSize) throws Exception {
+		final int numberOfRows = testingData.getShape(0);
+		final int numberOfFeatures = testingData.getShape(1);
+		RowSource rows = new RowSource() {
+			public int getNumberOfRows() {
+				return numberOfRows;
+			}
+
+			public int getNumberOfFeatures() {
+				return numberOfFeatures;
+			}
+
+			public float[] getRow(int rowIndex, float[] buffer) {
+				for (int featureIndex = 0; featureIndex < numberOfFeatures; featureIndex++) {
+					buffer[featureIndex] = (float) testingData.get(rowIndex, featureIndex);
+				}
+				return buffer;
+			}
+		};
+		predict(rows, predictedOut, predictor, executor, chunkSize);
+	}
+
+	private static void predict(RowSource rows, double[] predictedOut, RowPredictor predictor,
+			ExecutorService executor, int chunkSize) throws Exception {
+		if (predictedOut.length < rows.getNumberOfRows()) {
+			throw new Exception("Prediction array size is too small: " + predictedOut.length + " vs "
+					+ rows.getNumberOfRows());
+		}
+		int rowsPerTask = Math.max(1, chunkSize);
+
+		if (executor == null) {
+			ForkJoinPool.commonPool().invoke(new PredictTask(rows, predictedOut, predictor, 0, rows.getNumberOfRows(), rowsPerTask));
+		} else if (executor instanceof ForkJoinPool) {
+			((ForkJoinPool) executor).invoke(new PredictTask(rows, predictedOut, predictor, 0, rows.getNumberOfRows(), rowsPerTask));
+		} else {
+			List<Future<?>> tasks = new ArrayList<Future<?>>();
+			for (int from = 0; from < rows.getNumberOfRows(); from += rowsPerTask) {
+				final int start = from;
+				final int end = Math.min(from + rowsPerTask, rows.getNumberOfRows());
+				final RowSource source = rows;
+				final double[] out = predictedOut;
+				final RowPredictor rowPredictor = predictor;
+				tasks.add(executor.submit(new Runnable() {
+					public void run() {
+						predictRows(source, out, rowPredictor, start, end);
+					}
+				}));
+			}
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		}
+	}
+
+	private static void predictRows(RowSource rows, double[] predictedOut, RowPredictor predictor, int from, int to) {
+		float[] buffer = new float[rows.getNumberOfFeatures()];
+		for (int rowIndex = from; rowIndex < to; rowIndex++) {
+			predictedOut[rowIndex] = predictor.predict(rows.getRow(rowIndex, buffer));
+		}
+	}
+
+	/**
+	 * Splits the row range in half until it is no larger than the chunk size.
+	 */
+	private static class PredictTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -4218832167032155716L;
+
+		private final RowSource rows;
+		private final double[] predictedOut;
+		private final RowPredictor predictor;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+
+		PredictTask(RowSource rows, double[] predictedOut, RowPredictor predictor, int from, int to, int chunkSize) {
+			this.rows = rows;
+			this.predictedOut = predictedOut;
+			this.predictor = predictor;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected void compute() {
+			if ((this.to - this.from) <= this.chunkSize) {
+				predictRows(this.rows, this.predictedOut, this.predictor, this.from, this.to);
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new PredictTask(this.rows, this.predictedOut, this.predictor, this.from, middle, this.chunkSize),
+						new PredictTask(this.rows, this.predictedOut, this.predictor, middle, this.to, this.chunkSize));
+			}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Predictions of the samples scored most recently, so a sample scored
+ * again is not looked up in the feature tables again.  Least recently
+ * used entries are evicted once maxEntries are cached.  Cleared by the
+ * classifier whenever it has more training data.
+ * <p>
+ * Thread safe, all access is synchronized.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - LRU prediction cache, generation checked put
+ *
+ * @param <K> the sample key, must not change once put
+ * @param <V> the prediction
+ */
+final class PredictionCache<K, V> {
+
+	private final int maxEntries;
+	private final LinkedHashMap<K, V> entries;
+	private long hits = 0;
+	private long misses = 0;
+	//incremented by clear
+	private long generation = 0;
+
+	/**
+	 * @param maxEntries number of predictions kept, &gt; 0
+	 */
+	PredictionCache(final int maxEntries) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("Prediction cache size must be > 0: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+		//access order, eldest is least recently used
+		this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return this.size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @param key the sample
+	 * @return the prediction, null if not cached (a miss)
+	 */
+	synchronized V get(Object key) {
+		V value = this.entries.get(key);
+		if (value == null) {
+			this.misses++;
+		} else {
+			this.hits++;
+		}
+		return value;
+	}
+
+	synchronized void put(K key, V value) {
+		this.entries.put(key, value);
+	}
+
+	/**
+	 * Put a prediction only if the cache has not been cleared since
+	 * the generation was read.  Read the generation before the model
+	 * is read, a prediction of a model replaced (and the cache cleared)
+	 * while scoring is then not kept.
+	 *
+	 * @param key the sample
+	 * @param value the prediction
+	 * @param generation getGeneration() read before the model
+	 */
+	synchronized void put(K key, V value, long generation) {
+		if (generation == this.generation) {
+			this.entries.put(key, value);
+		}
+	}
+
+	/**
+	 * @return number of times the cache was cleared
+	 */
+	synchronized long getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * Remove all predictions, the hit and miss counts are kept.
+	 */
+	synchronized void clear() {
+		this.entries.clear();
+		this.generation++;
+	}
+
+	synchronized long getHits() {
+		return this.hits;
+	}
+
+	synchronized long getMisses() {
+		return this.misses;
+	}
+
+	synchronized int size() {
+		return this.entries.size();
+	}
+
+	int getMaxEntries() {
+		return this.maxEntries;
+	}
+}
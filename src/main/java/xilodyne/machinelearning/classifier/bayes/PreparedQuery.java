@@ -0,0 +1,77 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Text NB testing data with each feature name and value normalized
+ * once and looked up in the classifier's dictionary, created by
+ * {@link NaiveBayesClassifier_UsingTextValues#prepareQuery(Map)} to be
+ * scored many times without converting or hashing the strings again.
+ * <p>
+ * Names and values not fitted when the query is prepared are scored as
+ * unseen, prepare the query again to pick up values fitted later.
+ * Immutable, safe to share between threads.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - prepared text NB query
+ */
+public final class PreparedQuery {
+
+	private final TextDictionary dictionary;
+	//upper case, in the iteration order of the testing data
+	private final String[] features;
+	//lower case
+	private final String[] values;
+	//-1 if not fitted
+	private final int[] featureIds;
+	private final int[] valueIds;
+
+	PreparedQuery(TextDictionary dictionary, Map<String, String> testingData) {
+		int size = testingData.size();
+		this.dictionary = dictionary;
+		this.features = new String[size];
+		this.values = new String[size];
+		this.featureIds = new int[size];
+		this.valueIds = new int[size];
+
+		int index = 0;
+		Iterator<Entry<String, String>> entries = testingData.entrySet().iterator();
+		while (entries.hasNext()) {
+			Entry<String, String> entry = entries.next();
+			this.features[index] = TextDictionary.normalizeFeature(entry.getKey());
+			this.values[index] = TextDictionary.normalizeValue(entry.getValue());
+			this.featureIds[index] = dictionary.getFeatureId(this.features[index]);
+			this.valueIds[index] = dictionary.getValueId(this.features[index], this.values[index]);
+			index++;
+		}
+	}
+
+	/**
+	 * @return number of feature values in the query
+	 */
+	public int getNumberOfFeatures() {
+		return this.features.length;
+	}
+
+	TextDictionary getDictionary() {
+		return this.dictionary;
+	}
+
+	String getFeature(int index) {
+		return this.features[index];
+	}
+
+	String getValue(int index) {
+		return this.values[index];
+	}
+
+	int getFeatureId(int index) {
+		return this.featureIds[index];
+	}
+
+	int getValueId(int index) {
+		return this.valueIds[index];
+	}
+}
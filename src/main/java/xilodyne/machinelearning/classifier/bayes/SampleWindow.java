@@ -0,0 +1,72 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.io.Serializable;
+
+/**
+ * The last N samples fitted, oldest first out.  Rows are copied into
+ * arrays that are reused once the window is full.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - sliding window
+ */
+class SampleWindow implements Serializable {
+
+	private static final long serialVersionUID = 5820383725907128817L;
+
+	private final float[][] rows;
+	private final float[] labels;
+
+	//slot of the oldest sample, next to be replaced
+	private int oldest = 0;
+	private int size = 0;
+
+	/**
+	 * @param samples number of samples kept, &gt; 0
+	 */
+	SampleWindow(int samples) {
+		this.rows = new float[samples][];
+		this.labels = new float[samples];
+	}
+
+	/**
+	 * @return TRUE if the next sample added replaces the oldest
+	 */
+	boolean isFull() {
+		return this.size == this.rows.length;
+	}
+
+	/**
+	 * @return values of the oldest sample, only valid if full
+	 */
+	float[] getOldestRow() {
+		return this.rows[this.oldest];
+	}
+
+	/**
+	 * @return label of the oldest sample, only valid if full
+	 */
+	float getOldestLabel() {
+		return this.labels[this.oldest];
+	}
+
+	/**
+	 * Add a copy of the sample, replacing the oldest if full.
+	 *
+	 * @param row the sample values
+	 * @param label the label
+	 */
+	void add(float[] row, float label) {
+		int slot = (this.oldest + this.size) % this.rows.length;
+		if (this.isFull()) {
+			slot = this.oldest;
+			this.oldest = (this.oldest + 1) % this.rows.length;
+		} else {
+			this.size++;
+		}
+		if ((this.rows[slot] == null) || (this.rows[slot].length != row.length)) {
+			this.rows[slot] = new float[row.length];
+		}
+		System.arraycopy(row, 0, this.rows[slot], 0, row.length);
+		this.labels[slot] = label;
+	}
+}
@@ -0,0 +1,29 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+/**
+ * One feature at a time, available on every JVM.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - scoring kernels
+ */
+final class ScalarGaussianKernel implements GaussianScoringKernel {
+
+	public double getLogScore(float[] testingData, int features, int offset, double logPrior, double[] mean,
+			double[] logNormalizer, double[] inverseTwoVariance, boolean ignoreEmptyValues) {
+		double score = logPrior;
+
+		for (int featureIndex = 0; featureIndex < features; featureIndex++) {
+			float value = testingData[featureIndex];
+			if ((value == GaussianNaiveBayesClassifier.NaN) || ((value == 0) && ignoreEmptyValues)) {
+				continue;
+			}
+			double diff = value - mean[offset + featureIndex];
+			score += logNormalizer[offset + featureIndex] - (diff * diff * inverseTwoVariance[offset + featureIndex]);
+		}
+		return score;
+	}
+
+	public String getName() {
+		return CompiledGaussianModel.SCORING_SCALAR;
+	}
+}
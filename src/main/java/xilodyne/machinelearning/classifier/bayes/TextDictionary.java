@@ -0,0 +1,92 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Feature names (upper case) and values (lower case) of the text NB,
+ * each normalized once and given a dense int id, values numbered per
+ * feature.  Ids never change once given.
+ * <p>
+ * Only the fitting thread adds names and values, any thread can look
+ * up ids without locking.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - interned feature names and values
+ */
+final class TextDictionary {
+
+	//upper case feature name, feature id
+	private final ConcurrentHashMap<String, Integer> featureIds = new ConcurrentHashMap<String, Integer>();
+	//upper case feature name, lower case value, value id
+	private final ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>> valueIds = new ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>>();
+
+	/**
+	 * @param featureName the feature name
+	 * @return the name as it is stored, upper case
+	 */
+	static String normalizeFeature(String featureName) {
+		return featureName.toUpperCase();
+	}
+
+	/**
+	 * @param featureValue the feature value
+	 * @return the value as it is stored, lower case
+	 */
+	static String normalizeValue(String featureValue) {
+		return featureValue.toLowerCase();
+	}
+
+	/**
+	 * Give the feature and value ids if new, fitting thread only.
+	 *
+	 * @param feature normalized feature name
+	 * @param value normalized value
+	 */
+	void add(String feature, String value) {
+		ConcurrentHashMap<String, Integer> values = this.valueIds.get(feature);
+		if (values == null) {
+			values = new ConcurrentHashMap<String, Integer>();
+			this.valueIds.put(feature, values);
+			this.featureIds.put(feature, this.featureIds.size());
+		}
+		if (!values.containsKey(value)) {
+			values.put(value, values.size());
+		}
+	}
+
+	/**
+	 * @param feature normalized feature name
+	 * @return the feature id, -1 if not fitted
+	 */
+	int getFeatureId(String feature) {
+		Integer featureId = this.featureIds.get(feature);
+		return (featureId == null) ? -1 : featureId;
+	}
+
+	/**
+	 * @param feature normalized feature name
+	 * @param value normalized value
+	 * @return the value id within the feature, -1 if not fitted
+	 */
+	int getValueId(String feature, String value) {
+		ConcurrentHashMap<String, Integer> values = this.valueIds.get(feature);
+		if (values == null) {
+			return -1;
+		}
+		Integer valueId = values.get(value);
+		return (valueId == null) ? -1 : valueId;
+	}
+
+	int getNumberOfFeatures() {
+		return this.featureIds.size();
+	}
+
+	/**
+	 * @param feature normalized feature name
+	 * @return number of value ids of the feature, 0 if not fitted
+	 */
+	int getNumberOfValues(String feature) {
+		ConcurrentHashMap<String, Integer> values = this.valueIds.get(feature);
+		return (values == null) ? 0 : values.size();
+	}
+}
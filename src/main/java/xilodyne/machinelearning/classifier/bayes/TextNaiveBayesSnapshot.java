@@ -0,0 +1,172 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.util.Map;
+
+/**
+ * Copy of the text NB feature value counts, published to prediction
+ * threads by {@link NaiveBayesClassifier_UsingTextValues#publishSnapshot()}.
+ * Never changed once built, so it is read without locks while the
+ * classifier keeps fitting.
+ * <p>
+ * Scores are the float P(c) * product( P(d|c) ) of the classifier,
+ * each label multiplied in the iteration order of the testing data.
+ * Feature tables and value counts are arrays indexed by the
+ * {@link TextDictionary} ids, a {@link PreparedQuery} is scored without
+ * any string hashing.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - immutable snapshot for lock free prediction, indexed
+ * 	by dictionary id
+ */
+final class TextNaiveBayesSnapshot {
+
+	private final String[] labels;
+	private final float[] pc;
+	private final TextDictionary dictionary;
+	//[feature id], null if the feature was fitted after the snapshot
+	private final FeatureTable[] features;
+
+	private final int unseenValuePolicy;
+	private final UnseenValueCounts<String> unseenValueCounts;
+
+	/**
+	 * Label counts of the values of one feature.
+	 */
+	static final class FeatureTable {
+		//[value id] count of each label
+		private final int[][] valueCounts;
+		//values fitted for each label
+		private final int[] labelCounts;
+
+		FeatureTable(int[][] valueCounts, int[] labelCounts) {
+			this.valueCounts = valueCounts;
+			this.labelCounts = labelCounts;
+		}
+
+		private int[] getCounts(int valueId) {
+			return ((valueId == -1) || (valueId >= this.valueCounts.length)) ? null : this.valueCounts[valueId];
+		}
+	}
+
+	/**
+	 * Instantiates a new snapshot, maps and arrays are not copied.
+	 *
+	 * @param labels the labels (upper case), index matches the counts
+	 * @param pc P(c) of each label
+	 * @param dictionary ids of the feature names and values
+	 * @param features feature tables by feature id
+	 * @param unseenValuePolicy UNSEEN_VALUE_ZERO, UNSEEN_VALUE_IGNORE or UNSEEN_VALUE_SMOOTHING
+	 * @param unseenValueCounts counts of the values never fitted, shared with the classifier
+	 */
+	TextNaiveBayesSnapshot(String[] labels, float[] pc, TextDictionary dictionary, FeatureTable[] features,
+			int unseenValuePolicy, UnseenValueCounts<String> unseenValueCounts) {
+		this.labels = labels;
+		this.pc = pc;
+		this.dictionary = dictionary;
+		this.features = features;
+		this.unseenValuePolicy = unseenValuePolicy;
+		this.unseenValueCounts = unseenValueCounts;
+	}
+
+	/**
+	 * The same counts scored by another unseen value policy, nothing
+	 * fitted after this snapshot is included.
+	 *
+	 * @param policy UNSEEN_VALUE_ZERO, UNSEEN_VALUE_IGNORE or UNSEEN_VALUE_SMOOTHING
+	 * @return the new snapshot, arrays are shared
+	 */
+	TextNaiveBayesSnapshot withUnseenValuePolicy(int policy) {
+		return new TextNaiveBayesSnapshot(this.labels, this.pc, this.dictionary, this.features, policy,
+				this.unseenValueCounts);
+	}
+
+	/**
+	 * P(c) * product( P(d|c) ) of each label.
+	 *
+	 * @param testingData feature name, value
+	 * @return score of each label
+	 */
+	float[] getScores(Map<String, String> testingData) {
+		return this.getScores(new PreparedQuery(this.dictionary, testingData));
+	}
+
+	/**
+	 * P(c) * product( P(d|c) ) of each label.
+	 *
+	 * @param query the testing data, prepared with the classifier's dictionary
+	 * @return score of each label
+	 */
+	float[] getScores(PreparedQuery query) {
+		int numberOfLabels = this.labels.length;
+		float[] labelScores = new float[numberOfLabels];
+		for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+			// each entry equal to 1 to avoid zeroing out
+			labelScores[labelIndex] = 1;
+		}
+
+		for (int index = 0; index < query.getNumberOfFeatures(); index++) {
+			int featureId = query.getFeatureId(index);
+			FeatureTable table = ((featureId == -1) || (featureId >= this.features.length)) ? null : this.features[featureId];
+			int[] counts = (table == null) ? null : table.getCounts(query.getValueId(index));
+			if (counts == null) {
+				this.unseenValueCounts.increment(query.getFeature(index));
+			}
+			for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+				float Pd_given_c = ((counts == null) || ((counts[labelIndex] == 0)
+						&& (this.unseenValuePolicy == NaiveBayesClassifier_UsingTextValues.UNSEEN_VALUE_SMOOTHING)))
+						? this.getUnseenPd_given_c(table, labelIndex)
+						: (float) counts[labelIndex] / table.labelCounts[labelIndex];
+				labelScores[labelIndex] = labelScores[labelIndex] * Pd_given_c;
+			}
+		}
+
+		for (int labelIndex = 0; labelIndex < numberOfLabels; labelIndex++) {
+			labelScores[labelIndex] = labelScores[labelIndex] * this.pc[labelIndex];
+		}
+		return labelScores;
+	}
+
+	/**
+	 * Label with the greatest score, the first label if every score is 0.
+	 *
+	 * @param testingData feature name, value
+	 * @return the label
+	 */
+	String predict(Map<String, String> testingData) {
+		return this.predict(new PreparedQuery(this.dictionary, testingData));
+	}
+
+	/**
+	 * Label with the greatest score, the first label if every score is 0.
+	 *
+	 * @param query the testing data, prepared with the classifier's dictionary
+	 * @return the label
+	 */
+	String predict(PreparedQuery query) {
+		float[] results = this.getScores(query);
+		float getMax = 0;
+		int labelMax = 0;
+		for (int index = 0; index < this.labels.length; index++) {
+			if (results[index] > getMax) {
+				getMax = results[index];
+				labelMax = index;
+			}
+		}
+		return this.labels[labelMax];
+	}
+
+	private float getUnseenPd_given_c(FeatureTable table, int labelIndex) {
+		if (this.unseenValuePolicy == NaiveBayesClassifier_UsingTextValues.UNSEEN_VALUE_ZERO) {
+			return 0;
+		}
+		if ((this.unseenValuePolicy == NaiveBayesClassifier_UsingTextValues.UNSEEN_VALUE_IGNORE) || (table == null)) {
+			return 1;
+		}
+		int denominator = table.labelCounts[labelIndex] + table.valueCounts.length;
+		return (denominator == 0) ? 1 : 1f / denominator;
+	}
+
+	int getNumberOfLabels() {
+		return this.labels.length;
+	}
+}
@@ -0,0 +1,80 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of values scored that were never fitted, by feature.  Counted
+ * on the prediction path without locking, threads predicting at the
+ * same time add to separate cells of the feature's LongAdder.
+ *
+ * @param <K> feature key, the text NB feature name
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - unseen value counters
+ */
+final class UnseenValueCounts<K extends Comparable<K>> {
+
+	private final ConcurrentHashMap<K, LongAdder> countByFeature = new ConcurrentHashMap<K, LongAdder>();
+
+	/**
+	 * One value of the feature scored that was never fitted.
+	 *
+	 * @param feature the feature
+	 */
+	void increment(K feature) {
+		LongAdder count = this.countByFeature.get(feature);
+		if (count == null) {
+			LongAdder added = new LongAdder();
+			count = this.countByFeature.putIfAbsent(feature, added);
+			if (count == null) {
+				count = added;
+			}
+		}
+		count.increment();
+	}
+
+	/**
+	 * @param feature the feature
+	 * @return number of values of the feature never fitted, 0 if none
+	 */
+	long get(K feature) {
+		LongAdder count = this.countByFeature.get(feature);
+		return (count == null) ? 0 : count.sum();
+	}
+
+	/**
+	 * @return copy of the counts, features with no unseen values are not included
+	 */
+	SortedMap<K, Long> getCounts() {
+		SortedMap<K, Long> counts = new TreeMap<K, Long>();
+		Iterator<Entry<K, LongAdder>> entries = this.countByFeature.entrySet().iterator();
+		while (entries.hasNext()) {
+			Entry<K, LongAdder> entry = entries.next();
+			counts.put(entry.getKey(), entry.getValue().sum());
+		}
+		return counts;
+	}
+
+	/**
+	 * @return number of values never fitted, all features
+	 */
+	long getTotal() {
+		long total = 0;
+		Iterator<LongAdder> counts = this.countByFeature.values().iterator();
+		while (counts.hasNext()) {
+			total += counts.next().sum();
+		}
+		return total;
+	}
+
+	/**
+	 * Set every count to 0.
+	 */
+	void reset() {
+		this.countByFeature.clear();
+	}
+}
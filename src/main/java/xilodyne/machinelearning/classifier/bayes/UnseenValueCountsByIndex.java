@@ -0,0 +1,92 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of values scored that were never fitted, by feature index.  A
+ * LongAdder per feature in an array, counted on the prediction path
+ * without boxing the index or locking, threads predicting at the same
+ * time add to separate cells of the feature's LongAdder.  The array is
+ * only replaced (under lock) when a higher feature index is counted.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - unseen value counters indexed by feature
+ */
+final class UnseenValueCountsByIndex {
+
+	//[feature], replaced when grown
+	private volatile LongAdder[] countByFeature = new LongAdder[0];
+
+	/**
+	 * One value of the feature scored that was never fitted.
+	 *
+	 * @param featureIndex the feature index
+	 */
+	void increment(int featureIndex) {
+		LongAdder[] counts = this.countByFeature;
+		if (featureIndex >= counts.length) {
+			counts = this.grow(featureIndex + 1);
+		}
+		counts[featureIndex].increment();
+	}
+
+	private synchronized LongAdder[] grow(int numberOfFeatures) {
+		LongAdder[] counts = this.countByFeature;
+		if (numberOfFeatures > counts.length) {
+			LongAdder[] newCounts = new LongAdder[Math.max(numberOfFeatures, counts.length * 2)];
+			System.arraycopy(counts, 0, newCounts, 0, counts.length);
+			for (int featureIndex = counts.length; featureIndex < newCounts.length; featureIndex++) {
+				newCounts[featureIndex] = new LongAdder();
+			}
+			this.countByFeature = newCounts;
+			counts = newCounts;
+		}
+		return counts;
+	}
+
+	/**
+	 * @param featureIndex the feature index
+	 * @return number of values of the feature never fitted, 0 if none
+	 */
+	long get(int featureIndex) {
+		LongAdder[] counts = this.countByFeature;
+		return (featureIndex < counts.length) ? counts[featureIndex].sum() : 0;
+	}
+
+	/**
+	 * @return copy of the counts, features with no unseen values are not included
+	 */
+	SortedMap<Integer, Long> getCounts() {
+		SortedMap<Integer, Long> counts = new TreeMap<Integer, Long>();
+		LongAdder[] countByFeature = this.countByFeature;
+		for (int featureIndex = 0; featureIndex < countByFeature.length; featureIndex++) {
+			long count = countByFeature[featureIndex].sum();
+			if (count != 0) {
+				counts.put(featureIndex, count);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * @return number of values never fitted, all features
+	 */
+	long getTotal() {
+		long total = 0;
+		for (LongAdder count : this.countByFeature) {
+			total += count.sum();
+		}
+		return total;
+	}
+
+	/**
+	 * Set every count to 0.
+	 */
+	void reset() {
+		for (LongAdder count : this.countByFeature) {
+			count.reset();
+		}
+	}
+}
@@ -0,0 +1,461 @@
+package xilodyne.machinelearning.classifier.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import xilodyne.machinelearning.classifier.bayes.GaussianNaiveBayesClassifier;
+import xilodyne.machinelearning.classifier.bayes.NaiveBayesClassifier;
+import xilodyne.util.logger.Logger;
+
+/**
+ * k fold cross validation with one pass over the training data.
+ * <p>
+ * Each sample is fitted once, into a partial classifier of its fold.
+ * The partials are merged into the classifier given (all samples), the
+ * model of fold k is then all samples minus partial k, see
+ * {@link GaussianNaiveBayesClassifier#unmerge(GaussianNaiveBayesClassifier)},
+ * so the other folds are not fitted again for each fold.  Fold models are
+ * formed in parallel, the samples are scored in one more pass.
+ *
+ * <pre>
+ * CrossValidation cv = new CrossValidation(10);
+ * reader.setFolds(10, seed);
+ * cv.fit(reader, gnb);
+ * reader = ... //same file, same folds and seed
+ * FoldResult[] results = cv.score(reader, executor);
+ * </pre>
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - single pass cross validation
+ */
+public class CrossValidation {
+
+	private Logger log = new Logger("cv");
+
+	private final int folds;
+	private final int batchSamples;
+
+	private FoldModels models = null;
+	private long[] samplesPerFold;
+	private long dataMillis = 0;
+
+	/**
+	 * @param folds number of folds, &gt; 1
+	 */
+	public CrossValidation(int folds) {
+		this(folds, StreamingTrainer.DEFAULT_BATCH_SAMPLES);
+	}
+
+	/**
+	 * @param folds number of folds, &gt; 1
+	 * @param batchSamples samples of a fold copied into one GNB fitRows call, &gt; 0
+	 */
+	public CrossValidation(int folds, int batchSamples) {
+		if (folds < 2) {
+			throw new IllegalArgumentException("Number of folds must be > 1: " + folds);
+		}
+		if (batchSamples <= 0) {
+			throw new IllegalArgumentException("Batch samples must be > 0: " + batchSamples);
+		}
+		this.folds = folds;
+		this.batchSamples = batchSamples;
+	}
+
+	/**
+	 * Assign samples the folds a SampleFileReader assigns with the same
+	 * folds and seed.
+	 *
+	 * @param samples number of samples
+	 * @param folds number of folds, &gt; 0
+	 * @param seed the random seed
+	 * @return fold of each sample
+	 */
+	public static int[] assignFolds(int samples, int folds, long seed) {
+		if (folds <= 0) {
+			throw new IllegalArgumentException("Number of folds must be > 0: " + folds);
+		}
+		Random random = new Random(seed);
+		int[] sampleFolds = new int[samples];
+		for (int index = 0; index < samples; index++) {
+			sampleFolds[index] = random.nextInt(folds);
+		}
+		return sampleFolds;
+	}
+
+	/**
+	 * Fit every sample of the reader, once.  gnb holds all samples
+	 * when done.  The reader is read to the end, not closed.
+	 *
+	 * @param reader the samples, folds set to the number of folds
+	 * @param gnb the classifier, not fitted
+	 * @throws Exception thrown when the file can not be read or the number of features differs
+	 */
+	public void fit(SampleFileReader reader, GaussianNaiveBayesClassifier gnb) throws Exception {
+		this.checkFolds(reader);
+		this.fit(reader, new GaussianFolds(gnb, this.folds, this.batchSamples));
+	}
+
+	/**
+	 * Fit every sample of the reader, once.  nb holds all samples
+	 * when done.  The reader is read to the end, not closed.
+	 *
+	 * @param reader the samples, folds set to the number of folds
+	 * @param nb the classifier, not fitted
+	 * @throws Exception thrown when the file can not be read or the number of features differs
+	 */
+	public void fit(SampleFileReader reader, NaiveBayesClassifier nb) throws Exception {
+		this.checkFolds(reader);
+		this.fit(reader, new NaiveBayesFolds(nb, this.folds));
+	}
+
+	/**
+	 * Fit every sample, once.  gnb holds all samples when done.
+	 *
+	 * @param samples the sample values
+	 * @param labels label of each sample
+	 * @param sampleFolds fold of each sample, 0 to folds - 1
+	 * @param gnb the classifier, not fitted
+	 * @throws Exception thrown when the number of features differs
+	 */
+	public void fit(float[][] samples, float[] labels, int[] sampleFolds, GaussianNaiveBayesClassifier gnb) throws Exception {
+		this.fit(samples, labels, sampleFolds, new GaussianFolds(gnb, this.folds, this.batchSamples));
+	}
+
+	/**
+	 * Fit every sample, once.  nb holds all samples when done.
+	 *
+	 * @param samples the sample values
+	 * @param labels label of each sample
+	 * @param sampleFolds fold of each sample, 0 to folds - 1
+	 * @param nb the classifier, not fitted
+	 * @throws Exception thrown when the number of features differs
+	 */
+	public void fit(float[][] samples, float[] labels, int[] sampleFolds, NaiveBayesClassifier nb) throws Exception {
+		this.fit(samples, labels, sampleFolds, new NaiveBayesFolds(nb, this.folds));
+	}
+
+	private void fit(SampleFileReader reader, FoldModels foldModels) throws Exception {
+		long start = System.currentTimeMillis();
+		long[] counts = new long[this.folds];
+		while (reader.next()) {
+			foldModels.add(reader.getFold(), reader.getValues(), reader.getLabel());
+			counts[reader.getFold()]++;
+		}
+		this.endFit(foldModels, counts, start);
+	}
+
+	private void fit(float[][] samples, float[] labels, int[] sampleFolds, FoldModels foldModels) throws Exception {
+		if ((samples.length != labels.length) || (samples.length != sampleFolds.length)) {
+			throw new IllegalArgumentException("Samples, labels and folds differ in length: " + samples.length
+					+ ", " + labels.length + ", " + sampleFolds.length);
+		}
+		long start = System.currentTimeMillis();
+		long[] counts = new long[this.folds];
+		for (int index = 0; index < samples.length; index++) {
+			int fold = this.checkFold(sampleFolds[index]);
+			foldModels.add(fold, samples[index], labels[index]);
+			counts[fold]++;
+		}
+		this.endFit(foldModels, counts, start);
+	}
+
+	private void endFit(FoldModels foldModels, long[] counts, long start) throws Exception {
+		foldModels.mergeFolds();
+		this.models = foldModels;
+		this.samplesPerFold = counts;
+		this.dataMillis = System.currentTimeMillis() - start;
+		log.logln(Logger.lI, "Fitted " + this.getSamplesFitted() + " samples into " + this.folds + " folds");
+	}
+
+	/**
+	 * Score each sample of the reader with the model of the other folds.
+	 * The reader is read to the end, not closed.
+	 *
+	 * @param reader the samples fitted, same folds and seed
+	 * @param executor executor forming the fold models on, ForkJoinPool.commonPool() if null
+	 * @return result of each fold
+	 * @throws Exception thrown when the file can not be read
+	 */
+	public FoldResult[] score(SampleFileReader reader, ExecutorService executor) throws Exception {
+		this.checkFolds(reader);
+		long[] fitMillis = new long[this.folds];
+		FoldPredictor[] predictors = this.getFoldModels(executor, fitMillis);
+
+		long[] predicted = new long[this.folds];
+		long[] correct = new long[this.folds];
+		long[] predictNanos = new long[this.folds];
+		double[] scores = new double[this.models.getNumberOfLabels()];
+		while (reader.next()) {
+			int fold = reader.getFold();
+			long start = System.nanoTime();
+			double label = predictors[fold].predictInto(reader.getValues(), scores);
+			predictNanos[fold] += System.nanoTime() - start;
+			predicted[fold]++;
+			if ((float) label == reader.getLabel()) {
+				correct[fold]++;
+			}
+		}
+
+		FoldResult[] results = new FoldResult[this.folds];
+		for (int fold = 0; fold < this.folds; fold++) {
+			results[fold] = this.getResult(fold, predicted[fold], correct[fold], fitMillis[fold], predictNanos[fold] / 1000000);
+		}
+		return results;
+	}
+
+	/**
+	 * Score each sample with the model of the other folds, the folds
+	 * are scored in parallel.
+	 *
+	 * @param samples the samples fitted
+	 * @param labels label of each sample
+	 * @param sampleFolds fold of each sample
+	 * @param executor executor to run on, ForkJoinPool.commonPool() if null
+	 * @return result of each fold
+	 * @throws Exception thrown when a fold model can not be formed
+	 */
+	public FoldResult[] score(final float[][] samples, final float[] labels, int[] sampleFolds, ExecutorService executor) throws Exception {
+		if ((samples.length != labels.length) || (samples.length != sampleFolds.length)) {
+			throw new IllegalArgumentException("Samples, labels and folds differ in length: " + samples.length
+					+ ", " + labels.length + ", " + sampleFolds.length);
+		}
+		final long[] fitMillis = new long[this.folds];
+		final FoldPredictor[] predictors = this.getFoldModels(executor, fitMillis);
+		final int[][] foldSamples = this.getFoldSamples(sampleFolds);
+		final int numberOfLabels = this.models.getNumberOfLabels();
+
+		List<Callable<FoldResult>> tasks = new ArrayList<Callable<FoldResult>>();
+		for (int fold = 0; fold < this.folds; fold++) {
+			final int scoredFold = fold;
+			tasks.add(new Callable<FoldResult>() {
+				public FoldResult call() {
+					long start = System.currentTimeMillis();
+					double[] scores = new double[numberOfLabels];
+					long correct = 0;
+					for (int index : foldSamples[scoredFold]) {
+						if ((float) predictors[scoredFold].predictInto(samples[index], scores) == labels[index]) {
+							correct++;
+						}
+					}
+					return getResult(scoredFold, foldSamples[scoredFold].length, correct,
+							fitMillis[scoredFold], System.currentTimeMillis() - start);
+				}
+			});
+		}
+		FoldResult[] results = new FoldResult[this.folds];
+		int fold = 0;
+		for (Future<FoldResult> task : Workers.submit(executor, tasks)) {
+			results[fold++] = Workers.getResult(task);
+		}
+		return results;
+	}
+
+	/**
+	 * Form the model of each fold in parallel.
+	 *
+	 * @param fitMillis set to the time forming each model
+	 */
+	private FoldPredictor[] getFoldModels(ExecutorService executor, final long[] fitMillis) throws Exception {
+		if (this.models == null) {
+			throw new IllegalStateException("Cross validation has not been fitted.");
+		}
+		List<Callable<FoldPredictor>> tasks = new ArrayList<Callable<FoldPredictor>>();
+		for (int fold = 0; fold < this.folds; fold++) {
+			final int modelFold = fold;
+			tasks.add(new Callable<FoldPredictor>() {
+				public FoldPredictor call() throws Exception {
+					long start = System.currentTimeMillis();
+					FoldPredictor predictor = models.getFoldModel(modelFold);
+					fitMillis[modelFold] = System.currentTimeMillis() - start;
+					return predictor;
+				}
+			});
+		}
+		FoldPredictor[] predictors = new FoldPredictor[this.folds];
+		int fold = 0;
+		for (Future<FoldPredictor> task : Workers.submit(executor, tasks)) {
+			predictors[fold++] = Workers.getResult(task);
+		}
+		return predictors;
+	}
+
+	private int[][] getFoldSamples(int[] sampleFolds) {
+		int[] counts = new int[this.folds];
+		for (int fold : sampleFolds) {
+			counts[this.checkFold(fold)]++;
+		}
+		int[][] foldSamples = new int[this.folds][];
+		for (int fold = 0; fold < this.folds; fold++) {
+			foldSamples[fold] = new int[counts[fold]];
+			counts[fold] = 0;
+		}
+		for (int index = 0; index < sampleFolds.length; index++) {
+			int fold = sampleFolds[index];
+			foldSamples[fold][counts[fold]++] = index;
+		}
+		return foldSamples;
+	}
+
+	private FoldResult getResult(int fold, long predicted, long correct, long fitMillis, long predictMillis) {
+		FoldResult result = new FoldResult(fold, this.getSamplesFitted() - this.samplesPerFold[fold], predicted, correct,
+				this.dataMillis, fitMillis, predictMillis);
+		log.logln(Logger.lI, result.toString());
+		return result;
+	}
+
+	private void checkFolds(SampleFileReader reader) {
+		if (reader.getFolds() != this.folds) {
+			throw new IllegalArgumentException("Reader folds " + reader.getFolds() + " differ from " + this.folds);
+		}
+	}
+
+	private int checkFold(int fold) {
+		if ((fold < 0) || (fold >= this.folds)) {
+			throw new IllegalArgumentException("Fold out of range: " + fold);
+		}
+		return fold;
+	}
+
+	/**
+	 * @return number of folds
+	 */
+	public int getFolds() {
+		return this.folds;
+	}
+
+	/**
+	 * @return number of samples fitted, all folds
+	 */
+	public long getSamplesFitted() {
+		long samples = 0;
+		if (this.samplesPerFold != null) {
+			for (long count : this.samplesPerFold) {
+				samples += count;
+			}
+		}
+		return samples;
+	}
+
+	/**
+	 * @return time of the pass fitting all folds
+	 */
+	public long getDataMillis() {
+		return this.dataMillis;
+	}
+
+	/**
+	 * A fold model, all samples minus one fold.
+	 */
+	private interface FoldPredictor {
+		double predictInto(float[] values, double[] scores);
+	}
+
+	/**
+	 * Partial classifier of each fold and the classifier of all samples.
+	 */
+	private interface FoldModels {
+		void add(int fold, float[] values, float label) throws Exception;
+
+		/** merge the partials into the classifier of all samples */
+		void mergeFolds() throws Exception;
+
+		/** safe to call for different folds at the same time */
+		FoldPredictor getFoldModel(int fold) throws Exception;
+
+		int getNumberOfLabels();
+	}
+
+	private static class GaussianFolds implements FoldModels {
+		private final GaussianNaiveBayesClassifier total;
+		private final GaussianNaiveBayesClassifier[] partials;
+		private final GaussianRowBatch[] batches;
+		private final int batchSamples;
+
+		GaussianFolds(GaussianNaiveBayesClassifier total, int folds, int batchSamples) {
+			this.total = total;
+			this.partials = new GaussianNaiveBayesClassifier[folds];
+			this.batches = new GaussianRowBatch[folds];
+			this.batchSamples = batchSamples;
+			for (int fold = 0; fold < folds; fold++) {
+				this.partials[fold] = this.newClassifier();
+			}
+		}
+
+		private GaussianNaiveBayesClassifier newClassifier() {
+			return new GaussianNaiveBayesClassifier(this.total.isAllowEmptySampleValues(), this.total.isSufficientStatisticsOnly());
+		}
+
+		public void add(int fold, float[] values, float label) throws Exception {
+			if (this.batches[fold] == null) {
+				this.batches[fold] = new GaussianRowBatch(this.partials[fold], values.length, this.batchSamples);
+			}
+			this.batches[fold].add(values, label);
+		}
+
+		public void mergeFolds() throws Exception {
+			for (int fold = 0; fold < this.partials.length; fold++) {
+				if (this.batches[fold] != null) {
+					this.batches[fold].flush();
+				}
+				this.total.merge(this.partials[fold]);
+			}
+		}
+
+		public FoldPredictor getFoldModel(int fold) throws Exception {
+			final GaussianNaiveBayesClassifier model = this.newClassifier();
+			model.merge(this.total);
+			model.unmerge(this.partials[fold]);
+			return new FoldPredictor() {
+				public double predictInto(float[] values, double[] scores) {
+					return model.predictInto(values, scores);
+				}
+			};
+		}
+
+		public int getNumberOfLabels() {
+			return this.total.getNumberOfLabels();
+		}
+	}
+
+	private static class NaiveBayesFolds implements FoldModels {
+		private final NaiveBayesClassifier total;
+		private final NaiveBayesClassifier[] partials;
+
+		NaiveBayesFolds(NaiveBayesClassifier total, int folds) {
+			this.total = total;
+			this.partials = new NaiveBayesClassifier[folds];
+			for (int fold = 0; fold < folds; fold++) {
+				this.partials[fold] = new NaiveBayesClassifier(total.isAllowEmptySampleValues());
+			}
+		}
+
+		public void add(int fold, float[] values, float label) {
+			this.partials[fold].fit(values, label);
+		}
+
+		public void mergeFolds() throws Exception {
+			for (NaiveBayesClassifier partial : this.partials) {
+				this.total.merge(partial);
+			}
+		}
+
+		public FoldPredictor getFoldModel(int fold) throws Exception {
+			final NaiveBayesClassifier model = new NaiveBayesClassifier(this.total.isAllowEmptySampleValues());
+			model.merge(this.total);
+			model.unmerge(this.partials[fold]);
+			return new FoldPredictor() {
+				public double predictInto(float[] values, double[] scores) {
+					return model.predictInto(values, scores);
+				}
+			};
+		}
+
+		public int getNumberOfLabels() {
+			return this.total.getNumberOfLabels();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package xilodyne.machinelearning.classifier.io;
+
+/**
+ * Result of one cross validation fold: the model fitted on every other
+ * fold and tested on this fold.  The values are those of a
+ * TestResultsDataML entry (accuracy, training / testing size, data /
+ * fit / predict time), as durations since the folds share one pass
+ * over the training data.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - single pass cross validation
+ */
+public class FoldResult {
+
+	private final int fold;
+	private final long samplesTrained;
+	private final long samplesPredicted;
+	private final long samplesCorrect;
+	private final long dataMillis;
+	private final long fitMillis;
+	private final long predictMillis;
+
+	FoldResult(int fold, long samplesTrained, long samplesPredicted, long samplesCorrect,
+			long dataMillis, long fitMillis, long predictMillis) {
+		this.fold = fold;
+		this.samplesTrained = samplesTrained;
+		this.samplesPredicted = samplesPredicted;
+		this.samplesCorrect = samplesCorrect;
+		this.dataMillis = dataMillis;
+		this.fitMillis = fitMillis;
+		this.predictMillis = predictMillis;
+	}
+
+	/**
+	 * @return the fold tested, 0 to folds - 1
+	 */
+	public int getFold() {
+		return this.fold;
+	}
+
+	/**
+	 * @return correct / predicted, 0 if none predicted
+	 */
+	public double getAccuracy() {
+		return (this.samplesPredicted == 0) ? 0 : (double) this.samplesCorrect / this.samplesPredicted;
+	}
+
+	/**
+	 * @return number of samples in the other folds
+	 */
+	public long getTrainingDataSize() {
+		return this.samplesTrained;
+	}
+
+	/**
+	 * @return number of samples in this fold
+	 */
+	public long getTestingDataSize() {
+		return this.samplesPredicted;
+	}
+
+	/**
+	 * @return number of samples predicted with the right label
+	 */
+	public long getSamplesCorrect() {
+		return this.samplesCorrect;
+	}
+
+	/**
+	 * @return time of the pass reading / fitting the samples of all folds, shared by each fold
+	 */
+	public long getDataMillis() {
+		return this.dataMillis;
+	}
+
+	/**
+	 * @return time forming the model of this fold, all samples minus the fold
+	 */
+	public long getFitMillis() {
+		return this.fitMillis;
+	}
+
+	/**
+	 * @return time predicting the samples of this fold
+	 */
+	public long getPredictMillis() {
+		return this.predictMillis;
+	}
+
+	/**
+	 * @return data, fit and predict time
+	 */
+	public long getTotalMillis() {
+		return this.dataMillis + this.fitMillis + this.predictMillis;
+	}
+
+	public String toString() {
+		return "Fold " + this.fold + ": accuracy " + this.getAccuracy() + ", trained " + this.samplesTrained
+				+ ", predicted " + this.samplesPredicted + ", fit " + this.fitMillis + " ms, predict "
+				+ this.predictMillis + " ms";
+	}
+}
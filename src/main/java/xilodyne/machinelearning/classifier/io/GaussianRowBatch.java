@@ -0,0 +1,61 @@
+package xilodyne.machinelearning.classifier.io;
+
+import java.util.Arrays;
+
+import xilodyne.machinelearning.classifier.bayes.GaussianNaiveBayesClassifier;
+
+/**
+ * Copies samples into strided rows, fitted with GNB fitRows when the
+ * batch is full, so a stream of samples is fitted in bulk.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - batched row fit
+ */
+class GaussianRowBatch {
+
+	private final GaussianNaiveBayesClassifier gnb;
+	private final int numberOfFeatures;
+	private final float[] rows;
+	private final float[] labels;
+	private int count = 0;
+
+	/**
+	 * @param gnb the classifier fitted
+	 * @param numberOfFeatures values of a sample
+	 * @param batchSamples samples per fitRows call, &gt; 0
+	 */
+	GaussianRowBatch(GaussianNaiveBayesClassifier gnb, int numberOfFeatures, int batchSamples) {
+		this.gnb = gnb;
+		this.numberOfFeatures = numberOfFeatures;
+		this.rows = new float[batchSamples * numberOfFeatures];
+		this.labels = new float[batchSamples];
+	}
+
+	/**
+	 * Add a sample, the values are copied.
+	 *
+	 * @param row the sample values
+	 * @param label the label
+	 * @throws Exception thrown when the number of features differs from earlier fits
+	 */
+	void add(float[] row, float label) throws Exception {
+		System.arraycopy(row, 0, this.rows, this.count * this.numberOfFeatures, this.numberOfFeatures);
+		this.labels[this.count++] = label;
+		if (this.count == this.labels.length) {
+			this.gnb.fitRows(this.rows, this.numberOfFeatures, this.numberOfFeatures, this.labels);
+			this.count = 0;
+		}
+	}
+
+	/**
+	 * Fit the samples added since the last full batch.
+	 *
+	 * @throws Exception thrown when the number of features differs from earlier fits
+	 */
+	void flush() throws Exception {
+		if (this.count > 0) {
+			this.gnb.fitRows(this.rows, this.numberOfFeatures, this.numberOfFeatures, Arrays.copyOf(this.labels, this.count));
+			this.count = 0;
+		}
+	}
+}
@@ -0,0 +1,576 @@
+package xilodyne.machinelearning.classifier.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import xilodyne.machinelearning.classifier.bayes.GaussianNaiveBayesClassifier;
+import xilodyne.machinelearning.classifier.bayes.NaiveBayesClassifier;
+import xilodyne.util.logger.Logger;
+
+/**
+ * Fit a classifier from a numeric CSV file larger than the heap.  The file
+ * is memory mapped in segments that end on a line boundary, values are
+ * parsed straight from the mapped bytes (no String per line or value).
+ * <p>
+ * Each worker takes the next segment to parse and fits its own partial
+ * classifier, the partial classifiers are merged into the classifier
+ * when all segments are read.
+ * <p>
+ * Values and labels must be numbers (ASCII), missing values ("?" or
+ * empty) are {@link GaussianNaiveBayesClassifier#NaN}.  Numbers are parsed
+ * from up to 15 significant digits, the float may differ from
+ * Float.parseFloat in the last bit for values that are not exact.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - memory mapped CSV, parallel partial fit
+ */
+public class MappedCSVReader {
+
+	/** bytes mapped by one segment, before moving to the end of the line */
+	public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+
+	private static final int MAX_DIGITS = 15;
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int index = 1; index < POWERS_OF_TEN.length; index++) {
+			POWERS_OF_TEN[index] = POWERS_OF_TEN[index - 1] * 10;
+		}
+	}
+
+	private Logger log = new Logger("mcr");
+
+	private final String fileName;
+	private final byte delimiter;
+	private final long fileSize;
+	private final long dataStart;
+	private final int numberOfColumns;
+	private final int labelColumn;
+
+	private long segmentBytes = DEFAULT_SEGMENT_BYTES;
+	private int batchSamples = StreamingTrainer.DEFAULT_BATCH_SAMPLES;
+	private final AtomicLong samplesRead = new AtomicLong();
+
+	/**
+	 * Open a CSV file, the columns are counted from the first line.
+	 *
+	 * @param fileName the CSV file
+	 * @param delimiter delimiter between values, ASCII
+	 * @param header SampleFileReader.HEADER_ROW if the first line names the columns
+	 * @param labelColumn column of the label, SampleFileReader.LABEL_LAST_COLUMN for the last
+	 * @throws IOException thrown when the file can not be read
+	 */
+	public MappedCSVReader(String fileName, char delimiter, boolean header, int labelColumn) throws IOException {
+		if ((delimiter > 127) || (delimiter == '\n') || (delimiter == '\r')) {
+			throw new IllegalArgumentException("Delimiter must be ASCII and not an end of line: " + delimiter);
+		}
+		this.fileName = fileName;
+		this.delimiter = (byte) delimiter;
+
+		long size;
+		long firstLineStart = 0;
+		long firstLineEnd = 0;
+		byte[] firstLine = null;
+		FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+		try {
+			size = channel.size();
+			while ((firstLine == null) && (firstLineStart < size)) {
+				firstLineEnd = findLineEnd(channel, firstLineStart);
+				byte[] line = read(channel, firstLineStart, firstLineEnd);
+				if (isBlank(line)) {
+					firstLineStart = firstLineEnd;
+				} else {
+					firstLine = line;
+				}
+			}
+		} finally {
+			channel.close();
+		}
+
+		this.fileSize = size;
+		if (firstLine == null) {
+			this.dataStart = size;
+			this.numberOfColumns = 0;
+		} else {
+			int columns = 1;
+			for (byte b : firstLine) {
+				if (b == this.delimiter) {
+					columns++;
+				}
+			}
+			this.numberOfColumns = columns;
+			this.dataStart = header ? firstLineEnd : firstLineStart;
+		}
+
+		this.labelColumn = (labelColumn == SampleFileReader.LABEL_LAST_COLUMN) ? this.numberOfColumns - 1 : labelColumn;
+		if ((this.numberOfColumns > 0) && ((this.labelColumn < 0) || (this.labelColumn >= this.numberOfColumns))) {
+			throw new IllegalArgumentException("Label column " + labelColumn + " not in " + this.numberOfColumns + " columns");
+		}
+	}
+
+	/**
+	 * Bytes mapped by one segment, the segment is extended to the end
+	 * of its last line.  Segments are the unit of work of the workers.
+	 *
+	 * @param segmentBytes bytes per segment, &gt; 0
+	 */
+	public void setSegmentBytes(long segmentBytes) {
+		if ((segmentBytes <= 0) || (segmentBytes > Integer.MAX_VALUE)) {
+			throw new IllegalArgumentException("Segment bytes must be > 0 and <= " + Integer.MAX_VALUE + ": " + segmentBytes);
+		}
+		this.segmentBytes = segmentBytes;
+	}
+
+	/**
+	 * @param batchSamples samples copied into one GNB fitRows call, &gt; 0
+	 */
+	public void setBatchSamples(int batchSamples) {
+		if (batchSamples <= 0) {
+			throw new IllegalArgumentException("Batch samples must be > 0: " + batchSamples);
+		}
+		this.batchSamples = batchSamples;
+	}
+
+	/**
+	 * @return number of values of a sample, the label excluded
+	 */
+	public int getNumberOfFeatures() {
+		return Math.max(0, this.numberOfColumns - 1);
+	}
+
+	/**
+	 * @return number of samples read by the fit calls
+	 */
+	public long getSamplesRead() {
+		return this.samplesRead.get();
+	}
+
+	/**
+	 * Fit the file with one worker per available processor on the
+	 * ForkJoinPool common pool.
+	 *
+	 * @param gnb the classifier, not fitting while the file is read
+	 * @throws Exception thrown when the file can not be read or a line is not valid
+	 */
+	public void fit(GaussianNaiveBayesClassifier gnb) throws Exception {
+		this.fit(gnb, null, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Fit the file, each worker fits a partial classifier (same storage
+	 * mode as gnb) that is merged into gnb.
+	 *
+	 * @param gnb the classifier, not fitting while the file is read
+	 * @param executor executor to run on, ForkJoinPool.commonPool() if null
+	 * @param workers number of partial classifiers, &gt; 0
+	 * @throws Exception thrown when the file can not be read or a line is not valid
+	 */
+	public void fit(final GaussianNaiveBayesClassifier gnb, ExecutorService executor, int workers) throws Exception {
+		final long[] segments = this.getSegments();
+		final AtomicInteger nextSegment = new AtomicInteger();
+		List<Callable<GaussianNaiveBayesClassifier>> tasks = new ArrayList<Callable<GaussianNaiveBayesClassifier>>();
+		for (int worker = 0; worker < this.getNumberOfWorkers(segments, workers); worker++) {
+			tasks.add(new Callable<GaussianNaiveBayesClassifier>() {
+				public GaussianNaiveBayesClassifier call() throws Exception {
+					GaussianNaiveBayesClassifier partial = new GaussianNaiveBayesClassifier(
+							gnb.isAllowEmptySampleValues(), gnb.isSufficientStatisticsOnly());
+					final GaussianRowBatch batch = new GaussianRowBatch(partial, getNumberOfFeatures(), batchSamples);
+					fitSegments(segments, nextSegment, new SampleSink() {
+						public void add(float[] row, float label) throws Exception {
+							batch.add(row, label);
+						}
+
+						public void flush() throws Exception {
+							batch.flush();
+						}
+					});
+					return partial;
+				}
+			});
+		}
+		for (Future<GaussianNaiveBayesClassifier> task : Workers.submit(executor, tasks)) {
+			gnb.merge(Workers.getResult(task));
+		}
+	}
+
+	/**
+	 * Fit the file with one worker per available processor on the
+	 * ForkJoinPool common pool.
+	 *
+	 * @param nb the classifier, not fitting while the file is read
+	 * @throws Exception thrown when the file can not be read or a line is not valid
+	 */
+	public void fit(NaiveBayesClassifier nb) throws Exception {
+		this.fit(nb, null, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Fit the file, each worker fits a partial classifier that is merged into nb.
+	 *
+	 * @param nb the classifier, not fitting while the file is read
+	 * @param executor executor to run on, ForkJoinPool.commonPool() if null
+	 * @param workers number of partial classifiers, &gt; 0
+	 * @throws Exception thrown when the file can not be read or a line is not valid
+	 */
+	public void fit(final NaiveBayesClassifier nb, ExecutorService executor, int workers) throws Exception {
+		final long[] segments = this.getSegments();
+		final AtomicInteger nextSegment = new AtomicInteger();
+		List<Callable<NaiveBayesClassifier>> tasks = new ArrayList<Callable<NaiveBayesClassifier>>();
+		for (int worker = 0; worker < this.getNumberOfWorkers(segments, workers); worker++) {
+			tasks.add(new Callable<NaiveBayesClassifier>() {
+				public NaiveBayesClassifier call() throws Exception {
+					final NaiveBayesClassifier partial = new NaiveBayesClassifier(nb.isAllowEmptySampleValues());
+					fitSegments(segments, nextSegment, new SampleSink() {
+						public void add(float[] row, float label) {
+							partial.fit(row, label);
+						}
+
+						public void flush() {
+						}
+					});
+					return partial;
+				}
+			});
+		}
+		for (Future<NaiveBayesClassifier> task : Workers.submit(executor, tasks)) {
+			nb.merge(Workers.getResult(task));
+		}
+	}
+
+	private int getNumberOfWorkers(long[] segments, int workers) {
+		if (workers <= 0) {
+			throw new IllegalArgumentException("Number of workers must be > 0: " + workers);
+		}
+		return Math.min(workers, segments.length - 1);
+	}
+
+	/**
+	 * Segment boundaries, each at the start of a line.
+	 *
+	 * @return start of each segment, then the end of the last
+	 * @throws IOException thrown when the file can not be read or a line is longer than a mapping
+	 */
+	private long[] getSegments() throws IOException {
+		long[] segments = new long[16];
+		int count = 0;
+		segments[count++] = this.dataStart;
+		FileChannel channel = FileChannel.open(Paths.get(this.fileName), StandardOpenOption.READ);
+		try {
+			long start = this.dataStart;
+			while (start < this.fileSize) {
+				long end = Math.min(start + this.segmentBytes, this.fileSize);
+				if (end < this.fileSize) {
+					end = findLineEnd(channel, end - 1);
+				}
+				if (end - start > Integer.MAX_VALUE) {
+					throw new IOException("Line too long to map, after byte " + start);
+				}
+				if (count == segments.length) {
+					segments = Arrays.copyOf(segments, count * 2);
+				}
+				segments[count++] = end;
+				start = end;
+			}
+		} finally {
+			channel.close();
+		}
+		log.logln(Logger.lI, "Segments of " + this.fileName + ": " + (count - 1));
+		return Arrays.copyOf(segments, count);
+	}
+
+	/**
+	 * Parse the segments not yet taken by another worker.
+	 */
+	private void fitSegments(long[] segments, AtomicInteger nextSegment, SampleSink sink) throws Exception {
+		SegmentParser parser = new SegmentParser(this.numberOfColumns, this.labelColumn, this.delimiter);
+		FileChannel channel = FileChannel.open(Paths.get(this.fileName), StandardOpenOption.READ);
+		try {
+			int segment;
+			while ((segment = nextSegment.getAndIncrement()) < segments.length - 1) {
+				long start = segments[segment];
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, segments[segment + 1] - start);
+				this.samplesRead.addAndGet(parser.parse(buffer, start, sink));
+			}
+		} finally {
+			channel.close();
+		}
+		sink.flush();
+	}
+
+	/**
+	 * Position after the next end of line at or after from, the file size if none.
+	 */
+	private static long findLineEnd(FileChannel channel, long from) throws IOException {
+		ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+		long position = from;
+		while (true) {
+			chunk.clear();
+			int read = channel.read(chunk, position);
+			if (read <= 0) {
+				return channel.size();
+			}
+			for (int index = 0; index < read; index++) {
+				if (chunk.get(index) == '\n') {
+					return position + index + 1;
+				}
+			}
+			position += read;
+		}
+	}
+
+	private static byte[] read(FileChannel channel, long from, long to) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate((int) (to - from));
+		while (bytes.hasRemaining() && (channel.read(bytes, from + bytes.position()) > 0)) {
+			// read all
+		}
+		return bytes.array();
+	}
+
+	private static boolean isBlank(byte[] line) {
+		for (byte b : line) {
+			if ((b != ' ') && (b != '\t') && (b != '\r') && (b != '\n')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Receives the samples parsed by one worker.
+	 */
+	private interface SampleSink {
+		void add(float[] row, float label) throws Exception;
+
+		void flush() throws Exception;
+	}
+
+	/**
+	 * Parses the lines of a mapped segment, one parser per worker.
+	 */
+	private static class SegmentParser {
+		private final int numberOfColumns;
+		private final int labelColumn;
+		private final byte delimiter;
+		private final float[] row;
+
+		private ByteBuffer buffer;
+		private int limit;
+		private long segmentStart;
+		//position of the next byte to parse
+		private int position;
+		private boolean missing;
+
+		SegmentParser(int numberOfColumns, int labelColumn, byte delimiter) {
+			this.numberOfColumns = numberOfColumns;
+			this.labelColumn = labelColumn;
+			this.delimiter = delimiter;
+			this.row = new float[Math.max(0, numberOfColumns - 1)];
+		}
+
+		/**
+		 * @return number of samples parsed
+		 */
+		int parse(ByteBuffer segment, long start, SampleSink sink) throws Exception {
+			this.buffer = segment;
+			this.limit = segment.limit();
+			this.segmentStart = start;
+			this.position = 0;
+			int samples = 0;
+
+			while (this.position < this.limit) {
+				if (this.isBlankLine()) {
+					continue;
+				}
+				long lineStart = this.segmentStart + this.position;
+				float label = 0;
+				int featureIndex = 0;
+				for (int column = 0; column < this.numberOfColumns; column++) {
+					float value = this.parseValue();
+					if (column == this.labelColumn) {
+						if (this.missing) {
+							throw new IOException("Missing label, line at byte " + lineStart);
+						}
+						label = value;
+					} else {
+						this.row[featureIndex++] = value;
+					}
+					boolean lastColumn = (column == this.numberOfColumns - 1);
+					byte next = (this.position < this.limit) ? this.buffer.get(this.position) : (byte) '\n';
+					if (!lastColumn && (next == this.delimiter)) {
+						this.position++;
+					} else if (lastColumn && ((next == '\n') || (next == '\r'))) {
+						this.skipEndOfLine();
+					} else {
+						throw new IOException("Expected " + this.numberOfColumns + " values, line at byte " + lineStart);
+					}
+				}
+				sink.add(this.row, label);
+				samples++;
+			}
+			return samples;
+		}
+
+		/**
+		 * Skip an empty line, TRUE if skipped.
+		 */
+		private boolean isBlankLine() {
+			int index = this.position;
+			byte b = 0;
+			while ((index < this.limit) && (((b = this.buffer.get(index)) == ' ') || (b == '\t') || (b == '\r'))) {
+				index++;
+			}
+			if ((index < this.limit) && (b != '\n')) {
+				return false;
+			}
+			this.position = Math.min(index + 1, this.limit);
+			return true;
+		}
+
+		private void skipEndOfLine() {
+			while ((this.position < this.limit) && (this.buffer.get(this.position) == '\r')) {
+				this.position++;
+			}
+			if (this.position < this.limit) {
+				// '\n'
+				this.position++;
+			}
+		}
+
+		private boolean isEndOfValue(int index) {
+			if (index >= this.limit) {
+				return true;
+			}
+			byte b = this.buffer.get(index);
+			return (b == this.delimiter) || (b == '\n') || (b == '\r');
+		}
+
+		private boolean isSpace(byte b) {
+			return ((b == ' ') || (b == '\t')) && (b != this.delimiter);
+		}
+
+		/**
+		 * Parse the value at position, position is left at the byte after it.
+		 */
+		private float parseValue() throws IOException {
+			int index = this.position;
+			while ((index < this.limit) && this.isSpace(this.buffer.get(index))) {
+				index++;
+			}
+			int valueStart = index;
+			this.missing = false;
+
+			boolean negative = false;
+			if ((index < this.limit) && ((this.buffer.get(index) == '-') || (this.buffer.get(index) == '+'))) {
+				negative = (this.buffer.get(index) == '-');
+				index++;
+			}
+			long mantissa = 0;
+			int digits = 0;
+			int exponent = 0;
+			boolean anyDigit = false;
+			byte b;
+			while ((index < this.limit) && ((b = this.buffer.get(index)) >= '0') && (b <= '9')) {
+				if (digits < MAX_DIGITS) {
+					mantissa = (mantissa * 10) + (b - '0');
+					if (mantissa != 0) {
+						digits++;
+					}
+				} else {
+					exponent++;
+				}
+				anyDigit = true;
+				index++;
+			}
+			if ((index < this.limit) && (this.buffer.get(index) == '.')) {
+				index++;
+				while ((index < this.limit) && ((b = this.buffer.get(index)) >= '0') && (b <= '9')) {
+					if (digits < MAX_DIGITS) {
+						mantissa = (mantissa * 10) + (b - '0');
+						if (mantissa != 0) {
+							digits++;
+						}
+						exponent--;
+					}
+					anyDigit = true;
+					index++;
+				}
+			}
+			if (anyDigit && (index < this.limit) && ((this.buffer.get(index) == 'e') || (this.buffer.get(index) == 'E'))) {
+				int exponentIndex = index + 1;
+				boolean negativeExponent = false;
+				if ((exponentIndex < this.limit) && ((this.buffer.get(exponentIndex) == '-') || (this.buffer.get(exponentIndex) == '+'))) {
+					negativeExponent = (this.buffer.get(exponentIndex) == '-');
+					exponentIndex++;
+				}
+				int value = 0;
+				boolean anyExponentDigit = false;
+				while ((exponentIndex < this.limit) && ((b = this.buffer.get(exponentIndex)) >= '0') && (b <= '9')) {
+					value = Math.min(100000, (value * 10) + (b - '0'));
+					anyExponentDigit = true;
+					exponentIndex++;
+				}
+				if (anyExponentDigit) {
+					exponent += negativeExponent ? -value : value;
+					index = exponentIndex;
+				}
+			}
+			int valueEnd = index;
+			while ((index < this.limit) && this.isSpace(this.buffer.get(index))) {
+				index++;
+			}
+
+			if (this.isEndOfValue(index)) {
+				if (valueEnd == valueStart) {
+					this.position = index;
+					this.missing = true;
+					return GaussianNaiveBayesClassifier.NaN;
+				}
+				if (anyDigit && (exponent >= -22) && (exponent <= 22)) {
+					this.position = index;
+					double value = (exponent < 0) ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+					return (float) (negative ? -value : value);
+				}
+			}
+			return this.parseSlow(valueStart);
+		}
+
+		/**
+		 * Parse a value that is not a plain decimal number ("?", exponent
+		 * out of range, NaN, Infinity) with Float.parseFloat.
+		 */
+		private float parseSlow(int valueStart) throws IOException {
+			int index = valueStart;
+			while (!this.isEndOfValue(index)) {
+				index++;
+			}
+			byte[] bytes = new byte[index - valueStart];
+			for (int offset = 0; offset < bytes.length; offset++) {
+				bytes[offset] = this.buffer.get(valueStart + offset);
+			}
+			this.position = index;
+			String token = new String(bytes, StandardCharsets.ISO_8859_1).trim();
+			if (token.equals("?")) {
+				this.missing = true;
+				return GaussianNaiveBayesClassifier.NaN;
+			}
+			try {
+				return Float.parseFloat(token);
+			} catch (NumberFormatException e) {
+				throw new IOException("Value " + token + " is not a number, at byte " + (this.segmentStart + valueStart));
+			}
+		}
+	}
+}
@@ -0,0 +1,487 @@
+package xilodyne.machinelearning.classifier.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import xilodyne.machinelearning.classifier.bayes.GaussianNaiveBayesClassifier;
+import xilodyne.util.logger.Logger;
+
+/**
+ * Read the samples of a CSV file or the @data section of an ARFF file
+ * one line at a time, only the current sample is kept in memory.
+ * <p>
+ * Values are returned as float.  Nominal ARFF values (feature or label)
+ * are the index of the value in the attribute's list, labels of a
+ * CSV file that are not numbers are numbered in the order first read.
+ * Missing values ("?" or empty) are {@link GaussianNaiveBayesClassifier#NaN}.
+ * <p>
+ * Each sample can be assigned a cross validation fold when read, replacing
+ * split files on disk.  The folds are drawn from a seeded random, a
+ * reader opened on the same file with the same folds and seed assigns
+ * the same folds.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - streaming CSV / ARFF samples with fold assignment
+ */
+public class SampleFileReader implements Closeable {
+
+	public static final boolean FORMAT_ARFF = true;
+	public static final boolean FORMAT_CSV = false;
+
+	public static final boolean HEADER_ROW = true;
+	public static final boolean NO_HEADER_ROW = false;
+
+	/** label column of the sample, the last */
+	public static final int LABEL_LAST_COLUMN = -1;
+
+	private Logger log = new Logger("sfr");
+
+	private final BufferedReader reader;
+	private final boolean format;
+	private final char delimiter;
+
+	private int labelColumn;
+	private int numberOfColumns = -1;
+	private int lineNumber = 0;
+	//first data line of a CSV file, read to count the columns
+	private String pendingLine = null;
+
+	//ARFF nominal values of each column, null if numeric
+	private List<HashMap<String, Integer>> nominalValues = new ArrayList<HashMap<String, Integer>>();
+	private List<String> columnNames = new ArrayList<String>();
+	//label names in label order, when labels are not numbers
+	private List<String> labelNames = new ArrayList<String>();
+	private HashMap<String, Integer> csvLabelIndex = new HashMap<String, Integer>();
+
+	private String[] tokens;
+	private float[] values;
+	private float label;
+
+	private int folds = 1;
+	private Random foldRandom = null;
+	private int fold = 0;
+	private long samplesRead = 0;
+
+	/**
+	 * Open an ARFF file, the last attribute is the label.
+	 *
+	 * @param fileName the ARFF file
+	 * @throws IOException thrown when the file can not be read or the header is not valid
+	 */
+	public SampleFileReader(String fileName) throws IOException {
+		this(new FileReader(fileName), FORMAT_ARFF, ',', NO_HEADER_ROW, LABEL_LAST_COLUMN);
+	}
+
+	/**
+	 * Open an ARFF file.
+	 *
+	 * @param fileName the ARFF file
+	 * @param labelColumn attribute of the label, LABEL_LAST_COLUMN for the last
+	 * @throws IOException thrown when the file can not be read or the header is not valid
+	 */
+	public SampleFileReader(String fileName, int labelColumn) throws IOException {
+		this(new FileReader(fileName), FORMAT_ARFF, ',', NO_HEADER_ROW, labelColumn);
+	}
+
+	/**
+	 * Open a CSV file.
+	 *
+	 * @param fileName the CSV file
+	 * @param delimiter delimiter between values
+	 * @param header HEADER_ROW if the first line names the columns
+	 * @param labelColumn column of the label, LABEL_LAST_COLUMN for the last
+	 * @throws IOException thrown when the file can not be read
+	 */
+	public SampleFileReader(String fileName, char delimiter, boolean header, int labelColumn) throws IOException {
+		this(new FileReader(fileName), FORMAT_CSV, delimiter, header, labelColumn);
+	}
+
+	/**
+	 * Read CSV or ARFF samples.
+	 *
+	 * @param in the text, closed with the reader
+	 * @param format FORMAT_ARFF or FORMAT_CSV
+	 * @param delimiter for CSV, delimiter between values
+	 * @param header for CSV, HEADER_ROW if the first line names the columns
+	 * @param labelColumn column of the label, LABEL_LAST_COLUMN for the last
+	 * @throws IOException thrown when the text can not be read or the header is not valid
+	 */
+	public SampleFileReader(Reader in, boolean format, char delimiter, boolean header, int labelColumn) throws IOException {
+		this.reader = (in instanceof BufferedReader) ? (BufferedReader) in : new BufferedReader(in, 1 << 16);
+		this.format = format;
+		this.delimiter = (format == FORMAT_ARFF) ? ',' : delimiter;
+		this.labelColumn = labelColumn;
+		try {
+			if (format == FORMAT_ARFF) {
+				this.readARFFHeader();
+			} else {
+				this.readCSVHeader(header);
+			}
+		} catch (IOException e) {
+			this.reader.close();
+			throw e;
+		} catch (RuntimeException e) {
+			this.reader.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Assign each sample read a fold, 0 to folds - 1.  Set before the
+	 * first sample is read.
+	 *
+	 * @param folds number of folds, &gt; 0
+	 * @param seed the random seed, same seed same folds
+	 */
+	public void setFolds(int folds, long seed) {
+		if (folds <= 0) {
+			throw new IllegalArgumentException("Number of folds must be > 0: " + folds);
+		}
+		this.folds = folds;
+		this.foldRandom = new Random(seed);
+	}
+
+	/**
+	 * Read the next sample.
+	 *
+	 * @return FALSE at the end of the file
+	 * @throws IOException thrown when the file can not be read or a line is not valid
+	 */
+	public boolean next() throws IOException {
+		String line;
+		while ((line = this.nextLine()) != null) {
+			if (!this.isSkipped(line)) {
+				this.parseSample(line);
+				this.fold = (this.foldRandom == null) ? 0 : this.foldRandom.nextInt(this.folds);
+				this.samplesRead++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Feature values of the current sample, the array is reused by next().
+	 *
+	 * @return the values, in feature order
+	 */
+	public float[] getValues() {
+		return this.values;
+	}
+
+	/**
+	 * @return label of the current sample
+	 */
+	public float getLabel() {
+		return this.label;
+	}
+
+	/**
+	 * @return fold of the current sample
+	 */
+	public int getFold() {
+		return this.fold;
+	}
+
+	/**
+	 * @return number of folds, 1 if folds are not assigned
+	 */
+	public int getFolds() {
+		return this.folds;
+	}
+
+	/**
+	 * @return number of values of a sample, the label excluded
+	 */
+	public int getNumberOfFeatures() {
+		return Math.max(0, this.numberOfColumns - 1);
+	}
+
+	/**
+	 * Names of the features, from the ARFF attributes or CSV header.
+	 *
+	 * @return the names, empty if not known
+	 */
+	public List<String> getFeatureNames() {
+		List<String> featureNames = new ArrayList<String>();
+		for (int column = 0; column < this.columnNames.size(); column++) {
+			if (column != this.labelColumn) {
+				featureNames.add(this.columnNames.get(column));
+			}
+		}
+		return featureNames;
+	}
+
+	/**
+	 * Names of the labels when labels are not numbers, the label of a
+	 * sample is the index of its name.  CSV label names are added as read.
+	 *
+	 * @return the names, empty for numeric labels
+	 */
+	public List<String> getLabelNames() {
+		return this.labelNames;
+	}
+
+	/**
+	 * @return number of samples read
+	 */
+	public long getSamplesRead() {
+		return this.samplesRead;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+	private String nextLine() throws IOException {
+		if (this.pendingLine != null) {
+			String line = this.pendingLine;
+			this.pendingLine = null;
+			return line;
+		}
+		String line = this.reader.readLine();
+		if (line != null) {
+			this.lineNumber++;
+		}
+		return line;
+	}
+
+	private boolean isSkipped(String line) {
+		for (int index = 0; index < line.length(); index++) {
+			char c = line.charAt(index);
+			if (!Character.isWhitespace(c)) {
+				return (this.format == FORMAT_ARFF) && (c == '%');
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Read the @attribute lines up to @data.
+	 */
+	private void readARFFHeader() throws IOException {
+		String line;
+		while ((line = this.nextLine()) != null) {
+			String trimmed = line.trim();
+			if (this.isSkipped(trimmed)) {
+				continue;
+			}
+			String keyword = trimmed.toLowerCase(Locale.ROOT);
+			if (keyword.startsWith("@data")) {
+				this.numberOfColumns = this.columnNames.size();
+				if (this.numberOfColumns < 1) {
+					throw new IOException("No @attribute before @data, line " + this.lineNumber);
+				}
+				this.initColumns();
+				this.addARFFLabelNames();
+				log.logln(Logger.lI, "ARFF attributes: " + this.columnNames + ", label column: " + this.labelColumn);
+				return;
+			} else if (keyword.startsWith("@attribute")) {
+				this.addARFFAttribute(trimmed.substring("@attribute".length()).trim());
+			}
+		}
+		throw new IOException("No @data section found");
+	}
+
+	private void addARFFAttribute(String attribute) throws IOException {
+		int nameEnd;
+		if ((attribute.length() > 0) && ((attribute.charAt(0) == '\'') || (attribute.charAt(0) == '"'))) {
+			nameEnd = attribute.indexOf(attribute.charAt(0), 1) + 1;
+		} else {
+			nameEnd = 0;
+			while ((nameEnd < attribute.length()) && !Character.isWhitespace(attribute.charAt(nameEnd))
+					&& (attribute.charAt(nameEnd) != '{')) {
+				nameEnd++;
+			}
+		}
+		if (nameEnd <= 0) {
+			throw new IOException("Attribute not valid, line " + this.lineNumber + ": " + attribute);
+		}
+		this.columnNames.add(unquote(attribute.substring(0, nameEnd)));
+
+		String type = attribute.substring(nameEnd).trim();
+		if (type.startsWith("{")) {
+			int end = type.lastIndexOf('}');
+			if (end < 0) {
+				throw new IOException("Nominal attribute not closed, line " + this.lineNumber + ": " + attribute);
+			}
+			HashMap<String, Integer> nominal = new HashMap<String, Integer>();
+			for (String value : type.substring(1, end).split(",")) {
+				String name = unquote(value.trim());
+				if (!name.isEmpty() && !nominal.containsKey(name)) {
+					nominal.put(name, nominal.size());
+				}
+			}
+			this.nominalValues.add(nominal);
+		} else {
+			String typeName = type.toLowerCase(Locale.ROOT);
+			if (!(typeName.startsWith("numeric") || typeName.startsWith("real") || typeName.startsWith("integer"))) {
+				throw new IOException("Attribute type not supported, line " + this.lineNumber + ": " + attribute);
+			}
+			this.nominalValues.add(null);
+		}
+	}
+
+	private void addARFFLabelNames() {
+		HashMap<String, Integer> nominal = this.nominalValues.get(this.labelColumn);
+		if (nominal == null) {
+			return;
+		}
+		String[] names = new String[nominal.size()];
+		for (String name : nominal.keySet()) {
+			names[nominal.get(name)] = name;
+		}
+		for (String name : names) {
+			this.labelNames.add(name);
+		}
+	}
+
+	/**
+	 * Count the columns from the header or first line.
+	 */
+	private void readCSVHeader(boolean header) throws IOException {
+		String line;
+		while (((line = this.nextLine()) != null) && this.isSkipped(line)) {
+			// blank lines
+		}
+		if (line == null) {
+			// no samples
+			this.numberOfColumns = 0;
+			return;
+		}
+		this.numberOfColumns = this.countColumns(line);
+		if (header) {
+			this.tokens = new String[this.numberOfColumns];
+			this.tokenize(line);
+			for (String name : this.tokens) {
+				this.columnNames.add(unquote(name.trim()));
+			}
+		} else {
+			this.pendingLine = line;
+		}
+		this.initColumns();
+	}
+
+	private void initColumns() {
+		if (this.labelColumn == LABEL_LAST_COLUMN) {
+			this.labelColumn = this.numberOfColumns - 1;
+		}
+		if ((this.numberOfColumns > 0) && ((this.labelColumn < 0) || (this.labelColumn >= this.numberOfColumns))) {
+			throw new IllegalArgumentException("Label column " + this.labelColumn + " not in " + this.numberOfColumns + " columns");
+		}
+		this.tokens = new String[this.numberOfColumns];
+		this.values = new float[this.getNumberOfFeatures()];
+	}
+
+	private void parseSample(String line) throws IOException {
+		if ((this.format == FORMAT_ARFF) && line.trim().startsWith("{")) {
+			throw new IOException("Sparse ARFF data not supported, line " + this.lineNumber);
+		}
+		int count = this.tokenize(line);
+		if (count != this.numberOfColumns) {
+			throw new IOException("Expected " + this.numberOfColumns + " values, found " + count + ", line " + this.lineNumber);
+		}
+		int featureIndex = 0;
+		for (int column = 0; column < this.numberOfColumns; column++) {
+			String token = this.tokens[column].trim();
+			if (column == this.labelColumn) {
+				this.label = this.parseLabel(token);
+			} else {
+				this.values[featureIndex++] = this.parseValue(column, token);
+			}
+		}
+	}
+
+	private float parseValue(int column, String token) throws IOException {
+		if (token.isEmpty() || token.equals("?")) {
+			return GaussianNaiveBayesClassifier.NaN;
+		}
+		HashMap<String, Integer> nominal = (this.format == FORMAT_ARFF) ? this.nominalValues.get(column) : null;
+		if (nominal != null) {
+			Integer index = nominal.get(unquote(token));
+			if (index == null) {
+				throw new IOException("Value " + token + " not in attribute " + this.columnNames.get(column) + ", line " + this.lineNumber);
+			}
+			return index;
+		}
+		try {
+			return Float.parseFloat(token);
+		} catch (NumberFormatException e) {
+			throw new IOException("Value " + token + " is not a number, line " + this.lineNumber);
+		}
+	}
+
+	private float parseLabel(String token) throws IOException {
+		if (token.isEmpty() || token.equals("?")) {
+			throw new IOException("Missing label, line " + this.lineNumber);
+		}
+		if (this.format == FORMAT_ARFF) {
+			return this.parseValue(this.labelColumn, token);
+		}
+		String name = unquote(token);
+		Integer index = this.csvLabelIndex.get(name);
+		if (index != null) {
+			return index;
+		}
+		if (this.labelNames.isEmpty()) {
+			try {
+				return Float.parseFloat(name);
+			} catch (NumberFormatException e) {
+				// named labels
+			}
+		}
+		if ((this.samplesRead > 0) && this.labelNames.isEmpty()) {
+			throw new IOException("Label " + token + " is not a number, line " + this.lineNumber);
+		}
+		index = this.labelNames.size();
+		this.labelNames.add(name);
+		this.csvLabelIndex.put(name, index);
+		return index;
+	}
+
+	/**
+	 * Split a line into tokens, delimiters inside quotes are not split.
+	 *
+	 * @return number of tokens found, tokens past the number of columns are not kept
+	 */
+	private int tokenize(String line) {
+		int count = 0;
+		int start = 0;
+		boolean quoted = false;
+		for (int index = 0; index <= line.length(); index++) {
+			char c = (index < line.length()) ? line.charAt(index) : this.delimiter;
+			if ((c == '"') || ((c == '\'') && (this.format == FORMAT_ARFF))) {
+				quoted = !quoted;
+			} else if ((c == this.delimiter) && (!quoted || (index == line.length()))) {
+				if (count < this.tokens.length) {
+					this.tokens[count] = line.substring(start, index);
+				}
+				count++;
+				start = index + 1;
+			}
+		}
+		return count;
+	}
+
+	private int countColumns(String line) {
+		this.tokens = new String[0];
+		return this.tokenize(line);
+	}
+
+	private static String unquote(String token) {
+		if ((token.length() >= 2) && ((token.charAt(0) == '\'') || (token.charAt(0) == '"'))
+				&& (token.charAt(token.length() - 1) == token.charAt(0))) {
+			return token.substring(1, token.length() - 1);
+		}
+		return token;
+	}
+}
@@ -0,0 +1,189 @@
+package xilodyne.machinelearning.classifier.io;
+
+import java.io.IOException;
+
+import xilodyne.machinelearning.classifier.bayes.GaussianNaiveBayesClassifier;
+import xilodyne.machinelearning.classifier.bayes.NaiveBayesClassifier;
+import xilodyne.util.logger.Logger;
+
+/**
+ * Fit and test classifiers straight from a {@link SampleFileReader},
+ * without split files or loading the data set into an NDArray.
+ * <p>
+ * Samples of the test fold are skipped when fitting and are the only
+ * samples predicted, so k fold cross validation reads the file twice
+ * per fold (readers with the same folds and seed).  With NO_TEST_FOLD
+ * every sample is fitted / predicted.
+ *
+ * <pre>
+ * SampleFileReader reader = new SampleFileReader("iris.arff");
+ * reader.setFolds(10, seed);
+ * StreamingTrainer trainer = new StreamingTrainer(testFold);
+ * trainer.fit(reader, gnb);
+ * </pre>
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - streaming fit / predict by fold
+ */
+public class StreamingTrainer {
+
+	/** no fold held out for testing */
+	public static final int NO_TEST_FOLD = -1;
+
+	/** samples copied into one GNB fitRows call */
+	public static final int DEFAULT_BATCH_SAMPLES = 4096;
+
+	private Logger log = new Logger("st");
+
+	private final int testFold;
+	private final int batchSamples;
+
+	private long samplesFitted = 0;
+	private long samplesPredicted = 0;
+	private long samplesCorrect = 0;
+
+	/**
+	 * @param testFold fold held out of fit and predicted, NO_TEST_FOLD for none
+	 */
+	public StreamingTrainer(int testFold) {
+		this(testFold, DEFAULT_BATCH_SAMPLES);
+	}
+
+	/**
+	 * @param testFold fold held out of fit and predicted, NO_TEST_FOLD for none
+	 * @param batchSamples samples copied into one GNB fitRows call, &gt; 0
+	 */
+	public StreamingTrainer(int testFold, int batchSamples) {
+		if (batchSamples <= 0) {
+			throw new IllegalArgumentException("Batch samples must be > 0: " + batchSamples);
+		}
+		this.testFold = testFold;
+		this.batchSamples = batchSamples;
+	}
+
+	/**
+	 * Fit the samples not in the test fold, in batches of strided rows.
+	 * The reader is read to the end, not closed.
+	 *
+	 * @param reader the samples
+	 * @param gnb the classifier
+	 * @throws Exception thrown when the file can not be read or the number of features differs
+	 */
+	public void fit(SampleFileReader reader, GaussianNaiveBayesClassifier gnb) throws Exception {
+		GaussianRowBatch batch = new GaussianRowBatch(gnb, reader.getNumberOfFeatures(), this.batchSamples);
+		while (reader.next()) {
+			if (!this.isTestSample(reader)) {
+				batch.add(reader.getValues(), reader.getLabel());
+				this.samplesFitted++;
+			}
+		}
+		batch.flush();
+		log.logln(Logger.lI, "Fitted " + this.samplesFitted + " of " + reader.getSamplesRead() + " samples read");
+	}
+
+	/**
+	 * Fit the samples not in the test fold.  The reader is read to the
+	 * end, not closed.
+	 *
+	 * @param reader the samples
+	 * @param nb the classifier
+	 * @throws IOException thrown when the file can not be read
+	 */
+	public void fit(SampleFileReader reader, NaiveBayesClassifier nb) throws IOException {
+		while (reader.next()) {
+			if (!this.isTestSample(reader)) {
+				nb.fit(reader.getValues(), reader.getLabel());
+				this.samplesFitted++;
+			}
+		}
+		log.logln(Logger.lI, "Fitted " + this.samplesFitted + " of " + reader.getSamplesRead() + " samples read");
+	}
+
+	/**
+	 * Predict the samples of the test fold and count the correct labels.
+	 *
+	 * @param reader the samples
+	 * @param gnb the fitted classifier
+	 * @throws IOException thrown when the file can not be read
+	 */
+	public void predict(SampleFileReader reader, GaussianNaiveBayesClassifier gnb) throws IOException {
+		double[] scores = new double[0];
+		while (reader.next()) {
+			if (this.isPredictedSample(reader)) {
+				if (scores.length < gnb.getNumberOfLabels()) {
+					scores = new double[gnb.getNumberOfLabels()];
+				}
+				this.countPrediction(gnb.predictInto(reader.getValues(), scores), reader.getLabel());
+			}
+		}
+	}
+
+	/**
+	 * Predict the samples of the test fold and count the correct labels.
+	 *
+	 * @param reader the samples
+	 * @param nb the fitted classifier
+	 * @throws IOException thrown when the file can not be read
+	 */
+	public void predict(SampleFileReader reader, NaiveBayesClassifier nb) throws IOException {
+		double[] scores = new double[0];
+		while (reader.next()) {
+			if (this.isPredictedSample(reader)) {
+				if (scores.length < nb.getNumberOfLabels()) {
+					scores = new double[nb.getNumberOfLabels()];
+				}
+				this.countPrediction(nb.predictInto(reader.getValues(), scores), reader.getLabel());
+			}
+		}
+	}
+
+	private boolean isTestSample(SampleFileReader reader) {
+		return (this.testFold != NO_TEST_FOLD) && (reader.getFold() == this.testFold);
+	}
+
+	private boolean isPredictedSample(SampleFileReader reader) {
+		return (this.testFold == NO_TEST_FOLD) || (reader.getFold() == this.testFold);
+	}
+
+	private void countPrediction(double predictedLabel, float label) {
+		this.samplesPredicted++;
+		if ((float) predictedLabel == label) {
+			this.samplesCorrect++;
+		}
+	}
+
+	/**
+	 * @return the fold held out, NO_TEST_FOLD for none
+	 */
+	public int getTestFold() {
+		return this.testFold;
+	}
+
+	/**
+	 * @return number of samples fitted
+	 */
+	public long getSamplesFitted() {
+		return this.samplesFitted;
+	}
+
+	/**
+	 * @return number of samples predicted
+	 */
+	public long getSamplesPredicted() {
+		return this.samplesPredicted;
+	}
+
+	/**
+	 * @return number of samples predicted with the right label
+	 */
+	public long getSamplesCorrect() {
+		return this.samplesCorrect;
+	}
+
+	/**
+	 * @return correct / predicted, 0 if none predicted
+	 */
+	public double getAccuracy() {
+		return (this.samplesPredicted == 0) ? 0 : (double) this.samplesCorrect / this.samplesPredicted;
+	}
+}
@@ -0,0 +1,56 @@
+package xilodyne.machinelearning.classifier.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Run tasks on an executor and wait for their results.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - parallel partial fit / cross validation folds
+ */
+class Workers {
+
+	private Workers() {
+	}
+
+	/**
+	 * Submit each task.
+	 *
+	 * @param executor executor to run on, ForkJoinPool.commonPool() if null
+	 * @param tasks the tasks
+	 * @return the futures, in task order
+	 */
+	static <T> List<Future<T>> submit(ExecutorService executor, List<Callable<T>> tasks) {
+		ExecutorService runOn = (executor == null) ? ForkJoinPool.commonPool() : executor;
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		for (Callable<T> task : tasks) {
+			futures.add(runOn.submit(task));
+		}
+		return futures;
+	}
+
+	/**
+	 * Wait for a task, an exception of the task is thrown as is.
+	 */
+	static <T> T getResult(Future<T> task) throws Exception {
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			// ForkJoinPool wraps checked exceptions of a Callable
+			while ((cause != null) && (cause.getClass() == RuntimeException.class) && (cause.getCause() instanceof Exception)) {
+				cause = cause.getCause();
+			}
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package xilodyne.machinelearning.classifier.examples;
+
+import xilodyne.machinelearning.classifier.bayes.GaussianNaiveBayesClassifier;
+import xilodyne.machinelearning.classifier.io.SampleFileReader;
+import xilodyne.machinelearning.classifier.io.StreamingTrainer;
+import xilodyne.util.metrics.OutputResults;
+import xilodyne.util.metrics.TestResultsDataML;
+import xilodyne.util.logger.Logger;
+import xilodyne.util.logger.LoggerCSV;
+
+/**
+ * Gaussian NB using Iris Data Set, as Example_IRIS_GNB_FromARFF but the
+ * ARFF file is streamed into the classifier.  One fold of ten is held out
+ * for testing, no split files are written.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - streaming ARFF reader
+ *
+ */
+public class Example_IRIS_GNB_Streaming {
+	public static String CSV_Filename = "IRIS_Data_GaussianNaiveBayes-XD";
+	public static String delimiter = ",";
+	public static String[] header = {"timestamp", "class name",
+		"accuracy", "CV Fold", "# of lines", "# trained", "date time",
+		"train time", "predict time","total time"};
+
+	private static Logger log;
+	private static LoggerCSV logCSV;
+
+	public static void main(String[] args) {
+
+		// Logger.setLoggerLevel(Logger.LOG_OFF);
+		// Logger.setLoggerLevel(Logger.LOG_FINE);
+		Logger.setLoggerLevel(Logger.LOG_INFO);
+		// Logger.setLoggerLevel(Logger.LOG_DEBUG);
+
+		String className = "xilodyne.machinelearning.classifier.GaussianNB";
+		TestResultsDataML resultsData = new TestResultsDataML();
+		resultsData.setClassMLName(className);
+
+		log = new Logger("egnb", "logs", "IRIS_xd_GNB_Streaming" + "_" + resultsData.getClassMLNameWithoutDomain());
+
+		logCSV = new LoggerCSV("results", CSV_Filename,
+				delimiter, header);
+		logCSV.log_CSV_Timestamp();
+		logCSV.log_CSV_Entry(resultsData.getClassMLName());
+
+		log.logln_withClassName(Logger.lF,"");
+
+		String fileName = "./test-data/iris.arff";
+		int folds = 10;
+		int testFold = folds - 1;
+		long seed = 17;
+
+		GaussianNaiveBayesClassifier gnb = new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		StreamingTrainer trainer = new StreamingTrainer(testFold);
+
+		try {
+			resultsData.setStartData();
+			SampleFileReader reader = new SampleFileReader(fileName);
+			reader.setFolds(folds, seed);
+			log.logln(Logger.lI, "Labels: " + reader.getLabelNames());
+			log.logln(Logger.lI, "Features: " + reader.getFeatureNames());
+			resultsData.setEndData();
+
+			resultsData.setStartFit();
+			trainer.fit(reader, gnb);
+			reader.close();
+			resultsData.setEndFit();
+
+			//same seed, same folds
+			resultsData.setStartPredict();
+			reader = new SampleFileReader(fileName);
+			reader.setFolds(folds, seed);
+			trainer.predict(reader, gnb);
+			reader.close();
+			resultsData.setEndPredict();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		resultsData.setAccuracy(trainer.getAccuracy() * 100);
+		resultsData.setTrainingDataSize(gnb.getFitCount());
+		resultsData.setTestingDataSize((int) trainer.getSamplesPredicted());
+		OutputResults.getMLStats(log, logCSV, resultsData);
+		logCSV.log_CSV_EOL();
+	}
+}
@@ -1,17 +1,30 @@
 package xilodyne.machinelearning.classifier.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 
 import mikera.arrayz.NDArray;
 
 import org.junit.Test;
 
+import xilodyne.machinelearning.classifier.bayes.BinaryModelFile;
+import xilodyne.machinelearning.classifier.bayes.CompiledGaussianModel;
 import xilodyne.machinelearning.classifier.bayes.GaussianNaiveBayesClassifier;
+import xilodyne.machinelearning.classifier.bayes.MappedGaussianModel;
 import xilodyne.machinelearning.classifier.io.AccessSerializedObject;
 import xilodyne.util.ArrayUtils;
 import xilodyne.util.logger.Logger;
@@ -902,4 +915,935 @@ GaussianNB()
 	}
 
 
+
+	@Test
+	public void checkSufficientStatistics_MatchesFeatureValues() {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Sufficient Statistics vs Feature Values");
+
+		List<String> featureNames = new ArrayList<String>(Arrays.asList("Ht(ft)", "Wt(lbs)","Ft(in)"));
+		List<String> labelNames = new ArrayList<String>(Arrays.asList("Male","Female"));
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, labelNames, featureNames);
+		GaussianNaiveBayesClassifier gnbStats =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, 
+				GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS);
+
+		int indexMale = labelNames.indexOf("Male");
+		int indexFemale = labelNames.indexOf("Female");
+
+		float[][] samples = new float[][] {{6f,180f,12f}, {5.92f,190f,11f}, {5.58f,170f,12f}, {5.92f,165f,10f},
+			{5f,100f,6f}, {5.5f,150f,8f}, {5.42f,130f,7f}, {5.75f,150f,9f}};
+		for (int index = 0; index < samples.length; index++) {
+			int label = index < 4 ? indexMale : indexFemale;
+			gnb.fit(samples[index], label);
+			gnbStats.fit(samples[index], label);
+		}
+
+		gnbStats.printFeaturesAndLabels();
+		gnbStats.printMeanVar();
+
+		double[] results = gnb.getProbabilityScores_TestingSet(new float[] {6f,130f,8f});
+		double[] resultsStats = gnbStats.getProbabilityScores_TestingSet(new float[] {6f,130f,8f});
+		
+		assertEquals(results[0], resultsStats[0], 0.000001);
+		assertEquals(results[1], resultsStats[1], 0.00001);
+		assertEquals(6.1970717E-9, resultsStats[0], 0.000001);
+		assertEquals(5.37791E-4, resultsStats[1], 0.00001);
+
+		assertEquals(gnb.getProbabilty_OneFeature(0, indexMale, 6f), 
+				gnbStats.getProbabilty_OneFeature(0, indexMale, 6f), 0.00001);
+		assertEquals(1, gnbStats.predict_TestingSet(new float[]{5.75f,150f,9f}), 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkSufficientStatistics_MeanVar(){
+		log.logln_withClassName(Logger.lF,"");
+		
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Mean & Variance (Sufficient Statistics)");
+
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW,
+				GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS);
+
+		//http://www.wikihow.com/Calculate-Variance
+		//17 + 15 + 23 + 7 + 9 + 13
+		for (float value : new float[] {17, 15, 23, 7, 9, 13}) {
+			gnb.fit(0, value, 1);
+		}
+
+		gnb.printMeanVar();
+		
+		assertEquals(14.0, gnb.getMean(0, 0), 0.0);
+		assertEquals(33.2, gnb.getVar(0, 0), 0.000001);
+		
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkCompiledModel() {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Compiled Model");
+
+		List<String> labelNames = new ArrayList<String>(Arrays.asList("Male","Female"));
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+
+		int indexMale = labelNames.indexOf("Male");
+		int indexFemale = labelNames.indexOf("Female");
+
+		gnb.fit(new float[]{6f,180f,12f}, indexMale);
+		gnb.fit(new float[]{5.92f,190f,11f}, indexMale);
+		gnb.fit(new float[]{5.58f,170f,12f}, indexMale);
+		gnb.fit(new float[]{5.92f,165f,10f}, indexMale);
+		gnb.fit(new float[]{5f,100f,6f}, indexFemale);
+		gnb.fit(new float[]{5.5f,150f,8f}, indexFemale);
+		gnb.fit(new float[]{5.42f,130f,7f}, indexFemale);
+		gnb.fit(new float[]{5.75f,150f,9f}, indexFemale);
+
+		CompiledGaussianModel model = gnb.compile();
+		assertEquals(2, model.getNumberOfLabels(), 0);
+		assertEquals(3, model.getNumberOfFeatures(), 0);
+
+		float[][] testingData = new float[][] {{6f,130f,8f}, {5.75f,150f,9f}, {6f,180f,12f}, {0,150f,9f}};
+		double[] predicted = model.predict(testingData);
+		for (int index = 0; index < testingData.length; index++) {
+			assertEquals(gnb.predict_TestingSet(testingData[index]), predicted[index], 0);
+		}
+
+		double[] probability = gnb.getProbabilityScores_TestingSet(new float[]{6f,130f,8f});
+		double[] logScores = model.getLogScores(new float[]{6f,130f,8f});
+		assertEquals(Math.log(probability[0]), logScores[0], 0.0001);
+		assertEquals(Math.log(probability[1]), logScores[1], 0.0001);
+
+		//later fits do not change the compiled model
+		gnb.fit(new float[]{6f,130f,8f}, indexMale);
+		assertEquals(logScores[0], model.getLogScores(new float[]{6f,130f,8f})[0], 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkLogSpaceScoring_ManyFeatures() {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Log Space Scoring - 300 features");
+
+		int numberOfFeatures = 300;
+		Random random = new Random(42);
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+
+		//label 0 centered on 10, label 1 centered on 13
+		for (int sample = 0; sample < 20; sample++) {
+			float[] values = new float[numberOfFeatures];
+			for (int index = 0; index < numberOfFeatures; index++) {
+				values[index] = 10f + (float) random.nextGaussian();
+			}
+			gnb.fit(values, 0);
+			for (int index = 0; index < numberOfFeatures; index++) {
+				values[index] = 13f + (float) random.nextGaussian();
+			}
+			gnb.fit(values, 1);
+		}
+
+		float[] testingData = new float[numberOfFeatures];
+		Arrays.fill(testingData, 13f);
+
+		//multiplied probabilities underflow to zero
+		double[] scores = gnb.getProbabilityScores_TestingSet(testingData);
+		assertEquals(0, scores[0], 0);
+		assertEquals(0, scores[1], 0);
+
+		double[] logScores = gnb.getLogProbabilityScores_TestingSet(testingData);
+		System.out.println("Log scores: " + ArrayUtils.printArray(logScores));
+		assertTrue(logScores[1] > logScores[0]);
+		assertTrue(!Double.isInfinite(logScores[1]));
+
+		double[] logProba = gnb.predictLogProba(testingData);
+		assertEquals(1.0, Math.exp(logProba[0]) + Math.exp(logProba[1]), 0.000001);
+
+		gnb.setLogSpaceScoring(true);
+		assertEquals(1.0, gnb.predict_TestingSet(testingData), 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkLogSpaceScoring_MatchesProbability() {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Log Space Scoring vs Probability");
+
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		gnb.fit(new ArrayList<Float>(Arrays.asList(6f,180f,12f)), 0);
+		gnb.fit(new ArrayList<Float>(Arrays.asList(5.92f,190f,11f)), 0);
+		gnb.fit(new ArrayList<Float>(Arrays.asList(5.58f,170f,12f)), 0);
+		gnb.fit(new ArrayList<Float>(Arrays.asList(5.92f,165f,10f)), 0);
+		gnb.fit(new ArrayList<Float>(Arrays.asList(5f,100f,6f)), 1);
+		gnb.fit(new ArrayList<Float>(Arrays.asList(5.5f,150f,8f)), 1);
+		gnb.fit(new ArrayList<Float>(Arrays.asList(5.42f,130f,7f)), 1);
+		gnb.fit(new ArrayList<Float>(Arrays.asList(5.75f,150f,9f)), 1);
+
+		List<Float> testingData = new ArrayList<Float>(Arrays.asList(6f,130f,8f));
+		double[] scores = gnb.getProbabilityScores_TestingSet(testingData);
+		double[] logScores = gnb.getLogProbabilityScores_TestingSet(testingData);
+		assertEquals(Math.log(6.1970717E-9), logScores[0], 0.0001);
+		assertEquals(Math.log(scores[1]), logScores[1], 0.0001);
+
+		double[] logProba = gnb.predictLogProba(testingData);
+		assertEquals(scores[1] / (scores[0] + scores[1]), Math.exp(logProba[1]), 0.000001);
+
+		gnb.setLogSpaceScoring(true);
+		assertEquals(gnb.predict_TestingSet(testingData), 1.0, 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkPredictParallel() throws Exception {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Parallel Batch Prediction");
+
+		int numberOfFeatures = 5;
+		int numberOfSamples = 500;
+		Random random = new Random(7);
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+
+		for (int sample = 0; sample < 30; sample++) {
+			float[] values = new float[numberOfFeatures];
+			for (int index = 0; index < numberOfFeatures; index++) {
+				values[index] = 10f + (float) random.nextGaussian();
+			}
+			gnb.fit(values, 0);
+			for (int index = 0; index < numberOfFeatures; index++) {
+				values[index] = 12f + (float) random.nextGaussian();
+			}
+			gnb.fit(values, 1);
+		}
+
+		float[][] testingRows = new float[numberOfSamples][numberOfFeatures];
+		NDArray featuresTest = NDArray.newArray(numberOfSamples, numberOfFeatures);
+		for (int sample = 0; sample < numberOfSamples; sample++) {
+			for (int index = 0; index < numberOfFeatures; index++) {
+				testingRows[sample][index] = 11f + (float) (random.nextGaussian() * 1.5);
+				featuresTest.set(sample, index, testingRows[sample][index]);
+			}
+		}
+
+		gnb.setLogSpaceScoring(true);
+		double[] expected = gnb.predict(featuresTest);
+
+		double[] results = gnb.predictParallel(featuresTest);
+		assertTrue(Arrays.equals(expected, results));
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		results = new double[numberOfSamples];
+		gnb.predictParallel(featuresTest, results, pool, 16);
+		assertTrue(Arrays.equals(expected, results));
+		pool.shutdown();
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		results = new double[numberOfSamples];
+		gnb.predictParallel(testingRows, results, executor, 37);
+		assertTrue(Arrays.equals(expected, results));
+		executor.shutdown();
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkScoringEngines() {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Vector and Scalar Scoring Engines");
+
+		int numberOfFeatures = 303;
+		Random random = new Random(11);
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+
+		for (int sample = 0; sample < 20; sample++) {
+			for (int label = 0; label < 3; label++) {
+				float[] values = new float[numberOfFeatures];
+				for (int index = 0; index < numberOfFeatures; index++) {
+					values[index] = 5f + (2f * label) + (float) random.nextGaussian();
+				}
+				gnb.fit(values, label);
+			}
+		}
+
+		CompiledGaussianModel model = gnb.compile();
+		CompiledGaussianModel scalarModel = model.withScalarScoring();
+		System.out.println("Scoring engine: " + model.getScoringEngine());
+		assertEquals(CompiledGaussianModel.SCORING_SCALAR, scalarModel.getScoringEngine());
+
+		//include skipped values: NaN and empty (zero)
+		float[] testingData = new float[numberOfFeatures];
+		for (int index = 0; index < numberOfFeatures; index++) {
+			testingData[index] = 7f + (float) random.nextGaussian();
+		}
+		testingData[0] = GaussianNaiveBayesClassifier.NaN;
+		testingData[5] = 0;
+		testingData[numberOfFeatures - 1] = GaussianNaiveBayesClassifier.NaN;
+
+		double[] scores = model.getLogScores(testingData);
+		double[] scalarScores = scalarModel.getLogScores(testingData);
+		System.out.println("Log scores: " + ArrayUtils.printArray(scores));
+		for (int label = 0; label < 3; label++) {
+			assertEquals(scalarScores[label], scores[label], Math.abs(scalarScores[label]) * 1e-9);
+		}
+		assertEquals(1.0, model.predict(testingData), 0);
+		assertEquals(1.0, scalarModel.predict(testingData), 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkMeanVar_FitBetweenPredictions() {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Mean & Variance - fit between predictions");
+
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		GaussianNaiveBayesClassifier gnbAll =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		float[][] samples = new float[][] {{6f, 180f, 12f}, {5.92f, 190f, 11f}, {5.58f, 170f, 12f}, {5.92f, 165f, 10f},
+			{5f, 100f, 6f}, {5.5f, 150f, 8f}, {5.42f, 130f, 7f}, {5.75f, 150f, 9f}};
+		float[] labels = new float[] {0, 0, 0, 0, 1, 1, 1, 1};
+
+		for (int index = 0; index < samples.length; index++) {
+			gnb.fit(samples[index], labels[index]);
+			gnbAll.fit(samples[index], labels[index]);
+		}
+		float[] testingData = new float[] {6f, 130f, 8f};
+		gnb.predict_TestingSet(testingData);
+
+		//one value, then a new label, then one value for the new label
+		gnb.fit(1, 175f, 0);
+		gnbAll.fit(1, 175f, 0);
+		this.assertSameMeanVar(gnbAll, gnb, testingData);
+
+		gnb.fit(new float[] {4.8f, 95f, 5f}, 2);
+		gnbAll.fit(new float[] {4.8f, 95f, 5f}, 2);
+		this.assertSameMeanVar(gnbAll, gnb, testingData);
+
+		gnb.fit(2, 6f, 2);
+		gnbAll.fit(2, 6f, 2);
+		this.assertSameMeanVar(gnbAll, gnb, testingData);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	private void assertSameMeanVar(GaussianNaiveBayesClassifier expected, GaussianNaiveBayesClassifier actual, float[] testingData) {
+		double[] expectedScores = expected.getProbabilityScores_TestingSet(testingData);
+		double[] actualScores = actual.getProbabilityScores_TestingSet(testingData);
+		assertTrue(Arrays.equals(expectedScores, actualScores));
+		for (int labelIndex = 0; labelIndex < expectedScores.length; labelIndex++) {
+			for (int featureIndex = 0; featureIndex < testingData.length; featureIndex++) {
+				assertEquals(expected.getMean(labelIndex, featureIndex), actual.getMean(labelIndex, featureIndex), 0);
+				assertEquals(expected.getVar(labelIndex, featureIndex), actual.getVar(labelIndex, featureIndex), 0);
+			}
+		}
+	}
+
+	@Test
+	public void checkConcurrentFit() throws Exception {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Concurrent Fit");
+
+		final int numberOfFeatures = 4;
+		final int samplesPerThread = 2000;
+		int numberOfThreads = 4;
+		final GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW,
+				GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS, GaussianNaiveBayesClassifier.FIT_CONCURRENT);
+		GaussianNaiveBayesClassifier gnbOneThread =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW,
+				GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS);
+
+		final float[][][] samples = new float[numberOfThreads][samplesPerThread][numberOfFeatures];
+		final float[][] labels = new float[numberOfThreads][samplesPerThread];
+		Random random = new Random(3);
+		for (int thread = 0; thread < numberOfThreads; thread++) {
+			for (int sample = 0; sample < samplesPerThread; sample++) {
+				//each thread sees labels in a different order
+				labels[thread][sample] = (sample + thread) % 3;
+				for (int index = 0; index < numberOfFeatures; index++) {
+					samples[thread][sample][index] = (labels[thread][sample] * 2) + index + (float) random.nextGaussian();
+				}
+				gnbOneThread.fit(samples[thread][sample], labels[thread][sample]);
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		List<Future<?>> tasks = new ArrayList<Future<?>>();
+		for (int thread = 0; thread < numberOfThreads; thread++) {
+			final int threadIndex = thread;
+			tasks.add(executor.submit(new Runnable() {
+				public void run() {
+					for (int sample = 0; sample < samplesPerThread; sample++) {
+						gnb.fit(samples[threadIndex][sample], labels[threadIndex][sample]);
+					}
+				}
+			}));
+		}
+		for (Future<?> task : tasks) {
+			task.get();
+		}
+		executor.shutdown();
+
+		float[] testingData = new float[] {2f, 3f, 4f, 5f};
+		assertEquals(gnbOneThread.predict_TestingSet(testingData), gnb.predict_TestingSet(testingData), 0);
+		assertEquals(gnbOneThread.getFitCount(), gnb.getFitCount());
+
+		//label order may differ, compare by predicted scores of each label value
+		double[] expectedScores = gnbOneThread.getLogProbabilityScores_TestingSet(testingData);
+		double[] scores = gnb.getLogProbabilityScores_TestingSet(testingData);
+		double[] expectedSorted = expectedScores.clone();
+		double[] sorted = scores.clone();
+		Arrays.sort(expectedSorted);
+		Arrays.sort(sorted);
+		for (int labelIndex = 0; labelIndex < sorted.length; labelIndex++) {
+			assertEquals(expectedSorted[labelIndex], sorted[labelIndex], 0.0001);
+		}
+
+		//writing is refused until the fitting threads are finished, then keeps the model
+		boolean refused = false;
+		try {
+			new ObjectOutputStream(new ByteArrayOutputStream()).writeObject(gnb);
+		} catch (IllegalStateException e) {
+			refused = true;
+		}
+		assertTrue(refused);
+		gnb.finishConcurrentFit();
+		new ObjectOutputStream(new ByteArrayOutputStream()).writeObject(gnb);
+		assertEquals(gnbOneThread.getFitCount(), gnb.getFitCount());
+		assertEquals(gnbOneThread.predict_TestingSet(testingData), gnb.predict_TestingSet(testingData), 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkMerge() throws Exception {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Merge of Partial Models");
+
+		float[][] samples = new float[][] {{6f, 180f, 12f}, {5.92f, 190f, 11f}, {5.58f, 170f, 12f}, {5.92f, 165f, 10f},
+			{5f, 100f, 6f}, {5.5f, 150f, 8f}, {5.42f, 130f, 7f}, {5.75f, 150f, 9f}, {4.8f, 95f, 5f}, {4.9f, 90f, 5f}};
+		float[] labels = new float[] {0, 0, 1, 0, 1, 1, 2, 1, 2, 2};
+		float[] testingData = new float[] {6f, 130f, 8f};
+
+		for (boolean storage : new boolean[] {GaussianNaiveBayesClassifier.STORE_FEATURE_VALUES, GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS}) {
+			GaussianNaiveBayesClassifier gnbAll =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			GaussianNaiveBayesClassifier gnbFirst =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			GaussianNaiveBayesClassifier gnbSecond =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+
+			for (int index = 0; index < samples.length; index++) {
+				gnbAll.fit(samples[index], labels[index]);
+			}
+			//first shard labels 0, 1 - second shard labels 2, 1 (different label order)
+			for (int index = 0; index < 6; index++) {
+				gnbFirst.fit(samples[index], labels[index]);
+			}
+			for (int index = samples.length - 1; index >= 6; index--) {
+				gnbSecond.fit(samples[index], labels[index]);
+			}
+			gnbFirst.predict_TestingSet(testingData);
+			gnbFirst.merge(gnbSecond);
+
+			double[] expectedScores = gnbAll.getProbabilityScores_TestingSet(testingData);
+			double[] scores = gnbFirst.getProbabilityScores_TestingSet(testingData);
+			for (int labelIndex = 0; labelIndex < expectedScores.length; labelIndex++) {
+				assertEquals(expectedScores[labelIndex], scores[labelIndex], expectedScores[labelIndex] * 0.0001);
+			}
+			assertEquals(gnbAll.predict_TestingSet(testingData), gnbFirst.predict_TestingSet(testingData), 0);
+			assertEquals(gnbAll.getFitCount(), gnbFirst.getFitCount());
+		}
+
+		//feature values into sufficient statistics
+		GaussianNaiveBayesClassifier gnbValues =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		GaussianNaiveBayesClassifier gnbStatistics =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW,
+				GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS);
+		for (int index = 0; index < samples.length; index++) {
+			gnbValues.fit(samples[index], labels[index]);
+		}
+		gnbStatistics.merge(gnbValues);
+		assertEquals(gnbValues.predict_TestingSet(testingData), gnbStatistics.predict_TestingSet(testingData), 0);
+
+		boolean exceptionThrown = false;
+		try {
+			gnbValues.merge(gnbStatistics);
+		} catch (Exception e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkBinaryModelFile() throws Exception {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Binary Model File");
+
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		gnb.fit(new float[]{6f,180f,12f}, 0);
+		gnb.fit(new float[]{5.92f,190f,11f}, 0);
+		gnb.fit(new float[]{5.58f,170f,12f}, 0);
+		gnb.fit(new float[]{5.92f,165f,10f}, 0);
+		gnb.fit(new float[]{5f,100f,6f}, 1);
+		gnb.fit(new float[]{5.5f,150f,8f}, 1);
+		gnb.fit(new float[]{5.42f,130f,7f}, 1);
+		gnb.fit(new float[]{5.75f,150f,9f}, 1);
+
+		File file = File.createTempFile("gnb", ".model");
+		file.deleteOnExit();
+		gnb.saveModel(file.getPath());
+
+		CompiledGaussianModel compiled = gnb.compile();
+		MappedGaussianModel model = BinaryModelFile.loadGaussian(file.getPath());
+		assertEquals(2, model.getNumberOfLabels());
+		assertEquals(3, model.getNumberOfFeatures());
+
+		float[][] testingData = new float[][] {{6f,130f,8f}, {5.75f,150f,9f}, {6f,180f,12f}, {0,150f,9f}};
+		double[] scores = new double[2];
+		for (int index = 0; index < testingData.length; index++) {
+			assertEquals(compiled.predict(testingData[index]), model.predict(testingData[index]), 0);
+			model.getLogScores(testingData[index], scores);
+			double[] expected = compiled.getLogScores(testingData[index]);
+			assertEquals(expected[0], scores[0], 0);
+			assertEquals(expected[1], scores[1], 0);
+		}
+
+		//wrong model type
+		boolean exceptionThrown = false;
+		try {
+			BinaryModelFile.loadNaiveBayes(file.getPath());
+		} catch (IOException e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkPredictInto() {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Predict Into Caller Supplied Scores");
+
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		gnb.fit(new float[]{6f,180f,12f}, 0);
+		gnb.fit(new float[]{5.92f,190f,11f}, 0);
+		gnb.fit(new float[]{5.58f,170f,12f}, 0);
+		gnb.fit(new float[]{5.92f,165f,10f}, 0);
+		gnb.fit(new float[]{5f,100f,6f}, 1);
+		gnb.fit(new float[]{5.5f,150f,8f}, 1);
+		gnb.fit(new float[]{5.42f,130f,7f}, 1);
+		gnb.fit(new float[]{5.75f,150f,9f}, 1);
+
+		assertEquals(2, gnb.getNumberOfLabels());
+		double[] scores = new double[gnb.getNumberOfLabels()];
+		float[][] testingData = new float[][] {{6f,130f,8f}, {5.75f,150f,9f}, {6f,180f,12f}, {0,150f,9f}};
+		for (float[] row : testingData) {
+			double label = gnb.predictInto(row, scores);
+			assertEquals(gnb.predict_TestingSet(row), label, 0);
+			double[] expected = gnb.getProbabilityScores_TestingSet(row);
+			assertEquals(expected[0], scores[0], 0);
+			assertEquals(expected[1], scores[1], 0);
+		}
+
+		gnb.setLogSpaceScoring(true);
+		for (float[] row : testingData) {
+			double label = gnb.predictInto(row, scores);
+			assertEquals(gnb.predict_TestingSet(row), label, 0);
+			double[] expected = gnb.getLogProbabilityScores_TestingSet(row);
+			assertEquals(expected[0], scores[0], 0);
+			assertEquals(expected[1], scores[1], 0);
+		}
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkManyLabels() throws Exception {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Many Labels");
+
+		int numberOfLabels = 300;
+		for (boolean storage : new boolean[] {GaussianNaiveBayesClassifier.STORE_FEATURE_VALUES, GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS}) {
+			GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			for (int sample = 0; sample < 3; sample++) {
+				for (int label = 0; label < numberOfLabels; label++) {
+					gnb.fit(new float[] {(label * 10) + sample, (label * -10) - sample}, label);
+				}
+			}
+			assertEquals(numberOfLabels, gnb.getNumberOfLabels());
+			for (int label = 0; label < numberOfLabels; label += 37) {
+				assertEquals(label, gnb.predict_TestingSet(new float[] {(label * 10) + 1, (label * -10) - 1}), 0);
+			}
+			assertEquals(1.0, gnb.getMean(0, 0), 0);
+			assertEquals(2991.0, gnb.getMean(299, 0), 0);
+		}
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkForgetting_SlidingWindow() {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Forgetting, Sliding Window");
+
+		float[][] samples = new float[][] {{6f, 180f}, {5.92f, 190f}, {5.58f, 170f}, {5.92f, 165f},
+			{5f, 100f}, {5.5f, 150f}, {5.42f, 130f}, {5.75f, 150f}, {4.8f, 95f}, {4.9f, 90f}};
+		float[] labels = new float[] {0, 0, 1, 0, 1, 1, 0, 1, 0, 1};
+		int window = 6;
+
+		GaussianNaiveBayesClassifier gnbWindow =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW,
+				GaussianNaiveBayesClassifier.FORGET_SLIDING_WINDOW, window);
+		GaussianNaiveBayesClassifier gnbLast =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW,
+				GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS);
+		for (int index = 0; index < samples.length; index++) {
+			gnbWindow.fit(samples[index], labels[index]);
+		}
+		for (int index = samples.length - window; index < samples.length; index++) {
+			gnbLast.fit(samples[index], labels[index]);
+		}
+
+		float[] testingData = new float[] {5.5f, 140f};
+		double[] expected = gnbLast.getProbabilityScores_TestingSet(testingData);
+		double[] scores = gnbWindow.getProbabilityScores_TestingSet(testingData);
+		//gnbLast saw label 1 first
+		assertEquals(expected[0], scores[1], expected[0] * 0.0001);
+		assertEquals(expected[1], scores[0], expected[1] * 0.0001);
+		assertEquals(gnbLast.predict_TestingSet(testingData), gnbWindow.predict_TestingSet(testingData), 0);
+
+		boolean exceptionThrown = false;
+		try {
+			gnbWindow.fit(Arrays.asList(5f, 100f), 1f);
+		} catch (IllegalStateException e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkForgetting_HalfLife() {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Forgetting, Half Life");
+
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW,
+				GaussianNaiveBayesClassifier.FORGET_HALF_LIFE, 1);
+		//weights 1/2, 1
+		gnb.fit(new float[] {0f}, 0);
+		gnb.fit(new float[] {10f}, 0);
+		gnb.predict_TestingSet(new float[] {5f});
+		assertEquals(6.6667, gnb.getMean(0, 0), 0.0001);
+		//weighted population variance
+		assertEquals(22.2222, gnb.getVar(0, 0), 0.0001);
+
+		//weights are scaled back down, old samples vanish
+		for (int sample = 0; sample < 1000; sample++) {
+			gnb.fit(new float[] {(sample % 2) + 20f}, 0);
+		}
+		gnb.predict_TestingSet(new float[] {5f});
+		assertEquals(20.6667, gnb.getMean(0, 0), 0.0001);
+
+		//label 1 decays away, not scored and pruned
+		gnb.fit(new float[] {39f}, 1);
+		gnb.fit(new float[] {41f}, 1);
+		assertEquals(1.0, gnb.predict_TestingSet(new float[] {40f}), 0);
+		for (int sample = 0; sample < 700; sample++) {
+			gnb.fit(new float[] {(sample % 2) + 20f}, 0);
+		}
+		double[] scores = gnb.getProbabilityScores_TestingSet(new float[] {40f});
+		assertEquals(0, scores[1], 0);
+		assertEquals(0.0, gnb.predict_TestingSet(new float[] {40f}), 0);
+		assertEquals(Double.NEGATIVE_INFINITY, gnb.getLogProbabilityScores_TestingSet(new float[] {40f})[1], 0);
+		assertEquals(0, gnb.getMean(1, 0), 0);
+		assertEquals(0, gnb.getVar(1, 0), 0);
+		//fitted again, starts over
+		gnb.fit(new float[] {29f}, 1);
+		gnb.fit(new float[] {31f}, 1);
+		assertEquals(1.0, gnb.predict_TestingSet(new float[] {30f}), 0);
+		//weights 1/2, 1
+		assertEquals(30.3333, gnb.getMean(1, 0), 0.0001);
+
+		//drift, label 1 moves from around 10 to around 50
+		gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW,
+				GaussianNaiveBayesClassifier.FORGET_HALF_LIFE, 20);
+		Random random = new Random(7);
+		for (int sample = 0; sample < 2000; sample++) {
+			gnb.fit(new float[] {(float) (random.nextGaussian() + 30)}, 0);
+			gnb.fit(new float[] {(float) (random.nextGaussian() + 10)}, 1);
+		}
+		assertEquals(1.0, gnb.predict_TestingSet(new float[] {10f}), 0);
+		for (int sample = 0; sample < 200; sample++) {
+			gnb.fit(new float[] {(float) (random.nextGaussian() + 30)}, 0);
+			gnb.fit(new float[] {(float) (random.nextGaussian() + 50)}, 1);
+		}
+		assertEquals(1.0, gnb.predict_TestingSet(new float[] {50f}), 0);
+		assertEquals(50.0, gnb.getMean(1, 0), 0.5);
+		assertEquals(0.0, gnb.predict_TestingSet(new float[] {30f}), 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkUnfit() {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Unfit");
+
+		float[][] samples = new float[][] {{6f, 180f, 12f}, {5.92f, 190f, 11f}, {5.58f, 170f, 12f}, {5.92f, 165f, 10f},
+			{5f, 100f, 6f}, {5.5f, 150f, 8f}, {5.42f, 130f, 7f}, {5.75f, 150f, 9f}, {4.8f, 95f, 5f}, {4.9f, 90f, 5f}};
+		float[] labels = new float[] {0, 0, 1, 0, 1, 1, 0, 1, 0, 1};
+		float[] testingData = new float[] {5.5f, 140f, 8f};
+
+		for (boolean storage : new boolean[] {GaussianNaiveBayesClassifier.STORE_FEATURE_VALUES, GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS}) {
+			GaussianNaiveBayesClassifier gnbAll =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			GaussianNaiveBayesClassifier gnbKept =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			for (int index = 0; index < samples.length; index++) {
+				gnbAll.fit(samples[index], labels[index]);
+				if ((index != 3) && (index != 7)) {
+					gnbKept.fit(samples[index], labels[index]);
+				}
+			}
+			gnbAll.predict_TestingSet(testingData);
+			gnbAll.unfit(samples[3], labels[3]);
+			gnbAll.unfit(samples[7], labels[7]);
+
+			double[] expected = gnbKept.getProbabilityScores_TestingSet(testingData);
+			double[] scores = gnbAll.getProbabilityScores_TestingSet(testingData);
+			assertEquals(expected[0], scores[0], expected[0] * 0.0001);
+			assertEquals(expected[1], scores[1], expected[1] * 0.0001);
+			assertEquals(gnbKept.getMean(0, 1), gnbAll.getMean(0, 1), 0.0001);
+			assertEquals(gnbKept.getVar(1, 1), gnbAll.getVar(1, 1), 0.01);
+			assertEquals(gnbKept.getFitCount(), gnbAll.getFitCount());
+		}
+
+		//sufficient statistics, feature 1 has no value for label 1, nothing removed
+		GaussianNaiveBayesClassifier gnbStatistics =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW,
+				GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS);
+		gnbStatistics.fit(new float[] {1f, 2f}, 0f);
+		gnbStatistics.fit(new float[] {3f, 4f}, 0f);
+		gnbStatistics.fit(new float[] {5f}, 1f);
+		int fitCount = gnbStatistics.getFitCount();
+		boolean statisticsExceptionThrown = false;
+		try {
+			gnbStatistics.unfit(new float[] {5f, 6f}, 1f);
+		} catch (IllegalArgumentException e) {
+			statisticsExceptionThrown = true;
+		}
+		assertTrue(statisticsExceptionThrown);
+		assertEquals(fitCount, gnbStatistics.getFitCount());
+		gnbStatistics.predict_TestingSet(new float[] {5f, 3f});
+		assertEquals(5f, gnbStatistics.getMean(1, 0), 0);
+		gnbStatistics.unfit(new float[] {3f, 4f}, 0f);
+		gnbStatistics.predict_TestingSet(new float[] {5f, 3f});
+		assertEquals(1f, gnbStatistics.getMean(0, 0), 0);
+		assertEquals(fitCount - 4, gnbStatistics.getFitCount());
+
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		gnb.fit(samples[0], labels[0]);
+		boolean exceptionThrown = false;
+		try {
+			gnb.unfit(samples[1], labels[1]);
+		} catch (IllegalArgumentException e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		//nothing removed
+		gnb.fit(samples[1], labels[1]);
+		gnb.unfit(samples[1], labels[1]);
+		gnb.predict_TestingSet(testingData);
+		assertEquals(6f, gnb.getMean(0, 0), 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkUnmerge() throws Exception {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Unmerge of Partial Models");
+
+		float[][] samples = new float[][] {{6f, 180f, 12f}, {5.92f, 190f, 11f}, {5.58f, 170f, 12f}, {5.92f, 165f, 10f},
+			{5f, 100f, 6f}, {5.5f, 150f, 8f}, {5.42f, 130f, 7f}, {5.75f, 150f, 9f}, {4.8f, 95f, 5f}, {4.9f, 90f, 5f}};
+		float[] labels = new float[] {0, 0, 1, 0, 1, 1, 0, 1, 0, 1};
+		float[] testingData = new float[] {5.5f, 140f, 8f};
+
+		for (boolean storage : new boolean[] {GaussianNaiveBayesClassifier.STORE_FEATURE_VALUES, GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS}) {
+			GaussianNaiveBayesClassifier gnbAll =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			GaussianNaiveBayesClassifier gnbKept =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			GaussianNaiveBayesClassifier gnbFold =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			for (int index = 0; index < samples.length; index++) {
+				gnbAll.fit(samples[index], labels[index]);
+				if ((index % 3) == 1) {
+					gnbFold.fit(samples[index], labels[index]);
+				} else {
+					gnbKept.fit(samples[index], labels[index]);
+				}
+			}
+			gnbAll.predict_TestingSet(testingData);
+			gnbAll.unmerge(gnbFold);
+
+			double[] expected = gnbKept.getProbabilityScores_TestingSet(testingData);
+			double[] scores = gnbAll.getProbabilityScores_TestingSet(testingData);
+			assertEquals(expected[0], scores[0], expected[0] * 0.0001);
+			assertEquals(expected[1], scores[1], expected[1] * 0.0001);
+			assertEquals(gnbKept.getMean(0, 1), gnbAll.getMean(0, 1), 0.0001);
+			assertEquals(gnbKept.getVar(1, 1), gnbAll.getVar(1, 1), 0.01);
+			assertEquals(gnbKept.getFitCount(), gnbAll.getFitCount());
+
+			//label only in the fold, no values left, not scored
+			GaussianNaiveBayesClassifier gnbOnlyInFold =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			gnbOnlyInFold.fit(new float[] {5.5f, 140f, 8f}, 2);
+			gnbAll.fit(new float[] {5.5f, 140f, 8f}, 2);
+			gnbAll.predict_TestingSet(testingData);
+			gnbAll.unmerge(gnbOnlyInFold);
+			scores = gnbAll.getProbabilityScores_TestingSet(testingData);
+			assertEquals(3, scores.length);
+			assertEquals(expected[0], scores[0], expected[0] * 0.0001);
+			assertEquals(expected[1], scores[1], expected[1] * 0.0001);
+			assertEquals(0, scores[2], 0);
+			assertEquals(gnbKept.predict_TestingSet(testingData), gnbAll.predict_TestingSet(testingData), 0);
+			double[] logScores = gnbAll.getLogProbabilityScores_TestingSet(testingData);
+			double[] expectedLog = gnbKept.getLogProbabilityScores_TestingSet(testingData);
+			assertEquals(expectedLog[0], logScores[0], 0.0001);
+			assertEquals(Double.NEGATIVE_INFINITY, logScores[2], 0);
+			gnbAll.setLogSpaceScoring(true);
+			assertEquals(gnbKept.predict_TestingSet(testingData), gnbAll.predictInto(testingData, new double[3]), 0);
+			gnbAll.setLogSpaceScoring(false);
+
+			//label never fitted
+			GaussianNaiveBayesClassifier gnbOther =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			gnbOther.fit(samples[0], 5);
+			boolean exceptionThrown = false;
+			try {
+				gnbAll.unmerge(gnbOther);
+			} catch (Exception e) {
+				exceptionThrown = true;
+			}
+			assertTrue(exceptionThrown);
+		}
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkColumnarFit() throws Exception {
+		log.logln_withClassName(Logger.lF,"");
+
+		System.out.println();		
+		System.out.println();
+		System.out.println("*** TEST *** Check Columnar Fit");
+
+		float[][] samples = new float[][] {{6f, 180f, 12f}, {5.92f, 190f, 11f}, {5.58f, 170f, 12f}, {5.92f, 165f, 10f},
+			{5f, 100f, 6f}, {5.5f, 150f, 8f}, {5.42f, 130f, 7f}, {5.75f, 150f, 9f}};
+		int[] labels = new int[] {0, 0, 0, 0, 1, 1, 1, 1};
+		float[] testingData = new float[] {5.5f, 140f, 8f};
+
+		float[][] columns = new float[3][samples.length];
+		double[][] doubleColumns = new double[3][samples.length];
+		//rows padded to 4 values
+		float[] rows = new float[samples.length * 4];
+		float[] floatLabels = new float[samples.length];
+		for (int index = 0; index < samples.length; index++) {
+			for (int featureIndex = 0; featureIndex < 3; featureIndex++) {
+				columns[featureIndex][index] = samples[index][featureIndex];
+				doubleColumns[featureIndex][index] = samples[index][featureIndex];
+				rows[(index * 4) + featureIndex] = samples[index][featureIndex];
+			}
+			rows[(index * 4) + 3] = -1f;
+			floatLabels[index] = labels[index];
+		}
+
+		for (boolean storage : new boolean[] {GaussianNaiveBayesClassifier.STORE_FEATURE_VALUES, GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS}) {
+			GaussianNaiveBayesClassifier gnbRow =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			for (int index = 0; index < samples.length; index++) {
+				gnbRow.fit(samples[index], labels[index]);
+			}
+			double[] expected = gnbRow.getProbabilityScores_TestingSet(testingData);
+
+			GaussianNaiveBayesClassifier[] gnbColumnar = new GaussianNaiveBayesClassifier[3];
+			for (int index = 0; index < gnbColumnar.length; index++) {
+				gnbColumnar[index] = new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage);
+			}
+			gnbColumnar[0].fitColumns(columns, labels);
+			gnbColumnar[1].fitColumns(doubleColumns, floatLabels);
+			gnbColumnar[2].fitRows(rows, 3, 4, labels);
+
+			for (GaussianNaiveBayesClassifier gnb : gnbColumnar) {
+				double[] scores = gnb.getProbabilityScores_TestingSet(testingData);
+				assertEquals(expected[0], scores[0], expected[0] * 0.000001);
+				assertEquals(expected[1], scores[1], expected[1] * 0.000001);
+				assertEquals(gnbRow.getMean(1, 2), gnb.getMean(1, 2), 0);
+				assertEquals(gnbRow.getVar(0, 1), gnb.getVar(0, 1), 0.0001);
+			}
+		}
+
+		GaussianNaiveBayesClassifier gnb =  new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		boolean exceptionThrown = false;
+		try {
+			gnb.fitColumns(new float[][] {{1f, 2f}, {1f}}, new float[] {0f, 1f});
+		} catch (IllegalArgumentException e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		//the rejected call does not fix the number of features
+		gnb.fitColumns(new float[][] {{1f, 2f, 3f}, {4f, 5f, 6f}, {7f, 8f, 9f}}, new float[] {0f, 1f, 0f});
+		assertEquals(12, gnb.getFitCount());
+
+		exceptionThrown = false;
+		try {
+			gnb.fitRows(rows, 3, 4, new float[samples.length + 1]);
+		} catch (IllegalArgumentException e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
 }
@@ -1,18 +1,25 @@
 package xilodyne.machinelearning.classifier.test;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import mikera.arrayz.NDArray;
 
 import org.junit.Test;
 
+import xilodyne.machinelearning.classifier.bayes.BinaryModelFile;
+import xilodyne.machinelearning.classifier.bayes.CompiledNaiveBayesModel;
 import xilodyne.machinelearning.classifier.bayes.GaussianNaiveBayesClassifier;
+import xilodyne.machinelearning.classifier.bayes.MappedNaiveBayesModel;
 import xilodyne.machinelearning.classifier.bayes.NaiveBayesClassifier;
 import xilodyne.util.logger.Logger;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Austin Davis Holiday (aholiday@xilodyne.com)
@@ -552,6 +559,580 @@ public class Test_NaiveBayes {
 
 	}
 
+	@Test
+	public void checkLogSpaceScoring() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Log Space Scoring");
+
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+
+		//Drew, No, Blue, Short = 1, 2, 3, 4 / Claudia, Yes, Brown, Long = 5, 6, 7, 8
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 4f)), 0f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(5f, 6f, 7f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(9f, 6f, 7f, 4f)), 0f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(10f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(11f, 6f, 7f, 4f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(12f, 6f, 3f, 8f)), 0f);
+
+		List<Float> testingData = new ArrayList<Float>(Arrays.asList(1f, 6f, 3f, 8f));
+		double[] results = nb.getProbabilityScores_TestingSet(testingData);
+		double[] logResults = nb.getLogProbabilityScores_TestingSet(testingData);
+		assertEquals(0.019, Math.exp(logResults[0]), 0.001);
+		assertEquals(0.048, Math.exp(logResults[1]), 0.001);
+		assertEquals(Math.log(results[1]), logResults[1], 0.0001);
+
+		double[] logProba = nb.predictLogProba(testingData);
+		assertEquals(1.0, Math.exp(logProba[0]) + Math.exp(logProba[1]), 0.000001);
+
+		nb.setLogSpaceScoring(true);
+		assertEquals(1.0, nb.predict_TestingSet(testingData), 0);
+
+		//value never seen for label, probability zero
+		logResults = nb.getLogProbabilityScores_TestingSet(new float[] {5f, 6f, 7f, 8f});
+		assertEquals(Double.NEGATIVE_INFINITY, logResults[0], 0);
+		assertEquals(1.0, nb.predict_TestingSet(new ArrayList<Float>(Arrays.asList(5f, 6f, 7f, 8f))), 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkPredictParallel() throws Exception {
+		System.out.println();
+		System.out.println("*** TEST *** Check Parallel Batch Prediction");
+
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 4f)), 0f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(5f, 6f, 7f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(9f, 6f, 7f, 4f)), 0f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(10f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(11f, 6f, 7f, 4f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(12f, 6f, 3f, 8f)), 0f);
+
+		float[][] testingRows = new float[][] { { 1f, 6f, 3f, 8f }, { 9f, 6f, 7f, 4f }, { 5f, 6f, 7f, 8f },
+				{ 12f, 2f, 3f, 4f }, { 1f, 2f, 7f, 4f }, { 13f, 6f, 3f, 8f } };
+		NDArray featuresTest = NDArray.newArray(testingRows.length, 4);
+		for (int row = 0; row < testingRows.length; row++) {
+			for (int column = 0; column < 4; column++) {
+				featuresTest.set(row, column, testingRows[row][column]);
+			}
+		}
+
+		nb.setLogSpaceScoring(true);
+		double[] expected = new double[testingRows.length];
+		for (int row = 0; row < testingRows.length; row++) {
+			List<Float> testingData = new ArrayList<Float>();
+			for (float value : testingRows[row]) {
+				testingData.add(value);
+			}
+			expected[row] = nb.predict_TestingSet(testingData);
+		}
+
+		assertTrue(Arrays.equals(expected, nb.predictParallel(featuresTest)));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		double[] results = new double[testingRows.length];
+		nb.predictParallel(testingRows, results, executor, 1);
+		assertTrue(Arrays.equals(expected, results));
+
+		//float scores as predict_TestingSet when not in log space
+		nb.setLogSpaceScoring(false);
+		for (int row = 0; row < testingRows.length; row++) {
+			List<Float> testingData = new ArrayList<Float>();
+			for (float value : testingRows[row]) {
+				testingData.add(value);
+			}
+			expected[row] = nb.predict_TestingSet(testingData);
+		}
+		nb.predictParallel(testingRows, results, executor, 1);
+		assertTrue(Arrays.equals(expected, results));
+		executor.shutdown();
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkMerge() throws Exception {
+		System.out.println();
+		System.out.println("*** TEST *** Check Merge of Partial Models");
+
+		NaiveBayesClassifier nbAll = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		NaiveBayesClassifier nbFirst = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		NaiveBayesClassifier nbSecond = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+
+		List<List<Float>> samples = new ArrayList<List<Float>>();
+		samples.add(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 4f)));
+		samples.add(new ArrayList<Float>(Arrays.asList(5f, 6f, 7f, 8f)));
+		samples.add(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 8f)));
+		samples.add(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 8f)));
+		samples.add(new ArrayList<Float>(Arrays.asList(9f, 6f, 7f, 4f)));
+		samples.add(new ArrayList<Float>(Arrays.asList(10f, 2f, 3f, 8f)));
+		samples.add(new ArrayList<Float>(Arrays.asList(11f, 6f, 7f, 4f)));
+		samples.add(new ArrayList<Float>(Arrays.asList(12f, 6f, 3f, 8f)));
+		float[] labels = new float[] { 0f, 1f, 1f, 1f, 0f, 1f, 1f, 0f };
+
+		for (int index = 0; index < samples.size(); index++) {
+			nbAll.fit(samples.get(index), labels[index]);
+		}
+		//second shard sees label 1 first
+		for (int index = 0; index < 4; index++) {
+			nbFirst.fit(samples.get(index), labels[index]);
+		}
+		for (int index = 5; index < samples.size(); index++) {
+			nbSecond.fit(samples.get(index), labels[index]);
+		}
+		nbSecond.fit(samples.get(4), labels[4]);
+		nbFirst.merge(nbSecond);
+
+		List<Float> testingData = new ArrayList<Float>(Arrays.asList(1f, 6f, 3f, 8f));
+		double[] expected = nbAll.getProbabilityScores_TestingSet(testingData);
+		double[] results = nbFirst.getProbabilityScores_TestingSet(testingData);
+		assertEquals(expected[0], results[0], 0);
+		assertEquals(expected[1], results[1], 0);
+		assertEquals(nbAll.getFitCount(), nbFirst.getFitCount());
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkBinaryModelFile() throws Exception {
+		System.out.println();
+		System.out.println("*** TEST *** Check Binary Model File");
+
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 4f)), 0f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(5f, 6f, 7f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(9f, 6f, 7f, 4f)), 0f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(10f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(11f, 6f, 7f, 4f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(12f, 6f, 3f, 8f)), 0f);
+
+		File file = File.createTempFile("naivebayes", ".model");
+		file.deleteOnExit();
+		nb.saveModel(file.getPath());
+
+		MappedNaiveBayesModel model = BinaryModelFile.loadNaiveBayes(file.getPath());
+		assertEquals(2, model.getNumberOfLabels());
+		assertEquals(4, model.getNumberOfFeatures());
+
+		float[] testingData = new float[] {1f, 6f, 3f, 8f};
+		double[] expected = nb.getLogProbabilityScores_TestingSet(testingData);
+		double[] scores = new double[2];
+		model.getLogScores(testingData, scores);
+		assertEquals(expected[0], scores[0], 0.000001);
+		assertEquals(expected[1], scores[1], 0.000001);
+		assertEquals(1.0, model.predict(testingData), 0);
+
+		//value never seen for label
+		model.getLogScores(new float[] {5f, 6f, 7f, 8f}, scores);
+		assertEquals(Double.NEGATIVE_INFINITY, scores[0], 0);
+		assertEquals(1.0, model.predict(new float[] {5f, 6f, 7f, 8f}), 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkPredictInto() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Predict Into Caller Supplied Scores");
+
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 4f)), 0f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(5f, 6f, 7f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(1f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(9f, 6f, 7f, 4f)), 0f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(10f, 2f, 3f, 8f)), 1f);
+		nb.fit(new ArrayList<Float>(Arrays.asList(11f, 6f, 7f, 4f)), 1f);
+
+		assertEquals(2, nb.getNumberOfLabels());
+		double[] scores = new double[nb.getNumberOfLabels()];
+		List<Float> testingData = new ArrayList<Float>(Arrays.asList(1f, 6f, 3f, 8f));
+		float[] row = new float[] {1f, 6f, 3f, 8f};
+
+		//tables are copied again after more fitting
+		nb.predictInto(row, scores);
+		nb.fit(new ArrayList<Float>(Arrays.asList(12f, 6f, 3f, 8f)), 0f);
+
+		double label = nb.predictInto(row, scores);
+		double[] expected = nb.getProbabilityScores_TestingSet(testingData);
+		assertEquals(expected[0], scores[0], 0);
+		assertEquals(expected[1], scores[1], 0);
+		assertEquals(nb.predict_TestingSet(testingData), label, 0);
+
+		nb.setLogSpaceScoring(true);
+		label = nb.predictInto(row, scores);
+		expected = nb.getLogProbabilityScores_TestingSet(row);
+		assertEquals(expected[0], scores[0], 0);
+		assertEquals(expected[1], scores[1], 0);
+		assertEquals(1.0, label, 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkManyLabels() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Many Labels");
+
+		int numberOfLabels = 300;
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		for (int sample = 0; sample < 2; sample++) {
+			for (int label = 0; label < numberOfLabels; label++) {
+				nb.fit(new ArrayList<Float>(Arrays.asList((float) label, (float) sample)), (float) label);
+			}
+		}
+		assertEquals(numberOfLabels, nb.getNumberOfLabels());
+		for (int label = 0; label < numberOfLabels; label += 37) {
+			List<Float> testingData = new ArrayList<Float>(Arrays.asList((float) label, 1f));
+			assertEquals(label, nb.predict_TestingSet(testingData), 0);
+			assertEquals(0.5f / numberOfLabels, nb.getProbabilityScores_TestingSet(testingData)[label], 0.000001);
+		}
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkUnfit() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Unfit");
+
+		float[][] samples = new float[][] {{1f, 2f, 3f, 4f}, {5f, 6f, 7f, 8f}, {1f, 2f, 3f, 8f}, {1f, 2f, 3f, 8f},
+			{9f, 6f, 7f, 4f}, {10f, 2f, 3f, 8f}, {11f, 6f, 7f, 4f}, {12f, 6f, 3f, 8f}};
+		float[] labels = new float[] { 0f, 1f, 1f, 1f, 0f, 1f, 1f, 0f };
+
+		NaiveBayesClassifier nbAll = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		NaiveBayesClassifier nbKept = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		for (int index = 0; index < samples.length; index++) {
+			List<Float> sample = new ArrayList<Float>();
+			for (float value : samples[index]) {
+				sample.add(value);
+			}
+			nbAll.fit(sample, labels[index]);
+			if ((index != 2) && (index != 6)) {
+				nbKept.fit(sample, labels[index]);
+			}
+		}
+		nbAll.unfit(samples[2], labels[2]);
+		nbAll.unfit(samples[6], labels[6]);
+
+		float[] testingData = new float[] {1f, 6f, 3f, 8f};
+		double[] expected = nbKept.getLogProbabilityScores_TestingSet(testingData);
+		double[] results = nbAll.getLogProbabilityScores_TestingSet(testingData);
+		assertEquals(expected[0], results[0], 0);
+		assertEquals(expected[1], results[1], 0);
+		assertEquals(nbKept.getFitCount(), nbAll.getFitCount());
+
+		//value 11 only fitted by the removed sample
+		results = nbAll.getLogProbabilityScores_TestingSet(new float[] {11f, 6f, 7f, 4f});
+		assertEquals(Double.NEGATIVE_INFINITY, results[0], 0);
+		assertEquals(Double.NEGATIVE_INFINITY, results[1], 0);
+
+		boolean exceptionThrown = false;
+		try {
+			nbAll.unfit(samples[6], labels[6]);
+		} catch (IllegalArgumentException e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkUnmerge() throws Exception {
+		System.out.println();
+		System.out.println("*** TEST *** Check Unmerge");
+
+		float[][] samples = new float[][] {{1f, 2f, 3f, 4f}, {5f, 6f, 7f, 8f}, {1f, 2f, 3f, 8f}, {1f, 2f, 3f, 8f},
+			{9f, 6f, 7f, 4f}, {10f, 2f, 3f, 8f}, {11f, 6f, 7f, 4f}, {12f, 6f, 3f, 8f}};
+		float[] labels = new float[] { 0f, 1f, 1f, 1f, 0f, 1f, 1f, 0f };
+
+		NaiveBayesClassifier nbAll = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		NaiveBayesClassifier nbKept = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		NaiveBayesClassifier nbFold = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		for (int index = 0; index < samples.length; index++) {
+			nbAll.fit(samples[index], labels[index]);
+			if ((index == 2) || (index == 6)) {
+				nbFold.fit(samples[index], labels[index]);
+			} else {
+				nbKept.fit(samples[index], labels[index]);
+			}
+		}
+		nbAll.unmerge(nbFold);
+
+		float[] testingData = new float[] {1f, 6f, 3f, 8f};
+		double[] expected = nbKept.getLogProbabilityScores_TestingSet(testingData);
+		double[] results = nbAll.getLogProbabilityScores_TestingSet(testingData);
+		assertEquals(expected[0], results[0], 0);
+		assertEquals(expected[1], results[1], 0);
+
+		//value 11 only fitted by the removed fold
+		results = nbAll.getLogProbabilityScores_TestingSet(new float[] {11f, 6f, 7f, 4f});
+		assertEquals(Double.NEGATIVE_INFINITY, results[0], 0);
+		assertEquals(Double.NEGATIVE_INFINITY, results[1], 0);
+
+		boolean exceptionThrown = false;
+		try {
+			nbAll.unmerge(nbFold);
+		} catch (Exception e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkPredictionCache() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Prediction Cache");
+
+		float[][] samples = new float[][] {{1f, 2f, 3f, 4f}, {5f, 6f, 7f, 8f}, {1f, 2f, 3f, 8f}, {1f, 2f, 3f, 8f},
+			{9f, 6f, 7f, 4f}, {10f, 2f, 3f, 8f}, {11f, 6f, 7f, 4f}, {12f, 6f, 3f, 8f}};
+		float[] labels = new float[] { 0f, 1f, 1f, 1f, 0f, 1f, 1f, 0f };
+
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		NaiveBayesClassifier nbUncached = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_IGNORE);
+		for (int index = 0; index < samples.length; index++) {
+			nb.fit(samples[index], labels[index]);
+			nbUncached.fit(samples[index], labels[index]);
+		}
+		nb.setPredictionCacheSize(2);
+
+		float[] first = new float[] {1f, 6f, 3f, 8f};
+		double[] expected = new double[2];
+		double expectedLabel = nbUncached.predictInto(first, expected);
+		double[] scores = new double[2];
+		assertEquals(expectedLabel, nb.predictInto(first, scores), 0);
+		//sample array reused by the caller, the cached key is a copy
+		float[] reused = first.clone();
+		scores = new double[2];
+		assertEquals(expectedLabel, nb.predictInto(reused, scores), 0);
+		assertEquals(expected[0], scores[0], 0);
+		assertEquals(expected[1], scores[1], 0);
+		assertEquals(1, nb.getPredictionCacheHits());
+		assertEquals(1, nb.getPredictionCacheMisses());
+
+		//least recently used (first) evicted
+		nb.predictInto(samples[0], scores);
+		nb.predictInto(samples[1], scores);
+		assertEquals(2, nb.getPredictionCacheSize());
+		nb.predictInto(first, scores);
+		assertEquals(1, nb.getPredictionCacheHits());
+		assertEquals(4, nb.getPredictionCacheMisses());
+		//only predictInto is cached
+		nb.predict_TestingSet(Arrays.asList(1f, 6f, 3f, 8f));
+		nb.getLogProbabilityScores_TestingSet(first);
+		assertEquals(1, nb.getPredictionCacheHits());
+		assertEquals(4, nb.getPredictionCacheMisses());
+
+		//more training data clears the cache
+		nb.fit(first, 0f);
+		nbUncached.fit(first, 0f);
+		assertEquals(0, nb.getPredictionCacheSize());
+		expectedLabel = nbUncached.predictInto(first, expected);
+		assertEquals(expectedLabel, nb.predictInto(first, scores), 0);
+		assertEquals(expected[0], scores[0], 0);
+		assertEquals(expected[1], scores[1], 0);
+
+		nb.setPredictionCacheSize(0);
+		assertEquals(0, nb.getPredictionCacheMisses());
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkDictionaryEncodedCounts() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Dictionary Encoded Counts");
+
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		nb.setLogSpaceScoring(true);
+		//values fitted before the count arrays grow for labels 4 to 9
+		for (int label = 0; label < 10; label++) {
+			for (int value = 0; value < 20; value++) {
+				nb.fit(new float[] {value, (value + label) % 7, label}, label);
+			}
+		}
+		nb.fit(new float[] {Float.NaN, -0f, 3f}, 3);
+		assertEquals(10, nb.getNumberOfLabels());
+
+		double[] scores = new double[10];
+		for (int label = 0; label < 10; label++) {
+			float[] sample = new float[] {5f, (5 + label) % 7, label};
+			assertEquals(label, nb.predictInto(sample, scores), 0);
+			double[] expected = nb.getLogProbabilityScores_TestingSet(sample);
+			for (int labelIndex = 0; labelIndex < 10; labelIndex++) {
+				assertEquals(expected[labelIndex], scores[labelIndex], 0.000001);
+			}
+		}
+		//NaN is one value, -0 and 0 the same value
+		assertEquals(3, nb.predictInto(new float[] {Float.NaN, 0f, 3f}, scores), 0);
+
+		//value counted for no label after unfit, not fitted
+		nb.unfit(new float[] {Float.NaN, -0f, 3f}, 3);
+		nb.predictInto(new float[] {Float.NaN, 0f, 3f}, scores);
+		assertEquals(Double.NEGATIVE_INFINITY, scores[3], 0);
+		nb.fit(new float[] {Float.NaN, -0f, 3f}, 3);
+		assertEquals(3, nb.predictInto(new float[] {Float.NaN, 0f, 3f}, scores), 0);
+
+		//window of distinct values fitted and unfitted, dead values are reclaimed
+		NaiveBayesClassifier window = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		int windowSize = 16;
+		for (int value = 1; value <= 10000; value++) {
+			window.fit(new float[] {value, value % 3}, value % 2);
+			if (value > windowSize) {
+				window.unfit(new float[] {value - windowSize, (value - windowSize) % 3}, (value - windowSize) % 2);
+			}
+			assertTrue(window.getNumberOfStoredValues(0) <= 2 * windowSize);
+		}
+		assertEquals(3, window.getNumberOfStoredValues(1));
+		window.setLogSpaceScoring(true);
+		double[] windowScores = new double[2];
+		assertEquals(1, window.predictInto(new float[] {9999f, 0f}, windowScores), 0);
+		double[] expected = window.getLogProbabilityScores_TestingSet(new float[] {9999f, 0f});
+		for (int labelIndex = 0; labelIndex < 2; labelIndex++) {
+			assertEquals(expected[labelIndex], windowScores[labelIndex], 0.000001);
+		}
+		//unfitted value no longer fitted
+		window.predictInto(new float[] {5f, 2f}, windowScores);
+		assertEquals(Double.NEGATIVE_INFINITY, windowScores[1], 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkCompiledModel() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Compiled Model");
+
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		nb.setLogSpaceScoring(true);
+		nb.fit(new float[] {1, 1}, 0);
+		nb.fit(new float[] {1, 2}, 0);
+		nb.fit(new float[] {2, 3}, 1);
+		nb.fit(new float[] {2, 1}, 1);
+		nb.fit(new float[] {1, 1}, 0);
+
+		//no smoothing, same scores as the classifier
+		CompiledNaiveBayesModel model = nb.compile();
+		assertEquals(2, model.getNumberOfLabels());
+		assertEquals(2, model.getNumberOfFeatures());
+		double[] scores = new double[2];
+		float[][] samples = new float[][] {{1, 1}, {1, 2}, {2, 3}, {2, 1}};
+		for (float[] sample : samples) {
+			double[] expected = nb.getLogProbabilityScores_TestingSet(sample);
+			model.getLogScores(sample, scores);
+			for (int labelIndex = 0; labelIndex < 2; labelIndex++) {
+				assertEquals(expected[labelIndex], scores[labelIndex], 0.000001);
+			}
+		}
+		assertEquals(0, model.predict(new float[] {1, 2}), 0);
+		assertEquals(1, model.predict(new float[] {2, 3}), 0);
+
+		//Laplace, (count + 1) / (label count + values of the feature)
+		model = nb.compile(NaiveBayesClassifier.SMOOTHING_LAPLACE);
+		assertEquals(1, model.getSmoothing(), 0);
+		model.getLogScores(new float[] {2, 2}, scores);
+		assertEquals(Math.log(3.0 / 5) + Math.log(1.0 / 5) + Math.log(2.0 / 6), scores[0], 0.000001);
+		assertEquals(Math.log(2.0 / 5) + Math.log(3.0 / 4) + Math.log(1.0 / 5), scores[1], 0.000001);
+		assertEquals(1, model.predictInto(new float[] {2, 2}, scores), 0);
+
+		//values not fitted
+		model.getLogScores(new float[] {9, 9}, scores);
+		assertEquals(Math.log(3.0 / 5) + Math.log(1.0 / 5) + Math.log(1.0 / 6), scores[0], 0.000001);
+		assertEquals(Math.log(2.0 / 5) + Math.log(1.0 / 4) + Math.log(1.0 / 5), scores[1], 0.000001);
+
+		//later fit not in the compiled model
+		nb.fit(new float[] {9, 9}, 1);
+		model.getLogScores(new float[] {9, 9}, scores);
+		assertEquals(Math.log(2.0 / 5) + Math.log(1.0 / 4) + Math.log(1.0 / 5), scores[1], 0.000001);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkUnseenValuePolicy() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Unseen Value Policy");
+
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		nb.setLogSpaceScoring(true);
+		nb.fit(new float[] {1, 1}, 0);
+		nb.fit(new float[] {1, 2}, 0);
+		nb.fit(new float[] {2, 3}, 1);
+		nb.fit(new float[] {2, 1}, 1);
+		nb.fit(new float[] {1, 1}, 0);
+
+		//feature 0 value never fitted
+		float[] sample = new float[] {9, 1};
+		double[] scores = new double[2];
+		nb.predictInto(sample, scores);
+		assertEquals(Double.NEGATIVE_INFINITY, scores[0], 0);
+		assertEquals(Double.NEGATIVE_INFINITY, scores[1], 0);
+		assertEquals(1, nb.getUnseenValueCount(0));
+		assertEquals(0, nb.getUnseenValueCount(1));
+
+		nb.setUnseenValuePolicy(NaiveBayesClassifier.UNSEEN_VALUE_IGNORE);
+		assertEquals(0, nb.predictInto(sample, scores), 0);
+		assertEquals(Math.log(3.0 / 5) + Math.log(2.0 / 3), scores[0], 0.000001);
+		assertEquals(Math.log(2.0 / 5) + Math.log(1.0 / 2), scores[1], 0.000001);
+		double[] logScores = nb.getLogProbabilityScores_TestingSet(sample);
+		assertEquals(scores[0], logScores[0], 0.000001);
+		assertEquals(scores[1], logScores[1], 0.000001);
+
+		//1 / (values fitted for the label + values of the feature), as Laplace compiled model
+		nb.setUnseenValuePolicy(NaiveBayesClassifier.UNSEEN_VALUE_SMOOTHING);
+		nb.predictInto(sample, scores);
+		assertEquals(Math.log(3.0 / 5) + Math.log(1.0 / 5) + Math.log(2.0 / 3), scores[0], 0.000001);
+		assertEquals(Math.log(2.0 / 5) + Math.log(1.0 / 4) + Math.log(1.0 / 2), scores[1], 0.000001);
+		logScores = nb.getLogProbabilityScores_TestingSet(sample);
+		assertEquals(scores[0], logScores[0], 0.000001);
+		assertEquals(scores[1], logScores[1], 0.000001);
+		nb.setLogSpaceScoring(false);
+		nb.predictInto(sample, scores);
+		assertEquals((3.0 / 5) * (1.0 / 5) * (2.0 / 3), scores[0], 0.000001);
+		assertEquals((2.0 / 5) * (1.0 / 4) * (1.0 / 2), scores[1], 0.000001);
+
+		//values fitted only for label 1, zero counts of label 0 smoothed, not counted as unseen
+		float[] otherLabelSample = new float[] {2, 3};
+		nb.predictInto(otherLabelSample, scores);
+		assertEquals((3.0 / 5) * (1.0 / 5) * (1.0 / 6), scores[0], 0.000001);
+		assertEquals((2.0 / 5) * 1.0 * (1.0 / 2), scores[1], 0.000001);
+		double[] probabilityScores = nb.getProbabilityScores_TestingSet(Arrays.asList(2f, 3f));
+		assertEquals(scores[0], probabilityScores[0], 0.000001);
+		nb.setLogSpaceScoring(true);
+		nb.predictInto(otherLabelSample, scores);
+		assertEquals(Math.log(3.0 / 5) + Math.log(1.0 / 5) + Math.log(1.0 / 6), scores[0], 0.000001);
+		logScores = nb.getLogProbabilityScores_TestingSet(otherLabelSample);
+		assertEquals(scores[0], logScores[0], 0.000001);
+		assertEquals(scores[1], logScores[1], 0.000001);
+		nb.setLogSpaceScoring(false);
+
+		assertEquals(6, nb.getUnseenValueCount(0));
+		assertEquals(6, nb.getUnseenValueTotal());
+		assertEquals(1, nb.getUnseenValueCounts().size());
+		nb.resetUnseenValueCounts();
+		assertEquals(0, nb.getUnseenValueCount(0));
+
+		boolean exceptionThrown = false;
+		try {
+			nb.setUnseenValuePolicy(3);
+		} catch (IllegalArgumentException e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
 	private int getNextID() {
 		this.nextNumber++;
 		return this.nextNumber;
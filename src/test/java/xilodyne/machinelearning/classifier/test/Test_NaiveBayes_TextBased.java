@@ -1,14 +1,28 @@
 package xilodyne.machinelearning.classifier.test;
 
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
 
+import xilodyne.machinelearning.classifier.bayes.BinaryModelFile;
+import xilodyne.machinelearning.classifier.bayes.MappedTextNaiveBayesModel;
 import xilodyne.machinelearning.classifier.bayes.NaiveBayesClassifier_UsingTextValues;
+import xilodyne.machinelearning.classifier.bayes.PreparedQuery;
 
 import xilodyne.util.logger.Logger;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Austin Davis Holiday (aholiday@xilodyne.com)
@@ -215,4 +229,337 @@ public class Test_NaiveBayes_TextBased {
 	}
 
 
+	@Test
+	public void checkPredictionCache() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Prediction Cache");
+
+		String[] featureCategories = new String[]{"Name",">170cm","Eye","Hair"};
+		String[][] samples = new String[][] {{"Drew","No","Blue","Short","Male"}, {"Claudia","Yes","Brown","Long","Female"},
+			{"Drew","No","Blue","Long","Female"}, {"Drew","No","Blue","Long","Female"}, {"Alberto","Yes","Brown","Short","Male"},
+			{"Karin","No","Blue","Long","Female"}, {"Nina","Yes","Brown","Short","Female"}, {"Sergio","Yes","Blue","Long","Male"}};
+
+		NaiveBayesClassifier_UsingTextValues nb = new NaiveBayesClassifier_UsingTextValues(NaiveBayesClassifier_UsingTextValues.EMPTY_SAMPLES_IGNORE);
+		for (String[] sample : samples) {
+			for (int index = 0; index < featureCategories.length; index++) {
+				nb.fit(featureCategories[index], sample[index], sample[featureCategories.length]);
+			}
+		}
+		nb.setPredictionCacheSize(8);
+
+		Hashtable<String, String> testingData_OneSet = new Hashtable<String, String>();
+		testingData_OneSet.put(featureCategories[0], "Drew");
+		testingData_OneSet.put(featureCategories[1], "Yes");
+		testingData_OneSet.put(featureCategories[2], "Blue");
+		testingData_OneSet.put(featureCategories[3], "Long");
+
+		assertEquals("FEMALE", nb.predict_TestingSet(testingData_OneSet).toUpperCase());
+		Hashtable<String, String> sameSet = new Hashtable<String, String>(testingData_OneSet);
+		assertEquals("FEMALE", nb.predict_TestingSet(sameSet).toUpperCase());
+		assertEquals(1, nb.getPredictionCacheHits());
+		assertEquals(1, nb.getPredictionCacheMisses());
+		assertEquals(1, nb.getPredictionCacheSize());
+
+		//more training data clears the cache, Drew is now Male
+		for (int count = 0; count < 4; count++) {
+			nb.fit(featureCategories[0], "Drew", "Male");
+		}
+		assertEquals(0, nb.getPredictionCacheSize());
+		assertEquals("MALE", nb.predict_TestingSet(testingData_OneSet).toUpperCase());
+		assertEquals(2, nb.getPredictionCacheMisses());
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkBinaryModelFile() throws Exception {
+		System.out.println();
+		System.out.println("*** TEST *** Check Binary Model File");
+
+		String[] featureCategories = new String[]{"Name",">170cm","Eye","Hair"};
+		String[][] samples = new String[][] {{"Drew","No","Blue","Short","Male"}, {"Claudia","Yes","Brown","Long","Female"},
+			{"Drew","No","Blue","Long","Female"}, {"Drew","No","Blue","Long","Female"}, {"Alberto","Yes","Brown","Short","Male"},
+			{"Karin","No","Blue","Long","Female"}, {"Nina","Yes","Brown","Short","Female"}, {"Sergio","Yes","Blue","Long","Male"}};
+
+		NaiveBayesClassifier_UsingTextValues nb = new NaiveBayesClassifier_UsingTextValues(NaiveBayesClassifier_UsingTextValues.EMPTY_SAMPLES_IGNORE);
+		for (String[] sample : samples) {
+			for (int index = 0; index < featureCategories.length; index++) {
+				nb.fit(featureCategories[index], sample[index], sample[featureCategories.length]);
+			}
+		}
+
+		File file = File.createTempFile("nbtext", ".model");
+		file.deleteOnExit();
+		nb.saveModel(file.getPath());
+		MappedTextNaiveBayesModel model = BinaryModelFile.loadNaiveBayesText(file.getPath());
+		assertEquals(4, model.getNumberOfFeatures());
+
+		Hashtable<String, String> testingData_OneSet = new Hashtable<String, String>();
+		testingData_OneSet.put(featureCategories[0], "Drew");
+		testingData_OneSet.put(featureCategories[1], "Yes");
+		testingData_OneSet.put(featureCategories[2], "Blue");
+		testingData_OneSet.put(featureCategories[3], "Long");
+
+		double[] expected = nb.getProbabilityScores_TestingSet(testingData_OneSet);
+		double[] scores = new double[2];
+		model.getLogScores(testingData_OneSet, scores);
+		assertEquals(expected[0], Math.exp(scores[0]), 0.000001);
+		assertEquals(expected[1], Math.exp(scores[1]), 0.000001);
+		assertEquals(nb.predict_TestingSet(testingData_OneSet), model.predict(testingData_OneSet));
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+
+	@Test
+	public void checkUnseenValuePolicy() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Unseen Value Policy");
+
+		String[] featureCategories = new String[]{"Name",">170cm","Eye","Hair"};
+		String[][] samples = new String[][] {{"Drew","No","Blue","Short","Male"}, {"Claudia","Yes","Brown","Long","Female"},
+			{"Drew","No","Blue","Long","Female"}, {"Drew","No","Blue","Long","Female"}, {"Alberto","Yes","Brown","Short","Male"},
+			{"Karin","No","Blue","Long","Female"}, {"Nina","Yes","Brown","Short","Female"}, {"Sergio","Yes","Blue","Long","Male"}};
+
+		NaiveBayesClassifier_UsingTextValues nb = new NaiveBayesClassifier_UsingTextValues(NaiveBayesClassifier_UsingTextValues.EMPTY_SAMPLES_IGNORE);
+		for (String[] sample : samples) {
+			for (int index = 0; index < featureCategories.length; index++) {
+				nb.fit(featureCategories[index], sample[index], sample[featureCategories.length]);
+			}
+		}
+
+		//name never fitted
+		Hashtable<String, String> testingData_OneSet = new Hashtable<String, String>();
+		testingData_OneSet.put(featureCategories[0], "Jo");
+		testingData_OneSet.put(featureCategories[1], "No");
+		testingData_OneSet.put(featureCategories[2], "Blue");
+		testingData_OneSet.put(featureCategories[3], "Long");
+
+		double[] scores = nb.getProbabilityScores_TestingSet(testingData_OneSet);
+		assertEquals(0, scores[0], 0);
+		assertEquals(0, scores[1], 0);
+		assertEquals(1, nb.getUnseenValueCount("Name"));
+		assertEquals(1, nb.getUnseenValueCount("NAME"));
+		assertEquals(0, nb.getUnseenValueCount("Eye"));
+
+		nb.setUnseenValuePolicy(NaiveBayesClassifier_UsingTextValues.UNSEEN_VALUE_IGNORE);
+		assertEquals("FEMALE", nb.predict_TestingSet(testingData_OneSet).toUpperCase());
+
+		nb.setUnseenValuePolicy(NaiveBayesClassifier_UsingTextValues.UNSEEN_VALUE_SMOOTHING);
+		double[] smoothed = nb.getProbabilityScores_TestingSet(testingData_OneSet);
+		//1 / (names fitted for the label + 6 names)
+		assertTrue(smoothed[0] > 0);
+		assertTrue(smoothed[1] > 0);
+
+		//name fitted only for female, smoothed for male, not counted as unseen
+		Hashtable<String, String> otherLabelData = new Hashtable<String, String>();
+		otherLabelData.put(featureCategories[0], "Nina");
+		otherLabelData.put(featureCategories[1], "Yes");
+		otherLabelData.put(featureCategories[2], "Brown");
+		otherLabelData.put(featureCategories[3], "Short");
+		smoothed = nb.getProbabilityScores_TestingSet(otherLabelData);
+		assertTrue(smoothed[0] > 0);
+		assertTrue(smoothed[1] > 0);
+		nb.publishSnapshot();
+		double[] snapshotScores = nb.getProbabilityScores_TestingSet(otherLabelData);
+		assertEquals(smoothed[0], snapshotScores[0], 0);
+		assertEquals(smoothed[1], snapshotScores[1], 0);
+		nb.clearSnapshot();
+		assertEquals(3, nb.getUnseenValueTotal());
+
+		//feature never fitted is unseen, not an error
+		testingData_OneSet.put("Shoe", "Large");
+		nb.predict_TestingSet(testingData_OneSet);
+		assertEquals(1, nb.getUnseenValueCount("Shoe"));
+		assertEquals(5, nb.getUnseenValueTotal());
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkPublishedSnapshot() throws Exception {
+		System.out.println();
+		System.out.println("*** TEST *** Check Published Snapshot");
+
+		final String[] featureCategories = new String[]{"Name",">170cm","Eye","Hair"};
+		String[][] samples = new String[][] {{"Drew","No","Blue","Short","Male"}, {"Claudia","Yes","Brown","Long","Female"},
+			{"Drew","No","Blue","Long","Female"}, {"Drew","No","Blue","Long","Female"}, {"Alberto","Yes","Brown","Short","Male"},
+			{"Karin","No","Blue","Long","Female"}, {"Nina","Yes","Brown","Short","Female"}, {"Sergio","Yes","Blue","Long","Male"}};
+
+		final NaiveBayesClassifier_UsingTextValues nb = new NaiveBayesClassifier_UsingTextValues(NaiveBayesClassifier_UsingTextValues.EMPTY_SAMPLES_IGNORE);
+		for (String[] sample : samples) {
+			for (int index = 0; index < featureCategories.length; index++) {
+				nb.fit(featureCategories[index], sample[index], sample[featureCategories.length]);
+			}
+		}
+
+		final Hashtable<String, String> testingData_OneSet = new Hashtable<String, String>();
+		testingData_OneSet.put(featureCategories[0], "Drew");
+		testingData_OneSet.put(featureCategories[1], "Yes");
+		testingData_OneSet.put(featureCategories[2], "Blue");
+		testingData_OneSet.put(featureCategories[3], "Long");
+
+		double[] expected = nb.getProbabilityScores_TestingSet(testingData_OneSet);
+		nb.publishSnapshot();
+		assertTrue(nb.isSnapshotPublished());
+		double[] scores = nb.getProbabilityScores_TestingSet(testingData_OneSet);
+		assertEquals(expected[0], scores[0], 0);
+		assertEquals(expected[1], scores[1], 0);
+		assertEquals("FEMALE", nb.predict_TestingSet(testingData_OneSet).toUpperCase());
+
+		//readers predict from the snapshot while the writer fits, Drew is Male once published
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+		for (int thread = 0; thread < 4; thread++) {
+			readers.add(executor.submit(new Callable<Integer>() {
+				public Integer call() {
+					Hashtable<String, String> testingData = new Hashtable<String, String>(testingData_OneSet);
+					int predicted = 0;
+					for (int count = 0; count < 2000; count++) {
+						String label = nb.predict_TestingSet(testingData).toUpperCase();
+						assertTrue(label.equals("FEMALE") || label.equals("MALE"));
+						predicted++;
+					}
+					return predicted;
+				}
+			}));
+		}
+		for (int count = 0; count < 4; count++) {
+			nb.fit(featureCategories[0], "Drew", "Male");
+		}
+		assertEquals("FEMALE", nb.predict_TestingSet(testingData_OneSet).toUpperCase());
+		//changing the policy does not publish the new fits
+		nb.setUnseenValuePolicy(NaiveBayesClassifier_UsingTextValues.UNSEEN_VALUE_SMOOTHING);
+		assertEquals("FEMALE", nb.predict_TestingSet(testingData_OneSet).toUpperCase());
+		assertEquals(expected[0], nb.getProbabilityScores_TestingSet(testingData_OneSet)[0], 0);
+		nb.publishSnapshot();
+		for (Future<Integer> reader : readers) {
+			assertEquals(2000, reader.get().intValue());
+		}
+		executor.shutdown();
+		assertEquals("MALE", nb.predict_TestingSet(testingData_OneSet).toUpperCase());
+
+		nb.clearSnapshot();
+		assertEquals("MALE", nb.predict_TestingSet(testingData_OneSet).toUpperCase());
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkPublishedSnapshot_PredictionCache() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Published Snapshot, Prediction Cache");
+
+		final String[] featureCategories = new String[]{"Name",">170cm","Eye","Hair"};
+		String[][] samples = new String[][] {{"Drew","No","Blue","Short","Male"}, {"Claudia","Yes","Brown","Long","Female"},
+			{"Drew","No","Blue","Long","Female"}, {"Drew","No","Blue","Long","Female"}, {"Alberto","Yes","Brown","Short","Male"},
+			{"Karin","No","Blue","Long","Female"}, {"Nina","Yes","Brown","Short","Female"}, {"Sergio","Yes","Blue","Long","Male"}};
+
+		final NaiveBayesClassifier_UsingTextValues nb = new NaiveBayesClassifier_UsingTextValues(NaiveBayesClassifier_UsingTextValues.EMPTY_SAMPLES_IGNORE);
+		for (String[] sample : samples) {
+			for (int index = 0; index < featureCategories.length; index++) {
+				nb.fit(featureCategories[index], sample[index], sample[featureCategories.length]);
+			}
+		}
+		nb.setPredictionCacheSize(8);
+		nb.publishSnapshot();
+
+		Hashtable<String, String> testingData_OneSet = new Hashtable<String, String>();
+		testingData_OneSet.put(featureCategories[0], "Drew");
+		testingData_OneSet.put(featureCategories[1], "Yes");
+		testingData_OneSet.put(featureCategories[2], "Blue");
+		testingData_OneSet.put(featureCategories[3], "Long");
+
+		PreparedQuery query = nb.prepareQuery(testingData_OneSet);
+		assertEquals("FEMALE", nb.predict_TestingSet(query).toUpperCase());
+
+		//a reader scores the snapshot, the writer publishes before the reader puts the label in the cache,
+		//the testing data publishes when the snapshot reads it
+		final AtomicBoolean publishWhileScoring = new AtomicBoolean(true);
+		Hashtable<String, String> testingData = new Hashtable<String, String>(testingData_OneSet) {
+			private static final long serialVersionUID = 1L;
+
+			public synchronized Set<Map.Entry<String, String>> entrySet() {
+				if (publishWhileScoring.getAndSet(false)) {
+					for (int count = 0; count < 4; count++) {
+						nb.fit(featureCategories[0], "Drew", "Male");
+					}
+					nb.publishSnapshot();
+				}
+				return super.entrySet();
+			}
+		};
+		assertEquals("FEMALE", nb.predict_TestingSet(testingData).toUpperCase());
+		assertTrue(!publishWhileScoring.get());
+		//the label of the previous snapshot was not cached
+		assertEquals("MALE", nb.predict_TestingSet(query).toUpperCase());
+		assertEquals("MALE", nb.predict_TestingSet(testingData_OneSet).toUpperCase());
+		assertEquals(1, nb.getPredictionCacheSize());
+		assertEquals("MALE", nb.predict_TestingSet(testingData_OneSet).toUpperCase());
+		assertEquals(1, nb.getPredictionCacheHits());
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkPreparedQuery() {
+		System.out.println();
+		System.out.println("*** TEST *** Check Prepared Query");
+
+		String[] featureCategories = new String[]{"Name",">170cm","Eye","Hair"};
+		String[][] samples = new String[][] {{"Drew","No","Blue","Short","Male"}, {"Claudia","Yes","Brown","Long","Female"},
+			{"Drew","No","Blue","Long","Female"}, {"Drew","No","Blue","Long","Female"}, {"Alberto","Yes","Brown","Short","Male"},
+			{"Karin","No","Blue","Long","Female"}, {"Nina","Yes","Brown","Short","Female"}, {"Sergio","Yes","Blue","Long","Male"}};
+
+		NaiveBayesClassifier_UsingTextValues nb = new NaiveBayesClassifier_UsingTextValues(NaiveBayesClassifier_UsingTextValues.EMPTY_SAMPLES_IGNORE);
+		for (String[] sample : samples) {
+			for (int index = 0; index < featureCategories.length; index++) {
+				nb.fit(featureCategories[index], sample[index], sample[featureCategories.length]);
+			}
+		}
+
+		//names and values in any case
+		Hashtable<String, String> testingData_OneSet = new Hashtable<String, String>();
+		testingData_OneSet.put("name", "dREW");
+		testingData_OneSet.put(">170CM", "Yes");
+		testingData_OneSet.put("Eye", "BLUE");
+		testingData_OneSet.put("hair", "long");
+
+		PreparedQuery query = nb.prepareQuery(testingData_OneSet);
+		assertEquals(4, query.getNumberOfFeatures());
+		double[] expected = nb.getProbabilityScores_TestingSet(testingData_OneSet);
+		double[] scores = nb.getProbabilityScores_TestingSet(query);
+		assertEquals(expected[0], scores[0], 0);
+		assertEquals(expected[1], scores[1], 0);
+		assertEquals("FEMALE", nb.predict_TestingSet(query).toUpperCase());
+
+		//scored by dictionary id
+		nb.publishSnapshot();
+		scores = nb.getProbabilityScores_TestingSet(query);
+		assertEquals(expected[0], scores[0], 0);
+		assertEquals(expected[1], scores[1], 0);
+		assertEquals("FEMALE", nb.predict_TestingSet(query).toUpperCase());
+
+		//value fitted after the query was prepared
+		testingData_OneSet.put("name", "Jo");
+		query = nb.prepareQuery(testingData_OneSet);
+		nb.fit("Name", "Jo", "Female");
+		nb.publishSnapshot();
+		nb.getProbabilityScores_TestingSet(query);
+		assertEquals(1, nb.getUnseenValueCount("Name"));
+		nb.getProbabilityScores_TestingSet(nb.prepareQuery(testingData_OneSet));
+		assertEquals(1, nb.getUnseenValueCount("Name"));
+
+		NaiveBayesClassifier_UsingTextValues other = new NaiveBayesClassifier_UsingTextValues(NaiveBayesClassifier_UsingTextValues.EMPTY_SAMPLES_IGNORE);
+		other.fit("Name", "Drew", "Male");
+		boolean exceptionThrown = false;
+		try {
+			other.predict_TestingSet(query);
+		} catch (IllegalArgumentException e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
 }
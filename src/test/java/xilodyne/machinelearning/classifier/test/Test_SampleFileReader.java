@@ -0,0 +1,368 @@
+package xilodyne.machinelearning.classifier.test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import xilodyne.machinelearning.classifier.bayes.GaussianNaiveBayesClassifier;
+import xilodyne.machinelearning.classifier.bayes.NaiveBayesClassifier;
+import xilodyne.machinelearning.classifier.io.CrossValidation;
+import xilodyne.machinelearning.classifier.io.FoldResult;
+import xilodyne.machinelearning.classifier.io.MappedCSVReader;
+import xilodyne.machinelearning.classifier.io.SampleFileReader;
+import xilodyne.machinelearning.classifier.io.StreamingTrainer;
+import xilodyne.util.logger.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - streaming CSV / ARFF samples
+ *
+ */
+public class Test_SampleFileReader {
+
+	private static final String ARFF = "% gender by height / weight\n"
+			+ "@RELATION gender\n"
+			+ "\n"
+			+ "@ATTRIBUTE height REAL\n"
+			+ "@ATTRIBUTE weight\tnumeric\n"
+			+ "@ATTRIBUTE 'shoe size' {small, large}\n"
+			+ "@ATTRIBUTE class {male,'female'}\n"
+			+ "@DATA\n"
+			+ "6,180,large,male\n"
+			+ "% comment\n"
+			+ "5.92,?,large,'male'\n"
+			+ "\n"
+			+ "5,100,small,female\n";
+
+	private Logger log = new Logger("tSFR");
+
+	public Test_SampleFileReader() {
+		// Logger.setLoggerLevel(Logger.LOG_OFF);
+		// Logger.setLoggerLevel(Logger.LOG_FINE);
+		// Logger.setLoggerLevel(Logger.LOG_INFO);
+		Logger.setLoggerLevel(Logger.LOG_DEBUG);
+	}
+
+	@Test
+	public void checkReadARFF() throws IOException {
+		log.logln_withClassName(Logger.lF, "");
+		System.out.println();
+		System.out.println("*** TEST *** Check Read ARFF");
+
+		SampleFileReader reader = new SampleFileReader(new StringReader(ARFF), SampleFileReader.FORMAT_ARFF, ',',
+				SampleFileReader.NO_HEADER_ROW, SampleFileReader.LABEL_LAST_COLUMN);
+		assertEquals(3, reader.getNumberOfFeatures());
+		assertEquals("[height, weight, shoe size]", reader.getFeatureNames().toString());
+		assertEquals("[male, female]", reader.getLabelNames().toString());
+
+		assertTrue(reader.next());
+		assertEquals(6f, reader.getValues()[0], 0);
+		assertEquals(180f, reader.getValues()[1], 0);
+		assertEquals(1f, reader.getValues()[2], 0);
+		assertEquals(0f, reader.getLabel(), 0);
+
+		assertTrue(reader.next());
+		assertEquals(GaussianNaiveBayesClassifier.NaN, reader.getValues()[1], 0);
+		assertEquals(0f, reader.getLabel(), 0);
+
+		assertTrue(reader.next());
+		assertEquals(0f, reader.getValues()[2], 0);
+		assertEquals(1f, reader.getLabel(), 0);
+		assertFalse(reader.next());
+		assertEquals(3, reader.getSamplesRead());
+		reader.close();
+
+		boolean exceptionThrown = false;
+		try {
+			reader = new SampleFileReader(new StringReader(ARFF + "5,100,medium,female\n"), SampleFileReader.FORMAT_ARFF, ',',
+					SampleFileReader.NO_HEADER_ROW, SampleFileReader.LABEL_LAST_COLUMN);
+			while (reader.next()) {
+				// read all
+			}
+		} catch (IOException e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkReadCSV() throws IOException {
+		log.logln_withClassName(Logger.lF, "");
+		System.out.println();
+		System.out.println("*** TEST *** Check Read CSV");
+
+		String csv = "gender;height;weight\n"
+				+ "male;6;180\n"
+				+ "\"female\";5.5;150\n"
+				+ "male;5.92;\n";
+		SampleFileReader reader = new SampleFileReader(new StringReader(csv), SampleFileReader.FORMAT_CSV, ';',
+				SampleFileReader.HEADER_ROW, 0);
+		assertEquals(2, reader.getNumberOfFeatures());
+		assertEquals("[height, weight]", reader.getFeatureNames().toString());
+
+		assertTrue(reader.next());
+		assertEquals(0f, reader.getLabel(), 0);
+		assertEquals(180f, reader.getValues()[1], 0);
+		assertTrue(reader.next());
+		assertEquals(1f, reader.getLabel(), 0);
+		assertEquals(5.5f, reader.getValues()[0], 0);
+		assertTrue(reader.next());
+		assertEquals(0f, reader.getLabel(), 0);
+		assertEquals(GaussianNaiveBayesClassifier.NaN, reader.getValues()[1], 0);
+		assertFalse(reader.next());
+		assertEquals("[male, female]", reader.getLabelNames().toString());
+		reader.close();
+
+		//numeric labels, no header
+		reader = new SampleFileReader(new StringReader("1,2,7\n3,4,9\n"), SampleFileReader.FORMAT_CSV, ',',
+				SampleFileReader.NO_HEADER_ROW, SampleFileReader.LABEL_LAST_COLUMN);
+		assertEquals(2, reader.getNumberOfFeatures());
+		assertTrue(reader.next());
+		assertEquals(7f, reader.getLabel(), 0);
+		assertTrue(reader.next());
+		assertEquals(9f, reader.getLabel(), 0);
+		assertEquals(4f, reader.getValues()[1], 0);
+		assertTrue(reader.getLabelNames().isEmpty());
+		reader.close();
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkStreamingFolds() throws Exception {
+		log.logln_withClassName(Logger.lF, "");
+		System.out.println();
+		System.out.println("*** TEST *** Check Streaming Folds");
+
+		StringBuilder csv = new StringBuilder();
+		for (int index = 0; index < 200; index++) {
+			int label = index % 2;
+			csv.append((5 + label + ((index % 7) * 0.1f)) + "," + (100 + (label * 60) + (index % 11)) + "," + label + "\n");
+		}
+
+		int testFold = 3;
+		SampleFileReader reader = this.openFolds(csv.toString());
+		GaussianNaiveBayesClassifier gnbRow = new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		int[] foldCounts = new int[5];
+		while (reader.next()) {
+			foldCounts[reader.getFold()]++;
+			if (reader.getFold() != testFold) {
+				gnbRow.fit(reader.getValues().clone(), reader.getLabel());
+			}
+		}
+		for (int count : foldCounts) {
+			assertTrue(count > 0);
+		}
+
+		// small batches, several fitRows calls
+		GaussianNaiveBayesClassifier gnb = new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		StreamingTrainer trainer = new StreamingTrainer(testFold, 7);
+		trainer.fit(this.openFolds(csv.toString()), gnb);
+		assertEquals(200 - foldCounts[testFold], trainer.getSamplesFitted());
+
+		float[] testingData = new float[] {5.5f, 130f};
+		double[] expected = gnbRow.getProbabilityScores_TestingSet(testingData);
+		double[] scores = gnb.getProbabilityScores_TestingSet(testingData);
+		assertEquals(expected[0], scores[0], expected[0] * 0.000001);
+		assertEquals(expected[1], scores[1], expected[1] * 0.000001);
+
+		trainer.predict(this.openFolds(csv.toString()), gnb);
+		assertEquals(foldCounts[testFold], trainer.getSamplesPredicted());
+		assertTrue(trainer.getAccuracy() > 0.9);
+
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		StreamingTrainer nbTrainer = new StreamingTrainer(StreamingTrainer.NO_TEST_FOLD);
+		nbTrainer.fit(this.openFolds(csv.toString()), nb);
+		nbTrainer.predict(this.openFolds(csv.toString()), nb);
+		assertEquals(200, nbTrainer.getSamplesFitted());
+		assertEquals(200, nbTrainer.getSamplesPredicted());
+		assertEquals(1.0, nbTrainer.getAccuracy(), 0);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkMappedCSV() throws Exception {
+		log.logln_withClassName(Logger.lF, "");
+		System.out.println();
+		System.out.println("*** TEST *** Check Mapped CSV");
+
+		File file = this.writeTempFile("height,weight,label\n1.5e2,-0.25,1\r\n\n  2 ,?,1\n3E-1,,1");
+		MappedCSVReader reader = new MappedCSVReader(file.getPath(), ',', SampleFileReader.HEADER_ROW,
+				SampleFileReader.LABEL_LAST_COLUMN);
+		assertEquals(2, reader.getNumberOfFeatures());
+		GaussianNaiveBayesClassifier gnb = new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW,
+				GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS);
+		reader.fit(gnb);
+		assertEquals(3, reader.getSamplesRead());
+		gnb.predict_TestingSet(new float[] {1f, 1f});
+		assertEquals((150f + 2f + 0.3f) / 3, gnb.getMean(0, 0), 0.0001);
+		assertEquals(-0.25f, gnb.getMean(0, 1), 0);
+		file.delete();
+
+		// many segments, several workers, same model as reading line by line
+		StringBuilder csv = new StringBuilder();
+		for (int index = 0; index < 2000; index++) {
+			int label = index % 3;
+			csv.append((5 + label + ((index % 7) * 0.125f)) + "," + (100 + (label * 60) + (index % 11)) + ",");
+			csv.append((index % 5) * 0.01f).append(",").append(label).append("\n");
+		}
+		file = this.writeTempFile(csv.toString());
+
+		GaussianNaiveBayesClassifier gnbStreamed = new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		new StreamingTrainer(StreamingTrainer.NO_TEST_FOLD).fit(new SampleFileReader(file.getPath(), ',',
+				SampleFileReader.NO_HEADER_ROW, SampleFileReader.LABEL_LAST_COLUMN), gnbStreamed);
+		NaiveBayesClassifier nbStreamed = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		new StreamingTrainer(StreamingTrainer.NO_TEST_FOLD).fit(new SampleFileReader(file.getPath(), ',',
+				SampleFileReader.NO_HEADER_ROW, SampleFileReader.LABEL_LAST_COLUMN), nbStreamed);
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		reader = new MappedCSVReader(file.getPath(), ',', SampleFileReader.NO_HEADER_ROW, SampleFileReader.LABEL_LAST_COLUMN);
+		reader.setSegmentBytes(1000);
+		reader.setBatchSamples(16);
+		gnb = new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		reader.fit(gnb, executor, 3);
+		assertEquals(2000, reader.getSamplesRead());
+
+		NaiveBayesClassifier nb = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+		reader.fit(nb, executor, 3);
+		executor.shutdown();
+
+		float[] testingData = new float[] {6.25f, 165f, 0.02f};
+		double[] expected = gnbStreamed.getProbabilityScores_TestingSet(testingData);
+		double[] scores = gnb.getProbabilityScores_TestingSet(testingData);
+		// labels may be in another order
+		assertEquals(gnbStreamed.predict_TestingSet(testingData), gnb.predict_TestingSet(testingData), 0);
+		assertEquals(this.sum(expected), this.sum(scores), this.sum(expected) * 0.00001);
+
+		double[] nbExpected = new double[3];
+		double[] nbScores = new double[3];
+		assertEquals(nbStreamed.predictInto(testingData, nbExpected), nb.predictInto(testingData, nbScores), 0);
+		assertEquals(this.sum(nbExpected), this.sum(nbScores), 0.000001);
+		file.delete();
+
+		file = this.writeTempFile("1,2,0\n1,x,0\n");
+		boolean exceptionThrown = false;
+		try {
+			new MappedCSVReader(file.getPath(), ',', SampleFileReader.NO_HEADER_ROW, SampleFileReader.LABEL_LAST_COLUMN)
+				.fit(new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW));
+		} catch (IOException e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+		file.delete();
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	@Test
+	public void checkCrossValidation() throws Exception {
+		log.logln_withClassName(Logger.lF, "");
+		System.out.println();
+		System.out.println("*** TEST *** Check Cross Validation");
+
+		StringBuilder csv = new StringBuilder();
+		for (int index = 0; index < 300; index++) {
+			int label = index % 3;
+			csv.append((5 + (label * 0.4f) + ((index % 7) * 0.2f)) + "," + (100 + (label * 25) + (index % 13) * 3) + "," + label + "\n");
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			CrossValidation cv = new CrossValidation(5, 16);
+			GaussianNaiveBayesClassifier gnb = new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+			cv.fit(this.openFolds(csv.toString()), gnb);
+			assertEquals(300, cv.getSamplesFitted());
+			assertEquals(3, gnb.getNumberOfLabels());
+			FoldResult[] results = cv.score(this.openFolds(csv.toString()), executor);
+
+			//same as fitting the other folds again for each fold
+			for (int fold = 0; fold < 5; fold++) {
+				StreamingTrainer trainer = new StreamingTrainer(fold);
+				GaussianNaiveBayesClassifier gnbFold = new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+				trainer.fit(this.openFolds(csv.toString()), gnbFold);
+				trainer.predict(this.openFolds(csv.toString()), gnbFold);
+				assertEquals(fold, results[fold].getFold());
+				assertEquals(trainer.getSamplesFitted(), results[fold].getTrainingDataSize());
+				assertEquals(trainer.getSamplesPredicted(), results[fold].getTestingDataSize());
+				assertEquals(trainer.getSamplesCorrect(), results[fold].getSamplesCorrect());
+			}
+
+			//arrays, same folds as the reader
+			float[][] samples = new float[300][];
+			float[] labels = new float[300];
+			SampleFileReader reader = this.openFolds(csv.toString());
+			for (int index = 0; reader.next(); index++) {
+				samples[index] = reader.getValues().clone();
+				labels[index] = reader.getLabel();
+			}
+			int[] sampleFolds = CrossValidation.assignFolds(300, 5, 42);
+			for (boolean storage : new boolean[] {GaussianNaiveBayesClassifier.STORE_FEATURE_VALUES, GaussianNaiveBayesClassifier.STORE_SUFFICIENT_STATISTICS}) {
+				CrossValidation cvArrays = new CrossValidation(5);
+				cvArrays.fit(samples, labels, sampleFolds,
+						new GaussianNaiveBayesClassifier(GaussianNaiveBayesClassifier.EMPTY_SAMPLES_ALLOW, storage));
+				FoldResult[] arrayResults = cvArrays.score(samples, labels, sampleFolds, executor);
+				for (int fold = 0; fold < 5; fold++) {
+					assertEquals(results[fold].getTestingDataSize(), arrayResults[fold].getTestingDataSize());
+					assertEquals(results[fold].getSamplesCorrect(), arrayResults[fold].getSamplesCorrect());
+				}
+			}
+
+			CrossValidation cvNB = new CrossValidation(5);
+			cvNB.fit(this.openFolds(csv.toString()), new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW));
+			FoldResult[] nbResults = cvNB.score(this.openFolds(csv.toString()), null);
+			for (int fold = 0; fold < 5; fold++) {
+				StreamingTrainer trainer = new StreamingTrainer(fold);
+				NaiveBayesClassifier nbFold = new NaiveBayesClassifier(NaiveBayesClassifier.EMPTY_SAMPLES_ALLOW);
+				trainer.fit(this.openFolds(csv.toString()), nbFold);
+				trainer.predict(this.openFolds(csv.toString()), nbFold);
+				assertEquals(trainer.getSamplesCorrect(), nbResults[fold].getSamplesCorrect());
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		boolean exceptionThrown = false;
+		try {
+			new CrossValidation(5).score(this.openFolds(csv.toString()), null);
+		} catch (IllegalStateException e) {
+			exceptionThrown = true;
+		}
+		assertTrue(exceptionThrown);
+
+		System.out.println("*** TEST COMPLETE ***");
+	}
+
+	private double sum(double[] values) {
+		double total = 0;
+		for (double value : values) {
+			total += value;
+		}
+		return total;
+	}
+
+	private File writeTempFile(String text) throws IOException {
+		File file = File.createTempFile("samples", ".csv");
+		FileWriter writer = new FileWriter(file);
+		writer.write(text);
+		writer.close();
+		return file;
+	}
+
+	private SampleFileReader openFolds(String csv) throws IOException {
+		SampleFileReader reader = new SampleFileReader(new StringReader(csv), SampleFileReader.FORMAT_CSV, ',',
+				SampleFileReader.NO_HEADER_ROW, SampleFileReader.LABEL_LAST_COLUMN);
+		reader.setFolds(5, 42);
+		return reader;
+	}
+}
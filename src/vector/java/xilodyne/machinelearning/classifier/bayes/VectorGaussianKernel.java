@@ -0,0 +1,79 @@
+package xilodyne.machinelearning.classifier.bayes;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Scores as many features per step as the CPU's preferred double vector holds,
+ * using the JDK Vector API (jdk.incubator.vector).  Sample values are loaded
+ * as floats and widened to doubles, skipped values are masked out of the sum.
+ * <p>
+ * Optional source set (src/vector), compiled separately with
+ * --add-modules jdk.incubator.vector and put on the class path next to
+ * the library.  Loaded by reflection when found unless
+ * xilodyne.gnb.scoring=scalar, the JVM must be started with
+ * --add-modules jdk.incubator.vector otherwise {@link ScalarGaussianKernel}
+ * is used.
+ * The order of the additions differs from the scalar loop so scores can
+ * differ in the last bits.
+ *
+ * @author Austin Davis Holiday, aholiday@xilodyne.com
+ * @version 0.5 - scoring kernels
+ */
+final class VectorGaussianKernel implements GaussianScoringKernel {
+
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	// same number of lanes as DOUBLES
+	private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class,
+			VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+	/**
+	 * Instantiates a new vector kernel.
+	 *
+	 * @throws UnsupportedOperationException if the CPU has no vector registers of 2 or more doubles
+	 */
+	VectorGaussianKernel() {
+		if (DOUBLES.length() < 2) {
+			throw new UnsupportedOperationException("Preferred double vector has " + DOUBLES.length() + " lane.");
+		}
+	}
+
+	public double getLogScore(float[] testingData, int features, int offset, double logPrior, double[] mean,
+			double[] logNormalizer, double[] inverseTwoVariance, boolean ignoreEmptyValues) {
+		DoubleVector sum = DoubleVector.zero(DOUBLES);
+		int featureIndex = 0;
+		int upperBound = DOUBLES.loopBound(features);
+
+		for (; featureIndex < upperBound; featureIndex += DOUBLES.length()) {
+			FloatVector values = FloatVector.fromArray(FLOATS, testingData, featureIndex);
+			VectorMask<Float> accepted = values.compare(VectorOperators.NE, GaussianNaiveBayesClassifier.NaN);
+			if (ignoreEmptyValues) {
+				accepted = accepted.and(values.compare(VectorOperators.NE, 0f));
+			}
+			DoubleVector diff = ((DoubleVector) values.convertShape(VectorOperators.F2D, DOUBLES, 0))
+					.sub(DoubleVector.fromArray(DOUBLES, mean, offset + featureIndex));
+			DoubleVector terms = DoubleVector.fromArray(DOUBLES, logNormalizer, offset + featureIndex)
+					.sub(diff.mul(diff).mul(DoubleVector.fromArray(DOUBLES, inverseTwoVariance, offset + featureIndex)));
+			sum = sum.add(terms, accepted.cast(DOUBLES));
+		}
+
+		double score = logPrior + sum.reduceLanes(VectorOperators.ADD);
+		for (; featureIndex < features; featureIndex++) {
+			float value = testingData[featureIndex];
+			if ((value == GaussianNaiveBayesClassifier.NaN) || ((value == 0) && ignoreEmptyValues)) {
+				continue;
+			}
+			double diff = value - mean[offset + featureIndex];
+			score += logNormalizer[offset + featureIndex] - (diff * diff * inverseTwoVariance[offset + featureIndex]);
+		}
+		return score;
+	}
+
+	public String getName() {
+		return CompiledGaussianModel.SCORING_VECTOR;
+	}
+}